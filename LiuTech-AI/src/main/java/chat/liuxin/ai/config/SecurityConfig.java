@@ -1,6 +1,6 @@
 package chat.liuxin.ai.config;
 
-import chat.liuxin.ai.filter.JwtAuthenticationFilter;
+import chat.liuxin.auth.filter.JwtAuthenticationFilter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
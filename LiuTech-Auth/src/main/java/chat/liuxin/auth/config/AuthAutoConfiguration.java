@@ -0,0 +1,42 @@
+package chat.liuxin.auth.config;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+import chat.liuxin.auth.filter.JwtAuthenticationFilter;
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+
+/**
+ * 公共认证模块自动配置
+ * 引入 liutech-auth 依赖后自动注册 JwtUtil、TokenRevocationRegistry 与 JwtAuthenticationFilter，
+ * 各服务只需在自己的 SecurityConfig 中把过滤器加入过滤器链即可。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(JwtProperties.class)
+public class AuthAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtUtil jwtUtil(JwtProperties jwtProperties) {
+        return new JwtUtil(jwtProperties);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenRevocationRegistry tokenRevocationRegistry() {
+        return new TokenRevocationRegistry();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtAuthenticationFilter jwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationRegistry tokenRevocationRegistry,
+                                                           JwtProperties jwtProperties) {
+        return new JwtAuthenticationFilter(jwtUtil, tokenRevocationRegistry, jwtProperties.getSkipPaths());
+    }
+}
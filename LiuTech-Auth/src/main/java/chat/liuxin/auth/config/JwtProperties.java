@@ -0,0 +1,40 @@
+package chat.liuxin.auth.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * JWT配置
+ * 后端与AI服务共用同一套配置项（jwt.*），两边的 secret 必须一致才能互认token
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+
+    /**
+     * 签名密钥（HMAC-SHA256，至少32字节）
+     */
+    private String secret;
+
+    /**
+     * token过期时间，单位：毫秒
+     */
+    private long expiration = 604800000L;
+
+    /**
+     * 已验签token缓存条数，命中时跳过验签
+     */
+    private int verifiedCacheSize = 10000;
+
+    /**
+     * 跳过JWT认证的路径（Spring PathPattern 语法，如 /uploads/**），启动时编译一次
+     */
+    private List<String> skipPaths = new ArrayList<>();
+}
@@ -0,0 +1,198 @@
+package chat.liuxin.auth.filter;
+
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JWT认证过滤器（后端与AI服务共用）
+ * 自动验证请求中的JWT token，并将用户信息与权限注入到Spring Security上下文
+ * 注意：本项目 Users 实体没有角色字段，这里采用“最小可行策略”——
+ * - 默认给所有登录用户 ROLE_USER
+ * - 通过用户名匹配 admin 列表赋予 ROLE_ADMIN（可后续替换为数据库角色表）
+ * 这样可让 @PreAuthorize("hasRole('ADMIN')") 立即生效，后续再演进为真正的RBAC。
+ *
+ * 性能说明：
+ * - 跳过认证的路径（jwt.skip-paths）在构造时编译为 PathPattern，匹配时不再逐条字符串比较；
+ * - token 只解析/验签一次（JwtUtil.parseToken，命中验签缓存时无需任何加解密）；
+ * - 吊销检查（版本号 + 吊销名单）只查内存中的 TokenRevocationRegistry，不访问数据库；
+ * - 权限集合为预先构建的不可变列表，逐请求日志使用 debug 级别。
+ *
+ * 作者：刘鑫，时间：2025-08-26（Asia/Shanghai）
+ */
+@Slf4j
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    // 依赖说明：
+    // - 由各服务的 SecurityConfig 将本过滤器注册到过滤器链（位于 UsernamePasswordAuthenticationFilter 之前）
+    // - 依赖 JwtUtil 进行 token 的解析与校验
+    // - 利用 SecurityContextHolder 注入 Authentication，供 @PreAuthorize 等授权注解使用
+    // - 将 userId 写入 Authentication.details，供 UserUtils、MyMetaObjectHandler、AI控制器等读取
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    /**
+     * 请求属性名：当前请求已验签的token（JwtUtil.ParsedToken），供退出登录等接口读取
+     */
+    public static final String PARSED_TOKEN_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".PARSED_TOKEN";
+
+    private static final List<GrantedAuthority> USER_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
+    private final JwtUtil jwtUtil;
+
+    private final TokenRevocationRegistry revocationRegistry;
+
+    /**
+     * 预编译的跳过认证路径
+     */
+    private final List<PathPattern> skipPatterns;
+
+    // 使用RequestAttributeSecurityContextRepository在请求属性中保存安全上下文
+    // 解决SSE流完成后认证上下文丢失问题（AI服务的流式接口依赖）
+    private final SecurityContextRepository securityContextRepository =
+            new RequestAttributeSecurityContextRepository();
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationRegistry revocationRegistry, List<String> skipPaths) {
+        this.jwtUtil = jwtUtil;
+        this.revocationRegistry = revocationRegistry;
+        PathPatternParser parser = new PathPatternParser();
+        this.skipPatterns = skipPaths == null ? List.of() : skipPaths.stream().map(parser::parse).toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            // 跳过公开接口与预检请求，不进行JWT验证
+            if (shouldSkipAuthentication(request)) {
+                log.debug("跳过JWT验证的公开接口: {} {}", request.getMethod(), request.getRequestURI());
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            String token = extractTokenFromRequest(request);
+            if (token != null) {
+                processValidToken(token, request, response);
+            }
+        } catch (Exception e) {
+            log.error("JWT认证过程中发生错误，请求路径: {}, 错误: {}", request.getRequestURI(), e.getMessage());
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 判断是否应该跳过JWT认证
+     * @param request HTTP请求
+     * @return 是否跳过认证
+     */
+    private boolean shouldSkipAuthentication(HttpServletRequest request) {
+        // 跳过OPTIONS预检请求（避免跨域失败）
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        if (skipPatterns.isEmpty()) {
+            return false;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (PathPattern pattern : skipPatterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 从请求中提取JWT token
+     * @param request HTTP请求
+     * @return JWT token字符串，如果不存在则返回null
+     */
+    private String extractTokenFromRequest(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.length() > BEARER_PREFIX.length() && authHeader.startsWith(BEARER_PREFIX)) {
+            return authHeader.substring(BEARER_PREFIX.length());
+        }
+        return null;
+    }
+
+    /**
+     * 处理有效的JWT token
+     * @param token JWT token
+     * @param request HTTP请求
+     * @param response HTTP响应
+     */
+    private void processValidToken(String token, HttpServletRequest request, HttpServletResponse response) {
+        // 只解析/验签一次，拿到全部声明（最近验签过的token直接命中缓存）
+        JwtUtil.ParsedToken parsed = jwtUtil.parseToken(token);
+        if (parsed == null) {
+            log.warn("无效的JWT token，请求路径: {}", request.getRequestURI());
+            return;
+        }
+        if (revocationRegistry != null && revocationRegistry.isRevoked(parsed)) {
+            log.warn("JWT token已被吊销，用户ID: {}, 请求路径: {}", parsed.getUserId(), request.getRequestURI());
+            return;
+        }
+        request.setAttribute(PARSED_TOKEN_ATTRIBUTE, parsed);
+
+        String username = parsed.getUsername();
+        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            setAuthenticationContext(username, parsed.getUserId(), request, response);
+        }
+    }
+
+    /**
+     * 设置Spring Security认证上下文
+     * @param username 用户名
+     * @param userId 用户ID
+     * @param request HTTP请求
+     * @param response HTTP响应
+     */
+    private void setAuthenticationContext(String username, Long userId, HttpServletRequest request, HttpServletResponse response) {
+        Collection<GrantedAuthority> authorities = isAdminUser(username) ? ADMIN_AUTHORITIES : USER_AUTHORITIES;
+        // 使用 UsernamePasswordAuthenticationToken 注入认证主体（带权限的构造函数，自动设置为已认证状态）
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                username, null, authorities);
+        // 将 userId 放入 details，供后续业务组件读取（UserUtils、填充审计字段等）
+        authToken.setDetails(userId);
+
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authToken);
+        SecurityContextHolder.setContext(context);
+        // 将安全上下文保存到请求属性中，解决SSE流完成后认证上下文丢失问题
+        securityContextRepository.saveContext(context, request, response);
+
+        log.debug("JWT认证成功，用户: {}, 角色: {}, 请求路径: {}", username, authorities, request.getRequestURI());
+    }
+
+    private boolean isAdminUser(String username) {
+        // 最小实现：基于用户名判断管理员身份；注意仅为权宜之计
+        // 推荐后续改为 RBAC（基于数据库角色或JWT roles）
+        if (username == null || username.isBlank()) {
+            return false;
+        }
+        String u = username.trim();
+        return "admin".equalsIgnoreCase(u) || "administrator".equalsIgnoreCase(u);
+    }
+}
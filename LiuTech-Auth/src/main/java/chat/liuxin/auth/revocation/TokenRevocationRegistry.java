@@ -0,0 +1,109 @@
+package chat.liuxin.auth.revocation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import chat.liuxin.auth.utils.JwtUtil;
+
+/**
+ * token吊销登记表（纯内存）
+ * 认证过滤器每次请求都会调用 isRevoked，因此这里只做两次哈希查找，不访问数据库：
+ * 1) 用户版本号：userId -> 当前token版本号，token中的版本号小于当前版本即视为失效
+ *    （改密码、管理员禁用/删除、“退出全部设备”时递增）；
+ * 2) 吊销名单：tokenId(jti) -> 过期时间，用于单个token的退出登录，条目在token过期后清理。
+ *
+ * 本类只维护内存状态，数据的持久化与多实例间的同步由使用方负责（后端见 TokenRevocationService）。
+ * 未登记版本号的用户按“未吊销”处理。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class TokenRevocationRegistry {
+
+    /**
+     * 用户ID -> 当前token版本号
+     */
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    /**
+     * 被吊销的tokenId -> token过期时间（毫秒）
+     */
+    private final Map<String, Long> revokedTokenIds = new ConcurrentHashMap<>();
+
+    /**
+     * token是否已被吊销
+     *
+     * @param token 已验签的token
+     * @return 已吊销返回true
+     */
+    public boolean isRevoked(JwtUtil.ParsedToken token) {
+        if (token.getUserId() != null) {
+            Integer current = versions.get(token.getUserId());
+            if (current != null && token.getTokenVersion() < current) {
+                return true;
+            }
+        }
+        return token.getTokenId() != null && !revokedTokenIds.isEmpty()
+                && revokedTokenIds.containsKey(token.getTokenId());
+    }
+
+    /**
+     * 登记用户的token版本号（版本号只增不减，旧值不会覆盖新值）
+     *
+     * @param userId 用户ID
+     * @param version 版本号
+     */
+    public void updateVersion(Long userId, int version) {
+        if (userId != null) {
+            versions.merge(userId, version, Math::max);
+        }
+    }
+
+    /**
+     * 获取已登记的用户token版本号
+     *
+     * @param userId 用户ID
+     * @return 版本号，未登记时返回null
+     */
+    public Integer getVersion(Long userId) {
+        return versions.get(userId);
+    }
+
+    /**
+     * 吊销单个token
+     *
+     * @param tokenId token ID（jti）
+     * @param expiresAt token过期时间（毫秒），过期后条目会被清理
+     */
+    public void revoke(String tokenId, long expiresAt) {
+        if (tokenId != null) {
+            revokedTokenIds.put(tokenId, expiresAt);
+        }
+    }
+
+    /**
+     * 清理已过期的吊销记录
+     *
+     * @param now 当前时间（毫秒）
+     * @return 清理的条数
+     */
+    public int purgeExpired(long now) {
+        int before = revokedTokenIds.size();
+        revokedTokenIds.values().removeIf(expiresAt -> expiresAt <= now);
+        return before - revokedTokenIds.size();
+    }
+
+    /**
+     * 已登记版本号的用户数
+     */
+    public int versionCount() {
+        return versions.size();
+    }
+
+    /**
+     * 吊销名单条数
+     */
+    public int revokedCount() {
+        return revokedTokenIds.size();
+    }
+}
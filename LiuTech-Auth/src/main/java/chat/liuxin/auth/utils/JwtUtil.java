@@ -0,0 +1,355 @@
+package chat.liuxin.auth.utils;
+
+import chat.liuxin.auth.config.JwtProperties;
+import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.Keys;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JWT工具类
+ * 用于生成、解析和验证JWT token，后端与AI服务共用
+ * 
+ * 性能说明：
+ * - 签名密钥与解析器在启动时构建一次并复用，不再每次解析都重新创建；
+ * - 一个token只需调用一次 parseToken 即可拿到全部声明，避免“校验 + 取用户名 + 取用户ID”三次验签；
+ * - 验签通过的token按 SHA-256 摘要缓存（jwt.verified-cache-size 条），同一会话的后续请求直接命中，
+ *   跳过HMAC验签与JSON解析；命中时仍按token自身的过期时间判断是否有效。
+ * 
+ * @author liuxin
+ */
+@Slf4j
+public class JwtUtil {
+
+    // 依赖说明：
+    // - 配置属性：JwtProperties（jwt.secret 签名密钥、jwt.expiration 过期毫秒数、jwt.verified-cache-size 验签缓存条数）
+    // - 第三方库：io.jsonwebtoken（JJWT）用于签名与解析
+    // - 本类仅封装 JWT 的生成/解析/校验，不做任何业务判定；由 AuthAutoConfiguration 注册为Bean
+
+    /**
+     * token版本号声明名
+     */
+    public static final String CLAIM_TOKEN_VERSION = "tokenVersion";
+
+    /**
+     * token过期时间
+     */
+    private final long expirationTime;
+
+    /**
+     * 验签结果缓存的最大条数
+     */
+    private final int verifiedCacheSize;
+
+    /**
+     * 签名密钥（构造时计算一次）
+     */
+    private final SecretKey signingKey;
+
+    /**
+     * 预构建的解析器，线程安全，可在所有请求间复用
+     */
+    private final JwtParser jwtParser;
+
+    /**
+     * 已验签token缓存：token的SHA-256摘要 -> 解析结果
+     */
+    private final Map<String, ParsedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    public JwtUtil(JwtProperties properties) {
+        this.expirationTime = properties.getExpiration();
+        this.verifiedCacheSize = properties.getVerifiedCacheSize();
+        this.signingKey = Keys.hmacShaKeyFor(properties.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+    
+    /**
+     * 获取签名密钥
+     */
+    private SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    /**
+     * 生成JWT token
+     * 
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param tokenVersion 用户当前的token版本号（改密码/禁用/全部登出时递增，旧版本token随即失效）
+     * @return JWT token字符串
+     */
+    public String generateToken(Long userId, String username, int tokenVersion) {
+        // 说明：claims 包含 userId/username/tokenVersion，jti 为随机token ID（用于单个token的吊销）
+        // 不再把 passwordHash 放入token：失效判断改由 TokenRevocationRegistry 基于版本号完成
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", userId);
+        claims.put("username", username);
+        claims.put(CLAIM_TOKEN_VERSION, tokenVersion);
+        return createToken(claims, username);
+    }
+
+    /**
+     * 创建token
+     * 
+     * @param claims 载荷信息
+     * @param subject 主题（通常是用户名）
+     * @return JWT token
+     */
+    private String createToken(Map<String, Object> claims, String subject) {
+        Date now = new Date();
+        Date expiration = new Date(now.getTime() + expirationTime);
+        
+        return Jwts.builder()
+                .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
+                .setSubject(subject)
+                .setIssuedAt(now)
+                .setExpiration(expiration)
+                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    /**
+     * 从token中提取用户ID
+     * 
+     * @param token JWT token
+     * @return 用户ID
+     */
+    public Long getUserIdFromToken(String token) {
+        ParsedToken parsed = parseToken(token);
+        return parsed != null ? parsed.getUserId() : null;
+    }
+
+    /**
+     * 从token中提取用户名
+     * 
+     * @param token JWT token
+     * @return 用户名
+     */
+    public String getUsernameFromToken(String token) {
+        ParsedToken parsed = parseToken(token);
+        return parsed != null ? parsed.getUsername() : null;
+    }
+
+    /**
+     * 从token中提取token版本号
+     * 
+     * @param token JWT token
+     * @return token版本号
+     */
+    public Integer getTokenVersionFromToken(String token) {
+        ParsedToken parsed = parseToken(token);
+        return parsed != null ? parsed.getTokenVersion() : null;
+    }
+
+    /**
+     * 从token中提取过期时间
+     * 
+     * @param token JWT token
+     * @return 过期时间
+     */
+    public Date getExpirationDateFromToken(String token) {
+        ParsedToken parsed = parseToken(token);
+        return parsed != null ? parsed.getExpiration() : null;
+    }
+
+    /**
+     * 解析并校验token（签名 + 过期时间），一次拿到全部声明
+     * 最近验签通过的token直接从缓存返回，不再重复验签
+     * 
+     * @param token JWT token
+     * @return 解析结果，token无效或已过期时返回null
+     */
+    public ParsedToken parseToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        String cacheKey = digest(token);
+        ParsedToken cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            verifiedTokens.remove(cacheKey);
+            return null;
+        }
+
+        Claims claims = getClaimsFromToken(token);
+        if (claims == null) {
+            return null;
+        }
+        Object userId = claims.get("userId");
+        Object tokenVersion = claims.get(CLAIM_TOKEN_VERSION);
+        ParsedToken parsed = new ParsedToken(
+                userId instanceof Number number ? number.longValue() : null,
+                claims.getSubject(),
+                claims.getId(),
+                // 旧版本签发的token没有版本号，按0处理
+                tokenVersion instanceof Number version ? version.intValue() : 0,
+                claims.getExpiration());
+        if (parsed.isExpired(now)) {
+            return null;
+        }
+        cacheVerified(cacheKey, parsed, now);
+        return parsed;
+    }
+
+    /**
+     * 放入验签缓存，超出容量时先清理过期条目，仍然超出则整体清空
+     */
+    private void cacheVerified(String cacheKey, ParsedToken parsed, long now) {
+        if (verifiedTokens.size() >= verifiedCacheSize) {
+            verifiedTokens.values().removeIf(entry -> entry.isExpired(now));
+            if (verifiedTokens.size() >= verifiedCacheSize) {
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(cacheKey, parsed);
+    }
+
+    /**
+     * 计算token的SHA-256摘要，作为缓存键（不在内存中长期保存token原文）
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 从token中提取所有声明信息
+     * 
+     * @param token JWT token
+     * @return 声明信息
+     */
+    private Claims getClaimsFromToken(String token) {
+        try {
+            return jwtParser.parseClaimsJws(token).getBody();
+        } catch (ExpiredJwtException e) {
+            // 过期：返回 null，由调用方决定是否提示重新登录
+            log.warn("JWT token已过期: {}", e.getMessage());
+            return null;
+        } catch (UnsupportedJwtException e) {
+            log.warn("不支持的JWT token: {}", e.getMessage());
+            return null;
+        } catch (MalformedJwtException e) {
+            log.warn("JWT token格式错误: {}", e.getMessage());
+            return null;
+        } catch (SecurityException e) {
+            log.warn("JWT token签名验证失败: {}", e.getMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            log.warn("JWT token参数错误: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 检查token是否过期
+     * 
+     * @param token JWT token
+     * @return true表示已过期，false表示未过期
+     */
+    public boolean isTokenExpired(String token) {
+        Date expiration = getExpirationDateFromToken(token);
+        return expiration != null && expiration.before(new Date());
+    }
+
+    /**
+     * 验证token是否有效
+     * 
+     * @param token JWT token
+     * @param username 用户名（用于验证token中的用户名是否匹配）
+     * @return true表示有效，false表示无效
+     */
+    public boolean validateToken(String token, String username) {
+        // 强校验：同时匹配用户名与未过期
+        // parseToken 已校验过期时间
+        String tokenUsername = getUsernameFromToken(token);
+        return tokenUsername != null && tokenUsername.equals(username);
+    }
+
+    /**
+     * 验证token是否有效（不验证用户名）
+     * 
+     * @param token JWT token
+     * @return true表示有效，false表示无效
+     */
+    public boolean validateToken(String token) {
+        // 弱校验：只校验签名与未过期（不校验用户名）
+        return parseToken(token) != null;
+    }
+
+    /**
+     * 刷新token（生成新的token）
+     * 
+     * @param token 旧的JWT token
+     * @return 新的JWT token
+     */
+    public String refreshToken(String token) {
+        // 简单刷新：沿用旧claims生成新token（过期时间更新）
+        ParsedToken parsed = parseToken(token);
+        if (parsed == null) {
+            return null;
+        }
+        return generateToken(parsed.getUserId(), parsed.getUsername(), parsed.getTokenVersion());
+    }
+
+    /**
+     * token解析结果
+     * 只读对象，可安全地在缓存中共享
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ParsedToken {
+        /**
+         * 用户ID
+         */
+        private final Long userId;
+
+        /**
+         * 用户名（subject）
+         */
+        private final String username;
+
+        /**
+         * token ID（jti），旧版本签发的token可能为空
+         */
+        private final String tokenId;
+
+        /**
+         * token版本号
+         */
+        private final int tokenVersion;
+
+        /**
+         * 过期时间
+         */
+        private final Date expiration;
+
+        /**
+         * 是否已过期
+         */
+        public boolean isExpired(long now) {
+            return expiration != null && expiration.getTime() <= now;
+        }
+    }
+}
\ No newline at end of file
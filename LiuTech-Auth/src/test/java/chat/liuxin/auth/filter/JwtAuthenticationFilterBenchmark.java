@@ -0,0 +1,96 @@
+package chat.liuxin.auth.filter;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import chat.liuxin.auth.config.JwtProperties;
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+
+/**
+ * 认证过滤器基准测试：单个请求经过过滤器的开销
+ * 跳过路径取自后端 application.yml 的 jwt.skip-paths，token 命中验签缓存（同一会话的常态）。
+ *
+ * 对比项：
+ * 1) skippedPath：公开接口，只做预编译路径匹配；
+ * 2) authenticatedRequest：携带token的请求，完成路径匹配、解析、吊销检查与安全上下文注入；
+ * 3) anonymousRequest：未携带token的请求。
+ *
+ * 运行方式：在IDE中直接运行 main，或 mvn test-compile 后以测试类路径执行本类。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final List<String> SKIP_PATHS = List.of(
+            "/", "/user/login", "/user/register", "/user/availability", "/uploads/**", "/files/**",
+            "/api/resource/file/**");
+
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup
+    public void setup() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("liutech-benchmark-secret-key-for-hmac-sha256-minimum-256-bits");
+        JwtUtil jwtUtil = new JwtUtil(properties);
+        filter = new JwtAuthenticationFilter(jwtUtil, new TokenRevocationRegistry(), SKIP_PATHS);
+        token = jwtUtil.generateToken(42L, "benchmark-user", 0);
+        jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public Object skippedPath() throws Exception {
+        return run(new MockHttpServletRequest("GET", "/uploads/images/ab/cd/abcdef.png"));
+    }
+
+    @Benchmark
+    public Object authenticatedRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/user/profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        return run(request);
+    }
+
+    @Benchmark
+    public Object anonymousRequest() throws Exception {
+        return run(new MockHttpServletRequest("GET", "/user/profile"));
+    }
+
+    private Object run(MockHttpServletRequest request) throws Exception {
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthenticationFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,125 @@
+package chat.liuxin.auth.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import chat.liuxin.auth.config.JwtProperties;
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+
+/**
+ * JwtAuthenticationFilter 单元测试：跳过路径、认证上下文注入与吊销
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class JwtAuthenticationFilterTest {
+
+    private JwtUtil jwtUtil;
+    private TokenRevocationRegistry registry;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("liutech-test-secret-key-for-hmac-sha256-minimum-256-bits");
+        jwtUtil = new JwtUtil(properties);
+        registry = new TokenRevocationRegistry();
+        filter = new JwtAuthenticationFilter(jwtUtil, registry, List.of("/user/login", "/uploads/**", "/posts/{id}"));
+        SecurityContextHolder.clearContext();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private MockHttpServletRequest request(String method, String uri, String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return request;
+    }
+
+    private Authentication filter(MockHttpServletRequest request) throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest(), "过滤器必须继续执行过滤器链");
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void skipsConfiguredPatterns() throws Exception {
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+
+        assertNull(filter(request("POST", "/user/login", token)));
+        assertNull(filter(request("GET", "/uploads/images/ab/cd/file.png", token)));
+        assertNull(filter(request("GET", "/posts/15", token)));
+    }
+
+    @Test
+    void doesNotSkipSimilarPaths() throws Exception {
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+
+        assertNotNull(filter(request("GET", "/user/login/history", token)));
+        SecurityContextHolder.clearContext();
+        assertNotNull(filter(request("GET", "/posts/15/comments", token)));
+    }
+
+    @Test
+    void skipsPreflightRequests() throws Exception {
+        assertNull(filter(request("OPTIONS", "/user/profile", jwtUtil.generateToken(42L, "alice", 0))));
+    }
+
+    @Test
+    void authenticatesValidToken() throws Exception {
+        MockHttpServletRequest request = request("GET", "/user/profile", jwtUtil.generateToken(42L, "alice", 0));
+
+        Authentication authentication = filter(request);
+
+        assertNotNull(authentication);
+        assertEquals("alice", authentication.getPrincipal());
+        assertEquals(42L, authentication.getDetails());
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> "ROLE_USER".equals(a.getAuthority())));
+        assertNotNull(request.getAttribute(JwtAuthenticationFilter.PARSED_TOKEN_ATTRIBUTE));
+    }
+
+    @Test
+    void grantsAdminRoleToAdminUser() throws Exception {
+        Authentication authentication = filter(request("GET", "/admin/users", jwtUtil.generateToken(1L, "admin", 0)));
+
+        assertTrue(authentication.getAuthorities().stream().anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority())));
+    }
+
+    @Test
+    void ignoresMissingOrInvalidToken() throws Exception {
+        assertNull(filter(request("GET", "/user/profile", null)));
+        assertNull(filter(request("GET", "/user/profile", "not-a-jwt")));
+
+        MockHttpServletRequest basic = new MockHttpServletRequest("GET", "/user/profile");
+        basic.addHeader("Authorization", "Basic YWxpY2U6c2VjcmV0");
+        assertNull(filter(basic));
+    }
+
+    @Test
+    void ignoresRevokedToken() throws Exception {
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+        registry.updateVersion(42L, 1);
+
+        assertNull(filter(request("GET", "/user/profile", token)));
+    }
+}
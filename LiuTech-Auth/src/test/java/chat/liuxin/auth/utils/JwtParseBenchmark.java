@@ -0,0 +1,106 @@
+package chat.liuxin.auth.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import chat.liuxin.auth.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * JWT解析基准测试：每个请求的认证开销
+ *
+ * 对比项：
+ * 1) threeParses：改造前的写法，校验、取用户名、取用户ID各自重新计算密钥、构建解析器并验签一次；
+ * 2) parseOnce：预构建的解析器只验签一次（即 parseToken 未命中缓存时的开销）；
+ * 3) cached：JwtUtil.parseToken 命中验签缓存（同一会话的后续请求），只计算一次SHA-256摘要。
+ *
+ * 运行方式：在IDE中直接运行 main，或 mvn test-compile 后以测试类路径执行本类。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    private static final String SECRET = "liutech-benchmark-secret-key-for-hmac-sha256-minimum-256-bits";
+
+    private JwtUtil jwtUtil;
+    private JwtParser prebuiltParser;
+    private String token;
+
+    @Setup
+    public void setup() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(SECRET);
+        jwtUtil = new JwtUtil(properties);
+        token = jwtUtil.generateToken(42L, "benchmark-user", 0);
+        prebuiltParser = Jwts.parserBuilder().setSigningKey(signingKey()).build();
+        // 预热验签缓存，cached 基准只测命中路径
+        jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    public void threeParses(Blackhole blackhole) {
+        blackhole.consume(legacyClaims(token) != null);
+        blackhole.consume(legacyClaims(token).getSubject());
+        blackhole.consume(legacyClaims(token).get("userId"));
+    }
+
+    @Benchmark
+    public void parseOnce(Blackhole blackhole) {
+        Claims claims = prebuiltParser.parseClaimsJws(token).getBody();
+        blackhole.consume(claims.getSubject());
+        blackhole.consume(claims.get("userId"));
+    }
+
+    @Benchmark
+    public void cached(Blackhole blackhole) {
+        JwtUtil.ParsedToken parsed = jwtUtil.parseToken(token);
+        blackhole.consume(parsed.getUsername());
+        blackhole.consume(parsed.getUserId());
+    }
+
+    /**
+     * 改造前每次调用的写法：重新计算签名密钥并构建解析器
+     */
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(signingKey())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    private static SecretKey signingKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtParseBenchmark.class.getSimpleName()).build()).run();
+    }
+}
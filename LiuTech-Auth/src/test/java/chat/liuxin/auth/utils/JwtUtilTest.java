@@ -0,0 +1,118 @@
+package chat.liuxin.auth.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import chat.liuxin.auth.config.JwtProperties;
+
+/**
+ * JwtUtil 单元测试：解析、过期、篡改与验签缓存
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class JwtUtilTest {
+
+    private static final String SECRET = "liutech-test-secret-key-for-hmac-sha256-minimum-256-bits";
+
+    private static JwtUtil jwtUtil(String secret, long expiration) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(secret);
+        properties.setExpiration(expiration);
+        return new JwtUtil(properties);
+    }
+
+    @Test
+    void parsesAllClaimsOnce() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 3);
+
+        JwtUtil.ParsedToken parsed = jwtUtil.parseToken(token);
+
+        assertNotNull(parsed);
+        assertEquals(42L, parsed.getUserId());
+        assertEquals("alice", parsed.getUsername());
+        assertEquals(3, parsed.getTokenVersion());
+        assertNotNull(parsed.getTokenId());
+        assertNotNull(parsed.getExpiration());
+        assertTrue(jwtUtil.validateToken(token));
+        assertTrue(jwtUtil.validateToken(token, "alice"));
+        assertFalse(jwtUtil.validateToken(token, "bob"));
+    }
+
+    @Test
+    void returnsCachedResultForRepeatedToken() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+
+        assertSame(jwtUtil.parseToken(token), jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, -60_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+
+        assertNull(jwtUtil.parseToken(token));
+        assertFalse(jwtUtil.validateToken(token));
+        assertNull(jwtUtil.refreshToken(token));
+    }
+
+    @Test
+    void cachedTokenStillExpires() throws InterruptedException {
+        // exp 以秒为单位保存，2秒有效期截断后仍至少有1秒
+        JwtUtil jwtUtil = jwtUtil(SECRET, 2_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+        assertNotNull(jwtUtil.parseToken(token));
+
+        Thread.sleep(2_100L);
+
+        assertNull(jwtUtil.parseToken(token));
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+        String[] parts = token.split("\\.");
+        // 把载荷换成另一个用户的载荷，签名保持不变
+        String other = jwtUtil.generateToken(1L, "admin", 0).split("\\.")[1];
+
+        assertNull(jwtUtil.parseToken(parts[0] + "." + other + "." + parts[2]));
+    }
+
+    @Test
+    void rejectsTamperedSignature() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+        // 不改最后一个字符：Base64URL 末位含填充位，改动后可能解码出相同的签名
+        int index = token.length() - 5;
+        char replacement = token.charAt(index) == 'A' ? 'B' : 'A';
+        String tampered = token.substring(0, index) + replacement + token.substring(index + 1);
+
+        assertNull(jwtUtil.parseToken(tampered));
+    }
+
+    @Test
+    void rejectsTokenSignedWithAnotherKey() {
+        String token = jwtUtil("another-secret-key-for-hmac-sha256-minimum-256-bits!!", 60_000L)
+                .generateToken(42L, "alice", 0);
+
+        assertNull(jwtUtil(SECRET, 60_000L).parseToken(token));
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        JwtUtil jwtUtil = jwtUtil(SECRET, 60_000L);
+
+        assertNull(jwtUtil.parseToken(null));
+        assertNull(jwtUtil.parseToken(""));
+        assertNull(jwtUtil.parseToken("not-a-jwt"));
+    }
+}
@@ -1,5 +1,6 @@
 package chat.liuxin.liutech.aspect;
 
+import chat.liuxin.liutech.utils.IpUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -57,7 +58,7 @@ public class RequestTimingAspect {
             request = attributes.getRequest();
             requestUrl = request.getRequestURL().toString();
             httpMethod = request.getMethod();
-            clientIp = getClientIpAddress(request);
+            clientIp = IpUtil.getClientIpAddress(request);
         }
 
         // 获取方法信息
@@ -112,25 +113,6 @@ public class RequestTimingAspect {
         return result;
     }
 
-    /**
-     * 获取客户端真实IP地址
-     * 考虑代理服务器的情况
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            // 多次反向代理后会有多个IP值，第一个IP才是真实IP
-            return xForwardedFor.split(",")[0].trim();
-        }
-
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-
-        return request.getRemoteAddr();
-    }
-
     /**
      * 过滤敏感信息
      * 简单的敏感信息过滤，避免在日志中暴露密码等敏感数据
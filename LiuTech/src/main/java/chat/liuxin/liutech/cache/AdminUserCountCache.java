@@ -0,0 +1,91 @@
+package chat.liuxin.liutech.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 管理端用户总数缓存
+ * 管理端用户列表每翻一页都要显示总数，按筛选条件缓存计数结果，短时间内翻页、刷新不再重复执行 COUNT 查询。
+ *
+ * 说明：
+ * 1) 条目有较短的存活时间（user.admin-list.count-cache-ttl-ms），注册等非管理端写入在过期后体现；
+ * 2) 管理端新增、编辑、删除用户时调用 invalidateAll 整体失效；
+ * 3) 总数本身是有上限的近似值（见 countUsersForAdmin），缓存只是进一步减少计数次数。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Component
+public class AdminUserCountCache {
+
+    /**
+     * 条目存活时间，默认30秒
+     */
+    @Value("${user.admin-list.count-cache-ttl-ms:30000}")
+    private long ttlMillis;
+
+    /**
+     * 最大缓存的筛选条件组合数
+     */
+    @Value("${user.admin-list.count-cache-max-size:1000}")
+    private int maxSize;
+
+    /**
+     * 筛选条件 -> 计数
+     */
+    private final Map<String, Entry> counts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取计数，未命中或已过期时通过loader加载
+     *
+     * @param key 筛选条件组成的键
+     * @param loader 未命中时的加载函数（查询数据库）
+     * @return 计数
+     */
+    public int get(String key, Supplier<Integer> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry = counts.get(key);
+        if (entry != null && now < entry.expireAt) {
+            return entry.count;
+        }
+
+        Integer loaded = loader.get();
+        int count = loaded != null ? loaded : 0;
+        if (counts.size() >= maxSize) {
+            counts.values().removeIf(e -> now >= e.expireAt);
+            if (counts.size() >= maxSize) {
+                log.debug("管理端用户总数缓存超出容量，清空缓存 - 容量: {}", maxSize);
+                counts.clear();
+            }
+        }
+        counts.put(key, new Entry(count, now + ttlMillis));
+        return count;
+    }
+
+    /**
+     * 清空全部计数（管理端增删改用户后调用）
+     */
+    public void invalidateAll() {
+        counts.clear();
+    }
+
+    /**
+     * 带过期时间的缓存条目
+     */
+    private static final class Entry {
+        private final int count;
+        private final long expireAt;
+
+        private Entry(int count, long expireAt) {
+            this.count = count;
+            this.expireAt = expireAt;
+        }
+    }
+}
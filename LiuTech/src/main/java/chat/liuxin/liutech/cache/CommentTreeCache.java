@@ -0,0 +1,304 @@
+package chat.liuxin.liutech.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import chat.liuxin.liutech.resp.CommentResp;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 文章评论树缓存
+ * 按文章缓存已组装好的评论树（顶级评论按时间倒序，子评论按时间正序），
+ * 新增评论时直接把节点挂到父评论下，删除评论时直接摘除节点，而不是整棵树失效重建。
+ *
+ * 说明：
+ * 1) 树采用写时复制：每次修改都生成新的列表，读者拿到的列表永远不会被并发修改，可直接交给Jackson序列化；
+ * 2) 容量按评论内容的估算字节数限制（comment.cache.max-bytes），超出时按最久未访问淘汰整篇文章的树；
+ * 3) 与数据库查询保持一致：树中只展示两层（顶级评论 + 直接回复），对回复的回复不会出现在树中；
+ * 4) 节点中带有评论者的用户名与头像，用户资料变更后通过 evictUser 使包含其评论的树失效，下次读取重新加载。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Component
+public class CommentTreeCache {
+
+    /**
+     * 单个节点的固定开销估算（对象头、字段、Date等），单位：字节
+     */
+    private static final int NODE_OVERHEAD_BYTES = 160;
+
+    /**
+     * 缓存总容量上限（估算字节数），默认16MB
+     */
+    @Value("${comment.cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    /**
+     * 文章ID -> 评论树，按访问顺序排列，便于LRU淘汰
+     */
+    private final LinkedHashMap<Long, Tree> trees = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * 当前缓存占用的估算字节数
+     */
+    private long usedBytes;
+
+    /**
+     * 写入计数，用于识别加载期间发生的并发写入
+     */
+    private long mutations;
+
+    /**
+     * 获取文章评论树，未命中时通过loader加载并放入缓存
+     *
+     * @param postId 文章ID
+     * @param loader 未命中时的加载函数（查询数据库并组装树）
+     * @return 顶级评论列表（不可修改）
+     */
+    public List<CommentResp> get(Long postId, Supplier<List<CommentResp>> loader) {
+        long mutationsBeforeLoad;
+        synchronized (this) {
+            Tree tree = trees.get(postId);
+            if (tree != null) {
+                return tree.roots;
+            }
+            mutationsBeforeLoad = mutations;
+        }
+
+        // 加载过程不持锁，避免慢查询阻塞其他文章的读取
+        List<CommentResp> loaded = loader.get();
+        Tree tree = new Tree(Collections.unmodifiableList(new ArrayList<>(loaded)));
+        synchronized (this) {
+            Tree existing = trees.get(postId);
+            if (existing != null) {
+                // 并发加载或加载期间已有写入，以已缓存的为准
+                return existing.roots;
+            }
+            // 加载期间有评论写入时，加载结果可能已过期，本次不放入缓存
+            if (mutations == mutationsBeforeLoad && tree.bytes <= maxBytes) {
+                trees.put(postId, tree);
+                usedBytes += tree.bytes;
+                evictIfNecessary();
+            }
+        }
+        return tree.roots;
+    }
+
+    /**
+     * 新增评论后把节点挂到树上
+     * 顶级评论插入到最前面；对顶级评论的回复追加到其子评论末尾；对回复的回复不进入树。
+     * 文章未被缓存时不做任何处理，下次读取时会从数据库加载。
+     *
+     * @param comment 新创建的评论
+     */
+    public synchronized void append(CommentResp comment) {
+        mutations++;
+        Tree tree = trees.get(comment.getPostId());
+        if (tree == null) {
+            return;
+        }
+
+        // 顶级评论带空的子评论列表，回复不再展开下一层，与数据库加载的结构保持一致
+        CommentResp node = copyOf(comment, comment.getParentId() == null ? Collections.emptyList() : null);
+        List<CommentResp> roots = new ArrayList<>(tree.roots.size() + 1);
+        long delta = estimateBytes(node);
+
+        if (comment.getParentId() == null) {
+            roots.add(node);
+            roots.addAll(tree.roots);
+        } else {
+            boolean attached = false;
+            for (CommentResp root : tree.roots) {
+                if (!attached && comment.getParentId().equals(root.getId())) {
+                    List<CommentResp> children = new ArrayList<>(childrenOf(root));
+                    children.add(node);
+                    roots.add(copyOf(root, Collections.unmodifiableList(children)));
+                    attached = true;
+                } else {
+                    roots.add(root);
+                }
+            }
+            if (!attached) {
+                return;
+            }
+        }
+
+        replace(comment.getPostId(), tree, new Tree(Collections.unmodifiableList(roots), tree.bytes + delta));
+    }
+
+    /**
+     * 删除评论后把节点从树上摘除
+     * 删除顶级评论时连同其回复一起摘除（数据库查询同样不会再展示它们）。
+     *
+     * @param postId 文章ID
+     * @param commentId 被删除的评论ID
+     */
+    public synchronized void remove(Long postId, Long commentId) {
+        mutations++;
+        Tree tree = trees.get(postId);
+        if (tree == null) {
+            return;
+        }
+
+        List<CommentResp> roots = new ArrayList<>(tree.roots.size());
+        long delta = 0;
+        for (CommentResp root : tree.roots) {
+            if (commentId.equals(root.getId())) {
+                delta -= estimateBytes(root);
+                continue;
+            }
+            List<CommentResp> children = childrenOf(root);
+            CommentResp removed = null;
+            for (CommentResp child : children) {
+                if (commentId.equals(child.getId())) {
+                    removed = child;
+                    break;
+                }
+            }
+            if (removed == null) {
+                roots.add(root);
+            } else {
+                List<CommentResp> remaining = new ArrayList<>(children);
+                remaining.remove(removed);
+                roots.add(copyOf(root, Collections.unmodifiableList(remaining)));
+                delta -= estimateBytes(removed);
+            }
+        }
+
+        if (delta != 0) {
+            replace(postId, tree, new Tree(Collections.unmodifiableList(roots), tree.bytes + delta));
+        }
+    }
+
+    /**
+     * 使某篇文章的评论树失效（用于文章彻底删除等批量变更场景）
+     *
+     * @param postId 文章ID
+     */
+    public synchronized void evict(Long postId) {
+        mutations++;
+        Tree removed = trees.remove(postId);
+        if (removed != null) {
+            usedBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * 使包含某个用户评论的全部评论树失效（用户名、头像等资料变更后调用）
+     * 资料变更属于低频操作，直接遍历全部缓存的树即可
+     *
+     * @param userId 用户ID
+     */
+    public synchronized void evictUser(Long userId) {
+        mutations++;
+        Iterator<Map.Entry<Long, Tree>> iterator = trees.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Tree> entry = iterator.next();
+            if (containsUser(entry.getValue().roots, userId)) {
+                usedBytes -= entry.getValue().bytes;
+                iterator.remove();
+                log.debug("用户资料变更，评论树失效 - 文章ID: {}, 用户ID: {}", entry.getKey(), userId);
+            }
+        }
+    }
+
+    /**
+     * 替换文章的评论树并维护容量
+     */
+    private void replace(Long postId, Tree oldTree, Tree newTree) {
+        trees.put(postId, newTree);
+        usedBytes += newTree.bytes - oldTree.bytes;
+        evictIfNecessary();
+    }
+
+    /**
+     * 超出容量时按最久未访问顺序淘汰
+     */
+    private void evictIfNecessary() {
+        Iterator<Map.Entry<Long, Tree>> iterator = trees.entrySet().iterator();
+        while (usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Long, Tree> eldest = iterator.next();
+            usedBytes -= eldest.getValue().bytes;
+            iterator.remove();
+            log.debug("评论树缓存超出容量，淘汰文章ID: {}", eldest.getKey());
+        }
+    }
+
+    /**
+     * 复制节点并替换子评论列表（写时复制，不修改已发布给读者的对象）
+     */
+    private static CommentResp copyOf(CommentResp source, List<CommentResp> children) {
+        CommentResp copy = new CommentResp();
+        copy.setId(source.getId());
+        copy.setPostId(source.getPostId());
+        copy.setContent(source.getContent());
+        copy.setParentId(source.getParentId());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUser(source.getUser());
+        copy.setChildren(children);
+        return copy;
+    }
+
+    private static boolean containsUser(List<CommentResp> nodes, Long userId) {
+        for (CommentResp node : nodes) {
+            if ((node.getUser() != null && userId.equals(node.getUser().getId()))
+                    || containsUser(childrenOf(node), userId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<CommentResp> childrenOf(CommentResp node) {
+        return node.getChildren() != null ? node.getChildren() : Collections.emptyList();
+    }
+
+    /**
+     * 估算节点（含子评论）占用的字节数
+     */
+    private static long estimateBytes(CommentResp node) {
+        long bytes = NODE_OVERHEAD_BYTES;
+        if (node.getContent() != null) {
+            bytes += 2L * node.getContent().length();
+        }
+        if (node.getUser() != null) {
+            if (node.getUser().getUsername() != null) {
+                bytes += 2L * node.getUser().getUsername().length();
+            }
+            if (node.getUser().getAvatarUrl() != null) {
+                bytes += 2L * node.getUser().getAvatarUrl().length();
+            }
+        }
+        for (CommentResp child : childrenOf(node)) {
+            bytes += estimateBytes(child);
+        }
+        return bytes;
+    }
+
+    /**
+     * 单篇文章的评论树快照
+     */
+    private static final class Tree {
+        private final List<CommentResp> roots;
+        private final long bytes;
+
+        private Tree(List<CommentResp> roots) {
+            this(roots, roots.stream().mapToLong(CommentTreeCache::estimateBytes).sum());
+        }
+
+        private Tree(List<CommentResp> roots, long bytes) {
+            this.roots = roots;
+            this.bytes = bytes;
+        }
+    }
+}
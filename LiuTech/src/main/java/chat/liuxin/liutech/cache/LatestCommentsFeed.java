@@ -0,0 +1,296 @@
+package chat.liuxin.liutech.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import chat.liuxin.liutech.mapper.CommentsMapper;
+import chat.liuxin.liutech.model.Comments;
+import chat.liuxin.liutech.model.Users;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 最新评论内存流
+ * 用固定容量的环形缓冲区保存全站最近的N条评论（含用户信息），
+ * 启动时从数据库预热，新增评论时追加、删除评论时摘除，首页与“最新动态”接口直接读取内存，不再执行 ORDER BY 查询。
+ *
+ * 说明：
+ * 1) 缓冲区写满后新评论覆盖最旧的一条；
+ * 2) 删除导致缓冲区不满且数据库中可能还有更早的评论时，超出部分的读取由调用方回退到SQL；
+ * 3) 存入的用户信息只保留 id/username/email/avatarUrl，与 selectLatestComments 的字段一致；
+ *    用户资料变更后通过 evictUser 重新从数据库加载，避免展示旧的用户名与头像；
+ * 4) 预热查询期间的新增与删除先记录下来，查询结果写入缓冲区后重放，不会因查询与替换之间的并发写入丢失评论。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Component
+public class LatestCommentsFeed {
+
+    @Autowired
+    private CommentsMapper commentsMapper;
+
+    /**
+     * 缓冲区容量
+     */
+    @Value("${comment.feed.capacity:200}")
+    private int capacity;
+
+    /**
+     * 环形缓冲区，head 指向下一个写入位置
+     */
+    private Comments[] buffer;
+    private int head;
+    private int size;
+
+    /**
+     * 数据库中是否可能存在比缓冲区更早的评论
+     */
+    private boolean hasOlder;
+
+    /**
+     * 是否已完成预热
+     */
+    private volatile boolean ready;
+
+    /**
+     * 预热查询期间新增的评论与删除条件，查询结果写入缓冲区后重放；不在预热时为null
+     */
+    private List<Comments> pendingAppends;
+    private List<Predicate<Comments>> pendingRemovals;
+
+    /**
+     * 串行化预热（启动预热与用户资料变更触发的重新预热可能同时发生）
+     */
+    private final Object warmUpLock = new Object();
+
+    /**
+     * 应用启动完成后从数据库预热
+     * 查询在监视器之外执行，期间的新增与删除先记录下来，查询结果写入缓冲区后再重放，避免丢失
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        synchronized (warmUpLock) {
+            synchronized (this) {
+                pendingAppends = new ArrayList<>();
+                pendingRemovals = new ArrayList<>();
+            }
+            try {
+                List<Comments> latest = commentsMapper.selectLatestComments(capacity);
+                int replayed;
+                synchronized (this) {
+                    buffer = new Comments[capacity];
+                    head = 0;
+                    size = 0;
+                    Set<Long> loadedIds = new HashSet<>();
+                    // 查询结果按时间倒序，逆序写入使最新的一条位于head之前
+                    for (int i = latest.size() - 1; i >= 0; i--) {
+                        push(snapshotOf(latest.get(i)));
+                        loadedIds.add(latest.get(i).getId());
+                    }
+                    hasOlder = latest.size() >= capacity;
+                    List<Comments> appends = pendingAppends;
+                    List<Predicate<Comments>> removals = pendingRemovals;
+                    pendingAppends = null;
+                    pendingRemovals = null;
+                    // 查询之后提交的评论不在结果中，按追加顺序补写；查询时已提交的已在结果中，跳过
+                    replayed = 0;
+                    for (Comments comment : appends) {
+                        if (!loadedIds.contains(comment.getId())) {
+                            pushNewest(comment);
+                            replayed++;
+                        }
+                    }
+                    ready = true;
+                    removals.forEach(this::removeIf);
+                }
+                log.info("最新评论流预热完成 - 条数: {}, 预热期间新增: {}, 容量: {}", latest.size(), replayed, capacity);
+            } catch (Exception e) {
+                log.error("最新评论流预热失败，将回退到数据库查询: {}", e.getMessage());
+            } finally {
+                synchronized (this) {
+                    pendingAppends = null;
+                    pendingRemovals = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * 是否可以由内存完整地提供 [offset, offset + limit) 范围的数据
+     *
+     * @param offset 起始偏移
+     * @param limit 数量
+     * @return 可以返回true
+     */
+    public synchronized boolean canServe(int offset, int limit) {
+        return ready && (offset + limit <= size || !hasOlder);
+    }
+
+    /**
+     * 获取最新评论（按时间倒序）
+     *
+     * @param offset 起始偏移
+     * @param limit 数量
+     * @return 评论列表
+     */
+    public synchronized List<Comments> latest(int offset, int limit) {
+        if (!ready || offset >= size || limit <= 0) {
+            return Collections.emptyList();
+        }
+        int end = Math.min(size, offset + limit);
+        List<Comments> result = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            result.add(buffer[indexOf(i)]);
+        }
+        return result;
+    }
+
+    /**
+     * 当前缓冲的评论数量
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * 新增评论
+     *
+     * @param comment 新创建的评论（需包含用户信息）
+     */
+    public synchronized void append(Comments comment) {
+        Comments snapshot = snapshotOf(comment);
+        if (pendingAppends != null) {
+            pendingAppends.add(snapshot);
+        }
+        if (ready) {
+            pushNewest(snapshot);
+        }
+    }
+
+    /**
+     * 删除单条评论
+     *
+     * @param commentId 评论ID
+     */
+    public void remove(Long commentId) {
+        removeIf(comment -> commentId.equals(comment.getId()));
+    }
+
+    /**
+     * 删除文章下的全部评论（文章彻底删除时使用）
+     *
+     * @param postId 文章ID
+     */
+    public void removeByPostId(Long postId) {
+        removeIf(comment -> postId.equals(comment.getPostId()));
+    }
+
+    /**
+     * 用户资料变更后刷新缓冲区
+     * 缓冲区中有该用户的评论时重新从数据库预热（只执行一次 LIMIT 查询），否则不做任何处理
+     *
+     * @param userId 用户ID
+     */
+    public void evictUser(Long userId) {
+        synchronized (this) {
+            boolean found = false;
+            for (int i = 0; i < size && !found; i++) {
+                Comments comment = buffer[indexOf(i)];
+                found = comment.getUser() != null && userId.equals(comment.getUser().getId());
+            }
+            if (!found) {
+                return;
+            }
+        }
+        warmUp();
+    }
+
+    /**
+     * 按条件摘除评论并压缩缓冲区（删除属于低频操作，直接重排即可）
+     */
+    private synchronized void removeIf(Predicate<Comments> filter) {
+        if (pendingRemovals != null) {
+            pendingRemovals.add(filter);
+        }
+        if (!ready || size == 0) {
+            return;
+        }
+        List<Comments> kept = new ArrayList<>(size);
+        // 从最旧到最新遍历，保持写入顺序
+        for (int i = size - 1; i >= 0; i--) {
+            Comments comment = buffer[indexOf(i)];
+            if (!filter.test(comment)) {
+                kept.add(comment);
+            }
+        }
+        if (kept.size() == size) {
+            return;
+        }
+        buffer = new Comments[capacity];
+        head = 0;
+        size = 0;
+        kept.forEach(this::push);
+    }
+
+    /**
+     * 追加一条最新评论，缓冲区已满时覆盖最旧的一条并标记数据库中还有更早的评论
+     */
+    private void pushNewest(Comments comment) {
+        if (size == capacity) {
+            hasOlder = true;
+        }
+        push(comment);
+    }
+
+    /**
+     * 写入一条评论，写满时覆盖最旧的一条
+     */
+    private void push(Comments comment) {
+        buffer[head] = comment;
+        head = (head + 1) % capacity;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    /**
+     * 第 i 新的评论在数组中的下标（i=0 为最新）
+     */
+    private int indexOf(int i) {
+        return ((head - 1 - i) % capacity + capacity) % capacity;
+    }
+
+    /**
+     * 复制评论，只保留对外展示需要的用户字段（避免把密码哈希等放入缓存）
+     */
+    private static Comments snapshotOf(Comments source) {
+        Comments copy = new Comments();
+        copy.setId(source.getId());
+        copy.setPostId(source.getPostId());
+        copy.setUserId(source.getUserId());
+        copy.setContent(source.getContent());
+        copy.setParentId(source.getParentId());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setUpdatedAt(source.getUpdatedAt());
+        if (source.getUser() != null) {
+            Users user = new Users();
+            user.setId(source.getUser().getId());
+            user.setUsername(source.getUser().getUsername());
+            user.setEmail(source.getUser().getEmail());
+            user.setAvatarUrl(source.getUser().getAvatarUrl());
+            copy.setUser(user);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,104 @@
+package chat.liuxin.liutech.cache;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 上传文件静态资源解析缓存
+ * 放在资源解析链最前面，缓存“请求路径 + 客户端可接受的预压缩编码 -> 解析出的文件”，
+ * 热门文件不再每次请求都检查原文件与 .br/.gz 兄弟文件是否存在。
+ *
+ * 说明：
+ * 1) 条目有较短的存活时间：上传后异步生成的 .gz 文件、被回收删除的文件在过期后即可生效；
+ * 2) 只缓存解析成功的结果，不存在的路径每次都重新解析，避免新上传的文件在存活时间内返回404；
+ * 3) 条目数超过上限时先清理过期条目，仍然超过则整体清空。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class StaticResourceCache implements ResourceResolver {
+
+    private final long ttlMillis;
+    private final int maxSize;
+
+    /**
+     * 缓存键 -> 解析结果
+     */
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMillis 条目存活时间，毫秒
+     * @param maxSize 最大条目数
+     */
+    public StaticResourceCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+                                    List<? extends Resource> locations, ResourceResolverChain chain) {
+        String key = cacheKey(request, requestPath);
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expireAt > now) {
+            return entry.resource;
+        }
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource != null) {
+            put(key, resource, now);
+        } else if (entry != null) {
+            cache.remove(key);
+        }
+        return resource;
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations, ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+
+    /**
+     * 同一路径按客户端是否接受 br、gzip 分开缓存（解析结果可能是不同的预压缩文件）
+     */
+    private static String cacheKey(HttpServletRequest request, String requestPath) {
+        String acceptEncoding = request != null ? request.getHeader(HttpHeaders.ACCEPT_ENCODING) : null;
+        if (acceptEncoding == null) {
+            return requestPath;
+        }
+        String codings = acceptEncoding.toLowerCase(Locale.ROOT);
+        return requestPath + "+" + (codings.contains("br") ? "br" : "") + (codings.contains("gzip") ? "gzip" : "");
+    }
+
+    private void put(String key, Resource resource, long now) {
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(entry -> entry.expireAt <= now);
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new Entry(resource, now + ttlMillis));
+    }
+
+    /**
+     * 带过期时间的缓存条目
+     */
+    private static final class Entry {
+        private final Resource resource;
+        private final long expireAt;
+
+        private Entry(Resource resource, long expireAt) {
+            this.resource = resource;
+            this.expireAt = expireAt;
+        }
+    }
+}
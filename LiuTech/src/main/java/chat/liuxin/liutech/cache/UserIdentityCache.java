@@ -0,0 +1,193 @@
+package chat.liuxin.liutech.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 用户身份缓存
+ * 缓存“用户ID -> 用户快照”和“用户名 -> 用户ID”两张映射，供 UserUtils 与字段自动填充解析当前登录用户，
+ * 避免每次获取当前用户都执行 findByUserName 查询。
+ *
+ * 说明：
+ * 1) 条目有较短的存活时间（user.identity-cache.ttl-ms），即使漏掉失效通知，过期后也会重新从数据库加载；
+ * 2) 资料修改、改密码、积分变化、管理员编辑/删除用户时调用 invalidate 主动失效；
+ * 3) 调用方经常直接修改拿到的 Users 再 updateById，因此存取都做拷贝，缓存内的快照不会被外部修改。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Component
+public class UserIdentityCache {
+
+    /**
+     * 条目存活时间，默认60秒
+     */
+    @Value("${user.identity-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    /**
+     * 最大缓存用户数
+     */
+    @Value("${user.identity-cache.max-size:10000}")
+    private int maxSize;
+
+    /**
+     * 用户ID -> 用户快照
+     */
+    private final Map<Long, Entry<Users>> usersById = new ConcurrentHashMap<>();
+
+    /**
+     * 用户名 -> 用户ID
+     */
+    private final Map<String, Entry<Long>> idsByUsername = new ConcurrentHashMap<>();
+
+    /**
+     * 按用户名获取用户，未命中时通过loader加载
+     *
+     * @param username 用户名
+     * @param loader 未命中时的加载函数（查询数据库）
+     * @return 用户信息的拷贝，用户不存在时返回null
+     */
+    public Users getByUsername(String username, Supplier<Users> loader) {
+        long now = System.currentTimeMillis();
+        Entry<Long> idEntry = idsByUsername.get(username);
+        if (idEntry != null && idEntry.isAlive(now)) {
+            Entry<Users> userEntry = usersById.get(idEntry.value);
+            // 用户名可能已被修改，校验一致后才使用
+            if (userEntry != null && userEntry.isAlive(now) && username.equals(userEntry.value.getUsername())) {
+                return copyOf(userEntry.value);
+            }
+        }
+
+        Users loaded = loader.get();
+        if (loaded == null || loaded.getId() == null) {
+            return loaded;
+        }
+        put(loaded, now);
+        return copyOf(loaded);
+    }
+
+    /**
+     * 按用户名获取用户ID，未命中时通过loader加载
+     *
+     * @param username 用户名
+     * @param loader 未命中时的加载函数（查询数据库）
+     * @return 用户ID，用户不存在时返回null
+     */
+    public Long getIdByUsername(String username, Supplier<Users> loader) {
+        Entry<Long> idEntry = idsByUsername.get(username);
+        if (idEntry != null && idEntry.isAlive(System.currentTimeMillis())) {
+            return idEntry.value;
+        }
+        Users user = getByUsername(username, loader);
+        return user != null ? user.getId() : null;
+    }
+
+    /**
+     * 使用户的缓存失效
+     *
+     * @param userId 用户ID
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        Entry<Users> removed = usersById.remove(userId);
+        if (removed != null) {
+            removeUsername(removed.value.getUsername(), userId);
+        }
+    }
+
+    /**
+     * 立即失效，并在当前事务提交后再失效一次
+     * 防止事务提交前有并发请求把旧数据重新加载进缓存
+     *
+     * @param userId 用户ID
+     */
+    public void invalidateAfterCommit(Long userId) {
+        invalidate(userId);
+        TransactionUtils.afterCommit(() -> invalidate(userId));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        usersById.clear();
+        idsByUsername.clear();
+    }
+
+    private void put(Users user, long now) {
+        if (usersById.size() >= maxSize) {
+            evictExpired(now);
+            if (usersById.size() >= maxSize) {
+                // 仍然超出容量说明活跃用户过多，直接清空，代价只是一轮重新加载
+                log.debug("用户身份缓存超出容量，清空缓存 - 容量: {}", maxSize);
+                clear();
+            }
+        }
+        long expireAt = now + ttlMillis;
+        // 先写用户名映射再写快照：用户名映射总有对应的快照，invalidate 按快照里的用户名即可删除，不用扫描整张表
+        if (user.getUsername() != null) {
+            idsByUsername.put(user.getUsername(), new Entry<>(user.getId(), expireAt));
+        }
+        Entry<Users> previous = usersById.put(user.getId(), new Entry<>(copyOf(user), expireAt));
+        if (previous != null && !Objects.equals(previous.value.getUsername(), user.getUsername())) {
+            // 用户名已修改，旧用户名的映射随之删除
+            removeUsername(previous.value.getUsername(), user.getId());
+        }
+    }
+
+    /**
+     * 删除用户名映射（仅当仍指向该用户时，用户名可能已被其他用户使用）
+     */
+    private void removeUsername(String username, Long userId) {
+        if (username != null) {
+            idsByUsername.computeIfPresent(username, (key, entry) -> userId.equals(entry.value) ? null : entry);
+        }
+    }
+
+    private void evictExpired(long now) {
+        for (Iterator<Entry<Users>> it = usersById.values().iterator(); it.hasNext();) {
+            if (!it.next().isAlive(now)) {
+                it.remove();
+            }
+        }
+        idsByUsername.values().removeIf(entry -> !entry.isAlive(now));
+    }
+
+    private static Users copyOf(Users source) {
+        Users copy = new Users();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+
+    /**
+     * 带过期时间的缓存条目
+     */
+    private static final class Entry<T> {
+        private final T value;
+        private final long expireAt;
+
+        private Entry(T value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isAlive(long now) {
+            return now < expireAt;
+        }
+    }
+}
@@ -77,6 +77,26 @@ public enum ErrorCode {
      * 密码格式错误 - 密码不符合安全要求
      */
     PASSWORD_FORMAT_ERROR(1007, "密码格式不正确"),
+    
+    /**
+     * 登录尝试过于频繁 - 同一用户名或同一IP在时间窗口内超出限制
+     */
+    TOO_MANY_LOGIN_ATTEMPTS(1008, "登录尝试过于频繁，请稍后再试"),
+    
+    /**
+     * 登录繁忙 - 密码校验线程池已满，快速拒绝
+     */
+    LOGIN_BUSY(1009, "登录请求过多，请稍后再试"),
+
+    /**
+     * 积分不足
+     */
+    INSUFFICIENT_POINTS(1010, "积分不足"),
+
+    /**
+     * 请求过于频繁 - 同一IP在时间窗口内调用匿名接口超出限制
+     */
+    TOO_MANY_REQUESTS(1011, "请求过于频繁，请稍后再试"),
 
     // ========== 博客相关业务错误 1100-1199 ==========
     /**
@@ -198,6 +218,22 @@ public enum ErrorCode {
      */
     ANNOUNCEMENT_PERMISSION_DENIED(1403, "无权限操作此公告"),
 
+    // ========== 内容审核相关业务错误 1500-1599 ==========
+    /**
+     * 内容包含违禁词
+     */
+    CONTENT_VIOLATION(1501, "内容包含违规词汇，请修改后重试"),
+    
+    /**
+     * 审核记录不存在
+     */
+    CONTENT_REVIEW_NOT_FOUND(1502, "审核记录不存在"),
+
+    /**
+     * 内容正在审核中
+     */
+    CONTENT_UNDER_REVIEW(1503, "内容正在审核中，审核通过后将自动发布"),
+
     // ========== 系统错误 5xx ==========
     /**
      * 系统内部错误 - 未知的系统异常
@@ -32,8 +32,7 @@ public class CacheConfig {
             "latestPosts",     // 最新文章缓存
             "hotTags",         // 热门标签缓存
             "categories",      // 分类列表缓存
-            "announcements",   // 公告列表缓存
-            "userStats"        // 用户统计缓存
+            "announcements"    // 公告列表缓存
         ));
         
         // 允许空值缓存
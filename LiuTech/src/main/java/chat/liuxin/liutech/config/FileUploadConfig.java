@@ -114,4 +114,113 @@ public class FileUploadConfig {
         // 3. 默认值（开发环境）
         return "http://localhost:8080";
     }
+
+    /**
+     * 存储后端配置（按文件类型选择后端）
+     */
+    private Storage storage = new Storage();
+
+    /**
+     * 存储后端配置
+     */
+    @Data
+    public static class Storage {
+
+        /**
+         * 图片使用的后端（local 或 s3）
+         */
+        private String images = "local";
+
+        /**
+         * 文档使用的后端（local 或 s3）
+         */
+        private String documents = "local";
+
+        /**
+         * 资源文件使用的后端（local 或 s3）
+         */
+        private String resources = "local";
+
+        /**
+         * 异步IO线程数（本地读写与对象存储请求共用）
+         */
+        private int ioThreads = 4;
+
+        /**
+         * S3 兼容对象存储配置
+         */
+        private S3 s3 = new S3();
+    }
+
+    /**
+     * S3 兼容对象存储配置（AWS S3、MinIO 等）
+     */
+    @Data
+    public static class S3 {
+
+        /**
+         * 服务地址，如 http://127.0.0.1:9000
+         */
+        private String endpoint;
+
+        /**
+         * 区域
+         */
+        private String region = "us-east-1";
+
+        /**
+         * 存储桶
+         */
+        private String bucket;
+
+        /**
+         * 访问密钥ID
+         */
+        private String accessKey;
+
+        /**
+         * 访问密钥
+         */
+        private String secretKey;
+
+        /**
+         * 是否使用路径风格（endpoint/bucket/key），MinIO 需要开启
+         */
+        private boolean pathStyle = true;
+
+        /**
+         * 对象键前缀（多个环境共用一个存储桶时区分）
+         */
+        private String keyPrefix = "";
+
+        /**
+         * 公开读的访问地址（如 CDN 域名），为空时使用预签名URL
+         */
+        private String publicBaseUrl;
+
+        /**
+         * 预签名URL有效期，秒
+         */
+        private long presignTtlSeconds = 300;
+
+        /**
+         * 资源下载是否重定向到预签名URL（否则由后端代理输出）
+         */
+        private boolean presignDownloads = true;
+
+        /**
+         * 建立连接超时，毫秒
+         */
+        private long connectTimeoutMs = 5000;
+
+        /**
+         * 元数据请求（HEAD、DELETE、列表）超时，毫秒
+         */
+        private long requestTimeoutMs = 30000;
+
+        /**
+         * 上传/下载对象等待响应头的超时，毫秒
+         */
+        private long transferTimeoutMs = 600000;
+    }
 }
\ No newline at end of file
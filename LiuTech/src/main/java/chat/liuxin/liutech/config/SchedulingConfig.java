@@ -0,0 +1,16 @@
+package chat.liuxin.liutech.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置类
+ * 开启 @Scheduled 注解支持，用于词典热加载等后台任务
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,6 +1,6 @@
 package chat.liuxin.liutech.config;
 
-import chat.liuxin.liutech.filter.JwtAuthenticationFilter;
+import chat.liuxin.auth.filter.JwtAuthenticationFilter;
 import chat.liuxin.liutech.filter.RequestTraceFilter;
 import chat.liuxin.liutech.common.ErrorCode; // 新增：统一错误码
 import chat.liuxin.liutech.common.Result;    // 新增：统一响应体
@@ -98,6 +98,9 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/tags/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/comments/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/announcements/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/user/availability").permitAll()
+                .requestMatchers(HttpMethod.GET, "/leaderboards/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/resource/file/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/user/{id}").permitAll()
                 .requestMatchers(HttpMethod.GET, "/author/profile").permitAll()
                 .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
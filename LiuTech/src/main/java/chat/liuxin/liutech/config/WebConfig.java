@@ -1,42 +1,146 @@
 package chat.liuxin.liutech.config;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+
+import chat.liuxin.liutech.cache.StaticResourceCache;
+import chat.liuxin.liutech.interceptor.VisitTrackingInterceptor;
+import chat.liuxin.liutech.service.StorageService;
+import chat.liuxin.liutech.utils.FileUtil;
 
 /**
  * Web配置类
- * 
+ *
  * @author 刘鑫
  * @date 2025-08-07
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
-    
+
     @Autowired
     private FileUploadConfig fileUploadConfig;
-    
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private VisitTrackingInterceptor visitTrackingInterceptor;
+
+    /**
+     * 内容寻址文件的浏览器缓存时间，天
+     */
+    @Value("${file.static.immutable-max-age-days:365}")
+    private long immutableMaxAgeDays;
+
+    /**
+     * 资源解析缓存条目存活时间，毫秒
+     */
+    @Value("${file.static.resolver-cache-ttl-ms:60000}")
+    private long resolverCacheTtlMillis;
+
+    /**
+     * 资源解析缓存最大条目数（每个映射单独计算）
+     */
+    @Value("${file.static.resolver-cache-max-size:10000}")
+    private int resolverCacheMaxSize;
+
     /**
      * 配置静态资源映射
      * 让上传的文件可以通过URL访问
+     *
+     * 只映射本地存放的图片与文档目录；临时目录不对外，资源目录（含积分资源）只能经下载接口鉴权后访问，
+     * 存放在对象存储的子目录由 RemoteUploadFilter 重定向；
+     * 每个子目录两条映射：
+     * 1) 内容寻址路径（哈希前2位/哈希3-4位/哈希...，含图片变体）内容永不改变，返回一年的 immutable 缓存，
+     *    ETag 直接取自文件名中的哈希，不读取文件修改时间；
+     * 2) 按日期存放的历史路径每次协商缓存，ETag 由修改时间与大小组成。
+     * 两条映射都按 Accept-Encoding 优先返回 .br/.gz 预压缩文件，并缓存解析结果，减少热门文件的文件系统检查。
      */
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 配置文件访问路径映射
-        registry.addResourceHandler(fileUploadConfig.getUrlPrefix() + "/**")
-                .addResourceLocations("file:" + fileUploadConfig.getBasePath() + "/");
-        
-        // 配置图片访问路径
-        registry.addResourceHandler("/uploads/images/**")
-                .addResourceLocations("file:" + fileUploadConfig.getBasePath() + "/" + fileUploadConfig.getImagePath() + "/");
-        
-        // 配置文档访问路径
-        registry.addResourceHandler("/uploads/documents/**")
-                .addResourceLocations("file:" + fileUploadConfig.getBasePath() + "/" + fileUploadConfig.getDocumentPath() + "/");
-        
-        // 配置资源访问路径
-        registry.addResourceHandler("/uploads/resources/**")
-                .addResourceLocations("file:" + fileUploadConfig.getBasePath() + "/" + fileUploadConfig.getResourcePath() + "/");
+        String urlPrefix = fileUploadConfig.getUrlPrefix();
+        for (String dir : List.of(fileUploadConfig.getImagePath(), fileUploadConfig.getDocumentPath())) {
+            if (!storageService.isLocalDir(dir)) {
+                continue;
+            }
+            String location = "file:" + fileUtil.getBasePath().resolve(dir) + "/";
+
+            // 内容寻址路径
+            registry.addResourceHandler(urlPrefix + "/" + dir + "/{p1:[0-9a-f][0-9a-f]}/{p2:[0-9a-f][0-9a-f]}/**")
+                    .addResourceLocations(location)
+                    .setCacheControl(CacheControl.maxAge(immutableMaxAgeDays, TimeUnit.DAYS).cachePublic().immutable())
+                    .setUseLastModified(false)
+                    .setEtagGenerator(WebConfig::contentEtag)
+                    .resourceChain(false)
+                    .addResolver(new StaticResourceCache(resolverCacheTtlMillis, resolverCacheMaxSize))
+                    .addResolver(new EncodedResourceResolver());
+
+            // 历史路径
+            registry.addResourceHandler(urlPrefix + "/" + dir + "/**")
+                    .addResourceLocations(location)
+                    .setCacheControl(CacheControl.noCache().cachePublic())
+                    .setEtagGenerator(WebConfig::fileEtag)
+                    .resourceChain(false)
+                    .addResolver(new StaticResourceCache(resolverCacheTtlMillis, resolverCacheMaxSize))
+                    .addResolver(new EncodedResourceResolver());
+        }
+    }
+
+    /**
+     * 注册拦截器
+     * 独立访客统计放在拦截器中，保证在 JWT 认证之后执行；上传文件、下载与监控端点不计入
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(visitTrackingInterceptor)
+                .excludePathPatterns(fileUploadConfig.getUrlPrefix() + "/**", "/files/**", "/actuator/**");
+    }
+
+    /**
+     * 内容寻址文件的强ETag：文件名中的哈希（变体带变体名），预压缩版本附加编码名
+     */
+    private static String contentEtag(Resource resource) {
+        String name = resource.getFilename();
+        if (name == null) {
+            return null;
+        }
+        int dot = name.indexOf('.');
+        return "\"" + (dot > 0 ? name.substring(0, dot) : name) + codingSuffix(resource) + "\"";
+    }
+
+    /**
+     * 历史文件的强ETag：修改时间与大小，预压缩版本附加编码名
+     */
+    private static String fileEtag(Resource resource) {
+        try {
+            return "\"" + Long.toHexString(resource.lastModified()) + "-" + Long.toHexString(resource.contentLength())
+                    + codingSuffix(resource) + "\"";
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String codingSuffix(Resource resource) {
+        if (resource instanceof HttpResource) {
+            String coding = ((HttpResource) resource).getResponseHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            return coding != null ? "-" + coding : "";
+        }
+        return "";
     }
-}
\ No newline at end of file
+}
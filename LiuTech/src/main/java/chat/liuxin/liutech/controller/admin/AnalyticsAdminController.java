@@ -0,0 +1,115 @@
+package chat.liuxin.liutech.controller.admin;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.resp.ActiveUsersResp;
+import chat.liuxin.liutech.resp.UniqueVisitorsResp;
+import chat.liuxin.liutech.service.VisitorAnalyticsService;
+import chat.liuxin.liutech.utils.ValidationUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 管理端访问统计控制器
+ * 提供日/周/月活跃用户数、全站与单篇文章的独立访客数（HyperLogLog 估计值）
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@RestController
+@RequestMapping("/admin/analytics")
+@PreAuthorize("hasRole('ADMIN')")
+public class AnalyticsAdminController extends BaseAdminController {
+
+    @Autowired
+    private VisitorAnalyticsService visitorAnalyticsService;
+
+    /**
+     * 查询日/周/月活跃用户数与独立访客数
+     *
+     * @return 活跃用户统计
+     */
+    @GetMapping("/active-users")
+    public Result<ActiveUsersResp> getActiveUsers() {
+        try {
+            return Result.success(visitorAnalyticsService.getActiveUsers());
+        } catch (Exception e) {
+            return handleException(e, "查询活跃用户统计");
+        }
+    }
+
+    /**
+     * 查询最近N天的全站独立访客数
+     *
+     * @param days 天数（含今天），默认1，最大366
+     * @param scope 统计范围（visitor-全部访客，user-登录用户），默认visitor
+     * @return 独立访客统计
+     */
+    @GetMapping("/visitors")
+    public Result<UniqueVisitorsResp> getVisitors(
+            @RequestParam(defaultValue = "1") int days,
+            @RequestParam(defaultValue = VisitorAnalyticsService.SCOPE_VISITOR) String scope) {
+        ValidationUtil.validateRange(days, "天数", 1, 366);
+        validateSiteScope(scope);
+        try {
+            LocalDate today = LocalDate.now();
+            return Result.success(visitorAnalyticsService.countUnique(scope, 0L, today.minusDays(days - 1), today));
+        } catch (Exception e) {
+            return handleException(e, "查询独立访客数");
+        }
+    }
+
+    /**
+     * 查询最近N天每天的全站独立访客数
+     *
+     * @param days 天数（含今天），默认30，最大366
+     * @param scope 统计范围（visitor-全部访客，user-登录用户），默认visitor
+     * @return 每天的独立访客统计
+     */
+    @GetMapping("/visitors/daily")
+    public Result<List<UniqueVisitorsResp>> getDailyVisitors(
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(defaultValue = VisitorAnalyticsService.SCOPE_VISITOR) String scope) {
+        ValidationUtil.validateRange(days, "天数", 1, 366);
+        validateSiteScope(scope);
+        try {
+            LocalDate today = LocalDate.now();
+            return Result.success(visitorAnalyticsService.countDaily(scope, 0L, today.minusDays(days - 1), today));
+        } catch (Exception e) {
+            return handleException(e, "查询每日独立访客数");
+        }
+    }
+
+    /**
+     * 查询文章最近N天的独立访客数
+     *
+     * @param id 文章ID
+     * @param days 天数（含今天），默认7，最大366
+     * @return 独立访客统计
+     */
+    @GetMapping("/posts/{id}/visitors")
+    public Result<UniqueVisitorsResp> getPostVisitors(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "7") int days) {
+        ValidationUtil.validateId(id, "文章ID");
+        ValidationUtil.validateRange(days, "天数", 1, 366);
+        try {
+            LocalDate today = LocalDate.now();
+            return Result.success(visitorAnalyticsService.countUnique(
+                    VisitorAnalyticsService.SCOPE_POST, id, today.minusDays(days - 1), today));
+        } catch (Exception e) {
+            return handleException(e, "查询文章独立访客数");
+        }
+    }
+
+    private void validateSiteScope(String scope) {
+        if (!VisitorAnalyticsService.SCOPE_VISITOR.equals(scope) && !VisitorAnalyticsService.SCOPE_USER.equals(scope)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "统计范围只能是visitor或user");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package chat.liuxin.liutech.controller.admin;
+
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.model.ContentReview;
+import chat.liuxin.liutech.resp.PageResp;
+import chat.liuxin.liutech.service.ContentModerationService;
+import chat.liuxin.liutech.utils.UserUtils;
+import chat.liuxin.liutech.utils.ValidationUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 管理端内容审核控制器
+ * 提供审核队列查询、审核处理以及违禁词词典热加载
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@RestController
+@RequestMapping("/admin/moderation")
+@PreAuthorize("hasRole('ADMIN')")
+public class ModerationAdminController extends BaseAdminController {
+
+    @Autowired
+    private ContentModerationService contentModerationService;
+
+    @Autowired
+    private UserUtils userUtils;
+
+    /**
+     * 分页查询审核队列
+     *
+     * @param page 页码，默认1
+     * @param size 每页大小，默认10
+     * @param status 审核状态（可选，0待审核，1通过，2驳回）
+     * @return 审核记录分页列表
+     */
+    @GetMapping("/reviews")
+    public Result<PageResp<ContentReview>> getReviews(
+            @RequestParam(defaultValue = "1") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Integer status) {
+
+        ValidationUtil.validateRange(page, "页码", 1, Integer.MAX_VALUE);
+        ValidationUtil.validateRange(size, "页面大小", 1, 100);
+
+        try {
+            return Result.success(contentModerationService.getReviews(status, page, size));
+        } catch (Exception e) {
+            return handleException(e, "查询审核队列");
+        }
+    }
+
+    /**
+     * 处理审核记录
+     *
+     * @param id 审核记录ID
+     * @param approved 是否通过
+     * @return 处理后的审核记录
+     */
+    @PutMapping("/reviews/{id}")
+    public Result<ContentReview> resolveReview(@PathVariable Long id, @RequestParam Boolean approved) {
+        ValidationUtil.validateId(id, "审核记录ID");
+        ValidationUtil.validateNotNull(approved, "审核结果");
+
+        ContentReview review = contentModerationService.resolveReview(id, approved, userUtils.getCurrentUserId());
+        return Result.success(review);
+    }
+
+    /**
+     * 重新加载违禁词词典（无需重启服务）
+     *
+     * @return 加载后的词条数量
+     */
+    @PostMapping("/dictionary/reload")
+    public Result<Integer> reloadDictionary() {
+        try {
+            return Result.success(contentModerationService.reloadDictionary());
+        } catch (Exception e) {
+            return handleException(e, "重新加载违禁词词典");
+        }
+    }
+}
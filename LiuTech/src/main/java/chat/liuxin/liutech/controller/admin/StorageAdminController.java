@@ -0,0 +1,78 @@
+package chat.liuxin.liutech.controller.admin;
+
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.resp.ImageBackfillResp;
+import chat.liuxin.liutech.resp.StorageDedupResp;
+import chat.liuxin.liutech.resp.StorageGcResp;
+import chat.liuxin.liutech.service.ImageMetadataService;
+import chat.liuxin.liutech.service.StorageGcService;
+import chat.liuxin.liutech.service.StoredFileService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 管理端上传存储控制器
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@RestController
+@RequestMapping("/admin/storage")
+@PreAuthorize("hasRole('ADMIN')")
+public class StorageAdminController extends BaseAdminController {
+
+    @Autowired
+    private StoredFileService storedFileService;
+
+    @Autowired
+    private ImageMetadataService imageMetadataService;
+
+    @Autowired
+    private StorageGcService storageGcService;
+
+    /**
+     * 上传目录去重迁移：内容重复的历史文件替换为硬链接（原URL不变），登记全部文件并重算引用数
+     * 全量计算哈希，耗时与上传目录大小成正比，建议先以 dryRun 查看可回收空间
+     *
+     * @param dryRun 为true时只统计不修改，默认true
+     * @return 迁移结果
+     */
+    @PostMapping("/dedup")
+    public Result<StorageDedupResp> deduplicate(@RequestParam(defaultValue = "true") boolean dryRun) {
+        return Result.success(storedFileService.deduplicate(dryRun));
+    }
+
+    /**
+     * 启动历史图片补齐：登记文章封面/缩略图中未登记的图片，提取缺失的元数据并生成缺失的图片变体
+     * 任务在后台执行，耗时与图片数量成正比，进度通过 GET 同一路径查询
+     *
+     * @return 任务启动时的状态
+     */
+    @PostMapping("/images/backfill")
+    public Result<ImageBackfillResp> backfillImages() {
+        return Result.success(imageMetadataService.startBackfill());
+    }
+
+    /**
+     * 查询正在执行或最近一次图片补齐任务的进度
+     *
+     * @return 任务状态，服务启动后未执行过时为null
+     */
+    @GetMapping("/images/backfill")
+    public Result<ImageBackfillResp> backfillImagesStatus() {
+        return Result.success(imageMetadataService.getBackfillStatus());
+    }
+
+    /**
+     * 立即执行一次存储回收：过期草稿附件、无人引用的资源、引用数为0的文件与磁盘上没有记录的文件
+     * 平时由定时任务执行，建议先以 dryRun 查看将要回收的内容
+     *
+     * @param dryRun 为true时只统计不删除，默认true
+     * @return 回收结果
+     */
+    @PostMapping("/gc")
+    public Result<StorageGcResp> collect(@RequestParam(defaultValue = "true") boolean dryRun) {
+        return Result.success(storageGcService.collect(dryRun));
+    }
+}
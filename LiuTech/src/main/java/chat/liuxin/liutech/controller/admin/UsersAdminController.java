@@ -33,8 +33,9 @@ public class UsersAdminController extends BaseAdminController {
      *
      * @param page 页码，默认1
      * @param size 每页大小，默认10
-     * @param username 用户名（可选，模糊搜索）
-     * @param email 邮箱（可选，模糊搜索）
+     * @param cursor 游标（可选，上一页返回的 nextCursor，传入时按游标翻页）
+     * @param username 用户名（可选，前缀匹配）
+     * @param email 邮箱（可选，前缀匹配）
      * @param status 用户状态（可选，0禁用，1启用）
      * @param includeDeleted 是否包含已删除用户（可选，true包含，false不包含，默认false）
      * @return 分页用户列表
@@ -43,6 +44,7 @@ public class UsersAdminController extends BaseAdminController {
     public Result<PageResp<UserResp>> getUserList(
             @RequestParam(defaultValue = "1") int page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Long cursor,
             @RequestParam(required = false) String username,
             @RequestParam(required = false) String email,
             @RequestParam(required = false) Integer status,
@@ -52,7 +54,7 @@ public class UsersAdminController extends BaseAdminController {
         ValidationUtil.validateRange(size, "页面大小", 1, 100);
 
         try {
-            PageResp<UserResp> result = userManagementService.getUserListForAdmin(page, size, username, email, status, includeDeleted);
+            PageResp<UserResp> result = userManagementService.getUserListForAdmin(page, size, cursor, username, email, status, includeDeleted);
             return Result.success(result);
         } catch (Exception e) {
             return handleException(e, "查询用户列表");
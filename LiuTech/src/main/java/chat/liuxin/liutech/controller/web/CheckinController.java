@@ -1,11 +1,13 @@
 package chat.liuxin.liutech.controller.web;
 
+import chat.liuxin.liutech.resp.CheckinCalendarResp;
 import chat.liuxin.liutech.resp.CheckinResp;
 import chat.liuxin.liutech.resp.CheckinStatusResp;
 import chat.liuxin.liutech.service.CheckinService;
-import chat.liuxin.liutech.utils.JwtUtil;
+import chat.liuxin.auth.utils.JwtUtil;
 import chat.liuxin.liutech.common.Result;
 import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.utils.UserUtils;
 // 移除Swagger依赖，项目不再使用
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -13,6 +15,9 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.time.DateTimeException;
+import java.time.YearMonth;
+
 /**
  * 签到控制器
  *
@@ -28,6 +33,7 @@ public class CheckinController {
 
     private final CheckinService checkinService;
     private final JwtUtil jwtUtil;
+    private final UserUtils userUtils;
 
     /**
      * 每日签到
@@ -46,12 +52,13 @@ public class CheckinController {
 
             token = token.substring(7); // 移除"Bearer "前缀
 
-            // 验证token并获取用户ID
-            if (!jwtUtil.validateToken(token)) {
+            // 验证token并获取用户ID（一次解析）
+            JwtUtil.ParsedToken parsed = jwtUtil.parseToken(token);
+            if (parsed == null) {
                 return Result.fail(ErrorCode.UNAUTHORIZED, "Token无效或已过期");
             }
 
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = parsed.getUserId();
             if (userId == null) {
                 return Result.fail(ErrorCode.UNAUTHORIZED, "无法获取用户信息");
             }
@@ -81,12 +88,13 @@ public class CheckinController {
 
             token = token.substring(7); // 移除"Bearer "前缀
 
-            // 验证token并获取用户ID
-            if (!jwtUtil.validateToken(token)) {
+            // 验证token并获取用户ID（一次解析）
+            JwtUtil.ParsedToken parsed = jwtUtil.parseToken(token);
+            if (parsed == null) {
                 return Result.fail(ErrorCode.UNAUTHORIZED, "Token无效或已过期");
             }
 
-            Long userId = jwtUtil.getUserIdFromToken(token);
+            Long userId = parsed.getUserId();
             if (userId == null) {
                 return Result.fail(ErrorCode.UNAUTHORIZED, "无法获取用户信息");
             }
@@ -98,4 +106,38 @@ public class CheckinController {
             return Result.fail(ErrorCode.SYSTEM_ERROR);
         }
     }
+
+    /**
+     * 获取某月签到日历
+     *
+     * @param year 年份（可选，默认当前年）
+     * @param month 月份（可选，1-12，默认当前月）
+     * @return 当月已签到的日期
+     */
+    @GetMapping("/checkin/calendar")
+    public Result<CheckinCalendarResp> getCheckinCalendar(@RequestParam(required = false) Integer year,
+                                                         @RequestParam(required = false) Integer month) {
+        try {
+            // 用户ID由 JwtAuthenticationFilter 认证后写入安全上下文，无需再次解析token
+            Long userId = userUtils.getCurrentUserId();
+            if (userId == null) {
+                return Result.fail(ErrorCode.UNAUTHORIZED, "用户未认证");
+            }
+
+            YearMonth current = YearMonth.now();
+            YearMonth target;
+            try {
+                target = YearMonth.of(year != null ? year : current.getYear(),
+                        month != null ? month : current.getMonthValue());
+            } catch (DateTimeException e) {
+                return Result.fail(ErrorCode.PARAMS_ERROR, "年份或月份无效");
+            }
+
+            return checkinService.getCheckinCalendar(userId, target);
+
+        } catch (Exception e) {
+            log.error("获取签到日历接口异常", e);
+            return Result.fail(ErrorCode.SYSTEM_ERROR);
+        }
+    }
 }
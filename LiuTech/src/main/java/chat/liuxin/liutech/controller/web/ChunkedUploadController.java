@@ -0,0 +1,112 @@
+package chat.liuxin.liutech.controller.web;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.req.ChunkedUploadInitReq;
+import chat.liuxin.liutech.resp.ChunkedUploadResp;
+import chat.liuxin.liutech.service.ChunkedUploadService;
+import chat.liuxin.liutech.utils.UserUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 分片上传控制器（大文件资源，支持并行上传与断点续传）
+ *
+ * 客户端流程：
+ * 1) POST /upload/chunked 初始化，得到 uploadId、分片大小与分片数；
+ * 2) PUT /upload/chunked/{uploadId}/chunks/{index}，请求体为分片原始字节，请求头 X-Chunk-Sha256 为分片的SHA-256，可并行；
+ * 3) 中断后 GET /upload/chunked/{uploadId} 查询已收到的分片，只补传缺失的分片；
+ * 4) POST /upload/chunked/{uploadId}/complete 合并并创建资源记录。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/upload/chunked")
+public class ChunkedUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private UserUtils userUtils;
+
+    /**
+     * 初始化分片上传
+     *
+     * @param req 初始化请求
+     * @return 会话信息
+     */
+    @PostMapping
+    public Result<ChunkedUploadResp> initUpload(@Valid @RequestBody ChunkedUploadInitReq req) {
+        Long userId = userUtils.getCurrentUserId();
+        return Result.success(chunkedUploadService.initUpload(userId, req));
+    }
+
+    /**
+     * 上传分片
+     *
+     * @param uploadId 上传ID
+     * @param index 分片序号（从0开始）
+     * @param checksum 分片SHA-256
+     * @param request HTTP请求（请求体为分片原始字节）
+     * @return 上传结果
+     * @throws IOException 读取请求体失败时抛出
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    public Result<String> uploadChunk(
+            @PathVariable("uploadId") String uploadId,
+            @PathVariable("index") int index,
+            @RequestHeader(value = "X-Chunk-Sha256", required = false) String checksum,
+            HttpServletRequest request) throws IOException {
+
+        Long userId = userUtils.getCurrentUserId();
+        chunkedUploadService.uploadChunk(userId, uploadId, index, checksum,
+                request.getContentLengthLong(), request.getInputStream());
+        return Result.success("分片上传成功");
+    }
+
+    /**
+     * 查询上传状态（续传时获取已收到的分片）
+     *
+     * @param uploadId 上传ID
+     * @return 会话信息
+     */
+    @GetMapping("/{uploadId}")
+    public Result<ChunkedUploadResp> getUpload(@PathVariable("uploadId") String uploadId) {
+        Long userId = userUtils.getCurrentUserId();
+        return Result.success(chunkedUploadService.getUpload(userId, uploadId));
+    }
+
+    /**
+     * 合并分片，完成上传
+     *
+     * @param uploadId 上传ID
+     * @return 会话信息（含上传结果）
+     */
+    @PostMapping("/{uploadId}/complete")
+    public Result<ChunkedUploadResp> completeUpload(@PathVariable("uploadId") String uploadId) {
+        Long userId = userUtils.getCurrentUserId();
+        log.info("合并分片上传 - 用户ID: {}, 上传ID: {}", userId, uploadId);
+        return Result.success(chunkedUploadService.completeUpload(userId, uploadId));
+    }
+
+    /**
+     * 取消上传
+     *
+     * @param uploadId 上传ID
+     * @return 取消结果
+     */
+    @DeleteMapping("/{uploadId}")
+    public Result<String> abortUpload(@PathVariable("uploadId") String uploadId) {
+        Long userId = userUtils.getCurrentUserId();
+        chunkedUploadService.abortUpload(userId, uploadId);
+        return Result.success("上传已取消");
+    }
+}
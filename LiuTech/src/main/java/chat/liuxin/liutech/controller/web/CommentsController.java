@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import jakarta.validation.Valid;
 
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import chat.liuxin.liutech.common.BusinessException;
 import chat.liuxin.liutech.common.ErrorCode;
 import chat.liuxin.liutech.common.Result;
 import chat.liuxin.liutech.model.Comments;
@@ -20,6 +22,7 @@ import chat.liuxin.liutech.req.CreateCommentReq;
 import chat.liuxin.liutech.resp.CommentResp;
 import chat.liuxin.liutech.resp.PageResp;
 import chat.liuxin.liutech.service.CommentsService;
+import chat.liuxin.liutech.utils.ValidationUtil;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -125,6 +128,26 @@ public class CommentsController {
         return Result.success("查询成功", comments);
     }
 
+    /**
+     * 分页查询全站最新动态（最新评论）
+     * 数据来自内存中的最新评论流，不查询数据库
+     *
+     * @param page 页码（从1开始）
+     * @param size 每页大小
+     * @return 分页评论列表
+     */
+    @GetMapping("/recent")
+    public Result<PageResp<CommentResp>> getRecentComments(
+            @RequestParam(defaultValue = "1") Integer page,
+            @RequestParam(defaultValue = "10") Integer size) {
+
+        ValidationUtil.validateRange(page, "页码", 1, Integer.MAX_VALUE);
+        ValidationUtil.validateRange(size, "页面大小", 1, 50);
+
+        PageResp<CommentResp> result = commentsService.getRecentComments(page, size);
+        return Result.success("查询成功", result);
+    }
+
     /**
      * 根据ID查询评论详情
      *
@@ -164,4 +187,26 @@ public class CommentsController {
             return Result.fail(ErrorCode.SYSTEM_ERROR, "创建评论失败: " + e.getMessage());
         }
     }
+
+    /**
+     * 删除评论（仅评论作者本人）
+     *
+     * @param id 评论ID
+     * @return 删除结果
+     */
+    @DeleteMapping("/{id}")
+    public Result<Void> deleteComment(@PathVariable Long id) {
+        log.info("删除评论 - ID: {}", id);
+
+        try {
+            commentsService.deleteComment(id);
+            return Result.success("删除成功", null);
+        } catch (BusinessException e) {
+            log.warn("删除评论失败 - ID: {}, 原因: {}", id, e.getMessage());
+            return Result.fail(e.getCode(), e.getMessage());
+        } catch (Exception e) {
+            log.error("删除评论失败", e);
+            return Result.fail(ErrorCode.SYSTEM_ERROR, "删除评论失败: " + e.getMessage());
+        }
+    }
 }
@@ -71,6 +71,26 @@ public class FileUploadController {
         return Result.success(result);
     }
 
+    /**
+     * 按内容哈希秒传（图片、文档）
+     * 客户端先计算文件的SHA-256，内容已存在时直接得到文件URL，返回空数据时再正常上传
+     *
+     * @param sha256 文件内容SHA-256（十六进制）
+     * @param fileName 原始文件名
+     * @param type 文件类型（image、document）
+     * @return 上传结果，未命中时数据为空
+     */
+    @GetMapping("/lookup")
+    public Result<FileUploadResp> lookupUpload(
+            @RequestParam("sha256") String sha256,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "type", defaultValue = "image") String type) {
+
+        Long userId = userUtils.getCurrentUserId();
+        FileUploadResp result = fileUploadService.lookupUpload(sha256, fileName, type, userId);
+        return Result.success(result);
+    }
+
     /**
      * 上传资源文件
      *
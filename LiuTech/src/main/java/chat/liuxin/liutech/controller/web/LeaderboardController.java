@@ -0,0 +1,59 @@
+package chat.liuxin.liutech.controller.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.resp.LeaderboardResp;
+import chat.liuxin.liutech.service.LeaderboardService;
+import chat.liuxin.liutech.utils.UserUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 排行榜控制器
+ * 积分、签到次数、连续签到天数排行榜，匿名可访问，登录用户额外返回自己的名次
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/leaderboards")
+public class LeaderboardController {
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private UserUtils userUtils;
+
+    /**
+     * 查询排行榜
+     *
+     * @param metric 指标（points / checkins / streak）
+     * @param period 周期（all / month / day，默认 all）
+     * @param offset 起始偏移，默认0
+     * @param limit 数量，默认20，最大100
+     * @return 排行榜
+     */
+    @GetMapping("/{metric}")
+    public Result<LeaderboardResp> getLeaderboard(@PathVariable String metric,
+                                                  @RequestParam(defaultValue = "all") String period,
+                                                  @RequestParam(defaultValue = "0") Integer offset,
+                                                  @RequestParam(defaultValue = "20") Integer limit) {
+        if (offset < 0 || offset > 10000) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "offset必须在0-10000之间");
+        }
+        if (limit < 1 || limit > 100) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "limit必须在1-100之间");
+        }
+        LeaderboardResp resp = leaderboardService.getLeaderboard(metric, period, offset, limit, userUtils.getCurrentUserId());
+        return Result.success("查询成功", resp);
+    }
+}
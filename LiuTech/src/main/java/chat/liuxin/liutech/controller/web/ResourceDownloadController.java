@@ -1,17 +1,19 @@
 package chat.liuxin.liutech.controller.web;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import chat.liuxin.liutech.common.BusinessException;
 import chat.liuxin.liutech.common.Result;
 import chat.liuxin.liutech.service.ResourceDownloadService;
 import chat.liuxin.liutech.utils.UserUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -52,21 +54,68 @@ public class ResourceDownloadController {
     }
     
     /**
-     * 下载资源文件
+     * 下载资源文件（支持 Range 断点续传、多段下载与 ETag 条件请求）
      * 
      * @param resourceId 资源ID
-     * @return 文件流
+     * @param request HTTP请求
+     * @param response HTTP响应
      */
     @GetMapping("/download/{resourceId}")
-    public ResponseEntity<Resource> downloadResource(@PathVariable Long resourceId) {
+    public void downloadResource(@PathVariable Long resourceId, HttpServletRequest request, HttpServletResponse response) {
         Long userId = userUtils.getCurrentUserId();
-        log.info("用户 {} 尝试下载资源 {}", userId, resourceId);
+        log.debug("用户 {} 尝试下载资源 {}", userId, resourceId);
         
         try {
-            return resourceDownloadService.downloadResource(userId, resourceId);
+            resourceDownloadService.downloadResource(userId, resourceId, request, response);
         } catch (Exception e) {
             log.error("下载资源失败: {}", e.getMessage());
-            return ResponseEntity.badRequest().build();
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            }
+        }
+    }
+    
+    /**
+     * 获取短时有效的签名下载链接
+     * 
+     * @param resourceId 资源ID
+     * @return 下载链接（相对后端根路径）
+     */
+    @GetMapping("/download-link/{resourceId}")
+    public Result<String> getDownloadLink(@PathVariable Long resourceId) {
+        Long userId = userUtils.getCurrentUserId();
+        try {
+            return Result.success(resourceDownloadService.createDownloadLink(userId, resourceId));
+        } catch (Exception e) {
+            log.error("生成下载链接失败: {}", e.getMessage());
+            return Result.fail(500, e.getMessage());
+        }
+    }
+    
+    /**
+     * 通过签名链接下载资源（无需token）
+     * 
+     * @param resourceId 资源ID
+     * @param uid 链接中的用户ID（免费资源的匿名链接不带该参数）
+     * @param expires 过期时间（秒级时间戳）
+     * @param sig 签名
+     * @param request HTTP请求
+     * @param response HTTP响应
+     */
+    @GetMapping("/file/{resourceId}")
+    public void downloadBySignedLink(@PathVariable Long resourceId, @RequestParam(required = false) Long uid,
+                                     @RequestParam long expires, @RequestParam String sig,
+                                     HttpServletRequest request, HttpServletResponse response) {
+        try {
+            resourceDownloadService.downloadBySignedLink(resourceId, uid, expires, sig, request, response);
+        } catch (Exception e) {
+            log.warn("签名链接下载失败 - 资源ID: {}, 错误: {}", resourceId, e.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(e instanceof BusinessException
+                        ? HttpServletResponse.SC_FORBIDDEN : HttpServletResponse.SC_BAD_REQUEST);
+            }
         }
     }
     
@@ -1,5 +1,7 @@
 package chat.liuxin.liutech.controller.web;
 
+import chat.liuxin.auth.filter.JwtAuthenticationFilter;
+import chat.liuxin.auth.utils.JwtUtil;
 import chat.liuxin.liutech.common.Result;
 import chat.liuxin.liutech.common.ErrorCode;
 import chat.liuxin.liutech.model.Users;
@@ -7,14 +9,18 @@ import chat.liuxin.liutech.req.LoginReq;
 import chat.liuxin.liutech.req.RegisterReq;
 import chat.liuxin.liutech.req.ChangePasswordReq;
 import chat.liuxin.liutech.req.UpdateProfileReq;
+import chat.liuxin.liutech.resp.AvailabilityResp;
 import chat.liuxin.liutech.resp.UserResp;
 import chat.liuxin.liutech.resp.LoginResp;
 import chat.liuxin.liutech.resp.ProfileResp;
 import chat.liuxin.liutech.service.UserAuthService;
+import chat.liuxin.liutech.service.UserAvailabilityService;
 import chat.liuxin.liutech.service.UserProfileService;
 import chat.liuxin.liutech.service.UserManagementService;
+import chat.liuxin.liutech.utils.IpUtil;
 import chat.liuxin.liutech.utils.UserUtils;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -34,7 +40,7 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
 
     // 依赖说明：
-    // - 应用服务：UserAuthService（认证流程：注册/登录/改密）、UserProfileService（资料与统计）、UserManagementService（用户管理）
+    // - 应用服务：UserAuthService（认证流程：注册/登录/改密/退出）、UserProfileService（资料与统计）、UserManagementService（用户管理）
     // - 会话获取：UserUtils（从SecurityContext获取当前用户）
     // 安全说明：
     // - 根据 SecurityConfig：/user/register、/user/login 允许匿名，其余接口默认需要JWT认证
@@ -52,6 +58,9 @@ public class UserController {
 
     @Autowired
     private UserUtils userUtils;
+
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
     /**
      * 用户注册接口
      * 创建新用户账户，包括用户名唯一性检查、邮箱唯一性检查、密码加密等
@@ -68,22 +77,68 @@ public class UserController {
         return Result.success("注册成功", userResp);
     }
 
+    /**
+     * 用户名/邮箱可用性检查接口
+     * 注册表单输入时实时调用，大部分请求由内存布隆过滤器直接判定，不访问数据库
+     *
+     * @param username 用户名（可选）
+     * @param email 邮箱（可选）
+     * @param request HTTP请求（提取客户端IP用于限流）
+     * @return 各字段是否可用，未传入的字段为null
+     */
+    @GetMapping("/availability")
+    public Result<AvailabilityResp> checkAvailability(
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) String email,
+            HttpServletRequest request) {
+        // 安全：匿名可调用；只返回是否被占用，不返回任何用户信息；按IP限流，防止批量探测邮箱是否已注册
+        userAvailabilityService.checkRateLimit(IpUtil.getClientIpAddress(request));
+        AvailabilityResp resp = new AvailabilityResp();
+        if (username != null) {
+            resp.setUsernameAvailable(!userAvailabilityService.isUsernameTaken(username));
+        }
+        if (email != null) {
+            resp.setEmailAvailable(!userAvailabilityService.isEmailTaken(email));
+        }
+        return Result.success(resp);
+    }
+
     /**
      * 用户登录接口
      * 验证用户凭据并返回JWT token
      *
      * @param loginReq 登录请求参数，包含用户名和密码
+     * @param request HTTP请求（提取客户端IP用于登录限流）
      * @return 包含JWT token的登录响应，客户端需要保存token用于后续API调用
      */
     @PostMapping("/login")
-    public Result<LoginResp> login(@Valid @RequestBody LoginReq loginReq) {
+    public Result<LoginResp> login(@Valid @RequestBody LoginReq loginReq, HttpServletRequest request) {
         // 安全：匿名可调用；返回 JWT token，前端保存并放入 Authorization: Bearer {token}
         log.info("收到用户登录请求，用户名: {}", loginReq.getUsername());
-        LoginResp loginResp = userAuthService.login(loginReq);
+        LoginResp loginResp = userAuthService.login(loginReq, IpUtil.getClientIpAddress(request));
         log.info("用户登录成功，用户名: {}", loginReq.getUsername());
         return Result.success("登录成功", loginResp);
     }
 
+    /**
+     * 退出登录接口
+     * 吊销当前token，allDevices=true 时同时使该用户在其他设备上的token失效
+     *
+     * @param allDevices 是否退出全部设备
+     * @param request HTTP请求（读取过滤器解析好的token）
+     * @return 操作结果
+     */
+    @PostMapping("/logout")
+    public Result<String> logout(@RequestParam(defaultValue = "false") boolean allDevices, HttpServletRequest request) {
+        // 安全：需认证；token 已由 JwtAuthenticationFilter 验签并放入请求属性，这里不再重复解析
+        JwtUtil.ParsedToken token = (JwtUtil.ParsedToken) request.getAttribute(JwtAuthenticationFilter.PARSED_TOKEN_ATTRIBUTE);
+        if (token == null) {
+            return Result.fail(ErrorCode.UNAUTHORIZED, "用户未认证");
+        }
+        userAuthService.logout(token, allDevices);
+        return Result.success("退出登录成功");
+    }
+
     /**
      * 获取当前用户信息接口
      * 从Spring Security上下文中获取认证用户信息
@@ -138,20 +193,24 @@ public class UserController {
 
     /**
      * 获取用户信息
-     * GET /user - 获取所有用户列表
+     * GET /user - 按ID顺序分批获取用户列表（afterId 为上一批最后一个用户的ID）
      * GET /user/{id} - 根据ID获取单个用户
      * GET /user?username=xxx - 根据用户名查询用户
      *
      * @param id 用户ID（可选）
      * @param username 用户名（可选，支持模糊查询）
+     * @param afterId 游标（可选，返回ID大于该值的用户）
+     * @param size 每批数量（可选，1-100，默认20）
      * @return 用户信息或用户列表
      */
     @GetMapping
     public Result<?> getUsers(
             @RequestParam(required = false) Long id,
-            @RequestParam(required = false) String username) {
-        log.info("收到获取用户信息请求，ID: {}, 用户名: {}", id, username);
-        Object result = userManagementService.getUsersByCondition(id, username);
+            @RequestParam(required = false) String username,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "20") Integer size) {
+        log.info("收到获取用户信息请求，ID: {}, 用户名: {}, 游标: {}", id, username, afterId);
+        Object result = userManagementService.getUsersByCondition(id, username, afterId, size);
         log.info("获取用户信息成功");
         return Result.success(result);
     }
@@ -0,0 +1,69 @@
+package chat.liuxin.liutech.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.service.StorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 对象存储上传文件重定向过滤器
+ * 文章正文、封面等保存的是 /uploads/ 开头的URL，子目录切换到对象存储后这些URL保持不变，
+ * 由本过滤器把请求重定向到对象存储的公开地址或预签名URL，文件字节不经过应用；
+ * 本地存放的子目录不处理，继续由静态资源映射输出。
+ * 资源目录（含积分资源）一律返回404，无论存放在哪个后端都只能经下载接口鉴权后访问。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Component
+public class RemoteUploadFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("GET".equals(method) || "HEAD".equals(method))
+                || !request.getRequestURI().startsWith(request.getContextPath() + fileUploadConfig.getUrlPrefix() + "/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String prefix = request.getContextPath() + fileUploadConfig.getUrlPrefix() + "/";
+        String relativePath = UriUtils.decode(request.getRequestURI().substring(prefix.length()), StandardCharsets.UTF_8);
+        String resourceDir = fileUploadConfig.getResourcePath();
+        if (relativePath.equals(resourceDir) || relativePath.startsWith(resourceDir + "/")) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (relativePath.isEmpty() || relativePath.contains("..") || storageService.isLocal(relativePath)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        String url = storageService.accessUrl(relativePath, null);
+        if (url == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        // 预签名URL有时效，重定向只允许在有效期的一半内复用
+        long maxAge = fileUploadConfig.getStorage().getS3().getPresignTtlSeconds() / 2;
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, url);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAge);
+    }
+}
@@ -17,6 +17,7 @@ import java.util.UUID;
  * 请求追踪过滤器
  * 为每个HTTP请求生成并绑定唯一的traceId到MDC，便于日志检索与链路追踪。
  * 优先从请求头 X-Request-Id 复用（如果前端/网关已生成），否则生成本地UUID。
+ * 独立访客统计需要已认证的用户，由 JWT 认证之后执行的 VisitTrackingInterceptor 负责。
  */
 @Slf4j
 @Component
@@ -0,0 +1,41 @@
+package chat.liuxin.liutech.interceptor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import chat.liuxin.liutech.service.VisitorAnalyticsService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 独立访客统计拦截器
+ * 在 Spring MVC 调用控制器之前把本次请求的访客计入独立访客统计。
+ * 拦截器在整个 Spring Security 过滤器链（含 JwtAuthenticationFilter）之后执行，此时已能取到当前登录用户，
+ * 登录用户按用户ID计入访客与活跃用户（DAU/WAU/MAU），未登录访客按IP计入。
+ *
+ * 静态资源、对象存储重定向与监控端点在 WebConfig 注册时排除；预检请求不计入。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Component
+public class VisitTrackingInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private VisitorAnalyticsService visitorAnalyticsService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"OPTIONS".equals(request.getMethod())) {
+            try {
+                visitorAnalyticsService.recordVisit(request);
+            } catch (Exception e) {
+                log.debug("记录独立访客失败: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+}
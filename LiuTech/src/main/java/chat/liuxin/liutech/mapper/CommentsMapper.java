@@ -90,4 +90,11 @@ public interface CommentsMapper extends BaseMapper<Comments> {
      * 再删除顶级评论（parent_id 为空）
      */
     int deleteRootsByPostId(@Param("postId") Long postId);
+
+    /**
+     * 恢复隐藏的评论（审核通过的待审核评论）
+     * @param id 评论ID
+     * @return 影响行数
+     */
+    int restoreById(@Param("id") Long id);
 }
\ No newline at end of file
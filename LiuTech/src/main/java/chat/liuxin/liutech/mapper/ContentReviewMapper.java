@@ -0,0 +1,18 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.ContentReview;
+
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 内容审核队列Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface ContentReviewMapper extends BaseMapper<ContentReview> {
+
+}
@@ -0,0 +1,61 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.ImageVariant;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 图片变体 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface ImageVariantMapper extends BaseMapper<ImageVariant> {
+
+    /**
+     * 查询原图的全部变体
+     *
+     * @param sourcePath 原图相对路径
+     * @return 变体列表
+     */
+    List<ImageVariant> selectBySource(@Param("sourcePath") String sourcePath);
+
+    /**
+     * 批量查询多张原图的变体
+     *
+     * @param sourcePaths 原图相对路径集合
+     * @return 变体列表
+     */
+    List<ImageVariant> selectBySources(@Param("sourcePaths") Collection<String> sourcePaths);
+
+    /**
+     * 批量写入变体（已存在时覆盖）
+     *
+     * @param variants 变体列表
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("variants") List<ImageVariant> variants);
+
+    /**
+     * 在给定路径中找出是变体文件的路径
+     *
+     * @param relativePaths 相对路径集合
+     * @return 变体文件相对路径列表
+     */
+    List<String> selectExistingPaths(@Param("relativePaths") Collection<String> relativePaths);
+
+    /**
+     * 删除原图的全部变体记录
+     *
+     * @param sourcePath 原图相对路径
+     * @return 影响行数
+     */
+    int deleteBySource(@Param("sourcePath") String sourcePath);
+}
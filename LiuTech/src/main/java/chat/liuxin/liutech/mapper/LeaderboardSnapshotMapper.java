@@ -0,0 +1,53 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.LeaderboardSnapshot;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 排行榜快照 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface LeaderboardSnapshotMapper extends BaseMapper<LeaderboardSnapshot> {
+
+    /**
+     * 查询排行榜的全部成员
+     *
+     * @param board 排行榜标识
+     * @return 成员列表
+     */
+    List<LeaderboardSnapshot> selectByBoard(@Param("board") String board);
+
+    /**
+     * 批量写入成员分数（存在时覆盖）
+     *
+     * @param snapshots 成员列表
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("snapshots") List<LeaderboardSnapshot> snapshots);
+
+    /**
+     * 批量删除成员
+     *
+     * @param board 排行榜标识
+     * @param userIds 用户ID列表
+     * @return 删除行数
+     */
+    int deleteMembers(@Param("board") String board, @Param("userIds") List<Long> userIds);
+
+    /**
+     * 删除长时间未更新的快照（过期周期的排行榜）
+     *
+     * @param retentionDays 保留天数
+     * @return 删除行数
+     */
+    int deleteStale(@Param("retentionDays") int retentionDays);
+}
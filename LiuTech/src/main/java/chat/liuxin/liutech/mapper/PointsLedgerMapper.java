@@ -0,0 +1,72 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.PointsLedger;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 积分流水 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface PointsLedgerMapper extends BaseMapper<PointsLedger> {
+
+    /**
+     * 按幂等键查询流水
+     *
+     * @param idempotencyKey 幂等键
+     * @return 流水，不存在时返回null
+     */
+    PointsLedger selectByIdempotencyKey(@Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * 按幂等键加共享锁读取流水（当前读）
+     * 可重复读隔离级别下普通查询读的是事务快照，看不到并发事务刚提交的同键流水
+     *
+     * @param idempotencyKey 幂等键
+     * @return 流水，不存在时返回null
+     */
+    PointsLedger selectByIdempotencyKeyLocking(@Param("idempotencyKey") String idempotencyKey);
+
+    /**
+     * 查询已存在的幂等键
+     *
+     * @param keys 幂等键集合
+     * @return 其中已存在的幂等键
+     */
+    List<String> selectExistingKeys(@Param("keys") Collection<String> keys);
+
+    /**
+     * 追加一条流水（回填自增ID）
+     *
+     * @param entry 流水
+     * @return 影响行数
+     */
+    int insertEntry(@Param("entry") PointsLedger entry);
+
+    /**
+     * 批量追加流水
+     *
+     * @param entries 流水列表
+     * @return 影响行数
+     */
+    int batchInsert(@Param("entries") List<PointsLedger> entries);
+
+    /**
+     * 回填本事务内刚追加的流水的变动后余额
+     *
+     * @param id 流水ID
+     * @param balanceAfter 变动后余额
+     * @return 影响行数
+     */
+    int updateBalanceAfter(@Param("id") Long id, @Param("balanceAfter") BigDecimal balanceAfter);
+}
@@ -1,5 +1,6 @@
 package chat.liuxin.liutech.mapper;
 
+import java.util.Date;
 import java.util.List;
 
 import org.apache.ibatis.annotations.Param;
@@ -73,4 +74,21 @@ public interface PostAttachmentsMapper extends BaseMapper<PostAttachments> {
      * @return 删除行数
      */
     int deleteByPostId(@Param("postId") Long postId);
+
+    /**
+     * 按ID升序分批查询超过保留期仍未绑定文章的草稿附件
+     * @param before 创建时间早于该时间
+     * @param afterId 上一批最后的ID
+     * @param limit 数量上限
+     * @return 附件列表
+     */
+    List<PostAttachments> selectExpiredDrafts(@Param("before") Date before, @Param("afterId") long afterId,
+                                              @Param("limit") int limit);
+
+    /**
+     * 删除草稿附件（仍未绑定文章时才删除）
+     * @param id 附件关联ID
+     * @return 删除行数
+     */
+    int deleteUnboundDraft(@Param("id") Long id);
 }
\ No newline at end of file
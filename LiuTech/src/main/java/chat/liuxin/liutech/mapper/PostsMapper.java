@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -330,4 +331,11 @@ public interface PostsMapper extends BaseMapper<Posts> {
      */
     int permanentDeleteByIds(@Param("ids") List<Long> ids);
 
+    /**
+     * 流式读取未删除文章的封面与缩略图URL
+     *
+     * @param handler 逐行处理结果（只填充 coverImage、thumbnail）
+     */
+    void scanImageUrls(ResultHandler<Posts> handler);
+
 }
@@ -1,5 +1,10 @@
 package chat.liuxin.liutech.mapper;
 
+import java.util.Date;
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 
 import chat.liuxin.liutech.model.Resources;
@@ -11,4 +16,20 @@ import chat.liuxin.liutech.model.Resources;
  */
 public interface ResourcesMapper extends BaseMapper<Resources> {
 
-}
\ No newline at end of file
+    /**
+     * 按ID升序分批查询无人引用的资源：未挂在任何文章/草稿上，没有付费下载记录，保留期内也没有被下载过
+     * @param before 创建时间与最近下载时间早于该时间
+     * @param afterId 上一批最后的ID
+     * @param limit 数量上限
+     * @return 资源列表
+     */
+    List<Resources> selectOrphans(@Param("before") Date before, @Param("afterId") long afterId,
+                                  @Param("limit") int limit);
+
+    /**
+     * 软删除无人引用的资源（期间被挂到文章上的不删）
+     * @param id 资源ID
+     * @return 影响行数
+     */
+    int softDeleteOrphan(@Param("id") Long id);
+}
@@ -0,0 +1,18 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.RevokedToken;
+
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 已吊销token Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface RevokedTokenMapper extends BaseMapper<RevokedToken> {
+
+}
@@ -0,0 +1,146 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.StoredFile;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上传文件存储 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface StoredFileMapper extends BaseMapper<StoredFile> {
+
+    /**
+     * 按相对路径查询
+     *
+     * @param relativePath 相对路径
+     * @return 文件记录，不存在时返回null
+     */
+    StoredFile selectByPath(@Param("relativePath") String relativePath);
+
+    /**
+     * 登记文件（已存在时只刷新最近引用时间）
+     *
+     * @param file 文件记录
+     * @return 影响行数
+     */
+    int upsertSeen(@Param("file") StoredFile file);
+
+    /**
+     * 按相对路径批量查询
+     *
+     * @param relativePaths 相对路径集合
+     * @return 文件记录列表
+     */
+    List<StoredFile> selectByPaths(@Param("relativePaths") Collection<String> relativePaths);
+
+    /**
+     * 按ID升序分批查询某个子目录下的文件（补齐任务使用）
+     *
+     * @param pathPrefix 相对路径前缀（如 images/）
+     * @param afterId 上一批最后的ID
+     * @param limit 数量上限
+     * @return 文件记录列表
+     */
+    List<StoredFile> selectByPrefixAfter(@Param("pathPrefix") String pathPrefix,
+                                         @Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 记录图片元数据
+     *
+     * @param file 文件记录（relativePath、width、height、dominantColor、placeholder）
+     * @return 影响行数
+     */
+    int updateImageMetadata(@Param("file") StoredFile file);
+
+    /**
+     * 记录图片尺寸
+     *
+     * @param relativePath 相对路径
+     * @param width 宽度
+     * @param height 高度
+     * @return 影响行数
+     */
+    int updateDimensions(@Param("relativePath") String relativePath, @Param("width") int width,
+                         @Param("height") int height);
+
+    /**
+     * 引用数加一
+     *
+     * @param relativePath 相对路径
+     * @return 影响行数
+     */
+    int incrementRef(@Param("relativePath") String relativePath);
+
+    /**
+     * 引用数减一（不小于0）
+     *
+     * @param relativePath 相对路径
+     * @return 影响行数
+     */
+    int decrementRef(@Param("relativePath") String relativePath);
+
+    /**
+     * 全部引用数清零（迁移重算前调用）
+     *
+     * @return 影响行数
+     */
+    int resetRefCounts();
+
+    /**
+     * 批量设置引用数
+     *
+     * @param counts 相对路径 -> 引用数
+     * @return 影响行数
+     */
+    int batchSetRefCounts(@Param("counts") Map<String, Integer> counts);
+
+    /**
+     * 流式读取未删除资源的文件URL（迁移重算引用数用）
+     *
+     * @param handler 结果处理器
+     */
+    void scanResourceFileUrls(ResultHandler<String> handler);
+
+    /**
+     * 流式读取可能引用上传文件的文本（文章正文/封面/缩略图、评论、公告、用户头像与简介，含软删除的记录）
+     *
+     * @param uploadPattern 上传文件URL的 LIKE 模式
+     * @param resourcePattern 资源下载链接的 LIKE 模式
+     * @param handler 结果处理器
+     */
+    void scanReferenceTexts(@Param("uploadPattern") String uploadPattern,
+                            @Param("resourcePattern") String resourcePattern, ResultHandler<String> handler);
+
+    /**
+     * 按ID升序分批查询引用数为0且超过宽限期未被引用的文件
+     *
+     * @param before 最近引用时间早于该时间
+     * @param afterId 上一批最后的ID
+     * @param limit 数量上限
+     * @return 文件记录列表
+     */
+    List<StoredFile> selectUnreferenced(@Param("before") Date before, @Param("afterId") long afterId,
+                                        @Param("limit") int limit);
+
+    /**
+     * 删除文件记录（仍为未引用状态时才删除，期间被重新引用的不删）
+     *
+     * @param id 主键ID
+     * @param before 最近引用时间早于该时间
+     * @return 影响行数
+     */
+    int deleteUnreferenced(@Param("id") Long id, @Param("before") Date before);
+}
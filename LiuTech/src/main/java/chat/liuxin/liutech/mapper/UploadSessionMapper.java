@@ -0,0 +1,123 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.UploadSession;
+import chat.liuxin.liutech.model.UploadSessionChunk;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 分片上传会话 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface UploadSessionMapper extends BaseMapper<UploadSession> {
+
+    /**
+     * 统计用户未完成的会话数
+     *
+     * @param userId 用户ID
+     * @return 会话数
+     */
+    int countActiveByUser(@Param("userId") Long userId);
+
+    /**
+     * 记录已收到的分片（已记录的分片不会再写入，重复记录按主键冲突失败）
+     *
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片序号
+     * @param size 分片大小
+     * @param sha256 分片SHA-256
+     * @return 影响行数
+     */
+    int insertChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex,
+                    @Param("size") long size, @Param("sha256") String sha256);
+
+    /**
+     * 已收到的分片序号
+     *
+     * @param uploadId 上传ID
+     * @return 分片序号（升序）
+     */
+    List<Integer> selectChunkIndexes(@Param("uploadId") String uploadId);
+
+    /**
+     * 查询已收到的单个分片
+     *
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片序号
+     * @return 分片记录，未收到时返回null
+     */
+    UploadSessionChunk selectChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex);
+
+    /**
+     * 已收到的全部分片（合并时逐个复核）
+     *
+     * @param uploadId 上传ID
+     * @return 分片记录（按序号升序）
+     */
+    List<UploadSessionChunk> selectChunks(@Param("uploadId") String uploadId);
+
+    /**
+     * 删除单个分片记录（复核不通过时让客户端重传）
+     *
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片序号
+     * @return 影响行数
+     */
+    int deleteChunk(@Param("uploadId") String uploadId, @Param("chunkIndex") int chunkIndex);
+
+    /**
+     * 删除会话的分片记录
+     *
+     * @param uploadId 上传ID
+     * @return 影响行数
+     */
+    int deleteChunks(@Param("uploadId") String uploadId);
+
+    /**
+     * 条件更新状态（用于抢占合并）
+     *
+     * @param uploadId 上传ID
+     * @param expected 当前状态
+     * @param status 新状态
+     * @return 影响行数，0表示状态已被其他请求修改
+     */
+    int updateStatus(@Param("uploadId") String uploadId, @Param("expected") int expected, @Param("status") int status);
+
+    /**
+     * 顺延上传中会话的过期时间
+     *
+     * @param uploadId 上传ID
+     * @param expiresAt 新的过期时间
+     * @return 影响行数
+     */
+    int extendExpiry(@Param("uploadId") String uploadId, @Param("expiresAt") Date expiresAt);
+
+    /**
+     * 标记合并完成
+     *
+     * @param uploadId 上传ID
+     * @param resourceId 资源ID
+     * @param expiresAt 完成记录的保留期限
+     * @return 影响行数
+     */
+    int markCompleted(@Param("uploadId") String uploadId, @Param("resourceId") Long resourceId,
+                      @Param("expiresAt") Date expiresAt);
+
+    /**
+     * 查询已过期的会话
+     *
+     * @param now 当前时间
+     * @param limit 数量上限
+     * @return 会话列表
+     */
+    List<UploadSession> selectExpired(@Param("now") Date now, @Param("limit") int limit);
+}
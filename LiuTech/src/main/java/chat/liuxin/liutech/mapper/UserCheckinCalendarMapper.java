@@ -0,0 +1,42 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.UserCheckinCalendar;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * 用户年度签到日历Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface UserCheckinCalendarMapper extends BaseMapper<UserCheckinCalendar> {
+
+    /**
+     * 查询用户某年的签到位图
+     *
+     * @param userId 用户ID
+     * @param year 年份
+     * @return 位图，当年没有签到时返回null
+     */
+    @Select("SELECT days FROM user_checkin_calendars WHERE user_id = #{userId} AND year = #{year}")
+    byte[] selectDays(@Param("userId") Long userId, @Param("year") Integer year);
+
+    /**
+     * 把位图按位或到用户某年的签到日历（不存在时插入），单条语句完成置位
+     *
+     * @param userId 用户ID
+     * @param year 年份
+     * @param days 要置位的位图（46字节）
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO user_checkin_calendars (user_id, year, days) VALUES (#{userId}, #{year}, #{days}) " +
+            "ON DUPLICATE KEY UPDATE days = days | VALUES(days)")
+    int mergeDays(@Param("userId") Long userId, @Param("year") Integer year, @Param("days") byte[] days);
+}
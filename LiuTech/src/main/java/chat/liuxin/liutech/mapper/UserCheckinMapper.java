@@ -57,4 +57,13 @@ public interface UserCheckinMapper extends BaseMapper<UserCheckin> {
      */
     @Select("SELECT * FROM user_checkins WHERE user_id = #{userId} ORDER BY checkin_date DESC LIMIT 1")
     UserCheckin findLastCheckinByUserId(@Param("userId") Long userId);
+
+    /**
+     * 查询用户全部签到日期（升序），仅用于从历史记录补建签到汇总与日历
+     *
+     * @param userId 用户ID
+     * @return 签到日期列表
+     */
+    @Select("SELECT checkin_date FROM user_checkins WHERE user_id = #{userId} ORDER BY checkin_date")
+    List<LocalDate> findCheckinDates(@Param("userId") Long userId);
 }
\ No newline at end of file
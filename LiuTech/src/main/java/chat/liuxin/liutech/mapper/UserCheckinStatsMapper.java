@@ -0,0 +1,52 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.UserCheckinStats;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * 用户签到汇总Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface UserCheckinStatsMapper extends BaseMapper<UserCheckinStats> {
+
+    /**
+     * 查询并锁定用户的签到汇总（签到时调用，同一用户并发签到串行执行）
+     *
+     * @param userId 用户ID
+     * @return 签到汇总，不存在时返回null
+     */
+    @Select("SELECT * FROM user_checkin_stats WHERE user_id = #{userId} FOR UPDATE")
+    UserCheckinStats selectForUpdate(@Param("userId") Long userId);
+
+    /**
+     * 插入签到汇总，已存在时保持不变（从历史记录补建时使用）
+     *
+     * @param stats 签到汇总
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO user_checkin_stats (user_id, last_checkin_date, current_streak, total_checkins, updated_at) " +
+            "VALUES (#{stats.userId}, #{stats.lastCheckinDate}, #{stats.currentStreak}, #{stats.totalCheckins}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE user_id = user_id")
+    int insertIfAbsent(@Param("stats") UserCheckinStats stats);
+
+    /**
+     * 流式读取全部签到汇总（重建排行榜使用）
+     *
+     * @param handler 逐行处理结果
+     */
+    @Select("SELECT user_id, last_checkin_date, current_streak, total_checkins FROM user_checkin_stats")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    void scanAll(ResultHandler<UserCheckinStats> handler);
+}
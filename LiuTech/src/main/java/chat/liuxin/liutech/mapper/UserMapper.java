@@ -5,8 +5,12 @@ import chat.liuxin.liutech.resp.UserResp;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface UserMapper extends BaseMapper<Users> {
@@ -18,16 +22,18 @@ public interface UserMapper extends BaseMapper<Users> {
     List<Users> findByEmail(String email);
 
     /**
-     * 管理端分页查询用户列表（包含统计信息）
-     * @param offset 偏移量
+     * 管理端分页查询用户列表（包含统计信息），按ID倒序
+     * @param cursor 游标（可选，上一页最后一条的ID），传入时只返回ID更小的用户
+     * @param offset 偏移量（使用游标时为0）
      * @param limit 限制数量
-     * @param username 用户名（可选，模糊搜索）
-     * @param email 邮箱（可选，模糊搜索）
+     * @param username 用户名（可选，前缀匹配，需已转义通配符）
+     * @param email 邮箱（可选，前缀匹配，需已转义通配符）
      * @param status 用户状态（可选，0禁用，1启用）
      * @param includeDeleted 是否包含已删除用户
      * @return 用户列表
      */
-    List<UserResp> selectUsersForAdmin(@Param("offset") Integer offset,
+    List<UserResp> selectUsersForAdmin(@Param("cursor") Long cursor,
+                                       @Param("offset") Integer offset,
                                        @Param("limit") Integer limit,
                                        @Param("username") String username,
                                        @Param("email") String email,
@@ -35,16 +41,108 @@ public interface UserMapper extends BaseMapper<Users> {
                                        @Param("includeDeleted") Boolean includeDeleted);
 
     /**
-     * 管理端查询用户总数
-     * @param username 用户名（可选，模糊搜索）
-     * @param email 邮箱（可选，模糊搜索）
+     * 按ID顺序查询一批未删除用户
+     * @param afterId 从该ID之后开始（不包含），首批传0
+     * @param limit 数量
+     * @return 用户列表
+     */
+    List<Users> selectUsersAfter(@Param("afterId") Long afterId, @Param("limit") Integer limit);
+
+    /**
+     * 流式读取积分大于0的未删除用户（只返回 id 与 points），用于重建积分排行榜
+     * @param handler 逐行处理结果
+     */
+    void scanUserPoints(ResultHandler<Users> handler);
+
+    /**
+     * 原子增减积分（只在用户未删除且变动后余额不为负时生效）
+     * @param id 用户ID
+     * @param delta 变动量（获得为正，消费为负）
+     * @return 影响行数，0表示用户不存在或积分不足
+     */
+    int addPoints(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    /**
+     * 查询用户当前积分（在已锁定该行的事务内读取变动后余额）
+     * @param id 用户ID
+     * @return 积分，用户不存在时返回null
+     */
+    BigDecimal selectPoints(@Param("id") Long id);
+
+    /**
+     * 锁定未删除用户并返回其积分（只返回 id 与 points）
+     * @param ids 用户ID集合
+     * @return 用户列表
+     */
+    List<Users> selectPointsForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量增加积分，一条语句完成多个用户的变动
+     * @param deltas 用户ID -> 变动量
+     * @return 影响行数
+     */
+    int batchAddPoints(@Param("deltas") Map<Long, BigDecimal> deltas);
+
+    /**
+     * token版本号加1（使该用户已签发的token全部失效）
+     * @param id 用户ID
+     * @return 影响行数
+     */
+    int incrementTokenVersion(@Param("id") Long id);
+
+    /**
+     * 查询用户当前的token版本号（包含已软删除的用户）
+     * @param id 用户ID
+     * @return token版本号，用户不存在时返回null
+     */
+    Integer selectTokenVersion(@Param("id") Long id);
+
+    /**
+     * 查询token版本号大于0的用户（只返回id与tokenVersion），用于启动加载与定时同步
+     * @return 用户列表
+     */
+    List<Users> selectRevokedTokenVersions();
+
+    /**
+     * 批量更新最近登录时间（只更新 last_login_at，不改动 updated_at，时间只会前进不会后退）
+     * @param users 用户列表（只使用 id 与 lastLoginAt）
+     * @return 影响行数
+     */
+    int batchUpdateLastLoginAt(@Param("users") List<Users> users);
+
+    /**
+     * 用户名是否已被占用（包含已软删除的用户，与唯一索引一致）
+     * @param username 用户名
+     * @return 已占用返回true
+     */
+    boolean existsByUsername(@Param("username") String username);
+
+    /**
+     * 邮箱是否已被占用（包含已软删除的用户，与唯一索引一致）
+     * @param email 邮箱
+     * @return 已占用返回true
+     */
+    boolean existsByEmail(@Param("email") String email);
+
+    /**
+     * 流式读取全部用户的用户名与邮箱（包含已软删除的用户），用于重建布隆过滤器
+     * @param handler 逐行处理结果
+     */
+    void scanUsernamesAndEmails(ResultHandler<Users> handler);
+
+    /**
+     * 管理端查询用户总数（有上限）
+     * @param username 用户名（可选，前缀匹配，需已转义通配符）
+     * @param email 邮箱（可选，前缀匹配，需已转义通配符）
      * @param status 用户状态（可选，0禁用，1启用）
      * @param includeDeleted 是否包含已删除用户
+     * @param maxCount 最多计数的行数，超出时返回该值
      * @return 总数
      */
     Integer countUsersForAdmin(@Param("username") String username,
                               @Param("email") String email,
                               @Param("status") Integer status,
-                              @Param("includeDeleted") Boolean includeDeleted);
+                              @Param("includeDeleted") Boolean includeDeleted,
+                              @Param("maxCount") Integer maxCount);
 
 }
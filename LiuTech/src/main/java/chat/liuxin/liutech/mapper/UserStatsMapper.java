@@ -0,0 +1,54 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.UserStats;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 用户统计汇总 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface UserStatsMapper extends BaseMapper<UserStats> {
+
+    /**
+     * 重新汇总单个用户的统计行（一条 INSERT ... SELECT，不存在时插入，存在时覆盖）
+     *
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    int refreshByUserId(@Param("userId") Long userId);
+
+    /**
+     * 按ID升序取一段未删除用户的ID（全量重新汇总分段用）
+     *
+     * @param afterId 上一段的最大用户ID
+     * @param limit 数量上限
+     * @return 用户ID列表
+     */
+    List<Long> selectUserIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * 读取一段用户的汇总值（普通一致性读，不加锁）
+     *
+     * @param fromId 起始用户ID（含）
+     * @param toId 结束用户ID（含）
+     * @return 汇总值
+     */
+    List<UserStats> selectAggregates(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    /**
+     * 批量写入汇总值，存在时覆盖
+     *
+     * @param stats 汇总值
+     * @return 影响行数
+     */
+    int batchUpsert(@Param("stats") List<UserStats> stats);
+}
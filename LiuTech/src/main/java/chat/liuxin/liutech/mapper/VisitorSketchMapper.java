@@ -0,0 +1,63 @@
+package chat.liuxin.liutech.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+import chat.liuxin.liutech.model.VisitorSketch;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 独立访客计数快照 Mapper接口
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Mapper
+public interface VisitorSketchMapper extends BaseMapper<VisitorSketch> {
+
+    /**
+     * 查询并锁定一行快照（合并写入前调用，多实例同时合并同一行时串行执行）
+     *
+     * @param scope 统计范围
+     * @param targetId 统计对象ID
+     * @param statDate 统计日期
+     * @return 快照，不存在时返回null
+     */
+    VisitorSketch selectForUpdate(@Param("scope") String scope,
+                                  @Param("targetId") Long targetId,
+                                  @Param("statDate") LocalDate statDate);
+
+    /**
+     * 写入快照（不存在时插入，存在时覆盖寄存器数组）
+     *
+     * @param sketch 快照
+     * @return 影响行数
+     */
+    int upsert(@Param("sketch") VisitorSketch sketch);
+
+    /**
+     * 查询日期范围内的快照
+     *
+     * @param scope 统计范围
+     * @param targetId 统计对象ID
+     * @param startDate 开始日期（包含）
+     * @param endDate 结束日期（包含）
+     * @return 快照列表，按日期升序
+     */
+    List<VisitorSketch> selectRange(@Param("scope") String scope,
+                                    @Param("targetId") Long targetId,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
+
+    /**
+     * 删除早于指定日期的快照
+     *
+     * @param beforeDate 截止日期（不包含）
+     * @return 删除行数
+     */
+    int deleteBefore(@Param("beforeDate") LocalDate beforeDate);
+}
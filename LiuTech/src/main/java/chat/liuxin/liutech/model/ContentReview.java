@@ -0,0 +1,110 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 内容审核队列实体类
+ * 审核模式下命中违禁词的评论/文章会写入此表，等待管理员处理
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("content_reviews")
+public class ContentReview implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 待审核
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * 审核通过
+     */
+    public static final int STATUS_APPROVED = 1;
+
+    /**
+     * 审核驳回
+     */
+    public static final int STATUS_REJECTED = 2;
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 内容类型（comment/post）
+     */
+    @TableField("target_type")
+    private String targetType;
+
+    /**
+     * 内容ID（评论ID或文章ID）
+     */
+    @TableField("target_id")
+    private Long targetId;
+
+    /**
+     * 内容作者ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 内容摘录
+     */
+    @TableField("excerpt")
+    private String excerpt;
+
+    /**
+     * 命中的违禁词（逗号分隔）
+     */
+    @TableField("hit_words")
+    private String hitWords;
+
+    /**
+     * 审核状态（0待审核，1通过，2驳回）
+     */
+    @TableField("status")
+    private Integer status;
+
+    /**
+     * 审核通过后恢复的文章状态（待审核期间文章保持草稿，评论为空）
+     */
+    @TableField("target_status")
+    private String targetStatus;
+
+    /**
+     * 审核人ID
+     */
+    @TableField("reviewed_by")
+    private Long reviewedBy;
+
+    /**
+     * 审核时间
+     */
+    @TableField("reviewed_at")
+    private Date reviewedAt;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "created_at", fill = FieldFill.INSERT)
+    private Date createdAt;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "updated_at", fill = FieldFill.INSERT_UPDATE)
+    private Date updatedAt;
+}
@@ -0,0 +1,77 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片变体实体类
+ * 上传图片后异步生成的缩略图与多种宽度的缩放图，与原图存放在同一目录
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("image_variants")
+public class ImageVariant implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缩略图（按固定宽高居中裁剪）
+     */
+    public static final String VARIANT_THUMBNAIL = "thumb";
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 原图相对路径
+     */
+    @TableField("source_path")
+    private String sourcePath;
+
+    /**
+     * 变体名（thumb，或 w640 这样的宽度）
+     */
+    private String variant;
+
+    /**
+     * 编码格式（jpeg、png、webp）
+     */
+    private String format;
+
+    /**
+     * 变体文件相对路径
+     */
+    @TableField("relative_path")
+    private String relativePath;
+
+    /**
+     * 宽度（像素）
+     */
+    private Integer width;
+
+    /**
+     * 高度（像素）
+     */
+    private Integer height;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+}
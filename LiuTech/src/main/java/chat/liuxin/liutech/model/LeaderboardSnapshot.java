@@ -0,0 +1,39 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 排行榜快照实体类
+ * 按日/按月排行榜的成员分数，由 LeaderboardService 定时写入，启动时用于恢复当前周期的排行榜
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("leaderboard_snapshots")
+public class LeaderboardSnapshot implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 排行榜标识（如 points:2026-10-19、checkins:2026-10）
+     */
+    private String board;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 分数
+     */
+    private Double score;
+}
@@ -0,0 +1,71 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 积分流水实体类
+ * 每次积分变动追加一行（只增不改），记录变动量、原因、关联业务与变动后的余额，
+ * 幂等键唯一，同一业务操作重试时不会重复变动积分
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("points_ledger")
+public class PointsLedger implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 流水ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 变动量（获得为正，消费为负）
+     */
+    private BigDecimal delta;
+
+    /**
+     * 变动后的积分余额
+     */
+    @TableField("balance_after")
+    private BigDecimal balanceAfter;
+
+    /**
+     * 变动原因（CHECKIN、RESOURCE_PURCHASE、ADMIN_ADJUST 等）
+     */
+    private String reason;
+
+    /**
+     * 关联业务ID（如签到日期、资源ID）
+     */
+    @TableField("ref_id")
+    private String refId;
+
+    /**
+     * 幂等键（可为空，非空时唯一）
+     */
+    @TableField("idempotency_key")
+    private String idempotencyKey;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+}
@@ -0,0 +1,47 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 已吊销token实体类
+ * 退出登录时记录token ID（jti），过期时间之后记录即可清理
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("revoked_tokens")
+public class RevokedToken implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * token ID（jti）
+     */
+    @TableId(value = "token_id", type = IdType.INPUT)
+    private String tokenId;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * token过期时间
+     */
+    @TableField("expires_at")
+    private Date expiresAt;
+
+    /**
+     * 吊销时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+}
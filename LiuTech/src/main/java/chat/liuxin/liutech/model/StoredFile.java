@@ -0,0 +1,91 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 上传文件存储实体类
+ * 每个物理文件一行：按内容 SHA-256 寻址存放，引用数由 resources 记录维护，
+ * 引用数归零且超过保留期的文件由回收任务清理
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("stored_files")
+public class StoredFile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 主键ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 文件内容的 SHA-256（小写十六进制）
+     */
+    private String sha256;
+
+    /**
+     * 相对上传根目录的路径
+     */
+    @TableField("relative_path")
+    private String relativePath;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long size;
+
+    /**
+     * 引用数（指向该文件的资源记录数）
+     */
+    @TableField("ref_count")
+    private Integer refCount;
+
+    /**
+     * 图片宽度（像素，非图片为空）
+     */
+    private Integer width;
+
+    /**
+     * 图片高度（像素，非图片为空）
+     */
+    private Integer height;
+
+    /**
+     * 图片主色调（如 #3a6ea5）
+     */
+    @TableField("dominant_color")
+    private String dominantColor;
+
+    /**
+     * 图片占位串（BlurHash）
+     */
+    private String placeholder;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+
+    /**
+     * 最近一次上传命中或被引用的时间
+     */
+    @TableField("last_referenced_at")
+    private Date lastReferencedAt;
+
+    /**
+     * 本次上传是否命中已有文件（不落库）
+     */
+    @TableField(exist = false)
+    private Boolean deduplicated;
+}
@@ -0,0 +1,131 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 分片上传会话实体类
+ * 初始化时按文件大小在临时目录预分配文件，各分片按偏移直接写入；
+ * 已收到的分片记录在 upload_session_chunks，断线后客户端据此续传
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("upload_sessions")
+public class UploadSession implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 上传中
+     */
+    public static final int STATUS_UPLOADING = 0;
+
+    /**
+     * 合并中
+     */
+    public static final int STATUS_COMPLETING = 1;
+
+    /**
+     * 已完成
+     */
+    public static final int STATUS_COMPLETED = 2;
+
+    /**
+     * 上传ID
+     */
+    @TableId(value = "id", type = IdType.INPUT)
+    private String id;
+
+    /**
+     * 上传用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 原始文件名
+     */
+    @TableField("file_name")
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    @TableField("file_size")
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节，最后一片可能更小）
+     */
+    @TableField("chunk_size")
+    private Integer chunkSize;
+
+    /**
+     * 分片数
+     */
+    @TableField("chunk_count")
+    private Integer chunkCount;
+
+    /**
+     * 客户端声明的整个文件的SHA-256（可为空）
+     */
+    private String sha256;
+
+    /**
+     * 文件描述
+     */
+    private String description;
+
+    /**
+     * 草稿关联键
+     */
+    @TableField("draft_key")
+    private String draftKey;
+
+    /**
+     * 附件类型
+     */
+    private String type;
+
+    /**
+     * 下载类型（0免费，1积分）
+     */
+    @TableField("download_type")
+    private Integer downloadType;
+
+    /**
+     * 下载所需积分
+     */
+    @TableField("points_needed")
+    private Integer pointsNeeded;
+
+    /**
+     * 状态（0上传中，1合并中，2已完成）
+     */
+    private Integer status;
+
+    /**
+     * 合并完成后创建的资源ID
+     */
+    @TableField("resource_id")
+    private Long resourceId;
+
+    /**
+     * 创建时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+
+    /**
+     * 过期时间（每收到一个分片顺延，过期未完成的会话由定时任务清理）
+     */
+    @TableField("expires_at")
+    private Date expiresAt;
+}
@@ -0,0 +1,51 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 分片上传已收到的分片实体类
+ * 记录每个分片的大小与校验值，合并时逐个分片复核临时文件的内容
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("upload_session_chunks")
+public class UploadSessionChunk implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 上传ID
+     */
+    @TableField("upload_id")
+    private String uploadId;
+
+    /**
+     * 分片序号（从0开始）
+     */
+    @TableField("chunk_index")
+    private Integer chunkIndex;
+
+    /**
+     * 分片大小（字节）
+     */
+    private Long size;
+
+    /**
+     * 分片SHA-256
+     */
+    private String sha256;
+
+    /**
+     * 收到时间
+     */
+    @TableField("created_at")
+    private Date createdAt;
+}
@@ -0,0 +1,40 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 用户年度签到日历实体类
+ * 每个用户每年一行，days 为 DayBitmap 格式的位图（第 dayOfYear-1 位表示当天已签到）
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("user_checkin_calendars")
+public class UserCheckinCalendar implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * 年份
+     */
+    @TableField("year")
+    private Integer year;
+
+    /**
+     * 签到位图（46字节）
+     */
+    @TableField("days")
+    private byte[] days;
+}
@@ -0,0 +1,54 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * 用户签到汇总实体类
+ * 每个用户一行，签到时增量维护最后签到日期、当前连续天数与总签到次数
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("user_checkin_stats")
+public class UserCheckinStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private Long userId;
+
+    /**
+     * 最后签到日期
+     */
+    @TableField("last_checkin_date")
+    private LocalDate lastCheckinDate;
+
+    /**
+     * 截至最后签到日期的连续签到天数
+     */
+    @TableField("current_streak")
+    private Integer currentStreak;
+
+    /**
+     * 总签到次数
+     */
+    @TableField("total_checkins")
+    private Integer totalCheckins;
+
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private Date updatedAt;
+}
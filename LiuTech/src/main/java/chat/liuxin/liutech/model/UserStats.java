@@ -0,0 +1,77 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 用户统计汇总实体类
+ * 每个用户一行，由 UserStatsService 在文章/评论写入后按用户重新汇总
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("user_stats")
+public class UserStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    @TableId(value = "user_id", type = IdType.INPUT)
+    private Long userId;
+
+    /**
+     * 已发布文章数
+     */
+    @TableField("post_count")
+    private Long postCount;
+
+    /**
+     * 草稿数
+     */
+    @TableField("draft_count")
+    private Long draftCount;
+
+    /**
+     * 评论数
+     */
+    @TableField("comment_count")
+    private Long commentCount;
+
+    /**
+     * 已发布文章总浏览量
+     */
+    @TableField("view_count")
+    private Long viewCount;
+
+    /**
+     * 已发布文章总获赞数
+     */
+    @TableField("like_count")
+    private Long likeCount;
+
+    /**
+     * 最后发文时间（已发布文章）
+     */
+    @TableField("last_post_at")
+    private Date lastPostAt;
+
+    /**
+     * 最后评论时间
+     */
+    @TableField("last_comment_at")
+    private Date lastCommentAt;
+
+    /**
+     * 统计时间
+     */
+    @TableField("updated_at")
+    private Date updatedAt;
+}
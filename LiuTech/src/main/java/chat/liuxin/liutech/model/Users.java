@@ -3,6 +3,8 @@ package chat.liuxin.liutech.model;
 import java.math.BigDecimal;
 import java.util.Date;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
 
 import lombok.Data;
@@ -46,6 +48,12 @@ public class Users extends BaseEntity {
      */
     private Integer status;
 
+    /**
+     * token版本号（改密码/禁用/全部登出时递增，只能通过 UserMapper.incrementTokenVersion 修改）
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private Integer tokenVersion;
+
     /**
      * 最近登录时间
      */
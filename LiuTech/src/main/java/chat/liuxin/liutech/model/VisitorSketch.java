@@ -0,0 +1,54 @@
+package chat.liuxin.liutech.model;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * 独立访客计数快照实体类
+ * 每个统计对象（全站访客、全站登录用户、单篇文章）每天一行，保存 HyperLogLog 寄存器数组，
+ * 由 VisitorAnalyticsService 定时合并写入
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+@TableName("visitor_sketches")
+public class VisitorSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 统计范围（visitor-全站访客，user-全站登录用户，post-单篇文章）
+     */
+    private String scope;
+
+    /**
+     * 统计对象ID（全站为0，文章为文章ID）
+     */
+    @TableField("target_id")
+    private Long targetId;
+
+    /**
+     * 统计日期
+     */
+    @TableField("stat_date")
+    private LocalDate statDate;
+
+    /**
+     * HyperLogLog 寄存器数组
+     */
+    private byte[] registers;
+
+    /**
+     * 更新时间
+     */
+    @TableField("updated_at")
+    private Date updatedAt;
+}
@@ -0,0 +1,64 @@
+package chat.liuxin.liutech.req;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+/**
+ * 分片上传初始化请求类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+public class ChunkedUploadInitReq {
+
+    /**
+     * 原始文件名
+     */
+    @NotBlank(message = "文件名不能为空")
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long fileSize;
+
+    /**
+     * 期望的分片大小（字节，可选，服务端会限制在允许范围内）
+     */
+    private Integer chunkSize;
+
+    /**
+     * 整个文件的SHA-256（可选，合并后校验）
+     */
+    private String sha256;
+
+    /**
+     * 文件描述
+     */
+    private String description;
+
+    /**
+     * 草稿关联键（可选）
+     */
+    private String draftKey;
+
+    /**
+     * 附件类型（可选）
+     */
+    private String type;
+
+    /**
+     * 下载类型（0免费，1积分，默认0）
+     */
+    private Integer downloadType;
+
+    /**
+     * 下载所需积分（默认0）
+     */
+    private Integer pointsNeeded;
+}
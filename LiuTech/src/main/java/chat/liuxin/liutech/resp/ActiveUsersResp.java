@@ -0,0 +1,53 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDate;
+
+/**
+ * 活跃用户统计响应类
+ * 周、月为截至统计日期的最近7天、30天滚动窗口，数值为 HyperLogLog 估计值
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class ActiveUsersResp {
+
+    /**
+     * 统计日期
+     */
+    private LocalDate date;
+
+    /**
+     * 日活跃登录用户数
+     */
+    private Long dau;
+
+    /**
+     * 周活跃登录用户数
+     */
+    private Long wau;
+
+    /**
+     * 月活跃登录用户数
+     */
+    private Long mau;
+
+    /**
+     * 当日独立访客数（含匿名）
+     */
+    private Long dailyVisitors;
+
+    /**
+     * 近7天独立访客数（含匿名）
+     */
+    private Long weeklyVisitors;
+
+    /**
+     * 近30天独立访客数（含匿名）
+     */
+    private Long monthlyVisitors;
+}
@@ -0,0 +1,26 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 用户名/邮箱可用性响应类
+ * 未传入的字段返回null
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class AvailabilityResp {
+
+    /**
+     * 用户名是否可用
+     */
+    private Boolean usernameAvailable;
+
+    /**
+     * 邮箱是否可用
+     */
+    private Boolean emailAvailable;
+}
@@ -0,0 +1,37 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 签到日历响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class CheckinCalendarResp {
+
+    /**
+     * 年份
+     */
+    private Integer year;
+
+    /**
+     * 月份（1-12）
+     */
+    private Integer month;
+
+    /**
+     * 当月已签到的日期（几号），升序
+     */
+    private List<Integer> checkedDays;
+
+    /**
+     * 当月签到天数
+     */
+    private Integer checkedCount;
+}
@@ -0,0 +1,63 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 分片上传会话响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class ChunkedUploadResp {
+
+    /**
+     * 上传ID
+     */
+    private String uploadId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件大小（字节）
+     */
+    private Long fileSize;
+
+    /**
+     * 分片大小（字节，最后一片可能更小）
+     */
+    private Integer chunkSize;
+
+    /**
+     * 分片数
+     */
+    private Integer chunkCount;
+
+    /**
+     * 已收到的分片序号（续传时只需上传其余分片）
+     */
+    private List<Integer> receivedChunks;
+
+    /**
+     * 状态（0上传中，1合并中，2已完成）
+     */
+    private Integer status;
+
+    /**
+     * 会话过期时间
+     */
+    private Date expiresAt;
+
+    /**
+     * 合并完成后的上传结果
+     */
+    private FileUploadResp result;
+}
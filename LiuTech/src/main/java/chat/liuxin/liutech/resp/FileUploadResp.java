@@ -59,4 +59,14 @@ public class FileUploadResp {
      * 附件关联ID（post_attachments表主键）
      */
     private Long attachmentId;
+
+    /**
+     * 是否命中已有文件（内容相同的文件已存在，未重复占用磁盘）
+     */
+    private Boolean deduplicated;
+
+    /**
+     * 图片元数据（宽高、主色调、占位串），仅图片上传返回
+     */
+    private ImageMetaResp imageMeta;
 }
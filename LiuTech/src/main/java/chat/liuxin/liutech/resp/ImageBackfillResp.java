@@ -0,0 +1,72 @@
+package chat.liuxin.liutech.resp;
+
+import java.util.Date;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 图片元数据补齐任务状态响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class ImageBackfillResp {
+
+    /**
+     * 是否正在执行
+     */
+    private Boolean running;
+
+    /**
+     * 开始时间
+     */
+    private Date startedAt;
+
+    /**
+     * 结束时间，执行中为null
+     */
+    private Date finishedAt;
+
+    /**
+     * 扫描的图片数
+     */
+    private Long scannedImages;
+
+    /**
+     * 新登记的历史图片数（文章引用但尚未登记的本站图片）
+     */
+    private Long registeredFiles;
+
+    /**
+     * 补齐元数据的图片数
+     */
+    private Long updatedImages;
+
+    /**
+     * 无法解析的图片数
+     */
+    private Long failedImages;
+
+    /**
+     * 提交生成变体的图片数（GIF、超过像素上限与已有变体的图片不提交）
+     */
+    private Long queuedVariants;
+
+    /**
+     * 已提交但尚未处理完的图片数
+     */
+    private Long pendingVariants;
+
+    /**
+     * 实际生成了变体的图片数
+     */
+    private Long variantImages;
+
+    /**
+     * 耗时（毫秒），执行中为已执行时长
+     */
+    private Long elapsedMs;
+}
@@ -0,0 +1,36 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 图片元数据响应类
+ * 前端据宽高预留位置避免布局抖动，图片加载前先显示主色调或解码 BlurHash 占位
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class ImageMetaResp {
+
+    /**
+     * 宽度（像素）
+     */
+    private Integer width;
+
+    /**
+     * 高度（像素）
+     */
+    private Integer height;
+
+    /**
+     * 主色调（如 #3a6ea5）
+     */
+    private String dominantColor;
+
+    /**
+     * 占位串（BlurHash）
+     */
+    private String placeholder;
+}
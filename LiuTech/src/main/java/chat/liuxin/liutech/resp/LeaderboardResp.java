@@ -0,0 +1,90 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 排行榜响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class LeaderboardResp {
+
+    /**
+     * 指标（points / checkins / streak）
+     */
+    private String metric;
+
+    /**
+     * 周期（all / month / day）
+     */
+    private String period;
+
+    /**
+     * 周期标识（如 all、2026-10、2026-10-19）
+     */
+    private String periodKey;
+
+    /**
+     * 上榜人数
+     */
+    private Integer total;
+
+    /**
+     * 当前页条目，按排名升序
+     */
+    private List<Entry> entries;
+
+    /**
+     * 当前用户排名（未登录或未上榜时为空）
+     */
+    private Integer myRank;
+
+    /**
+     * 当前用户分数（未登录或未上榜时为空）
+     */
+    private Double myScore;
+
+    /**
+     * 排行榜条目
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Entry {
+
+        /**
+         * 排名（从1开始）
+         */
+        private Integer rank;
+
+        /**
+         * 用户ID
+         */
+        private Long userId;
+
+        /**
+         * 用户名
+         */
+        private String username;
+
+        /**
+         * 昵称
+         */
+        private String nickname;
+
+        /**
+         * 头像URL
+         */
+        private String avatarUrl;
+
+        /**
+         * 分数
+         */
+        private Double score;
+    }
+}
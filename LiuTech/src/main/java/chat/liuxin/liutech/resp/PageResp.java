@@ -44,6 +44,11 @@ public class PageResp<T> {
      */
     private Boolean hasPrevious;
 
+    /**
+     * 下一页游标（支持游标翻页的接口返回，没有下一页时为null）
+     */
+    private Long nextCursor;
+
     public PageResp() {}
 
     public PageResp(List<T> records, Long total, Long current, Long size) {
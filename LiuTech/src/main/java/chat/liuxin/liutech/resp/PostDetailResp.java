@@ -60,6 +60,16 @@ public class PostDetailResp {
      */
     private String thumbnail;
 
+    /**
+     * 封面原图的尺寸、主色调与占位串
+     */
+    private ImageMetaResp coverMeta;
+
+    /**
+     * 缩略图的尺寸、主色调与占位串
+     */
+    private ImageMetaResp thumbnailMeta;
+
     /**
      * 浏览次数
      */
@@ -142,7 +152,7 @@ public class PostDetailResp {
         private Long resourceId;
         /** 文件名（resources.name） */
         private String fileName;
-        /** 文件访问URL（resources.file_url） */
+        /** 下载链接（文章详情中为签名下载链接，无下载权限时为空；管理端为存储路径） */
         private String fileUrl;
         /** 下载所需积分（resources.points_needed，可选） */
         private Integer pointsNeeded;
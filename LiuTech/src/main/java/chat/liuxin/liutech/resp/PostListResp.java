@@ -55,6 +55,21 @@ public class PostListResp {
      */
     private String thumbnail;
 
+    /**
+     * 封面各宽度变体组成的 srcset（如 "url 320w, url 640w"），没有变体时为空
+     */
+    private String coverSrcset;
+
+    /**
+     * 封面原图的尺寸、主色调与占位串
+     */
+    private ImageMetaResp coverMeta;
+
+    /**
+     * 缩略图的尺寸、主色调与占位串
+     */
+    private ImageMetaResp thumbnailMeta;
+
     /**
      * 浏览次数
      */
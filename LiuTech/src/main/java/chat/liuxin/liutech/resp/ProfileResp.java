@@ -55,5 +55,10 @@ public class ProfileResp {
          * 浏览量
          */
         private Long views;
+
+        /**
+         * 获赞数（仅登录用户的个人资料返回）
+         */
+        private Long likes;
     }
 }
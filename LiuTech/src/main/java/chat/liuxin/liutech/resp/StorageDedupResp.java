@@ -0,0 +1,55 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 上传目录去重迁移结果响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class StorageDedupResp {
+
+    /**
+     * 是否只统计不修改
+     */
+    private Boolean dryRun;
+
+    /**
+     * 扫描的文件数
+     */
+    private Long scannedFiles;
+
+    /**
+     * 扫描的字节数
+     */
+    private Long scannedBytes;
+
+    /**
+     * 内容重复的文件数（不含已是硬链接的文件）
+     */
+    private Long duplicateFiles;
+
+    /**
+     * 回收（dryRun 时为可回收）的字节数
+     */
+    private Long reclaimedBytes;
+
+    /**
+     * 创建硬链接失败、保留原文件的文件数
+     */
+    private Long linkFailures;
+
+    /**
+     * 重算引用数后仍被资源引用的文件数
+     */
+    private Long referencedFiles;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private Long elapsedMs;
+}
@@ -0,0 +1,65 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 上传存储回收结果响应类
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class StorageGcResp {
+
+    /**
+     * 是否只统计不删除
+     */
+    private Boolean dryRun;
+
+    /**
+     * 标记阶段找到的被引用文件数
+     */
+    private Long markedFiles;
+
+    /**
+     * 删除的过期草稿附件数
+     */
+    private Long expiredDrafts;
+
+    /**
+     * 删除的无人引用资源数
+     */
+    private Long orphanResources;
+
+    /**
+     * 删除的已登记文件数（引用数为0且超过宽限期）
+     */
+    private Long deletedFiles;
+
+    /**
+     * 删除的图片变体文件数
+     */
+    private Long deletedVariants;
+
+    /**
+     * 删除的未登记文件数（磁盘上有、数据库中没有记录）
+     */
+    private Long untrackedFiles;
+
+    /**
+     * 回收（dryRun 时为可回收）的字节数
+     */
+    private Long reclaimedBytes;
+
+    /**
+     * 删除失败的文件数
+     */
+    private Long failures;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private Long elapsedMs;
+}
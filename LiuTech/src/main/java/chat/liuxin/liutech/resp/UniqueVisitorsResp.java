@@ -0,0 +1,43 @@
+package chat.liuxin.liutech.resp;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDate;
+
+/**
+ * 独立访客统计响应类
+ * 数值为 HyperLogLog 估计值，全站误差约1%，单篇文章误差约2-3%
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class UniqueVisitorsResp {
+
+    /**
+     * 统计范围（visitor-全站访客，user-全站登录用户，post-单篇文章）
+     */
+    private String scope;
+
+    /**
+     * 统计对象ID（全站为0）
+     */
+    private Long targetId;
+
+    /**
+     * 开始日期（包含）
+     */
+    private LocalDate startDate;
+
+    /**
+     * 结束日期（包含）
+     */
+    private LocalDate endDate;
+
+    /**
+     * 独立访客数
+     */
+    private Long uniqueVisitors;
+}
@@ -44,6 +44,9 @@ public class CategoriesService extends ServiceImpl<CategoriesMapper, Categories>
     @Autowired
     private CommentsMapper commentsMapper;
 
+    @Autowired
+    private CommentsService commentsService;
+
     @Autowired
     private PostTagsMapper postTagsMapper;
 
@@ -289,6 +292,7 @@ public class CategoriesService extends ServiceImpl<CategoriesMapper, Categories>
                     commentsMapper.deleteChildrenByPostId(postId);
                     // 删除顶级评论
                     commentsMapper.deleteRootsByPostId(postId);
+                    commentsService.evictPostComments(postId);
                     // 删除文章标签关联
                     postTagsMapper.deleteByPostId(postId);
                     // 删除文章附件关联
@@ -350,6 +354,7 @@ public class CategoriesService extends ServiceImpl<CategoriesMapper, Categories>
                     commentsMapper.deleteChildrenByPostId(postId);
                     // 删除顶级评论
                     commentsMapper.deleteRootsByPostId(postId);
+                    commentsService.evictPostComments(postId);
                     // 删除文章标签关联
                     postTagsMapper.deleteByPostId(postId);
                     // 删除文章附件关联
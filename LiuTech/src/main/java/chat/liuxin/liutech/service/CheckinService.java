@@ -1,25 +1,37 @@
 package chat.liuxin.liutech.service;
 
+import chat.liuxin.liutech.mapper.UserCheckinCalendarMapper;
 import chat.liuxin.liutech.mapper.UserCheckinMapper;
+import chat.liuxin.liutech.mapper.UserCheckinStatsMapper;
 import chat.liuxin.liutech.mapper.UserMapper;
 import chat.liuxin.liutech.model.UserCheckin;
+import chat.liuxin.liutech.model.UserCheckinStats;
 import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.resp.CheckinCalendarResp;
 import chat.liuxin.liutech.resp.CheckinResp;
 import chat.liuxin.liutech.resp.CheckinStatusResp;
+import chat.liuxin.liutech.utils.DayBitmap;
 import chat.liuxin.liutech.common.Result;
 import chat.liuxin.liutech.common.ErrorCode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Date;
 
 /**
  * 签到服务类
+ * 签到状态由 user_checkin_stats 汇总行（最后签到日期、连续天数、总次数）增量维护，
+ * 签到日历按用户按年保存为位图（user_checkin_calendars），签到、状态与月历查询都只读取单行。
+ * 汇总行不存在的老用户在首次访问时从 user_checkins 历史记录补建一次。
  *
  * @author 刘鑫
  * @since 2025-01-30
@@ -30,7 +42,11 @@ import java.util.Date;
 public class CheckinService {
 
     private final UserCheckinMapper userCheckinMapper;
+    private final UserCheckinStatsMapper userCheckinStatsMapper;
+    private final UserCheckinCalendarMapper userCheckinCalendarMapper;
     private final UserMapper userMapper;
+    private final LeaderboardService leaderboardService;
+    private final PointsService pointsService;
 
     /**
      * 用户签到
@@ -43,9 +59,11 @@ public class CheckinService {
         try {
             LocalDate today = LocalDate.now();
 
+            // 锁定签到汇总行，同一用户的并发签到串行执行
+            UserCheckinStats stats = lockStats(userId);
+
             // 检查今日是否已签到
-            UserCheckin todayCheckin = userCheckinMapper.findByUserIdAndDate(userId, today);
-            if (todayCheckin != null) {
+            if (stats != null && today.equals(stats.getLastCheckinDate())) {
                 return Result.fail(ErrorCode.PARAMS_ERROR, "今日已签到");
             }
 
@@ -55,8 +73,8 @@ public class CheckinService {
                 return Result.fail(ErrorCode.NOT_FOUND, "用户不存在");
             }
 
-            // 计算连续签到天数
-            int consecutiveDays = calculateConsecutiveDays(userId, today);
+            // 计算连续签到天数：昨天签过则在原连续天数上加1，否则从1开始
+            int consecutiveDays = streakIfCheckinOn(stats, today);
 
             // 计算获得积分（基础1积分 + 连续签到奖励）
             BigDecimal pointsEarned = calculatePointsEarned(consecutiveDays);
@@ -73,10 +91,28 @@ public class CheckinService {
 
             userCheckinMapper.insert(checkin);
 
-            // 更新用户积分
-            BigDecimal newPoints = user.getPoints().add(pointsEarned);
-            user.setPoints(newPoints);
-            userMapper.updateById(user);
+            // 更新签到汇总与日历位图
+            UserCheckinStats updated = new UserCheckinStats()
+                    .setUserId(userId)
+                    .setLastCheckinDate(today)
+                    .setCurrentStreak(consecutiveDays)
+                    .setTotalCheckins((stats != null ? stats.getTotalCheckins() : 0) + 1)
+                    .setUpdatedAt(now);
+            if (stats != null) {
+                userCheckinStatsMapper.updateById(updated);
+            } else {
+                userCheckinStatsMapper.insert(updated);
+            }
+            userCheckinCalendarMapper.mergeDays(userId, today.getYear(), DayBitmap.maskOf(today));
+
+            // 增加积分（追加流水并原子更新余额，幂等键为用户+签到日期）
+            BigDecimal newPoints = pointsService.change(userId, pointsEarned, PointsService.REASON_CHECKIN,
+                    today.toString(), "checkin:" + userId + ":" + today).getBalance();
+            if (newPoints == null) {
+                // 幂等命中的已有流水可能没有记录变动后余额（balance_after 可为空），此时读取当前余额
+                newPoints = userMapper.selectPoints(userId);
+            }
+            leaderboardService.recordCheckin(userId, today, consecutiveDays, updated.getTotalCheckins());
 
             // 构建响应
             CheckinResp response = new CheckinResp()
@@ -90,6 +126,8 @@ public class CheckinService {
 
         } catch (Exception e) {
             log.error("用户{}签到失败", userId, e);
+            // 异常已被转换为失败结果，需显式回滚，避免只写入了部分数据
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return Result.fail(ErrorCode.SYSTEM_ERROR, "签到失败，请稍后重试");
         }
     }
@@ -103,36 +141,23 @@ public class CheckinService {
     public Result<CheckinStatusResp> getCheckinStatus(Long userId) {
         try {
             LocalDate today = LocalDate.now();
+            UserCheckinStats stats = loadStats(userId);
 
-            // 检查今日是否已签到
-            UserCheckin todayCheckin = userCheckinMapper.findByUserIdAndDate(userId, today);
-            boolean hasCheckedInToday = todayCheckin != null;
-
-            // 获取最后一次签到记录
-            UserCheckin lastCheckin = userCheckinMapper.findLastCheckinByUserId(userId);
+            boolean hasCheckedInToday = stats != null && today.equals(stats.getLastCheckinDate());
 
-            // 计算连续签到天数
+            // 连续签到天数：今天已签到时为当前连续天数；未签到时为“今天签到后”的连续天数（与签到接口口径一致）
             int consecutiveDays = 0;
             LocalDate lastCheckinDate = null;
-
-            if (lastCheckin != null) {
-                lastCheckinDate = lastCheckin.getCheckinDate();
-                if (hasCheckedInToday) {
-                    consecutiveDays = lastCheckin.getConsecutiveDays();
-                } else {
-                    // 如果今天没签到，需要重新计算连续天数
-                    consecutiveDays = calculateConsecutiveDays(userId, today);
-                }
+            if (stats != null && stats.getLastCheckinDate() != null) {
+                lastCheckinDate = stats.getLastCheckinDate();
+                consecutiveDays = hasCheckedInToday ? stats.getCurrentStreak() : streakIfCheckinOn(stats, today);
             }
 
-            // 统计总签到次数
-            Integer totalCheckins = userCheckinMapper.countByUserId(userId);
-
             CheckinStatusResp response = new CheckinStatusResp()
                     .setHasCheckedInToday(hasCheckedInToday)
                     .setConsecutiveDays(consecutiveDays)
                     .setLastCheckinDate(lastCheckinDate)
-                    .setTotalCheckins(totalCheckins != null ? totalCheckins : 0);
+                    .setTotalCheckins(stats != null ? stats.getTotalCheckins() : 0);
 
             return Result.success("获取签到状态成功", response);
 
@@ -143,32 +168,98 @@ public class CheckinService {
     }
 
     /**
-     * 计算连续签到天数
+     * 获取某月签到日历
      *
      * @param userId 用户ID
-     * @param currentDate 当前日期
-     * @return 连续签到天数
+     * @param month 年月
+     * @return 当月已签到的日期
+     */
+    public Result<CheckinCalendarResp> getCheckinCalendar(Long userId, YearMonth month) {
+        try {
+            // 老用户先补建位图
+            loadStats(userId);
+            byte[] days = userCheckinCalendarMapper.selectDays(userId, month.getYear());
+            List<Integer> checkedDays = DayBitmap.daysOfMonth(days, month);
+
+            CheckinCalendarResp response = new CheckinCalendarResp()
+                    .setYear(month.getYear())
+                    .setMonth(month.getMonthValue())
+                    .setCheckedDays(checkedDays)
+                    .setCheckedCount(checkedDays.size());
+
+            return Result.success("获取签到日历成功", response);
+
+        } catch (Exception e) {
+            log.error("获取用户{}签到日历失败", userId, e);
+            return Result.fail(ErrorCode.SYSTEM_ERROR, "获取签到日历失败");
+        }
+    }
+
+    /**
+     * 读取签到汇总，不存在时从历史记录补建
+     *
+     * @return 签到汇总，从未签到过返回null
      */
-    private int calculateConsecutiveDays(Long userId, LocalDate currentDate) {
-        List<UserCheckin> recentCheckins = userCheckinMapper.findRecentCheckins(userId, 100);
+    private UserCheckinStats loadStats(Long userId) {
+        UserCheckinStats stats = userCheckinStatsMapper.selectById(userId);
+        if (stats == null && rebuildFromHistory(userId)) {
+            stats = userCheckinStatsMapper.selectById(userId);
+        }
+        return stats;
+    }
 
-        if (recentCheckins.isEmpty()) {
-            return 1; // 首次签到
+    /**
+     * 锁定签到汇总，不存在时从历史记录补建后再锁定
+     *
+     * @return 签到汇总，从未签到过返回null
+     */
+    private UserCheckinStats lockStats(Long userId) {
+        UserCheckinStats stats = userCheckinStatsMapper.selectForUpdate(userId);
+        if (stats == null && rebuildFromHistory(userId)) {
+            stats = userCheckinStatsMapper.selectForUpdate(userId);
         }
+        return stats;
+    }
 
-        int consecutiveDays = 1;
-        LocalDate expectedDate = currentDate.minusDays(1);
+    /**
+     * 从 user_checkins 历史记录补建签到汇总与年度位图（每个用户只会执行一次）
+     *
+     * @return 有历史记录并已补建返回true
+     */
+    private boolean rebuildFromHistory(Long userId) {
+        List<LocalDate> dates = userCheckinMapper.findCheckinDates(userId);
+        if (dates.isEmpty()) {
+            return false;
+        }
 
-        for (UserCheckin checkin : recentCheckins) {
-            if (checkin.getCheckinDate().equals(expectedDate)) {
-                consecutiveDays++;
-                expectedDate = expectedDate.minusDays(1);
-            } else {
-                break; // 断签了
-            }
+        Map<Integer, byte[]> calendars = new HashMap<>();
+        int streak = 0;
+        LocalDate previous = null;
+        for (LocalDate date : dates) {
+            DayBitmap.set(calendars.computeIfAbsent(date.getYear(), year -> new byte[DayBitmap.SIZE]), date);
+            streak = previous != null && previous.plusDays(1).equals(date) ? streak + 1 : 1;
+            previous = date;
         }
 
-        return consecutiveDays;
+        calendars.forEach((year, days) -> userCheckinCalendarMapper.mergeDays(userId, year, days));
+        userCheckinStatsMapper.insertIfAbsent(new UserCheckinStats()
+                .setUserId(userId)
+                .setLastCheckinDate(previous)
+                .setCurrentStreak(streak)
+                .setTotalCheckins(dates.size()));
+        log.info("从历史记录补建用户{}签到汇总 - 签到次数: {}, 当前连续: {}", userId, dates.size(), streak);
+        return true;
+    }
+
+    /**
+     * 若在指定日期签到，连续签到天数是多少
+     */
+    private int streakIfCheckinOn(UserCheckinStats stats, LocalDate date) {
+        if (stats != null && stats.getLastCheckinDate() != null
+                && stats.getLastCheckinDate().plusDays(1).equals(date)) {
+            return stats.getCurrentStreak() + 1;
+        }
+        return 1;
     }
 
     /**
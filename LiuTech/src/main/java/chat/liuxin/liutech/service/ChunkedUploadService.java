@@ -0,0 +1,626 @@
+package chat.liuxin.liutech.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.ResourcesMapper;
+import chat.liuxin.liutech.mapper.UploadSessionMapper;
+import chat.liuxin.liutech.model.Resources;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.model.UploadSession;
+import chat.liuxin.liutech.model.UploadSessionChunk;
+import chat.liuxin.liutech.req.ChunkedUploadInitReq;
+import chat.liuxin.liutech.resp.ChunkedUploadResp;
+import chat.liuxin.liutech.resp.FileUploadResp;
+import chat.liuxin.liutech.storage.StorageObject;
+import chat.liuxin.liutech.utils.FileUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 分片上传服务（大文件资源）
+ * 协议：初始化会话 -> 上传分片N（请求体为分片原始字节，附带分片SHA-256）-> 合并。
+ *
+ * 说明：
+ * 1) 初始化时在临时目录按文件大小预分配文件，每个分片读取请求体后用 FileChannel 按偏移直接写到最终位置，
+ *    不经过 multipart 临时文件、不需要最后拼接，分片之间互不影响，可并行上传；
+ * 2) 分片边写边算 SHA-256，长度与校验值都正确并刷盘后才记为已收到；校验失败的分片不记录，客户端重传即可；
+ *    已记录的分片不再写入（同一校验值的重试直接返回成功），同一分片同时只允许一个请求写入，
+ *    避免重试与仍在进行的请求交错写同一段，或失败的重传覆盖已校验的内容；
+ * 3) 已收到的分片记录在数据库中，连接中断或服务重启后客户端查询会话状态，只补传缺失的分片；
+ * 4) 合并时在计算整个文件 SHA-256 的同一遍读取中按记录逐个复核分片，不依赖客户端是否提供整体哈希；
+ *    复核不通过的分片删除记录并让客户端重传，全部通过后按内容寻址存放（与普通上传共用去重），再创建资源记录；
+ * 5) 长时间没有新分片的会话视为放弃，由定时任务删除临时文件与会话记录；
+ * 6) 分片写入与合并互斥：每个会话一把读写锁，写分片持读锁（分片之间仍可并行），合并持写锁等待进行中的分片写完，
+ *    再把会话标记为合并中，之后到达的分片在读锁内重新读取状态后被拒绝；合并移动文件后重新计算哈希确认内容未变。
+ *    临时文件只在接收分片的节点上，同一会话的请求本就需要落到同一节点，进程内的锁即可。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class ChunkedUploadService {
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 单次清理的最大会话数
+     */
+    private static final int CLEANUP_BATCH_SIZE = 200;
+
+    @Autowired
+    private UploadSessionMapper uploadSessionMapper;
+
+    @Autowired
+    private ResourcesMapper resourcesMapper;
+
+    @Autowired
+    private FileUploadService fileUploadService;
+
+    @Autowired
+    private StoredFileService storedFileService;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 分片上传允许的最大文件大小（字节）
+     */
+    @Value("${file.upload.chunked.max-file-size:2147483648}")
+    private long maxFileSize;
+
+    /**
+     * 默认分片大小（字节）
+     */
+    @Value("${file.upload.chunked.default-chunk-size:5242880}")
+    private int defaultChunkSize;
+
+    /**
+     * 最小分片大小（字节）
+     */
+    @Value("${file.upload.chunked.min-chunk-size:262144}")
+    private int minChunkSize;
+
+    /**
+     * 最大分片大小（字节）
+     */
+    @Value("${file.upload.chunked.max-chunk-size:16777216}")
+    private int maxChunkSize;
+
+    /**
+     * 单个文件最多分片数
+     */
+    @Value("${file.upload.chunked.max-chunks:10000}")
+    private int maxChunks;
+
+    /**
+     * 每个用户同时进行的会话数上限
+     */
+    @Value("${file.upload.chunked.max-sessions-per-user:5}")
+    private int maxSessionsPerUser;
+
+    /**
+     * 会话闲置多久视为放弃（毫秒）；已完成会话的记录也保留这么久，便于客户端重复查询结果
+     */
+    @Value("${file.upload.chunked.session-ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 会话读写锁：写分片持读锁，合并与丢弃持写锁
+     */
+    private final ConcurrentHashMap<String, ReentrantReadWriteLock> sessionLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 正在写入的分片（上传ID:分片序号）
+     */
+    private final Set<String> writingChunks = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 初始化分片上传会话
+     *
+     * @param userId 用户ID
+     * @param req 初始化请求
+     * @return 会话信息
+     */
+    public ChunkedUploadResp initUpload(Long userId, ChunkedUploadInitReq req) {
+        fileUploadService.validateUser(userId);
+
+        if (!fileUtil.isAllowedResourceType(req.getFileName())) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                    "不支持的资源格式，支持的格式: " + String.join(", ", fileUploadConfig.getAllowedResourceTypes()));
+        }
+        long fileSize = req.getFileSize();
+        if (fileSize <= 0 || fileSize > maxFileSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                    "资源文件大小不能超过 " + (maxFileSize / 1024 / 1024) + "MB");
+        }
+        String sha256 = normalizeSha256(req.getSha256(), true);
+
+        int chunkSize = req.getChunkSize() != null ? req.getChunkSize() : defaultChunkSize;
+        chunkSize = Math.max(minChunkSize, Math.min(maxChunkSize, chunkSize));
+        long chunkCount = (fileSize + chunkSize - 1) / chunkSize;
+        if (chunkCount > maxChunks) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片数超过上限 " + maxChunks + "，请增大分片大小");
+        }
+        if (uploadSessionMapper.countActiveByUser(userId) >= maxSessionsPerUser) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "未完成的上传过多，请先完成或取消之前的上传");
+        }
+
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        try (RandomAccessFile file = new RandomAccessFile(partPath(uploadId).toFile(), "rw")) {
+            // 预分配文件长度（稀疏文件），各分片直接写到各自的偏移
+            file.setLength(fileSize);
+        } catch (IOException e) {
+            log.error("创建分片上传临时文件失败 - 用户ID: {}, 上传ID: {}", userId, uploadId, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "创建上传会话失败: " + e.getMessage());
+        }
+
+        UploadSession session = new UploadSession()
+                .setId(uploadId)
+                .setUserId(userId)
+                .setFileName(req.getFileName())
+                .setFileSize(fileSize)
+                .setChunkSize(chunkSize)
+                .setChunkCount((int) chunkCount)
+                .setSha256(sha256)
+                .setDescription(req.getDescription())
+                .setDraftKey(req.getDraftKey())
+                .setType(req.getType())
+                .setDownloadType(req.getDownloadType() != null ? req.getDownloadType() : 0)
+                .setPointsNeeded(req.getPointsNeeded() != null ? Math.max(0, req.getPointsNeeded()) : 0)
+                .setStatus(UploadSession.STATUS_UPLOADING)
+                .setCreatedAt(new Date())
+                .setExpiresAt(new Date(System.currentTimeMillis() + sessionTtlMs));
+        uploadSessionMapper.insert(session);
+
+        log.info("创建分片上传会话 - 用户ID: {}, 上传ID: {}, 文件名: {}, 大小: {} bytes, 分片: {} x {} bytes",
+                userId, uploadId, req.getFileName(), fileSize, chunkCount, chunkSize);
+        return toResp(session, List.of());
+    }
+
+    /**
+     * 上传一个分片：按偏移写入预分配的临时文件，长度与校验值正确后记为已收到
+     *
+     * @param userId 用户ID
+     * @param uploadId 上传ID
+     * @param chunkIndex 分片序号（从0开始）
+     * @param checksum 分片SHA-256
+     * @param contentLength 请求体长度（未知时为-1）
+     * @param body 请求体
+     */
+    public void uploadChunk(Long userId, String uploadId, int chunkIndex, String checksum,
+                            long contentLength, InputStream body) {
+        UploadSession session = requireSession(userId, uploadId);
+        if (session.getStatus() != UploadSession.STATUS_UPLOADING) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传已完成或正在合并");
+        }
+        if (chunkIndex < 0 || chunkIndex >= session.getChunkCount()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片序号超出范围");
+        }
+        String expectedSha256 = normalizeSha256(checksum, false);
+        long offset = (long) chunkIndex * session.getChunkSize();
+        long expectedSize = Math.min(session.getChunkSize(), session.getFileSize() - offset);
+        if (contentLength >= 0 && contentLength != expectedSize) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片大小应为 " + expectedSize + " 字节");
+        }
+
+        Lock lock = sessionLock(uploadId).readLock();
+        lock.lock();
+        String chunkKey = uploadId + ":" + chunkIndex;
+        if (!writingChunks.add(chunkKey)) {
+            lock.unlock();
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "该分片正在上传，请稍后重试");
+        }
+        try {
+            // 等待锁期间会话可能已开始合并或被丢弃，必须在锁内重新读取状态
+            UploadSession current = uploadSessionMapper.selectById(uploadId);
+            if (current == null) {
+                throw new BusinessException(ErrorCode.NOT_FOUND, "上传会话不存在或已过期");
+            }
+            if (current.getStatus() != UploadSession.STATUS_UPLOADING) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传已完成或正在合并");
+            }
+            UploadSessionChunk received = uploadSessionMapper.selectChunk(uploadId, chunkIndex);
+            if (received != null) {
+                // 已校验的内容不再覆盖：相同校验值视为重试成功，不同校验值拒绝
+                if (!received.getSha256().equals(expectedSha256)) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片已上传且校验值不同，如需更换文件请取消后重新上传");
+                }
+            } else {
+                writeChunk(uploadId, chunkIndex, offset, expectedSize, expectedSha256, body);
+                uploadSessionMapper.insertChunk(uploadId, chunkIndex, expectedSize, expectedSha256);
+            }
+            uploadSessionMapper.extendExpiry(uploadId, new Date(System.currentTimeMillis() + sessionTtlMs));
+        } finally {
+            writingChunks.remove(chunkKey);
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把分片写到临时文件的对应偏移，边写边校验长度与SHA-256，通过后刷盘
+     */
+    private void writeChunk(String uploadId, int chunkIndex, long offset, long expectedSize, String expectedSha256,
+                            InputStream body) {
+        MessageDigest digest = newSha256();
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                if (written + n > expectedSize) {
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片大小应为 " + expectedSize + " 字节");
+                }
+                digest.update(buffer, 0, n);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, n);
+                long position = offset + written;
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+                written += n;
+            }
+            if (written != expectedSize) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片不完整，请重新上传");
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equals(expectedSha256)) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片校验失败，请重新上传");
+            }
+            // 先刷盘再记为已收到，避免宕机后记录与文件内容不一致
+            channel.force(false);
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "上传会话不存在或已过期");
+        } catch (IOException e) {
+            log.warn("写入分片失败 - 上传ID: {}, 分片: {}, 原因: {}", uploadId, chunkIndex, e.getMessage());
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "写入分片失败，请重试");
+        }
+    }
+
+    /**
+     * 查询会话状态（续传时据此跳过已收到的分片）
+     *
+     * @param userId 用户ID
+     * @param uploadId 上传ID
+     * @return 会话信息
+     */
+    public ChunkedUploadResp getUpload(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId);
+        ChunkedUploadResp resp = toResp(session, uploadSessionMapper.selectChunkIndexes(uploadId));
+        if (session.getStatus() == UploadSession.STATUS_COMPLETED) {
+            resp.setResult(completedResult(session));
+        }
+        return resp;
+    }
+
+    /**
+     * 合并：确认分片齐全，校验整个文件后按内容寻址存放并创建资源记录
+     * 重复调用返回同一结果；并发调用时只有一个请求执行合并
+     *
+     * @param userId 用户ID
+     * @param uploadId 上传ID
+     * @return 会话信息（含上传结果）
+     */
+    public ChunkedUploadResp completeUpload(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId);
+        if (session.getStatus() == UploadSession.STATUS_COMPLETED) {
+            return toResp(session, List.of()).setResult(completedResult(session));
+        }
+        // 持写锁等待进行中的分片写完再标记合并中，此后分片请求在读锁内看到新状态后被拒绝，合并期间文件不会再被写入
+        Lock lock = sessionLock(uploadId).writeLock();
+        lock.lock();
+        try {
+            if (uploadSessionMapper.updateStatus(uploadId, UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING) == 0) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传正在合并，请稍后查询结果");
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        boolean finished = false;
+        try {
+            List<UploadSessionChunk> chunks = uploadSessionMapper.selectChunks(uploadId);
+            if (chunks.size() < session.getChunkCount()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR,
+                        "还有 " + (session.getChunkCount() - chunks.size()) + " 个分片未上传");
+            }
+
+            Path part = partPath(uploadId);
+            String sha256 = hashVerifiedChunks(session, chunks, part);
+            if (session.getSha256() != null && !session.getSha256().equals(sha256)) {
+                // 各分片都校验通过但整体不一致，说明声明的哈希有误，会话无法再完成
+                discard(session);
+                finished = true;
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件校验失败，请重新上传");
+            }
+
+            StoredFile stored = storedFileService.storeStaged(part, fileUploadConfig.getResourcePath(), sha256,
+                    fileUtil.getFileExtension(session.getFileName()), session.getFileSize());
+            if (!verifyStored(stored, sha256, session.getFileSize())) {
+                discard(session);
+                finished = true;
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件校验失败，请重新上传");
+            }
+            FileUploadResp result = transactionTemplate.execute(status -> {
+                FileUploadResp created = fileUploadService.createResource(session.getFileName(), session.getFileSize(),
+                        stored, userId, session.getDescription(), session.getDraftKey(), session.getType(),
+                        session.getDownloadType(), session.getPointsNeeded());
+                uploadSessionMapper.markCompleted(uploadId, created.getResourceId(),
+                        new Date(System.currentTimeMillis() + sessionTtlMs));
+                return created;
+            });
+            finished = true;
+
+            uploadSessionMapper.deleteChunks(uploadId);
+            Files.deleteIfExists(part);
+            sessionLocks.remove(uploadId);
+
+            log.info("分片上传完成 - 用户ID: {}, 上传ID: {}, 资源ID: {}, 命中已有文件: {}",
+                    userId, uploadId, result.getResourceId(), stored.getDeduplicated());
+            return toResp(session, List.of())
+                    .setStatus(UploadSession.STATUS_COMPLETED)
+                    .setResult(result);
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "上传会话不存在或已过期");
+        } catch (IOException e) {
+            log.error("合并分片失败 - 上传ID: {}", uploadId, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "合并文件失败: " + e.getMessage());
+        } finally {
+            if (!finished) {
+                uploadSessionMapper.updateStatus(uploadId, UploadSession.STATUS_COMPLETING, UploadSession.STATUS_UPLOADING);
+            }
+        }
+    }
+
+    /**
+     * 按顺序读取临时文件，计算整个文件的 SHA-256，同时把每个分片的内容与记录的校验值比对
+     * 复核不通过的分片删除记录，客户端查询会话状态后只需重传该分片
+     *
+     * @return 整个文件的 SHA-256
+     */
+    private String hashVerifiedChunks(UploadSession session, List<UploadSessionChunk> chunks, Path part) throws IOException {
+        MessageDigest fileDigest = newSha256();
+        MessageDigest chunkDigest = newSha256();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+            for (int index = 0; index < session.getChunkCount(); index++) {
+                UploadSessionChunk chunk = chunks.get(index);
+                long offset = (long) index * session.getChunkSize();
+                long size = Math.min(session.getChunkSize(), session.getFileSize() - offset);
+                if (chunk.getChunkIndex() != index || chunk.getSize() != size) {
+                    throw new IllegalStateException("分片记录与会话不一致 - 上传ID: " + session.getId() + ", 分片: " + index);
+                }
+                long read = 0;
+                while (read < size) {
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, size - read));
+                    int n = channel.read(data, offset + read);
+                    if (n < 0) {
+                        throw new IOException("临时文件长度不足");
+                    }
+                    fileDigest.update(buffer, 0, n);
+                    chunkDigest.update(buffer, 0, n);
+                    read += n;
+                }
+                if (!HexFormat.of().formatHex(chunkDigest.digest()).equals(chunk.getSha256())) {
+                    log.warn("合并时分片内容与记录不一致，删除分片记录等待重传 - 上传ID: {}, 分片: {}", session.getId(), index);
+                    uploadSessionMapper.deleteChunk(session.getId(), index);
+                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "分片 " + index + " 校验失败，请重新上传该分片");
+                }
+            }
+        }
+        return HexFormat.of().formatHex(fileDigest.digest());
+    }
+
+    /**
+     * 取消上传，删除临时文件与会话记录
+     *
+     * @param userId 用户ID
+     * @param uploadId 上传ID
+     */
+    public void abortUpload(Long userId, String uploadId) {
+        UploadSession session = requireSession(userId, uploadId);
+        if (session.getStatus() == UploadSession.STATUS_COMPLETING) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传正在合并，无法取消");
+        }
+        discard(session);
+        log.info("取消分片上传 - 用户ID: {}, 上传ID: {}", userId, uploadId);
+    }
+
+    /**
+     * 定时清理过期会话：未完成的删除临时文件，已完成的只删除保留的会话记录；
+     * 同时删除临时目录中超过保留期、没有对应会话的残留文件（如写入中途进程退出）
+     */
+    @Scheduled(fixedDelayString = "${file.upload.chunked.cleanup-interval-ms:600000}")
+    public void cleanupExpired() {
+        int removed = 0;
+        List<UploadSession> expired;
+        do {
+            expired = uploadSessionMapper.selectExpired(new Date(), CLEANUP_BATCH_SIZE);
+            for (UploadSession session : expired) {
+                discard(session);
+                removed++;
+            }
+        } while (expired.size() == CLEANUP_BATCH_SIZE);
+
+        int stale = 0;
+        long cutoff = System.currentTimeMillis() - sessionTtlMs;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(fileUtil.getStagingDir())) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff && !hasSession(file)) {
+                    Files.deleteIfExists(file);
+                    stale++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理上传临时目录失败: {}", e.getMessage());
+        }
+        if (removed > 0 || stale > 0) {
+            log.info("清理分片上传 - 过期会话: {}, 残留临时文件: {}", removed, stale);
+        }
+    }
+
+    private boolean hasSession(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".part")
+                && uploadSessionMapper.selectById(name.substring(0, name.length() - ".part".length())) != null;
+    }
+
+    private void discard(UploadSession session) {
+        // 等待进行中的分片写完再删除，避免写入已删除的文件后又登记分片
+        Lock lock = sessionLock(session.getId()).writeLock();
+        lock.lock();
+        try {
+            try {
+                Files.deleteIfExists(partPath(session.getId()));
+            } catch (IOException e) {
+                log.warn("删除分片上传临时文件失败 - 上传ID: {}, 原因: {}", session.getId(), e.getMessage());
+            }
+            uploadSessionMapper.deleteChunks(session.getId());
+            uploadSessionMapper.deleteById(session.getId());
+        } finally {
+            lock.unlock();
+            sessionLocks.remove(session.getId());
+        }
+    }
+
+    private ReentrantReadWriteLock sessionLock(String uploadId) {
+        return sessionLocks.computeIfAbsent(uploadId, id -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * 合并后复核存放的文件：本次新写入的本地文件重新计算哈希，远程对象核对大小（避免整文件回读）；
+     * 命中已有文件时内容由原文件的哈希保证。复核失败时删除本次写入的文件。
+     *
+     * @return 内容与合并前计算的哈希一致返回true
+     */
+    private boolean verifyStored(StoredFile stored, String sha256, long size) throws IOException {
+        if (Boolean.TRUE.equals(stored.getDeduplicated())) {
+            return true;
+        }
+        String relativePath = stored.getRelativePath();
+        boolean valid;
+        if (storageService.isLocal(relativePath)) {
+            try (StorageService.LocalFile file = storageService.openLocal(relativePath)) {
+                valid = sha256.equals(fileUtil.sha256Hex(file.getPath()));
+            }
+        } else {
+            StorageObject object = storageService.stat(relativePath);
+            valid = object != null && object.getSize() == size;
+        }
+        if (!valid) {
+            log.error("合并后文件内容与校验值不一致，删除已写入的文件 - 路径: {}", relativePath);
+            storageService.delete(relativePath);
+        }
+        return valid;
+    }
+
+    private UploadSession requireSession(Long userId, String uploadId) {
+        UploadSession session = uploadId == null ? null : uploadSessionMapper.selectById(uploadId);
+        if (session == null) {
+            throw new BusinessException(ErrorCode.NOT_FOUND, "上传会话不存在或已过期");
+        }
+        if (!session.getUserId().equals(userId)) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "无权访问该上传会话");
+        }
+        return session;
+    }
+
+    private FileUploadResp completedResult(UploadSession session) {
+        Resources resource = resourcesMapper.selectById(session.getResourceId());
+        FileUploadResp result = new FileUploadResp();
+        result.setFileName(session.getFileName());
+        result.setFileSize(session.getFileSize());
+        result.setFileType("resource");
+        result.setExtension(fileUtil.getFileExtension(session.getFileName()));
+        result.setResourceId(session.getResourceId());
+        if (resource != null) {
+            result.setFileUrl(resource.getFileUrl());
+            result.setFilePath(fileUtil.toRelativePath(resource.getFileUrl()));
+        }
+        return result;
+    }
+
+    private ChunkedUploadResp toResp(UploadSession session, List<Integer> receivedChunks) {
+        return new ChunkedUploadResp()
+                .setUploadId(session.getId())
+                .setFileName(session.getFileName())
+                .setFileSize(session.getFileSize())
+                .setChunkSize(session.getChunkSize())
+                .setChunkCount(session.getChunkCount())
+                .setReceivedChunks(receivedChunks)
+                .setStatus(session.getStatus())
+                .setExpiresAt(session.getExpiresAt());
+    }
+
+    private Path partPath(String uploadId) throws IOException {
+        return fileUtil.getStagingDir().resolve(uploadId + ".part");
+    }
+
+    private static String normalizeSha256(String value, boolean optional) {
+        if (value == null || value.isBlank()) {
+            if (optional) {
+                return null;
+            }
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "缺少分片校验值");
+        }
+        String hash = value.trim().toLowerCase();
+        if (!SHA256_PATTERN.matcher(hash).matches()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "SHA-256 格式不正确");
+        }
+        return hash;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
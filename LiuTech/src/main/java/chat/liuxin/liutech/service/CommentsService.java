@@ -12,11 +12,14 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 
+import chat.liuxin.liutech.cache.CommentTreeCache;
+import chat.liuxin.liutech.cache.LatestCommentsFeed;
 import chat.liuxin.liutech.common.BusinessException;
 import chat.liuxin.liutech.common.ErrorCode;
 import chat.liuxin.liutech.mapper.CommentsMapper;
 import chat.liuxin.liutech.model.Comments;
 import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.utils.TransactionUtils;
 import chat.liuxin.liutech.utils.UserUtils;
 import chat.liuxin.liutech.req.CreateCommentReq;
 import chat.liuxin.liutech.resp.CommentResp;
@@ -39,6 +42,18 @@ public class CommentsService extends ServiceImpl<CommentsMapper, Comments> {
     @Autowired
     private UserUtils userUtils;
 
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    @Autowired
+    private ContentModerationService contentModerationService;
+
+    @Autowired
+    private LatestCommentsFeed latestCommentsFeed;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
     /**
      * 分页查询文章评论
      * 获取指定文章的所有评论，支持分页显示
@@ -62,11 +77,22 @@ public class CommentsService extends ServiceImpl<CommentsMapper, Comments> {
     /**
      * 查询文章的顶级评论（树形结构）
      * 获取文章的所有顶级评论，并为每个顶级评论加载其子评论，构建树形结构
+     * 结果缓存在CommentTreeCache中，新增/删除评论时原地更新，热门文章的评论读取无需查库
      *
      * @param postId 文章ID
      * @return 顶级评论列表，每个评论包含其所有子评论
      */
     public List<CommentResp> getTopLevelCommentsByPostId(Long postId) {
+        return commentTreeCache.get(postId, () -> loadCommentTree(postId));
+    }
+
+    /**
+     * 从数据库加载文章评论树
+     *
+     * @param postId 文章ID
+     * @return 顶级评论列表，每个评论包含其所有子评论
+     */
+    private List<CommentResp> loadCommentTree(Long postId) {
         List<Comments> topComments = commentsMapper.selectTopLevelCommentsByPostId(postId);
 
         // 为每个顶级评论加载子评论并转换为响应对象
@@ -90,15 +116,34 @@ public class CommentsService extends ServiceImpl<CommentsMapper, Comments> {
 
     /**
      * 查询最新评论
-     * 按创建时间降序获取最新的评论列表
+     * 按创建时间降序获取最新的评论列表，优先从内存中的最新评论流读取，超出缓冲范围时回退到数据库
      *
      * @param limit 限制数量，最多返回的评论数
      * @return 最新评论列表，按时间降序排列
      */
     public List<Comments> getLatestComments(Integer limit) {
+        if (latestCommentsFeed.canServe(0, limit)) {
+            return latestCommentsFeed.latest(0, limit);
+        }
         return commentsMapper.selectLatestComments(limit);
     }
 
+    /**
+     * 分页查询全站最新动态（最新评论）
+     * 数据完全来自内存中的最新评论流，只覆盖最近 comment.feed.capacity 条评论
+     *
+     * @param page 页码，从1开始
+     * @param size 每页大小
+     * @return 分页评论列表
+     */
+    public PageResp<CommentResp> getRecentComments(Integer page, Integer size) {
+        int offset = (page - 1) * size;
+        List<CommentResp> records = latestCommentsFeed.latest(offset, size).stream()
+                .map(this::convertToCommentResl)
+                .collect(Collectors.toList());
+        return new PageResp<>(records, (long) latestCommentsFeed.size(), (long) page, (long) size);
+    }
+
     /**
      * 查询某个评论的子评论
      * 获取指定父评论下的所有直接子评论
@@ -165,13 +210,80 @@ public class CommentsService extends ServiceImpl<CommentsMapper, Comments> {
         // 验证父评论（如果是回复）
         validateParentComment(createCommentReq);
 
-        // 创建并保存评论
+        // 违禁词审核（reject模式下命中直接抛出异常）
+        ContentModerationService.ModerationResult moderation =
+                contentModerationService.moderate(createCommentReq.getContent());
+
+        // 创建并保存评论；审核模式下命中违禁词的评论先隐藏保存（deleted_at 非空），审核通过后才公开
         Comments comment = buildComment(createCommentReq, currentUser);
+        comment.setContent(moderation.getText());
+        if (moderation.isNeedsReview()) {
+            comment.setDeletedAt(new Date());
+        }
         saveComment(comment);
+        contentModerationService.submitForReview(moderation, ContentModerationService.TARGET_COMMENT,
+                comment.getId(), currentUser.getId(), comment.getContent());
 
         // 设置用户信息并转换为响应对象
         comment.setUser(currentUser);
-        return convertToCommentResl(comment);
+        CommentResp commentResp = convertToCommentResl(comment);
+        if (moderation.isNeedsReview()) {
+            log.info("评论待审核，暂不公开 - ID: {}, 用户: {}", comment.getId(), currentUser.getUsername());
+            return commentResp;
+        }
+
+        // 事务提交后把新评论挂到缓存的评论树上，并追加到最新评论流
+        TransactionUtils.afterCommit(() -> {
+            commentTreeCache.append(commentResp);
+            latestCommentsFeed.append(comment);
+        });
+        userStatsService.refreshAfterCommit(currentUser.getId());
+        return commentResp;
+    }
+
+    /**
+     * 删除评论（软删除）
+     * 只有评论作者本人可以删除，删除后同步从缓存的评论树中摘除
+     *
+     * @param id 评论ID
+     * @throws BusinessException 当评论不存在或无权限时抛出
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void deleteComment(Long id) {
+        Users currentUser = validateCurrentUser();
+
+        Comments comment = this.getById(id);
+        if (comment == null) {
+            throw new BusinessException(ErrorCode.COMMENT_NOT_FOUND);
+        }
+        if (!comment.getUserId().equals(currentUser.getId())) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "只能删除自己的评论");
+        }
+
+        if (!this.removeById(id)) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "评论删除失败");
+        }
+        log.info("删除评论成功 - ID: {}, 用户: {}", id, currentUser.getUsername());
+
+        TransactionUtils.afterCommit(() -> {
+            commentTreeCache.remove(comment.getPostId(), id);
+            latestCommentsFeed.remove(id);
+        });
+        userStatsService.refreshAfterCommit(currentUser.getId());
+    }
+
+    /**
+     * 清理文章评论相关的内存数据（评论树缓存、最新评论流），并安排重新汇总用户统计
+     * 用于文章彻底删除等直接批量删除评论的场景（被删评论的作者无法逐个定位）
+     *
+     * @param postId 文章ID
+     */
+    public void evictPostComments(Long postId) {
+        TransactionUtils.afterCommit(() -> {
+            commentTreeCache.evict(postId);
+            latestCommentsFeed.removeByPostId(postId);
+        });
+        userStatsService.rebuildAllAfterCommit();
     }
 
     /**
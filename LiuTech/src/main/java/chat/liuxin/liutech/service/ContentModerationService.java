@@ -0,0 +1,464 @@
+package chat.liuxin.liutech.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+import chat.liuxin.liutech.cache.CommentTreeCache;
+import chat.liuxin.liutech.cache.LatestCommentsFeed;
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.CommentsMapper;
+import chat.liuxin.liutech.mapper.ContentReviewMapper;
+import chat.liuxin.liutech.mapper.PostsMapper;
+import chat.liuxin.liutech.model.Comments;
+import chat.liuxin.liutech.model.ContentReview;
+import chat.liuxin.liutech.model.Posts;
+import chat.liuxin.liutech.resp.PageResp;
+import chat.liuxin.liutech.utils.AhoCorasickMatcher;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 内容审核服务
+ * 基于Aho-Corasick自动机对评论、文章做违禁词检测，单次线性扫描即可完成整段文本的匹配。
+ *
+ * 处理模式（moderation.mode）：
+ * - reject：命中即拒绝写入，抛出 CONTENT_VIOLATION；
+ * - mask：命中片段替换为 * 后照常写入；
+ * - review：内容先以不公开的状态写入（评论隐藏、文章保存为草稿），同时进入 content_reviews 审核队列，
+ *   管理员通过后公开，驳回后保持隐藏。
+ *
+ * 词典热加载：配置 moderation.dictionary-path 指向外部文件后，定时检查文件修改时间，
+ * 变化时重新构建自动机并原子替换，无需重启；未配置时使用 classpath:moderation/banned-words.txt。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class ContentModerationService {
+
+    public static final String MODE_REJECT = "reject";
+    public static final String MODE_MASK = "mask";
+    public static final String MODE_REVIEW = "review";
+
+    public static final String TARGET_COMMENT = "comment";
+    public static final String TARGET_POST = "post";
+
+    private static final String CLASSPATH_DICTIONARY = "moderation/banned-words.txt";
+
+    /**
+     * 摘录最大长度（与 content_reviews.excerpt 列长度一致）
+     */
+    private static final int EXCERPT_MAX_LENGTH = 500;
+
+    @Autowired
+    private ContentReviewMapper contentReviewMapper;
+
+    @Autowired
+    private CommentsMapper commentsMapper;
+
+    @Autowired
+    private PostsMapper postsMapper;
+
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    @Autowired
+    private LatestCommentsFeed latestCommentsFeed;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    /**
+     * 是否启用内容审核
+     */
+    @Value("${moderation.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 命中后的处理模式：reject / mask / review
+     */
+    @Value("${moderation.mode:reject}")
+    private String mode;
+
+    /**
+     * 外部词典文件路径（每行一个词，# 开头为注释），为空时使用内置词典
+     */
+    @Value("${moderation.dictionary-path:}")
+    private String dictionaryPath;
+
+    /**
+     * 当前生效的匹配器，热加载时整体替换
+     */
+    private volatile AhoCorasickMatcher matcher = AhoCorasickMatcher.empty();
+
+    /**
+     * 已加载的外部词典文件修改时间
+     */
+    private volatile long dictionaryLastModified = -1L;
+
+    @PostConstruct
+    public void init() {
+        reloadDictionary();
+    }
+
+    /**
+     * 定时检查外部词典文件是否变化，变化时热加载
+     */
+    @Scheduled(fixedDelayString = "${moderation.reload-check-interval-ms:30000}")
+    public void reloadIfChanged() {
+        if (!StringUtils.hasText(dictionaryPath)) {
+            return;
+        }
+        try {
+            Path path = Paths.get(dictionaryPath);
+            if (Files.exists(path) && Files.getLastModifiedTime(path).toMillis() != dictionaryLastModified) {
+                reloadDictionary();
+            }
+        } catch (IOException e) {
+            log.warn("检查违禁词词典失败 - 路径: {}, 错误: {}", dictionaryPath, e.getMessage());
+        }
+    }
+
+    /**
+     * 重新加载词典并构建自动机
+     * 加载失败时保留旧的匹配器，不影响线上检测
+     *
+     * @return 加载后的词条数量
+     */
+    public synchronized int reloadDictionary() {
+        try {
+            List<String> words;
+            if (StringUtils.hasText(dictionaryPath)) {
+                Path path = Paths.get(dictionaryPath);
+                long lastModified = Files.getLastModifiedTime(path).toMillis();
+                try (InputStream in = Files.newInputStream(path)) {
+                    words = readWords(in);
+                }
+                dictionaryLastModified = lastModified;
+            } else {
+                ClassPathResource resource = new ClassPathResource(CLASSPATH_DICTIONARY);
+                if (!resource.exists()) {
+                    log.warn("未找到内置违禁词词典: {}", CLASSPATH_DICTIONARY);
+                    return matcher.size();
+                }
+                try (InputStream in = resource.getInputStream()) {
+                    words = readWords(in);
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            matcher = AhoCorasickMatcher.build(words);
+            log.info("违禁词词典加载完成 - 词条数: {}, 构建耗时: {} ms", matcher.size(), System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.error("加载违禁词词典失败，继续使用旧词典 - 路径: {}, 错误: {}", dictionaryPath, e.getMessage());
+        }
+        return matcher.size();
+    }
+
+    /**
+     * 对待写入的文本执行审核
+     * reject 模式下命中直接抛出异常；mask 模式返回打码后的文本；
+     * review 模式返回原文并标记需要入队，调用方必须以不公开的状态保存内容。
+     *
+     * @param text 待审核文本
+     * @return 审核结果
+     * @throws BusinessException reject 模式下命中违禁词时抛出
+     */
+    public ModerationResult moderate(String text) {
+        if (!enabled || !StringUtils.hasText(text)) {
+            return ModerationResult.pass(text);
+        }
+
+        List<AhoCorasickMatcher.Match> matches = matcher.findAll(text);
+        if (matches.isEmpty()) {
+            return ModerationResult.pass(text);
+        }
+
+        Set<String> hitWords = new LinkedHashSet<>();
+        for (AhoCorasickMatcher.Match match : matches) {
+            hitWords.add(match.getWord());
+        }
+        log.info("内容命中违禁词 - 模式: {}, 命中: {}", mode, hitWords);
+
+        switch (mode) {
+            case MODE_MASK:
+                return new ModerationResult(AhoCorasickMatcher.mask(text, matches), hitWords, false);
+            case MODE_REVIEW:
+                return new ModerationResult(text, hitWords, true);
+            default:
+                throw new BusinessException(ErrorCode.CONTENT_VIOLATION);
+        }
+    }
+
+    /**
+     * 审核模式下把命中内容写入审核队列
+     * 结果不需要审核时不做任何处理，调用方可无条件调用
+     *
+     * @param result 审核结果（可合并多个字段的结果）
+     * @param targetType 内容类型（comment/post）
+     * @param targetId 内容ID
+     * @param userId 作者ID
+     * @param content 内容原文
+     */
+    public void submitForReview(ModerationResult result, String targetType, Long targetId, Long userId, String content) {
+        submitForReview(result, targetType, targetId, userId, content, null);
+    }
+
+    /**
+     * 审核模式下把命中内容写入审核队列，并记录审核通过后恢复的文章状态
+     *
+     * @param result 审核结果（可合并多个字段的结果）
+     * @param targetType 内容类型（comment/post）
+     * @param targetId 内容ID
+     * @param userId 作者ID
+     * @param content 内容原文
+     * @param targetStatus 审核通过后恢复的文章状态（文章待审核期间保持草稿），评论为null
+     */
+    public void submitForReview(ModerationResult result, String targetType, Long targetId, Long userId, String content,
+                                String targetStatus) {
+        if (result == null || !result.isNeedsReview()) {
+            return;
+        }
+        String excerpt = content == null ? null
+                : content.length() > EXCERPT_MAX_LENGTH ? content.substring(0, EXCERPT_MAX_LENGTH) : content;
+        String hitWords = String.join(",", result.getHitWords());
+        if (hitWords.length() > EXCERPT_MAX_LENGTH) {
+            hitWords = hitWords.substring(0, EXCERPT_MAX_LENGTH);
+        }
+
+        ContentReview review = new ContentReview()
+                .setTargetType(targetType)
+                .setTargetId(targetId)
+                .setUserId(userId)
+                .setExcerpt(excerpt)
+                .setHitWords(hitWords)
+                .setStatus(ContentReview.STATUS_PENDING)
+                .setTargetStatus(targetStatus)
+                .setCreatedAt(new Date())
+                .setUpdatedAt(new Date());
+        contentReviewMapper.insert(review);
+        log.info("内容进入审核队列 - 类型: {}, ID: {}, 命中: {}", targetType, targetId, hitWords);
+    }
+
+    /**
+     * 内容是否有待处理的审核记录
+     *
+     * @param targetType 内容类型（comment/post）
+     * @param targetId 内容ID
+     * @return 有待审核记录返回true
+     */
+    public boolean hasPendingReview(String targetType, Long targetId) {
+        LambdaQueryWrapper<ContentReview> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ContentReview::getTargetType, targetType)
+                .eq(ContentReview::getTargetId, targetId)
+                .eq(ContentReview::getStatus, ContentReview.STATUS_PENDING);
+        return contentReviewMapper.selectCount(wrapper) > 0;
+    }
+
+    /**
+     * 分页查询审核队列
+     *
+     * @param status 审核状态，为空时查询全部
+     * @param page 页码
+     * @param size 每页大小
+     * @return 审核记录分页结果
+     */
+    public PageResp<ContentReview> getReviews(Integer status, int page, int size) {
+        LambdaQueryWrapper<ContentReview> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(status != null, ContentReview::getStatus, status)
+                .orderByDesc(ContentReview::getCreatedAt);
+        IPage<ContentReview> result = contentReviewMapper.selectPage(new Page<>(page, size), wrapper);
+        return new PageResp<>(result.getRecords(), result.getTotal(), result.getCurrent(), result.getSize());
+    }
+
+    /**
+     * 处理审核记录
+     * 通过：公开被隐藏的评论，或把文章恢复为提交时请求的状态；
+     * 驳回：评论保持隐藏（已公开的旧数据同样删除），文章保持/改回草稿；
+     * 两种结果都在事务提交后同步评论树缓存、最新评论流与文章列表缓存。
+     *
+     * @param id 审核记录ID
+     * @param approved 是否通过
+     * @param reviewerId 审核人ID
+     * @return 处理后的审核记录
+     */
+    @Transactional(rollbackFor = Exception.class)
+    @CacheEvict(value = { "hotPosts", "latestPosts" }, allEntries = true)
+    public ContentReview resolveReview(Long id, boolean approved, Long reviewerId) {
+        ContentReview review = contentReviewMapper.selectById(id);
+        if (review == null) {
+            throw new BusinessException(ErrorCode.CONTENT_REVIEW_NOT_FOUND);
+        }
+        if (review.getStatus() != ContentReview.STATUS_PENDING) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "审核记录已处理");
+        }
+
+        if (TARGET_COMMENT.equals(review.getTargetType())) {
+            resolveComment(review.getTargetId(), approved);
+        } else if (TARGET_POST.equals(review.getTargetType())) {
+            resolvePost(review, approved);
+        }
+        if (review.getUserId() != null) {
+            userStatsService.refreshAfterCommit(review.getUserId());
+        }
+
+        review.setStatus(approved ? ContentReview.STATUS_APPROVED : ContentReview.STATUS_REJECTED)
+                .setReviewedBy(reviewerId)
+                .setReviewedAt(new Date())
+                .setUpdatedAt(new Date());
+        contentReviewMapper.updateById(review);
+        log.info("审核记录已处理 - ID: {}, 类型: {}, 内容ID: {}, 结果: {}",
+                id, review.getTargetType(), review.getTargetId(), approved ? "通过" : "驳回");
+        return review;
+    }
+
+    /**
+     * 处理评论审核：通过时恢复隐藏的评论，驳回时删除（待审核评论本来就是隐藏的，这里兼容已公开的旧数据）
+     */
+    private void resolveComment(Long commentId, boolean approved) {
+        if (approved) {
+            if (commentsMapper.restoreById(commentId) == 0) {
+                return;
+            }
+            Comments comment = commentsMapper.selectById(commentId);
+            // 恢复的评论可能比缓存中的评论更早，直接使文章的评论树失效并重新预热最新评论流
+            TransactionUtils.afterCommit(() -> {
+                if (comment != null) {
+                    commentTreeCache.evict(comment.getPostId());
+                }
+                latestCommentsFeed.warmUp();
+            });
+            return;
+        }
+        Comments comment = commentsMapper.selectById(commentId);
+        if (comment != null) {
+            commentsMapper.deleteById(commentId);
+        }
+        TransactionUtils.afterCommit(() -> {
+            if (comment != null) {
+                commentTreeCache.remove(comment.getPostId(), commentId);
+            }
+            latestCommentsFeed.remove(commentId);
+        });
+    }
+
+    /**
+     * 处理文章审核：通过时把草稿恢复为提交时请求的状态，驳回时保持/改回草稿
+     */
+    private void resolvePost(ContentReview review, boolean approved) {
+        LambdaUpdateWrapper<Posts> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.eq(Posts::getId, review.getTargetId());
+        if (approved) {
+            if (!StringUtils.hasText(review.getTargetStatus()) || "draft".equals(review.getTargetStatus())) {
+                return;
+            }
+            // 作者在审核期间可能又提交了需要审核的修改，只有没有其他待审核记录时才公开
+            LambdaQueryWrapper<ContentReview> others = new LambdaQueryWrapper<>();
+            others.eq(ContentReview::getTargetType, TARGET_POST)
+                    .eq(ContentReview::getTargetId, review.getTargetId())
+                    .eq(ContentReview::getStatus, ContentReview.STATUS_PENDING)
+                    .ne(ContentReview::getId, review.getId());
+            if (contentReviewMapper.selectCount(others) > 0) {
+                return;
+            }
+            wrapper.eq(Posts::getStatus, "draft").set(Posts::getStatus, review.getTargetStatus());
+        } else {
+            wrapper.ne(Posts::getStatus, "draft").set(Posts::getStatus, "draft");
+        }
+        wrapper.set(Posts::getUpdatedAt, new Date());
+        postsMapper.update(null, wrapper);
+    }
+
+    /**
+     * 获取当前词典词条数量
+     */
+    public int getDictionarySize() {
+        return matcher.size();
+    }
+
+    /**
+     * 读取词典：每行一个词，忽略空行与 # 开头的注释行
+     */
+    private List<String> readWords(InputStream in) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.trim();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * 审核结果
+     */
+    @Getter
+    public static class ModerationResult {
+        /**
+         * 处理后的文本（mask模式下为打码后的文本）
+         */
+        private final String text;
+
+        /**
+         * 命中的违禁词
+         */
+        private final Set<String> hitWords;
+
+        /**
+         * 是否需要进入审核队列
+         */
+        private final boolean needsReview;
+
+        public ModerationResult(String text, Set<String> hitWords, boolean needsReview) {
+            this.text = text;
+            this.hitWords = hitWords;
+            this.needsReview = needsReview;
+        }
+
+        public static ModerationResult pass(String text) {
+            return new ModerationResult(text, new LinkedHashSet<>(), false);
+        }
+
+        /**
+         * 合并多个字段的审核结果（如文章标题与正文），用于生成一条审核记录
+         */
+        public ModerationResult merge(ModerationResult other) {
+            Set<String> words = new LinkedHashSet<>(hitWords);
+            words.addAll(other.hitWords);
+            return new ModerationResult(text, words, needsReview || other.needsReview);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package chat.liuxin.liutech.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import chat.liuxin.liutech.storage.StorageObject;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 文件下载服务
+ * 按 HTTP 范围请求输出本地文件，支持断点续传、多段下载与条件请求，大文件不再每次从头传输。
+ *
+ * 说明：
+ * 1) 校验器取自文件元数据：ETag 由修改时间与文件大小组成，Last-Modified 为修改时间（秒级）；
+ *    If-None-Match / If-Modified-Since 命中时返回 304，If-Range 与当前版本不一致时忽略 Range 返回完整文件；
+ * 2) Range 支持单段（206 + Content-Range）与多段（multipart/byteranges），重叠或相邻的区间先合并，
+ *    区间数超过上限时按完整文件返回，全部区间不可满足时返回 416；
+ * 3) 整个文件或单段输出时，容器支持 sendfile（Tomcat NIO）则交给容器零拷贝发送，
+ *    否则用 FileChannel.transferTo 直接写入响应流，不经过应用层缓冲区；
+ * 4) 指标：resource.download.requests（按 result、mode 统计请求数）、resource.download.bytes（按 type 统计字节数）、
+ *    resource.download.throughput（应用内输出的吞吐量，字节/秒），可通过 /actuator/metrics 查看；
+ * 5) accel 模式（file.download.mode=accel，部署在 Nginx 之后使用）：后端只设置响应头并返回 X-Accel-Redirect，
+ *    由 Nginx 的 internal location 直接发送文件（sendfile、Range、ETag 均由 Nginx 处理），JVM 不再输出文件内容；
+ *    stream 模式（默认，本地运行）由本服务直接输出；
+ * 6) 提供 HMAC-SHA256 签名与校验，用于生成不需要携带 token 的短时下载链接；
+ * 7) 存放在对象存储中的文件：优先重定向到预签名URL，由客户端直连对象存储；
+ *    关闭预签名时由 sendRemote 代理输出，只支持单段 Range（按区间向对象存储请求），多段按完整文件返回。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class FileDownloadService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String RESULT_FULL = "full";
+    private static final String RESULT_PARTIAL = "partial";
+    private static final String RESULT_MULTIPART = "multipart";
+    private static final String RESULT_NOT_MODIFIED = "not_modified";
+    private static final String RESULT_UNSATISFIABLE = "unsatisfiable";
+    private static final String RESULT_ABORTED = "aborted";
+    private static final String RESULT_ACCEL = "accel";
+    private static final String RESULT_REDIRECT = "redirect";
+
+    public static final String MODE_STREAM = "stream";
+    public static final String MODE_ACCEL = "accel";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 单个请求最多允许的区间数，超出时按完整文件返回
+     */
+    @Value("${file.download.max-ranges:16}")
+    private int maxRanges;
+
+    /**
+     * 使用容器 sendfile 的最小字节数，更小的输出直接写入响应流
+     */
+    @Value("${file.download.sendfile-min-size:49152}")
+    private long sendfileMinSize;
+
+    /**
+     * 输出模式：stream 由JVM输出，accel 交给 Nginx（X-Accel-Redirect）
+     */
+    @Value("${file.download.mode:stream}")
+    private String mode;
+
+    /**
+     * accel 模式下 Nginx 的 internal location 前缀，映射到上传根目录
+     */
+    @Value("${file.download.accel-location:/protected-files/}")
+    private String accelLocation;
+
+    /**
+     * 下载链接签名密钥（未单独配置时使用JWT密钥）
+     */
+    @Value("${file.download.sign-secret:${jwt.secret}}")
+    private String signSecret;
+
+    private final DistributionSummary throughput;
+
+    @Autowired
+    private StorageService storageService;
+
+    public FileDownloadService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.throughput = DistributionSummary.builder("resource.download.throughput")
+                .description("应用内输出文件的吞吐量")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 以附件形式输出文件
+     *
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param file 文件路径（调用方已校验存在与权限）
+     * @param relativePath 相对上传根目录的路径（accel 模式下拼接到 Nginx location 之后）
+     * @param downloadName 下载文件名
+     * @throws IOException 读取文件失败时抛出（客户端断开不抛出）
+     */
+    public void send(HttpServletRequest request, HttpServletResponse response, Path file,
+                     String relativePath, String downloadName) throws IOException {
+        if (MODE_ACCEL.equals(mode)) {
+            // Nginx 保留 Content-Type、Content-Disposition、Cache-Control，按内部路径发送文件
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build().toString());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            response.setHeader("X-Accel-Redirect", accelLocation + UriUtils.encodePath(relativePath, StandardCharsets.UTF_8));
+            count(RESULT_ACCEL, MODE_ACCEL);
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            count(RESULT_NOT_MODIFIED, "none");
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build().toString());
+
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            ranges = parseRanges(rangeHeader, length);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                count(RESULT_UNSATISFIABLE, "none");
+                return;
+            }
+        }
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (ranges == null || (ranges.size() == 1 && ranges.get(0)[0] == 0 && ranges.get(0)[1] == length - 1)) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(length);
+            if (!head) {
+                transfer(request, response, file, 0, length, RESULT_FULL);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                transfer(request, response, file, start, end - start + 1, RESULT_PARTIAL);
+            }
+            return;
+        }
+
+        // 多段：multipart/byteranges，先算出每段的分隔头以确定总长度
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (long[] range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + length + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + (range[1] - range[0] + 1);
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long sent = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                sent += copy(channel, range[0], range[1] - range[0] + 1, target);
+            }
+            out.write(closing);
+            out.flush();
+        } catch (IOException e) {
+            aborted(e, sent);
+            return;
+        }
+        record(RESULT_MULTIPART, "stream", RESULT_PARTIAL, sent, System.nanoTime() - started);
+    }
+
+    /**
+     * 重定向到对象存储的预签名URL（链接本身有时效，不允许缓存重定向）
+     *
+     * @param response HTTP响应
+     * @param url 预签名URL
+     */
+    public void redirect(HttpServletResponse response, String url) {
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader(HttpHeaders.LOCATION, url);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-store");
+        count(RESULT_REDIRECT, RESULT_REDIRECT);
+    }
+
+    /**
+     * 以附件形式代理输出对象存储中的文件（支持条件请求与单段 Range）
+     *
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @param object 对象元数据（调用方已校验存在与权限）
+     * @param downloadName 下载文件名
+     * @throws IOException 读取对象失败时抛出（客户端断开不抛出）
+     */
+    public void sendRemote(HttpServletRequest request, HttpServletResponse response, StorageObject object,
+                           String downloadName) throws IOException {
+        long length = object.getSize();
+        long lastModified = object.getLastModified() / 1000 * 1000;
+        String etag = object.getEtag() != null ? "\"" + object.getEtag() + "\""
+                : "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            count(RESULT_NOT_MODIFIED, "none");
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        long start = 0;
+        long end = length - 1;
+        String result = RESULT_FULL;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            List<long[]> ranges = parseRanges(rangeHeader, length);
+            if (ranges != null && ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                count(RESULT_UNSATISFIABLE, "none");
+                return;
+            }
+            // 多段需要对每段单独请求对象存储，代理模式下按完整文件返回
+            if (ranges != null && ranges.size() == 1 && !(ranges.get(0)[0] == 0 && ranges.get(0)[1] == length - 1)) {
+                start = ranges.get(0)[0];
+                end = ranges.get(0)[1];
+                result = RESULT_PARTIAL;
+            }
+        }
+
+        if (RESULT_PARTIAL.equals(result)) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        long sent = 0;
+        try (InputStream in = storageService.openRange(object.getKey(), start, end)) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+                sent += n;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // 尚未输出任何内容时（如对象存储请求失败）交给调用方处理，输出中途断开按客户端中断计数
+            if (response.isCommitted()) {
+                aborted(e, sent);
+                return;
+            }
+            throw e;
+        }
+        record(result, "proxy", RESULT_FULL.equals(result) ? RESULT_FULL : RESULT_PARTIAL, sent, System.nanoTime() - started);
+    }
+
+    /**
+     * 输出文件的一段：满足条件时交给容器 sendfile，否则用 transferTo 写入响应流
+     */
+    private void transfer(HttpServletRequest request, HttpServletResponse response, Path file,
+                          long start, long count, String result) throws IOException {
+        String type = RESULT_FULL.equals(result) ? RESULT_FULL : RESULT_PARTIAL;
+        if (count >= sendfileMinSize && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            record(result, "sendfile", type, count, 0);
+            return;
+        }
+
+        long started = System.nanoTime();
+        long sent = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            sent = copy(channel, start, count, Channels.newChannel(out));
+            out.flush();
+        } catch (IOException e) {
+            aborted(e, sent);
+            return;
+        }
+        record(result, "stream", type, sent, System.nanoTime() - started);
+    }
+
+    /**
+     * 计算签名（HMAC-SHA256，URL安全的Base64，无填充）
+     *
+     * @param payload 待签名内容
+     * @return 签名
+     */
+    public String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(signSecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("下载链接签名失败", e);
+        }
+    }
+
+    /**
+     * 校验签名（常量时间比较）
+     *
+     * @param payload 签名内容
+     * @param signature 待校验的签名
+     * @return 签名正确返回true
+     */
+    public boolean verify(String payload, String signature) {
+        if (signature == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static long copy(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+        return count - remaining;
+    }
+
+    /**
+     * 解析 Range 头
+     *
+     * @return 合并后的区间列表（[start, end]，含两端）；语法无效或区间过多时返回null（按完整文件返回），
+     *         全部区间不可满足时返回空列表
+     */
+    private List<long[]> parseRanges(String header, long length) {
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6)) {
+            return null;
+        }
+        String[] specs = header.substring(6).split(",");
+        if (specs.length > maxRanges) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            String value = spec.trim();
+            int dash = value.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            try {
+                long start;
+                long end;
+                if (dash == 0) {
+                    long suffix = Long.parseLong(value.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    start = Math.max(0, length - suffix);
+                    end = length - 1;
+                } else {
+                    start = Long.parseLong(value.substring(0, dash));
+                    end = dash == value.length() - 1 ? length - 1 : Long.parseLong(value.substring(dash + 1));
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+                if (start < length) {
+                    ranges.add(new long[]{start, end});
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>(ranges.size());
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesEtag(ifNoneMatch, etag, true);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range 与当前版本一致（或未携带）时才处理 Range；ETag 按强比较，日期须与修改时间完全相同
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return matchesEtag(ifRange, etag, false);
+        }
+        return dateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static boolean matchesEtag(String header, String etag, boolean weak) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if ("*".equals(value)) {
+                return true;
+            }
+            if (value.startsWith("W/")) {
+                if (!weak) {
+                    continue;
+                }
+                value = value.substring(2);
+            }
+            if (value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private void aborted(IOException e, long sent) {
+        // 客户端中途断开（暂停下载、拖动进度）属于正常情况，只计数不报错
+        log.debug("下载连接中断 - 已发送: {} 字节, 原因: {}", sent, e.getMessage());
+        count(RESULT_ABORTED, "stream");
+        meterRegistry.counter("resource.download.bytes", "type", RESULT_ABORTED).increment(sent);
+    }
+
+    private void record(String result, String mode, String type, long bytes, long elapsedNanos) {
+        count(result, mode);
+        meterRegistry.counter("resource.download.bytes", "type", type).increment(bytes);
+        if (elapsedNanos > 0 && bytes > 0) {
+            throughput.record(bytes * 1_000_000_000.0 / elapsedNanos);
+        }
+    }
+
+    private void count(String result, String mode) {
+        meterRegistry.counter("resource.download.requests", "result", result, "mode", mode).increment();
+    }
+}
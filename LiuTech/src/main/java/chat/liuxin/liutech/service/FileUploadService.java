@@ -9,7 +9,9 @@ import chat.liuxin.liutech.mapper.PostAttachmentsMapper;
 import chat.liuxin.liutech.model.Users;
 import chat.liuxin.liutech.model.Resources;
 import chat.liuxin.liutech.model.PostAttachments;
+import chat.liuxin.liutech.model.StoredFile;
 import chat.liuxin.liutech.resp.FileUploadResp;
+import chat.liuxin.liutech.resp.ImageMetaResp;
 import chat.liuxin.liutech.utils.FileUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +47,15 @@ public class FileUploadService {
     @Autowired
     private PostAttachmentsMapper postAttachmentsMapper;
 
+    @Autowired
+    private StoredFileService storedFileService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ImageMetadataService imageMetadataService;
+
     /**
      * 上传图片文件（用于TinyMCE编辑器）
      *
@@ -63,8 +74,13 @@ public class FileUploadService {
         validateImageFile(file);
 
         try {
-            // 保存文件
-            String relativePath = fileUtil.saveFile(file, fileUploadConfig.getImagePath());
+            // 保存文件（内容已存在时复用已有文件）
+            StoredFile stored = storedFileService.store(file, fileUploadConfig.getImagePath());
+            String relativePath = stored.getRelativePath();
+
+            // 提取尺寸、主色调与占位串（只解码一张小图），再异步生成缩略图与响应式宽度（已生成过的图片会直接跳过）
+            ImageMetaResp imageMeta = imageMetadataService.extract(relativePath);
+            imageVariantService.submit(relativePath);
 
             // 生成访问URL
             String fileUrl = fileUtil.generateFileUrl(relativePath);
@@ -76,6 +92,8 @@ public class FileUploadService {
             result.setFileUrl(fileUrl);
             result.setFileSize(file.getSize());
             result.setFileType("image");
+            result.setImageMeta(imageMeta);
+            result.setDeduplicated(stored.getDeduplicated());
             result.setExtension(fileUtil.getFileExtension(file.getOriginalFilename()));
             result.setUploadTime(System.currentTimeMillis());
 
@@ -109,8 +127,9 @@ public class FileUploadService {
         validateDocumentFile(file);
 
         try {
-            // 保存文件
-            String relativePath = fileUtil.saveFile(file, fileUploadConfig.getDocumentPath());
+            // 保存文件（内容已存在时复用已有文件）
+            StoredFile stored = storedFileService.store(file, fileUploadConfig.getDocumentPath());
+            String relativePath = stored.getRelativePath();
 
             // 生成访问URL
             String fileUrl = fileUtil.generateFileUrl(relativePath);
@@ -122,6 +141,7 @@ public class FileUploadService {
             result.setFileUrl(fileUrl);
             result.setFileSize(file.getSize());
             result.setFileType("document");
+            result.setDeduplicated(stored.getDeduplicated());
             result.setExtension(fileUtil.getFileExtension(file.getOriginalFilename()));
             result.setUploadTime(System.currentTimeMillis());
 
@@ -172,61 +192,126 @@ public class FileUploadService {
         validateResourceFile(file);
 
         try {
-            // 保存文件
-            String relativePath = fileUtil.saveFile(file, fileUploadConfig.getResourcePath());
+            // 保存文件（内容已存在时复用已有文件）
+            StoredFile stored = storedFileService.store(file, fileUploadConfig.getResourcePath());
+            return createResource(file.getOriginalFilename(), file.getSize(), stored, userId,
+                    description, draftKey, type, downloadType, pointsNeeded);
 
-            // 生成访问URL
-            String fileUrl = fileUtil.generateFileUrl(relativePath);
+        } catch (IOException e) {
+            log.error("资源上传失败 - 用户ID: {}, 文件名: {}", userId, file.getOriginalFilename(), e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件保存失败: " + e.getMessage());
+        }
+    }
 
-            // 创建资源记录
-            Resources resource = new Resources();
-            resource.setName(file.getOriginalFilename());
-            resource.setDescription(description);
-            resource.setFileUrl(fileUrl);
-            resource.setUploaderId(userId);
-            resource.setDownloadType(downloadType != null ? downloadType : 0); // 使用传入参数或默认免费下载
-            resource.setPointsNeeded(pointsNeeded != null ? new BigDecimal(pointsNeeded) : BigDecimal.ZERO);
-
-            // 保存到数据库
-            resourcesMapper.insert(resource);
-            Long resourceId = resource.getId();
-
-            Long attachmentId = null;
-            // 如果提供了草稿键，创建附件关联记录
-            if (draftKey != null && !draftKey.trim().isEmpty()) {
-                PostAttachments attachment = new PostAttachments();
-                attachment.setDraftKey(draftKey);
-                attachment.setResourceId(resourceId);
-                attachment.setType(type != null ? type : "resource");
-
-                postAttachmentsMapper.insert(attachment);
-                attachmentId = attachment.getId();
-
-                log.info("创建草稿附件关联 - 草稿键: {}, 资源ID: {}, 附件ID: {}, 类型: {}",
-                        draftKey, resourceId, attachmentId, type);
-            }
+    /**
+     * 为已保存的文件创建资源记录（及可选的草稿附件关联），并增加文件引用
+     *
+     * @param fileName 原始文件名
+     * @param fileSize 文件大小
+     * @param stored 文件存储信息
+     * @param userId 用户ID
+     * @param description 文件描述
+     * @param draftKey 草稿关联键（可选）
+     * @param type 附件类型（可选）
+     * @param downloadType 下载类型
+     * @param pointsNeeded 所需积分
+     * @return 上传结果
+     */
+    @Transactional
+    public FileUploadResp createResource(String fileName, long fileSize, StoredFile stored, Long userId,
+                                         String description, String draftKey, String type,
+                                         Integer downloadType, Integer pointsNeeded) {
+        String relativePath = stored.getRelativePath();
+
+        // 生成访问URL
+        String fileUrl = fileUtil.generateFileUrl(relativePath);
+
+        // 创建资源记录
+        Resources resource = new Resources();
+        resource.setName(fileName);
+        resource.setDescription(description);
+        resource.setFileUrl(fileUrl);
+        resource.setUploaderId(userId);
+        resource.setDownloadType(downloadType != null ? downloadType : 0); // 使用传入参数或默认免费下载
+        resource.setPointsNeeded(pointsNeeded != null ? new BigDecimal(pointsNeeded) : BigDecimal.ZERO);
+
+        // 保存到数据库
+        resourcesMapper.insert(resource);
+        Long resourceId = resource.getId();
+        storedFileService.addReference(relativePath);
+
+        Long attachmentId = null;
+        // 如果提供了草稿键，创建附件关联记录
+        if (draftKey != null && !draftKey.trim().isEmpty()) {
+            PostAttachments attachment = new PostAttachments();
+            attachment.setDraftKey(draftKey);
+            attachment.setResourceId(resourceId);
+            attachment.setType(type != null ? type : "resource");
+
+            postAttachmentsMapper.insert(attachment);
+            attachmentId = attachment.getId();
+
+            log.info("创建草稿附件关联 - 草稿键: {}, 资源ID: {}, 附件ID: {}, 类型: {}",
+                    draftKey, resourceId, attachmentId, type);
+        }
 
-            // 构建响应
-            FileUploadResp result = new FileUploadResp();
-            result.setFileName(file.getOriginalFilename());
-            result.setFilePath(relativePath);
-            result.setFileUrl(fileUrl);
-            result.setFileSize(file.getSize());
-            result.setFileType("resource");
-            result.setExtension(fileUtil.getFileExtension(file.getOriginalFilename()));
-            result.setUploadTime(System.currentTimeMillis());
-            result.setResourceId(resourceId);
-            result.setAttachmentId(attachmentId);
+        // 构建响应
+        FileUploadResp result = new FileUploadResp();
+        result.setFileName(fileName);
+        result.setFilePath(relativePath);
+        result.setFileUrl(fileUrl);
+        result.setFileSize(fileSize);
+        result.setFileType("resource");
+        result.setDeduplicated(stored.getDeduplicated());
+        result.setExtension(fileUtil.getFileExtension(fileName));
+        result.setUploadTime(System.currentTimeMillis());
+        result.setResourceId(resourceId);
+        result.setAttachmentId(attachmentId);
+
+        log.info("资源上传成功 - 用户ID: {}, 文件路径: {}, 访问URL: {}, 资源ID: {}, 附件ID: {}",
+                userId, relativePath, fileUrl, resourceId, attachmentId);
+
+        return result;
+    }
 
-            log.info("资源上传成功 - 用户ID: {}, 文件路径: {}, 访问URL: {}, 资源ID: {}, 附件ID: {}",
-                    userId, relativePath, fileUrl, resourceId, attachmentId);
+    /**
+     * 按内容哈希秒传图片或文档（内容已存在时直接返回已有文件的URL，无需再上传文件内容）
+     *
+     * @param sha256 文件内容SHA-256
+     * @param fileName 原始文件名
+     * @param fileType 文件类型（image、document）
+     * @param userId 用户ID
+     * @return 上传结果，内容不存在时返回null（客户端应改为正常上传）
+     */
+    public FileUploadResp lookupUpload(String sha256, String fileName, String fileType, Long userId) {
+        validateUser(userId);
 
-            return result;
+        String subPath;
+        if ("image".equals(fileType) && fileUtil.isAllowedImageType(fileName)) {
+            subPath = fileUploadConfig.getImagePath();
+        } else if ("document".equals(fileType) && fileUtil.isAllowedDocumentType(fileName)) {
+            subPath = fileUploadConfig.getDocumentPath();
+        } else {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的文件类型");
+        }
 
-        } catch (IOException e) {
-            log.error("资源上传失败 - 用户ID: {}, 文件名: {}", userId, file.getOriginalFilename(), e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件保存失败: " + e.getMessage());
+        StoredFile stored = storedFileService.lookup(sha256, subPath, fileUtil.getFileExtension(fileName));
+        if (stored == null) {
+            return null;
         }
+
+        FileUploadResp result = new FileUploadResp();
+        result.setFileName(fileName);
+        result.setFilePath(stored.getRelativePath());
+        result.setFileUrl(fileUtil.generateFileUrl(stored.getRelativePath()));
+        result.setFileSize(stored.getSize());
+        result.setFileType(fileType);
+        result.setExtension(fileUtil.getFileExtension(fileName));
+        result.setUploadTime(System.currentTimeMillis());
+        result.setDeduplicated(true);
+
+        log.info("秒传命中 - 用户ID: {}, 文件名: {}, 文件路径: {}", userId, fileName, stored.getRelativePath());
+        return result;
     }
 
     /**
@@ -234,7 +319,7 @@ public class FileUploadService {
      *
      * @param userId 用户ID
      */
-    private void validateUser(Long userId) {
+    public void validateUser(Long userId) {
         if (userId == null) {
             throw new BusinessException(ErrorCode.UNAUTHORIZED);
         }
@@ -411,15 +496,9 @@ public class FileUploadService {
         }
 
         try {
-            // 删除物理文件
+            // 释放文件引用（同一内容可能被其他资源或文章正文使用，物理文件由回收任务清理）
             if (resource.getFileUrl() != null) {
-                String fileUrl = resource.getFileUrl();
-                String prefix = fileUploadConfig.getServerBaseUrl() + fileUploadConfig.getUrlPrefix() + "/";
-                String relativePath = fileUrl;
-                if (fileUrl.startsWith(prefix)) {
-                    relativePath = fileUrl.substring(prefix.length());
-                }
-                fileUtil.deleteFile(relativePath);
+                storedFileService.releaseReference(fileUtil.toRelativePath(resource.getFileUrl()));
             }
 
             // 删除数据库记录
@@ -0,0 +1,470 @@
+package chat.liuxin.liutech.service;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.PostsMapper;
+import chat.liuxin.liutech.mapper.StoredFileMapper;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.resp.ImageBackfillResp;
+import chat.liuxin.liutech.resp.ImageMetaResp;
+import chat.liuxin.liutech.resp.PostDetailResp;
+import chat.liuxin.liutech.resp.PostListResp;
+import chat.liuxin.liutech.utils.BlurHash;
+import chat.liuxin.liutech.utils.FileUtil;
+import chat.liuxin.liutech.utils.ImageUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 图片元数据服务
+ * 上传时提取图片的宽高、主色调与 BlurHash 占位串，记录在文件登记表上，
+ * 文章列表与详情随封面、缩略图一起返回，前端据此预留版面并在图片加载前显示占位。
+ *
+ * 说明：
+ * 1) 图片只解码一次：按子采样读出约 sample-size 大小的小图，主色调与 BlurHash 都基于这张小图计算，
+ *    大图的提取耗时与内存占用和小图基本相同；
+ * 2) 文件按内容寻址，同一路径的元数据不会变化，查询结果在内存中缓存（只缓存已提取的）；
+ * 3) 历史图片由补齐任务处理：任务在后台线程执行，管理端轮询进度；先登记文章封面/缩略图中尚未登记的本站图片，
+ *    再按ID分批为缺少元数据的图片提取元数据，缺失的变体提交到图片变体线程池生成（队列占用过半时等待，给上传留出位置），
+ *    GIF 与超过像素上限的图片不生成变体，补齐时直接跳过。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class ImageMetadataService {
+
+    /**
+     * 补齐任务等待变体处理完成的轮询间隔，毫秒
+     */
+    private static final long BACKFILL_WAIT_MS = 500L;
+
+    @Autowired
+    private StoredFileMapper storedFileMapper;
+
+    @Autowired
+    private StoredFileService storedFileService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private PostsMapper postsMapper;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    /**
+     * 提取元数据时解码的小图边长（像素）
+     */
+    @Value("${image.metadata.sample-size:64}")
+    private int sampleSize;
+
+    /**
+     * BlurHash 水平分量数
+     */
+    @Value("${image.metadata.blurhash-x:4}")
+    private int blurHashX;
+
+    /**
+     * BlurHash 垂直分量数
+     */
+    @Value("${image.metadata.blurhash-y:3}")
+    private int blurHashY;
+
+    /**
+     * 元数据缓存的最大图片数
+     */
+    @Value("${image.metadata.cache-max-size:10000}")
+    private int cacheMaxSize;
+
+    /**
+     * 补齐任务每批处理的图片数
+     */
+    @Value("${image.metadata.backfill-batch-size:200}")
+    private int backfillBatchSize;
+
+    /**
+     * 相对路径 -> 元数据（内容寻址，不会过期）
+     */
+    private final Map<String, ImageMetaResp> cache = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    /**
+     * 正在执行或最近一次补齐任务的进度
+     */
+    private volatile BackfillProgress backfillProgress;
+
+    /**
+     * 补齐任务线程（单线程，任务在后台执行，管理端轮询状态）
+     */
+    private ExecutorService backfillExecutor;
+
+    @PostConstruct
+    public void init() {
+        backfillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+
+    /**
+     * 提取并保存一张图片的元数据（已提取过的直接返回）
+     * 提取失败不影响上传，返回null
+     *
+     * @param relativePath 图片相对路径
+     * @return 元数据
+     */
+    public ImageMetaResp extract(String relativePath) {
+        StoredFile stored = storedFileMapper.selectByPath(relativePath);
+        if (stored != null && stored.getPlaceholder() != null) {
+            return toMeta(stored);
+        }
+        try {
+            return compute(relativePath);
+        } catch (Exception e) {
+            log.warn("提取图片元数据失败 - 路径: {}, 原因: {}", relativePath, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解码小图，计算主色调与 BlurHash 并保存
+     */
+    private ImageMetaResp compute(String relativePath) throws Exception {
+        ImageUtils.ImageInfo info;
+        BufferedImage image;
+        try (StorageService.LocalFile source = storageService.openLocal(relativePath)) {
+            info = ImageUtils.probe(source.getPath());
+            if (info == null) {
+                return null;
+            }
+            int subsampling = Math.max(1, Math.max(info.getWidth(), info.getHeight()) / sampleSize);
+            image = ImageUtils.read(source.getPath(), subsampling);
+        }
+        if (image == null) {
+            return null;
+        }
+        String dominantColor;
+        String placeholder;
+        try {
+            dominantColor = ImageUtils.dominantColor(image);
+            placeholder = BlurHash.encode(image, blurHashX, blurHashY);
+        } finally {
+            image.flush();
+        }
+
+        StoredFile update = new StoredFile()
+                .setRelativePath(relativePath)
+                .setWidth(info.getWidth())
+                .setHeight(info.getHeight())
+                .setDominantColor(dominantColor)
+                .setPlaceholder(placeholder);
+        storedFileMapper.updateImageMetadata(update);
+        ImageMetaResp meta = toMeta(update);
+        putCache(relativePath, meta);
+        return meta;
+    }
+
+    /**
+     * 文章列表填充封面与缩略图的元数据（需在替换为图片变体之前调用）
+     *
+     * @param posts 文章列表
+     */
+    public void applyListMetadata(List<PostListResp> posts) {
+        if (posts == null || posts.isEmpty()) {
+            return;
+        }
+        Set<String> paths = new HashSet<>();
+        for (PostListResp post : posts) {
+            addPath(paths, post.getCoverImage());
+            addPath(paths, post.getThumbnail());
+        }
+        if (paths.isEmpty()) {
+            return;
+        }
+        Map<String, ImageMetaResp> metas = getMetadata(paths);
+        for (PostListResp post : posts) {
+            post.setCoverMeta(lookup(metas, post.getCoverImage()));
+            post.setThumbnailMeta(lookup(metas, post.getThumbnail()));
+        }
+    }
+
+    /**
+     * 文章详情填充封面与缩略图的元数据
+     *
+     * @param post 文章详情
+     */
+    public void applyDetailMetadata(PostDetailResp post) {
+        if (post == null) {
+            return;
+        }
+        Set<String> paths = new HashSet<>();
+        addPath(paths, post.getCoverImage());
+        addPath(paths, post.getThumbnail());
+        if (paths.isEmpty()) {
+            return;
+        }
+        Map<String, ImageMetaResp> metas = getMetadata(paths);
+        post.setCoverMeta(lookup(metas, post.getCoverImage()));
+        post.setThumbnailMeta(lookup(metas, post.getThumbnail()));
+    }
+
+    /**
+     * 批量获取图片元数据（先查缓存，未命中的一次查库；没有元数据的图片不在结果中）
+     *
+     * @param relativePaths 图片相对路径
+     * @return 相对路径 -> 元数据
+     */
+    public Map<String, ImageMetaResp> getMetadata(Set<String> relativePaths) {
+        Map<String, ImageMetaResp> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String path : relativePaths) {
+            ImageMetaResp meta = cache.get(path);
+            if (meta != null) {
+                result.put(path, meta);
+            } else {
+                missing.add(path);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (StoredFile stored : storedFileMapper.selectByPaths(missing)) {
+                if (stored.getPlaceholder() != null) {
+                    ImageMetaResp meta = toMeta(stored);
+                    putCache(stored.getRelativePath(), meta);
+                    result.put(stored.getRelativePath(), meta);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在后台启动历史图片的元数据与变体补齐（同一时间只允许一个任务执行）
+     *
+     * @return 任务启动时的状态
+     */
+    public ImageBackfillResp startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片补齐任务正在执行，请稍后再试");
+        }
+        BackfillProgress progress = new BackfillProgress();
+        backfillProgress = progress;
+        try {
+            backfillExecutor.execute(() -> runBackfill(progress));
+        } catch (RejectedExecutionException e) {
+            backfillRunning.set(false);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片补齐任务启动失败，请稍后再试");
+        }
+        return progress.snapshot();
+    }
+
+    /**
+     * 查询正在执行或最近一次补齐任务的状态
+     *
+     * @return 任务状态，服务启动后未执行过时返回null
+     */
+    public ImageBackfillResp getBackfillStatus() {
+        BackfillProgress progress = backfillProgress;
+        return progress != null ? progress.snapshot() : null;
+    }
+
+    /**
+     * 补齐任务主体：元数据在补齐线程中提取，变体提交到图片变体线程池（有界队列），全部变体处理完才算结束
+     */
+    private void runBackfill(BackfillProgress progress) {
+        try {
+            registerPostImages(progress);
+
+            String prefix = fileUploadConfig.getImagePath() + "/";
+            long afterId = 0L;
+            List<StoredFile> batch;
+            do {
+                batch = storedFileMapper.selectByPrefixAfter(prefix, afterId, backfillBatchSize);
+                for (StoredFile stored : batch) {
+                    afterId = stored.getId();
+                    backfillOne(stored, progress);
+                }
+            } while (batch.size() == backfillBatchSize);
+
+            while (progress.pendingVariants.get() > 0) {
+                Thread.sleep(BACKFILL_WAIT_MS);
+            }
+            log.info("图片元数据补齐完成 - {}", progress.snapshot());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("图片元数据补齐被中断 - {}", progress.snapshot());
+        } catch (Exception e) {
+            log.error("图片元数据补齐失败 - {}", progress.snapshot(), e);
+        } finally {
+            progress.finishedAt = System.currentTimeMillis();
+            backfillRunning.set(false);
+        }
+    }
+
+    /**
+     * 登记文章封面与缩略图中尚未登记的本站图片（本功能之前上传的图片）
+     */
+    private void registerPostImages(BackfillProgress progress) {
+        Set<String> paths = new LinkedHashSet<>();
+        postsMapper.scanImageUrls(context -> {
+            addPath(paths, context.getResultObject().getCoverImage());
+            addPath(paths, context.getResultObject().getThumbnail());
+        });
+        List<String> pending = new ArrayList<>(paths);
+        for (int from = 0; from < pending.size(); from += backfillBatchSize) {
+            Set<String> chunk = new HashSet<>(pending.subList(from, Math.min(from + backfillBatchSize, pending.size())));
+            for (StoredFile stored : storedFileMapper.selectByPaths(chunk)) {
+                chunk.remove(stored.getRelativePath());
+            }
+            for (String path : chunk) {
+                try {
+                    if (storedFileService.registerExisting(path)) {
+                        progress.registeredFiles.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    log.warn("登记历史图片失败 - 路径: {}, 原因: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void backfillOne(StoredFile stored, BackfillProgress progress) throws InterruptedException {
+        String path = stored.getRelativePath();
+        progress.scannedImages.incrementAndGet();
+        Integer width = stored.getWidth();
+        Integer height = stored.getHeight();
+        if (stored.getPlaceholder() == null) {
+            try {
+                ImageMetaResp meta = compute(path);
+                if (meta == null) {
+                    // 无法解析的图片也无法生成变体
+                    progress.failedImages.incrementAndGet();
+                    return;
+                }
+                progress.updatedImages.incrementAndGet();
+                width = meta.getWidth();
+                height = meta.getHeight();
+            } catch (Exception e) {
+                progress.failedImages.incrementAndGet();
+                log.warn("补齐图片元数据失败 - 路径: {}, 原因: {}", path, e.getMessage());
+                return;
+            }
+        }
+        // GIF 与超过像素上限的图片不会生成变体，跳过，避免每次补齐都重新下载解码
+        if (!imageVariantService.isVariantEligible(path, width, height)
+                || !imageVariantService.getVariants(Set.of(path)).get(path).isEmpty()) {
+            return;
+        }
+        progress.pendingVariants.incrementAndGet();
+        boolean submitted = imageVariantService.submitAndWait(path, generated -> {
+            if (generated) {
+                progress.variantImages.incrementAndGet();
+            }
+            progress.pendingVariants.decrementAndGet();
+        });
+        if (submitted) {
+            progress.queuedVariants.incrementAndGet();
+        } else {
+            progress.pendingVariants.decrementAndGet();
+        }
+    }
+
+    /**
+     * 本站上传的图片URL加入集合，外链忽略
+     */
+    private void addPath(Set<String> paths, String url) {
+        String path = fileUtil.toUploadedPath(url);
+        if (path != null && path.startsWith(fileUploadConfig.getImagePath() + "/")) {
+            paths.add(path);
+        }
+    }
+
+    private ImageMetaResp lookup(Map<String, ImageMetaResp> metas, String url) {
+        String path = fileUtil.toUploadedPath(url);
+        return path != null ? metas.get(path) : null;
+    }
+
+    private static ImageMetaResp toMeta(StoredFile stored) {
+        return new ImageMetaResp()
+                .setWidth(stored.getWidth())
+                .setHeight(stored.getHeight())
+                .setDominantColor(stored.getDominantColor())
+                .setPlaceholder(stored.getPlaceholder());
+    }
+
+    private void putCache(String relativePath, ImageMetaResp meta) {
+        if (cache.size() >= cacheMaxSize) {
+            cache.clear();
+        }
+        cache.put(relativePath, meta);
+    }
+
+    /**
+     * 补齐任务进度（变体完成回调在图片变体线程中更新，计数用原子类型）
+     */
+    private static class BackfillProgress {
+
+        private final long startedAt = System.currentTimeMillis();
+        private volatile long finishedAt;
+        private final AtomicLong registeredFiles = new AtomicLong();
+        private final AtomicLong scannedImages = new AtomicLong();
+        private final AtomicLong updatedImages = new AtomicLong();
+        private final AtomicLong failedImages = new AtomicLong();
+        private final AtomicLong queuedVariants = new AtomicLong();
+        private final AtomicLong pendingVariants = new AtomicLong();
+        private final AtomicLong variantImages = new AtomicLong();
+
+        private ImageBackfillResp snapshot() {
+            long finished = finishedAt;
+            return new ImageBackfillResp()
+                    .setRunning(finished == 0L)
+                    .setStartedAt(new Date(startedAt))
+                    .setFinishedAt(finished == 0L ? null : new Date(finished))
+                    .setRegisteredFiles(registeredFiles.get())
+                    .setScannedImages(scannedImages.get())
+                    .setUpdatedImages(updatedImages.get())
+                    .setFailedImages(failedImages.get())
+                    .setQueuedVariants(queuedVariants.get())
+                    .setPendingVariants(pendingVariants.get())
+                    .setVariantImages(variantImages.get())
+                    .setElapsedMs((finished == 0L ? System.currentTimeMillis() : finished) - startedAt);
+        }
+    }
+}
@@ -0,0 +1,579 @@
+package chat.liuxin.liutech.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.ImageVariantMapper;
+import chat.liuxin.liutech.mapper.StoredFileMapper;
+import chat.liuxin.liutech.model.ImageVariant;
+import chat.liuxin.liutech.resp.ImageMetaResp;
+import chat.liuxin.liutech.resp.PostListResp;
+import chat.liuxin.liutech.utils.FileUtil;
+import chat.liuxin.liutech.utils.ImageUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 图片变体服务
+ * 图片上传后在有界线程池中生成缩略图与多种宽度的缩放图，记录变体与原图尺寸，
+ * 文章列表按展示宽度返回最小的合适变体，不再让列表页下载原图。
+ *
+ * 说明：
+ * 1) 变体与原图放在同一目录，文件名为 原图哈希_变体名.扩展名；原图按内容寻址，重复上传的图片不会重复生成；
+ * 2) 有透明通道的图片输出 PNG，其余输出 JPEG；JDK 自带 ImageIO 没有 WebP 编码器，
+ *    运行时存在 WebP 的 ImageIO 插件时额外生成 WebP，列表优先返回 WebP；
+ * 3) GIF（可能是动图）与像素数超过上限的图片只记录尺寸，不生成变体；
+ * 4) 队列满时丢弃任务并计数，不阻塞上传请求，缺失的变体由后续补齐任务重新提交；
+ * 5) 列表查询按原图路径批量查变体，结果在内存中缓存一段时间。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class ImageVariantService {
+
+    private static final String FORMAT_WEBP = "webp";
+
+    /**
+     * 补齐任务等待队列腾出位置的间隔，毫秒
+     */
+    private static final long SUBMIT_WAIT_MS = 200L;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImageVariantMapper imageVariantMapper;
+
+    @Autowired
+    private StoredFileMapper storedFileMapper;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    /**
+     * 是否生成变体
+     */
+    @Value("${image.variants.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 响应式宽度（只生成小于原图宽度的）
+     */
+    @Value("${image.variants.widths:320,640,1280}")
+    private int[] widths;
+
+    /**
+     * 缩略图宽度
+     */
+    @Value("${image.variants.thumbnail-width:400}")
+    private int thumbnailWidth;
+
+    /**
+     * 缩略图高度
+     */
+    @Value("${image.variants.thumbnail-height:225}")
+    private int thumbnailHeight;
+
+    /**
+     * 列表卡片的展示宽度，返回不小于该宽度的最小变体（没有时保留原图）
+     */
+    @Value("${image.variants.list-width:640}")
+    private int listWidth;
+
+    /**
+     * JPEG/WebP 压缩质量
+     */
+    @Value("${image.variants.quality:0.82}")
+    private float quality;
+
+    /**
+     * 是否在有编码器时生成 WebP
+     */
+    @Value("${image.variants.webp:true}")
+    private boolean webpEnabled;
+
+    /**
+     * 处理线程数
+     */
+    @Value("${image.variants.threads:2}")
+    private int threads;
+
+    /**
+     * 待处理队列容量
+     */
+    @Value("${image.variants.queue-capacity:256}")
+    private int queueCapacity;
+
+    /**
+     * 生成变体的最大像素数，超出时只记录尺寸
+     */
+    @Value("${image.variants.max-pixels:50000000}")
+    private long maxPixels;
+
+    /**
+     * 变体查询缓存的存活时间，毫秒
+     */
+    @Value("${image.variants.cache-ttl-ms:300000}")
+    private long cacheTtlMillis;
+
+    /**
+     * 变体查询缓存的最大原图数
+     */
+    @Value("${image.variants.cache-max-size:10000}")
+    private int cacheMaxSize;
+
+    private ThreadPoolExecutor executor;
+    private boolean webpAvailable;
+    private Timer processTimer;
+    private Counter rejectedCounter;
+
+    /**
+     * 原图相对路径 -> 变体列表（空列表表示没有变体）
+     */
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 已在队列中或正在处理的原图，避免重复提交
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variant-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Arrays.sort(widths);
+        webpAvailable = webpEnabled && ImageUtils.canWrite(FORMAT_WEBP);
+
+        processTimer = Timer.builder("image.variants.process")
+                .description("生成一张图片全部变体的耗时")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("image.variants.rejected")
+                .description("队列已满被丢弃的图片变体任务数")
+                .register(meterRegistry);
+        meterRegistry.gauge("image.variants.queue", executor, e -> e.getQueue().size());
+        log.info("图片变体线程池初始化完成 - 线程数: {}, 队列容量: {}, 宽度: {}, WebP: {}",
+                threads, queueCapacity, Arrays.toString(widths), webpAvailable);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交图片生成变体（不阻塞调用方）
+     *
+     * @param relativePath 原图相对路径
+     * @return 已提交返回true；未启用、已在处理或队列已满返回false
+     */
+    public boolean submit(String relativePath) {
+        return submit(relativePath, null);
+    }
+
+    /**
+     * 提交图片生成变体，处理完成后回调（不阻塞调用方）
+     *
+     * @param relativePath 原图相对路径
+     * @param onDone 处理完成后在处理线程中调用，参数为本次是否生成了变体；可为null
+     * @return 已提交返回true；未启用、已在处理或队列已满返回false
+     */
+    public boolean submit(String relativePath, Consumer<Boolean> onDone) {
+        if (!enabled || !inFlight.add(relativePath)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                boolean generated = false;
+                try {
+                    generated = process(relativePath);
+                } finally {
+                    inFlight.remove(relativePath);
+                    if (onDone != null) {
+                        onDone.accept(generated);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(relativePath);
+            rejectedCounter.increment();
+            log.warn("图片变体队列已满，跳过 - 路径: {}", relativePath);
+            return false;
+        }
+    }
+
+    /**
+     * 补齐任务提交变体：队列剩余容量不足一半时等待，给上传请求留出位置，不会因队列已满被丢弃
+     *
+     * @param relativePath 原图相对路径
+     * @param onDone 处理完成后的回调，参数为本次是否生成了变体
+     * @return 已提交返回true；未启用或已在处理返回false
+     * @throws InterruptedException 等待时被中断
+     */
+    public boolean submitAndWait(String relativePath, Consumer<Boolean> onDone) throws InterruptedException {
+        while (enabled && executor.getQueue().remainingCapacity() < (queueCapacity + 1) / 2) {
+            Thread.sleep(SUBMIT_WAIT_MS);
+        }
+        return submit(relativePath, onDone);
+    }
+
+    /**
+     * 按已记录的格式与尺寸判断图片是否会生成变体（GIF 与像素数超过上限的只记录尺寸，不生成）
+     *
+     * @param relativePath 原图相对路径
+     * @param width 原图宽度，未知时为null
+     * @param height 原图高度，未知时为null
+     * @return 会生成变体返回true；尺寸未知时按会生成处理
+     */
+    public boolean isVariantEligible(String relativePath, Integer width, Integer height) {
+        if (!enabled || relativePath.toLowerCase().endsWith(".gif")) {
+            return false;
+        }
+        return width == null || height == null || (long) width * height <= maxPixels;
+    }
+
+    /**
+     * 生成一张图片的全部变体（已有变体时跳过）
+     *
+     * @param relativePath 原图相对路径
+     * @return 本次生成了变体返回true
+     */
+    boolean process(String relativePath) {
+        long start = System.nanoTime();
+        try {
+            if (!imageVariantMapper.selectBySource(relativePath).isEmpty()) {
+                return false;
+            }
+            try (StorageService.LocalFile source = storageService.openLocal(relativePath)) {
+                return generate(relativePath, source.getPath());
+            }
+        } catch (Exception e) {
+            log.warn("生成图片变体失败 - 路径: {}, 原因: {}", relativePath, e.getMessage());
+            return false;
+        } finally {
+            processTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 识别原图尺寸并生成变体（source 为原图的本地文件，远程存储时是下载到临时目录的副本）
+     *
+     * @return 生成了变体返回true
+     */
+    private boolean generate(String relativePath, Path source) throws IOException {
+        ImageUtils.ImageInfo info = ImageUtils.probe(source);
+        if (info == null) {
+            log.warn("无法识别的图片，跳过生成变体 - 路径: {}", relativePath);
+            return false;
+        }
+        storedFileMapper.updateDimensions(relativePath, info.getWidth(), info.getHeight());
+        if ("gif".equals(info.getFormat()) || (long) info.getWidth() * info.getHeight() > maxPixels) {
+            return false;
+        }
+
+        List<Integer> targetWidths = new ArrayList<>();
+        for (int width : widths) {
+            if (width < info.getWidth()) {
+                targetWidths.add(width);
+            }
+        }
+        // 子采样后仍保留不小于最大目标尺寸两倍的像素，保证缩小质量
+        int largest = Math.max(thumbnailWidth, targetWidths.isEmpty() ? 0 : targetWidths.get(targetWidths.size() - 1));
+        int subsampling = Math.max(1, Math.min(info.getWidth() / (largest * 2),
+                info.getHeight() / Math.max(1, thumbnailHeight * 2)));
+        BufferedImage image = ImageUtils.read(source, subsampling);
+        if (image == null) {
+            return false;
+        }
+
+        boolean alpha = image.getColorModel().hasAlpha();
+        List<ImageVariant> variants = new ArrayList<>();
+        writeVariants(relativePath, ImageVariant.VARIANT_THUMBNAIL,
+                ImageUtils.cropCover(image, thumbnailWidth, thumbnailHeight, alpha), alpha, variants);
+        for (int width : targetWidths) {
+            writeVariants(relativePath, "w" + width, ImageUtils.resizeToWidth(image, width, alpha), alpha, variants);
+        }
+        image.flush();
+
+        imageVariantMapper.batchUpsert(variants);
+        putCache(relativePath, variants);
+        log.debug("图片变体生成完成 - 路径: {}, 变体数: {}", relativePath, variants.size());
+        return true;
+    }
+
+    /**
+     * 编码一个变体（主格式，以及可用时的 WebP），写到原图旁边
+     */
+    private void writeVariants(String sourcePath, String name, BufferedImage image, boolean alpha,
+                               List<ImageVariant> variants) throws IOException {
+        variants.add(writeVariant(sourcePath, name, image, alpha ? "png" : "jpeg", alpha ? "png" : "jpg",
+                alpha ? -1f : quality));
+        if (webpAvailable) {
+            variants.add(writeVariant(sourcePath, name, image, FORMAT_WEBP, FORMAT_WEBP, quality));
+        }
+    }
+
+    private ImageVariant writeVariant(String sourcePath, String name, BufferedImage image, String format,
+                                      String extension, float compressionQuality) throws IOException {
+        int dot = sourcePath.lastIndexOf('.');
+        String base = dot > sourcePath.lastIndexOf('/') ? sourcePath.substring(0, dot) : sourcePath;
+        String relativePath = base + "_" + name + "." + extension;
+
+        Path temp = fileUtil.createStagingFile();
+        try {
+            ImageUtils.write(image, format, compressionQuality, temp);
+            long size = storageService.put(temp, relativePath);
+            return new ImageVariant()
+                    .setSourcePath(sourcePath)
+                    .setVariant(name)
+                    .setFormat(format)
+                    .setRelativePath(relativePath)
+                    .setWidth(image.getWidth())
+                    .setHeight(image.getHeight())
+                    .setSize(size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 文章列表使用图片变体：封面换成不小于列表展示宽度的最小变体（没有足够宽的变体时保留原图，避免浏览器放大小图），
+     * 未设置缩略图的文章使用封面的缩略图变体，并给出各宽度组成的 srcset（原图宽于所有变体时也列入）
+     * （需在填充图片元数据之后调用，元数据按原图URL查询）
+     *
+     * @param posts 文章列表
+     */
+    public void applyListVariants(List<PostListResp> posts) {
+        if (posts == null || posts.isEmpty()) {
+            return;
+        }
+        Map<PostListResp, String> sources = new IdentityHashMap<>();
+        for (PostListResp post : posts) {
+            String sourcePath = toSourcePath(post.getCoverImage());
+            if (sourcePath != null) {
+                sources.put(post, sourcePath);
+            }
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+        Map<String, List<ImageVariant>> variants = getVariants(new HashSet<>(sources.values()));
+        for (Map.Entry<PostListResp, String> entry : sources.entrySet()) {
+            List<ImageVariant> list = variants.get(entry.getValue());
+            if (list == null || list.isEmpty()) {
+                continue;
+            }
+            PostListResp post = entry.getKey();
+            String originalUrl = post.getCoverImage();
+            ImageVariant cover = pickForWidth(list, listWidth);
+            if (cover != null) {
+                post.setCoverImage(fileUtil.generateFileUrl(cover.getRelativePath()));
+            }
+            ImageMetaResp coverMeta = post.getCoverMeta();
+            if (!StringUtils.hasText(post.getThumbnail())) {
+                ImageVariant thumbnail = pick(list, ImageVariant.VARIANT_THUMBNAIL);
+                if (thumbnail != null) {
+                    post.setThumbnail(fileUtil.generateFileUrl(thumbnail.getRelativePath()));
+                    // 缩略图由封面裁剪而来，尺寸取变体本身，主色调与占位串沿用封面
+                    post.setThumbnailMeta(new ImageMetaResp()
+                            .setWidth(thumbnail.getWidth())
+                            .setHeight(thumbnail.getHeight())
+                            .setDominantColor(coverMeta != null ? coverMeta.getDominantColor() : null)
+                            .setPlaceholder(coverMeta != null ? coverMeta.getPlaceholder() : null));
+                }
+            }
+            post.setCoverSrcset(buildSrcset(list, originalUrl, coverMeta != null ? coverMeta.getWidth() : null));
+        }
+    }
+
+    /**
+     * 批量获取原图的变体（先查缓存，未命中的一次查库）
+     *
+     * @param sourcePaths 原图相对路径
+     * @return 原图相对路径 -> 变体列表
+     */
+    public Map<String, List<ImageVariant>> getVariants(Set<String> sourcePaths) {
+        long now = System.currentTimeMillis();
+        Map<String, List<ImageVariant>> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String path : sourcePaths) {
+            CacheEntry entry = cache.get(path);
+            if (entry != null && entry.expireAt > now) {
+                result.put(path, entry.variants);
+            } else {
+                missing.add(path);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, List<ImageVariant>> loaded = new HashMap<>();
+            for (String path : missing) {
+                loaded.put(path, new ArrayList<>());
+            }
+            for (ImageVariant variant : imageVariantMapper.selectBySources(missing)) {
+                loaded.get(variant.getSourcePath()).add(variant);
+            }
+            for (Map.Entry<String, List<ImageVariant>> entry : loaded.entrySet()) {
+                putCache(entry.getKey(), entry.getValue());
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 本站上传的图片URL转为原图相对路径，外链返回null
+     */
+    private String toSourcePath(String url) {
+        String path = fileUtil.toUploadedPath(url);
+        return path != null && path.startsWith(fileUploadConfig.getImagePath() + "/") ? path : null;
+    }
+
+    /**
+     * 不小于指定宽度的最小宽度变体，同宽度优先 WebP；
+     * 没有足够宽的变体时返回null，由调用方保留原图（变体只生成比原图窄的宽度，此时原图已是最合适的尺寸）
+     */
+    static ImageVariant pickForWidth(List<ImageVariant> variants, int width) {
+        ImageVariant best = null;
+        for (ImageVariant variant : variants) {
+            if (ImageVariant.VARIANT_THUMBNAIL.equals(variant.getVariant())) {
+                continue;
+            }
+            if (variant.getWidth() >= width && (best == null || isBetterSmallest(variant, best))) {
+                best = variant;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isBetterSmallest(ImageVariant candidate, ImageVariant current) {
+        int cmp = Integer.compare(candidate.getWidth(), current.getWidth());
+        return cmp < 0 || (cmp == 0 && FORMAT_WEBP.equals(candidate.getFormat()));
+    }
+
+    /**
+     * 指定名称的变体，优先 WebP
+     */
+    private static ImageVariant pick(List<ImageVariant> variants, String name) {
+        ImageVariant found = null;
+        for (ImageVariant variant : variants) {
+            if (name.equals(variant.getVariant()) && (found == null || FORMAT_WEBP.equals(variant.getFormat()))) {
+                found = variant;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * 宽度变体组成的 srcset（每个宽度一项，优先 WebP），原图宽于所有变体时作为最后一项；
+     * 原图宽度未知时不输出 srcset（带宽度描述的 srcset 会让浏览器忽略 src，只能在变体里选，可能选不到足够大的图）
+     *
+     * @param variants 变体
+     * @param originalUrl 原图URL
+     * @param originalWidth 原图宽度，未知时为null
+     */
+    String buildSrcset(List<ImageVariant> variants, String originalUrl, Integer originalWidth) {
+        if (originalWidth == null || originalWidth <= 0) {
+            return null;
+        }
+        Map<Integer, ImageVariant> byWidth = new HashMap<>();
+        for (ImageVariant variant : variants) {
+            if (ImageVariant.VARIANT_THUMBNAIL.equals(variant.getVariant())) {
+                continue;
+            }
+            ImageVariant current = byWidth.get(variant.getWidth());
+            if (current == null || FORMAT_WEBP.equals(variant.getFormat())) {
+                byWidth.put(variant.getWidth(), variant);
+            }
+        }
+        if (byWidth.isEmpty()) {
+            return null;
+        }
+        StringBuilder srcset = new StringBuilder();
+        int[] largest = {0};
+        byWidth.values().stream()
+                .sorted(Comparator.comparingInt(ImageVariant::getWidth))
+                .forEach(variant -> {
+                    if (srcset.length() > 0) {
+                        srcset.append(", ");
+                    }
+                    srcset.append(fileUtil.generateFileUrl(variant.getRelativePath()))
+                            .append(' ').append(variant.getWidth()).append('w');
+                    largest[0] = variant.getWidth();
+                });
+        if (originalWidth > largest[0] && StringUtils.hasText(originalUrl)) {
+            srcset.append(", ").append(originalUrl).append(' ').append(originalWidth).append('w');
+        }
+        return srcset.toString();
+    }
+
+    private void putCache(String sourcePath, List<ImageVariant> variants) {
+        if (cache.size() >= cacheMaxSize) {
+            long now = System.currentTimeMillis();
+            cache.values().removeIf(entry -> entry.expireAt <= now);
+            if (cache.size() >= cacheMaxSize) {
+                cache.clear();
+            }
+        }
+        cache.put(sourcePath, new CacheEntry(variants, System.currentTimeMillis() + cacheTtlMillis));
+    }
+
+    /**
+     * 带过期时间的缓存条目
+     */
+    private static final class CacheEntry {
+        private final List<ImageVariant> variants;
+        private final long expireAt;
+
+        private CacheEntry(List<ImageVariant> variants, long expireAt) {
+            this.variants = variants;
+            this.expireAt = expireAt;
+        }
+    }
+}
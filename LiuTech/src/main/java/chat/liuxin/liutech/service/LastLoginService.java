@@ -0,0 +1,134 @@
+package chat.liuxin.liutech.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import chat.liuxin.liutech.cache.UserIdentityCache;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.Users;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 最近登录时间记录服务（写回式）
+ * 登录成功时只把时间写入内存，定时用一条批量 UPDATE 把 last_login_at 刷入数据库，
+ * 登录请求不再执行整行 updateById，也不会用登录时读到的旧值覆盖并发修改的积分、资料等字段。
+ *
+ * 说明：
+ * 1) 同一用户在一个刷新周期内多次登录只保留最新的时间；
+ * 2) 刷新失败的记录保留在内存中，下个周期重试；应用正常关闭时会再刷新一次；
+ * 3) 读取最近登录时间时用 latest 合并尚未刷入的值，当前用户看到的始终是最新时间。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class LastLoginService {
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    /**
+     * 单条 UPDATE 最多包含的用户数
+     */
+    @Value("${user.last-login.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 用户ID -> 尚未刷入数据库的最近登录时间
+     */
+    private final Map<Long, Date> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次登录
+     *
+     * @param userId 用户ID
+     * @param loginAt 登录时间
+     */
+    public void record(Long userId, Date loginAt) {
+        if (userId == null || loginAt == null) {
+            return;
+        }
+        pending.merge(userId, loginAt, (existing, latest) -> latest.after(existing) ? latest : existing);
+    }
+
+    /**
+     * 获取用户的最近登录时间（合并尚未刷入的记录）
+     *
+     * @param userId 用户ID
+     * @param persisted 数据库中的最近登录时间
+     * @return 两者中较新的时间
+     */
+    public Date latest(Long userId, Date persisted) {
+        Date buffered = userId != null ? pending.get(userId) : null;
+        if (buffered == null) {
+            return persisted;
+        }
+        return persisted == null || buffered.after(persisted) ? buffered : persisted;
+    }
+
+    /**
+     * 定时把缓冲的登录时间批量刷入数据库
+     */
+    @Scheduled(fixedDelayString = "${user.last-login.flush-interval-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Users> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        int flushed = 0;
+        for (Map.Entry<Long, Date> entry : pending.entrySet()) {
+            Users user = new Users();
+            user.setId(entry.getKey());
+            user.setLastLoginAt(entry.getValue());
+            batch.add(user);
+            if (batch.size() >= batchSize) {
+                flushed += write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushed += write(batch);
+        }
+        log.debug("刷入最近登录时间 - 用户数: {}", flushed);
+    }
+
+    /**
+     * 应用关闭前刷入剩余记录
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 写入一批记录，成功后从缓冲区移除（刷新期间又有新登录的用户保留新值）
+     *
+     * @return 成功写入的用户数
+     */
+    private int write(List<Users> batch) {
+        try {
+            userMapper.batchUpdateLastLoginAt(batch);
+        } catch (Exception e) {
+            log.error("批量更新最近登录时间失败，下次重试 - 用户数: {}, 错误: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+        for (Users user : batch) {
+            pending.remove(user.getId(), user.getLastLoginAt());
+            userIdentityCache.invalidate(user.getId());
+        }
+        return batch.size();
+    }
+}
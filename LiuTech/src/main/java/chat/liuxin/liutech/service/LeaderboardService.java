@@ -0,0 +1,398 @@
+package chat.liuxin.liutech.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.LeaderboardSnapshotMapper;
+import chat.liuxin.liutech.mapper.UserCheckinStatsMapper;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.LeaderboardSnapshot;
+import chat.liuxin.liutech.model.UserCheckinStats;
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.resp.LeaderboardResp;
+import chat.liuxin.liutech.utils.RankedSkipList;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 排行榜服务
+ * 积分、签到次数、连续签到天数排行榜全部保存在内存中的带排名跳表里，
+ * 由签到、积分变动等操作在事务提交后增量更新，查看排行榜与查询自己的名次都不访问 users / user_checkins 表。
+ *
+ * 支持的排行榜：
+ * 1) points：all 为当前积分余额，day / month 为当天 / 当月获得的积分；
+ * 2) checkins：all 为累计签到次数，month 为当月签到次数；
+ * 3) streak：all 为当前连续签到天数（昨天或今天签到过才算连续，每天零点清理断签用户）。
+ *
+ * 说明：
+ * 1) 启动时累计类排行榜从 users、user_checkin_stats 重建，按日/按月排行榜从 leaderboard_snapshots 恢复；
+ *    重建完成前的更新先排队，重建后依次应用；
+ * 2) 按日/按月排行榜的变化定时批量写入 leaderboard_snapshots，跨周期后旧排行榜从内存移除；
+ * 3) 排行榜是单实例内存数据，多实例部署时各实例只包含自己处理过的按日/按月增量。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class LeaderboardService {
+
+    public static final String METRIC_POINTS = "points";
+    public static final String METRIC_CHECKINS = "checkins";
+    public static final String METRIC_STREAK = "streak";
+
+    public static final String PERIOD_ALL = "all";
+    public static final String PERIOD_MONTH = "month";
+    public static final String PERIOD_DAY = "day";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserCheckinStatsMapper userCheckinStatsMapper;
+
+    @Autowired
+    private LeaderboardSnapshotMapper leaderboardSnapshotMapper;
+
+    /**
+     * 单条快照写入语句最多包含的成员数
+     */
+    @Value("${leaderboard.snapshot.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 快照保留天数
+     */
+    @Value("${leaderboard.snapshot.retention-days:90}")
+    private int retentionDays;
+
+    /**
+     * 排行榜标识 -> 排行榜
+     */
+    private final Map<String, RankedSkipList> boards = new ConcurrentHashMap<>();
+
+    /**
+     * 连续签到榜成员的最后签到日期，用于清理断签用户
+     */
+    private final Map<Long, LocalDate> streakLastCheckin = new ConcurrentHashMap<>();
+
+    /**
+     * 按日/按月排行榜中待写入快照的成员
+     */
+    private final Map<String, Set<Long>> dirty = new ConcurrentHashMap<>();
+
+    /**
+     * 重建完成前到达的更新
+     */
+    private final Queue<Runnable> pendingUpdates = new ArrayDeque<>();
+
+    private boolean ready;
+
+    /**
+     * 应用启动完成后重建排行榜
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        try {
+            RankedSkipList points = board(METRIC_POINTS, PERIOD_ALL, today);
+            userMapper.scanUserPoints(context -> {
+                Users user = context.getResultObject();
+                points.put(user.getId(), user.getPoints().doubleValue());
+            });
+
+            RankedSkipList checkins = board(METRIC_CHECKINS, PERIOD_ALL, today);
+            RankedSkipList streaks = board(METRIC_STREAK, PERIOD_ALL, today);
+            LocalDate yesterday = today.minusDays(1);
+            userCheckinStatsMapper.scanAll(context -> {
+                UserCheckinStats stats = context.getResultObject();
+                checkins.put(stats.getUserId(), stats.getTotalCheckins());
+                if (stats.getLastCheckinDate() != null && !stats.getLastCheckinDate().isBefore(yesterday)) {
+                    streaks.put(stats.getUserId(), stats.getCurrentStreak());
+                    streakLastCheckin.put(stats.getUserId(), stats.getLastCheckinDate());
+                }
+            });
+
+            restore(METRIC_POINTS, PERIOD_DAY, today);
+            restore(METRIC_POINTS, PERIOD_MONTH, today);
+            restore(METRIC_CHECKINS, PERIOD_MONTH, today);
+            log.info("排行榜重建完成 - 积分榜: {}, 签到榜: {}, 连续签到榜: {}, 耗时: {} ms",
+                    points.size(), checkins.size(), streaks.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("排行榜重建失败，仅包含启动后的增量: {}", e.getMessage(), e);
+        } finally {
+            synchronized (pendingUpdates) {
+                ready = true;
+                Runnable update;
+                while ((update = pendingUpdates.poll()) != null) {
+                    update.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * 签到成功后更新排行榜（事务提交后生效）
+     *
+     * @param userId 用户ID
+     * @param date 签到日期
+     * @param streak 连续签到天数
+     * @param totalCheckins 累计签到次数
+     */
+    public void recordCheckin(Long userId, LocalDate date, int streak, int totalCheckins) {
+        TransactionUtils.afterCommit(() -> apply(() -> {
+            board(METRIC_CHECKINS, PERIOD_ALL, date).put(userId, totalCheckins);
+            increment(METRIC_CHECKINS, PERIOD_MONTH, date, userId, 1);
+            board(METRIC_STREAK, PERIOD_ALL, date).put(userId, streak);
+            streakLastCheckin.put(userId, date);
+        }));
+    }
+
+    /**
+     * 积分变动后更新排行榜（事务提交后生效，由 PointsService 调用）
+     *
+     * @param userId 用户ID
+     * @param delta 变动量（获得为正、消费为负；管理员直接改积分时为null，不计入当日/当月获得）
+     * @param balance 变动后的积分余额
+     */
+    public void recordPointsChange(Long userId, BigDecimal delta, BigDecimal balance) {
+        LocalDate today = LocalDate.now();
+        TransactionUtils.afterCommit(() -> apply(() -> applyPoints(userId, today, delta, balance)));
+    }
+
+    /**
+     * 用户被删除后从全部排行榜移除（事务提交后生效）
+     *
+     * @param userId 用户ID
+     */
+    public void removeUser(Long userId) {
+        TransactionUtils.afterCommit(() -> apply(() -> {
+            boards.forEach((key, board) -> {
+                if (board.remove(userId) && !key.endsWith(':' + PERIOD_ALL)) {
+                    markDirty(key, userId);
+                }
+            });
+            streakLastCheckin.remove(userId);
+        }));
+    }
+
+    /**
+     * 查询排行榜
+     *
+     * @param metric 指标（points / checkins / streak）
+     * @param period 周期（all / month / day）
+     * @param offset 起始偏移
+     * @param limit 数量
+     * @param currentUserId 当前用户ID（可为空，非空时返回其名次）
+     * @return 排行榜
+     */
+    public LeaderboardResp getLeaderboard(String metric, String period, int offset, int limit, Long currentUserId) {
+        validate(metric, period);
+        LocalDate today = LocalDate.now();
+        String key = keyOf(metric, period, today);
+        RankedSkipList board = boards.get(key);
+
+        List<RankedSkipList.Entry> top = board != null ? board.range(offset, limit) : List.of();
+        Map<Long, Users> users = top.isEmpty() ? Map.of()
+                : userMapper.selectBatchIds(top.stream().map(RankedSkipList.Entry::getMember).collect(Collectors.toList()))
+                        .stream().collect(Collectors.toMap(Users::getId, Function.identity()));
+
+        List<LeaderboardResp.Entry> entries = new ArrayList<>(top.size());
+        for (RankedSkipList.Entry item : top) {
+            Users user = users.get(item.getMember());
+            entries.add(new LeaderboardResp.Entry()
+                    .setRank(item.getRank())
+                    .setUserId(item.getMember())
+                    .setUsername(user != null ? user.getUsername() : null)
+                    .setNickname(user != null ? user.getNickname() : null)
+                    .setAvatarUrl(user != null ? user.getAvatarUrl() : null)
+                    .setScore(item.getScore()));
+        }
+
+        LeaderboardResp resp = new LeaderboardResp()
+                .setMetric(metric)
+                .setPeriod(period)
+                .setPeriodKey(key.substring(key.indexOf(':') + 1))
+                .setTotal(board != null ? board.size() : 0)
+                .setEntries(entries);
+        if (currentUserId != null && board != null) {
+            int rank = board.rank(currentUserId);
+            resp.setMyRank(rank > 0 ? rank : null);
+            resp.setMyScore(board.score(currentUserId));
+        }
+        return resp;
+    }
+
+    /**
+     * 定时把按日/按月排行榜的变化写入快照
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.snapshot.interval-ms:60000}")
+    public void snapshot() {
+        for (Map.Entry<String, Set<Long>> entry : dirty.entrySet()) {
+            String key = entry.getKey();
+            RankedSkipList board = boards.get(key);
+            List<LeaderboardSnapshot> upserts = new ArrayList<>();
+            List<Long> deletes = new ArrayList<>();
+            Iterator<Long> it = entry.getValue().iterator();
+            while (it.hasNext()) {
+                Long userId = it.next();
+                it.remove();
+                Double score = board != null ? board.score(userId) : null;
+                if (score != null) {
+                    upserts.add(new LeaderboardSnapshot().setBoard(key).setUserId(userId).setScore(score));
+                } else {
+                    deletes.add(userId);
+                }
+            }
+            try {
+                for (int i = 0; i < upserts.size(); i += batchSize) {
+                    leaderboardSnapshotMapper.batchUpsert(upserts.subList(i, Math.min(upserts.size(), i + batchSize)));
+                }
+                for (int i = 0; i < deletes.size(); i += batchSize) {
+                    leaderboardSnapshotMapper.deleteMembers(key, deletes.subList(i, Math.min(deletes.size(), i + batchSize)));
+                }
+            } catch (Exception e) {
+                log.warn("写入排行榜快照失败，稍后重试 - 排行榜: {}, 错误: {}", key, e.getMessage());
+                upserts.forEach(s -> markDirty(key, s.getUserId()));
+                deletes.forEach(userId -> markDirty(key, userId));
+            }
+        }
+    }
+
+    /**
+     * 每天零点后清理断签用户与过期周期的排行榜
+     */
+    @Scheduled(cron = "${leaderboard.rollover-cron:5 0 0 * * *}")
+    public void rollover() {
+        snapshot();
+        LocalDate today = LocalDate.now();
+        apply(() -> {
+            LocalDate yesterday = today.minusDays(1);
+            RankedSkipList streaks = board(METRIC_STREAK, PERIOD_ALL, today);
+            streakLastCheckin.entrySet().removeIf(entry -> {
+                if (entry.getValue().isBefore(yesterday)) {
+                    streaks.remove(entry.getKey());
+                    return true;
+                }
+                return false;
+            });
+            Set<String> current = Set.of(
+                    keyOf(METRIC_POINTS, PERIOD_DAY, today),
+                    keyOf(METRIC_POINTS, PERIOD_MONTH, today),
+                    keyOf(METRIC_CHECKINS, PERIOD_MONTH, today));
+            boards.keySet().removeIf(key -> !key.endsWith(':' + PERIOD_ALL) && !current.contains(key) && isClean(key));
+            dirty.keySet().removeIf(key -> !boards.containsKey(key) && isClean(key));
+        });
+        int deleted = leaderboardSnapshotMapper.deleteStale(retentionDays);
+        log.info("排行榜跨日处理完成 - 连续签到榜: {}, 清理过期快照: {}", board(METRIC_STREAK, PERIOD_ALL, today).size(), deleted);
+    }
+
+    /**
+     * 应用关闭前写入剩余快照
+     */
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    private void applyPoints(Long userId, LocalDate date, BigDecimal delta, BigDecimal balance) {
+        // 积分榜只包含积分大于0的用户，与启动重建时一致
+        if (balance != null && balance.signum() > 0) {
+            board(METRIC_POINTS, PERIOD_ALL, date).put(userId, balance.doubleValue());
+        } else if (balance != null) {
+            board(METRIC_POINTS, PERIOD_ALL, date).remove(userId);
+        }
+        if (delta != null && delta.signum() > 0) {
+            increment(METRIC_POINTS, PERIOD_DAY, date, userId, delta.doubleValue());
+            increment(METRIC_POINTS, PERIOD_MONTH, date, userId, delta.doubleValue());
+        }
+    }
+
+    private void increment(String metric, String period, LocalDate date, Long userId, double delta) {
+        String key = keyOf(metric, period, date);
+        boards.computeIfAbsent(key, k -> new RankedSkipList()).increment(userId, delta);
+        markDirty(key, userId);
+    }
+
+    private void markDirty(String key, Long userId) {
+        dirty.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(userId);
+    }
+
+    private boolean isClean(String key) {
+        Set<Long> members = dirty.get(key);
+        return members == null || members.isEmpty();
+    }
+
+    /**
+     * 重建完成前排队，完成后直接执行
+     */
+    private void apply(Runnable update) {
+        synchronized (pendingUpdates) {
+            if (!ready) {
+                pendingUpdates.add(update);
+                return;
+            }
+        }
+        update.run();
+    }
+
+    /**
+     * 从快照恢复当前周期的排行榜
+     */
+    private void restore(String metric, String period, LocalDate date) {
+        String key = keyOf(metric, period, date);
+        RankedSkipList board = boards.computeIfAbsent(key, k -> new RankedSkipList());
+        for (LeaderboardSnapshot snapshot : leaderboardSnapshotMapper.selectByBoard(key)) {
+            board.put(snapshot.getUserId(), snapshot.getScore());
+        }
+    }
+
+    private RankedSkipList board(String metric, String period, LocalDate date) {
+        return boards.computeIfAbsent(keyOf(metric, period, date), k -> new RankedSkipList());
+    }
+
+    private static String keyOf(String metric, String period, LocalDate date) {
+        switch (period) {
+            case PERIOD_DAY:
+                return metric + ':' + date;
+            case PERIOD_MONTH:
+                return metric + ':' + YearMonth.from(date);
+            default:
+                return metric + ':' + PERIOD_ALL;
+        }
+    }
+
+    private static void validate(String metric, String period) {
+        boolean valid = switch (metric) {
+            case METRIC_POINTS -> PERIOD_ALL.equals(period) || PERIOD_MONTH.equals(period) || PERIOD_DAY.equals(period);
+            case METRIC_CHECKINS -> PERIOD_ALL.equals(period) || PERIOD_MONTH.equals(period);
+            case METRIC_STREAK -> PERIOD_ALL.equals(period);
+            default -> false;
+        };
+        if (!valid) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的排行榜: " + metric + "/" + period);
+        }
+    }
+}
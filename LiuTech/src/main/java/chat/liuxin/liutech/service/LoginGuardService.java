@@ -0,0 +1,228 @@
+package chat.liuxin.liutech.service;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.utils.SlidingWindowRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 登录防护服务
+ * 1) 限流：按客户端IP统计全部登录尝试、按用户名统计失败次数，均采用滑动窗口，超出限制时在查库和哈希之前直接拒绝；
+ * 2) 隔离：BCrypt 密码校验放到独立的有界线程池执行，队列满或等待超时立即返回“登录繁忙”，
+ *    暴力破解或撞库流量最多占用固定数量的CPU核心，不会拖垮Tomcat线程上的正常读请求；
+ * 3) 指标：auth.login.hash（哈希耗时）、auth.login.rejected（按reason统计的拒绝次数），可通过 /actuator/metrics 查看。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class LoginGuardService {
+
+    private static final String REASON_IP = "ip";
+    private static final String REASON_USERNAME = "username";
+    private static final String REASON_BUSY = "busy";
+    private static final String REASON_TIMEOUT = "timeout";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 密码校验线程数，默认与CPU核数一致（BCrypt为纯CPU计算，更多线程没有意义）
+     */
+    @Value("${login.executor.threads:0}")
+    private int threads;
+
+    /**
+     * 等待校验的队列容量，超出时快速拒绝
+     */
+    @Value("${login.executor.queue-capacity:100}")
+    private int queueCapacity;
+
+    /**
+     * 单次校验（含排队）的最长等待时间，毫秒
+     */
+    @Value("${login.executor.timeout-ms:5000}")
+    private long timeoutMs;
+
+    /**
+     * 单个IP在窗口内允许的登录尝试次数
+     */
+    @Value("${login.rate-limit.ip.max-attempts:20}")
+    private int ipMaxAttempts;
+
+    @Value("${login.rate-limit.ip.window-ms:60000}")
+    private long ipWindowMs;
+
+    /**
+     * 单个用户名在窗口内允许的失败次数，登录成功后清零
+     */
+    @Value("${login.rate-limit.username.max-failures:5}")
+    private int usernameMaxFailures;
+
+    @Value("${login.rate-limit.username.window-ms:300000}")
+    private long usernameWindowMs;
+
+    /**
+     * 每个限流器最多跟踪的key数量
+     */
+    @Value("${login.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    private ThreadPoolExecutor executor;
+    private SlidingWindowRateLimiter ipLimiter;
+    private SlidingWindowRateLimiter usernameLimiter;
+    private Timer hashTimer;
+
+    public LoginGuardService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-verify-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ipLimiter = new SlidingWindowRateLimiter(ipMaxAttempts, ipWindowMs, maxKeys);
+        usernameLimiter = new SlidingWindowRateLimiter(usernameMaxFailures, usernameWindowMs, maxKeys);
+
+        hashTimer = Timer.builder("auth.login.hash")
+                .description("登录密码校验（BCrypt）耗时")
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.login.queue", executor, e -> e.getQueue().size());
+        log.info("登录校验线程池初始化完成 - 线程数: {}, 队列容量: {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 登录前置检查（查库与哈希之前调用）
+     * IP维度每次尝试都计数；用户名维度只判断失败次数是否已达上限。
+     *
+     * @param username 登录用户名
+     * @param clientIp 客户端IP，可为空
+     * @throws BusinessException 超出限制时抛出 TOO_MANY_LOGIN_ATTEMPTS
+     */
+    public void checkAllowed(String username, String clientIp) {
+        if (StringUtils.hasText(clientIp) && !ipLimiter.tryAcquire(clientIp)) {
+            reject(REASON_IP);
+            log.warn("登录被限流，IP尝试过于频繁: {}", clientIp);
+            throw new BusinessException(ErrorCode.TOO_MANY_LOGIN_ATTEMPTS);
+        }
+        if (usernameLimiter.isLimited(keyOf(username))) {
+            reject(REASON_USERNAME);
+            log.warn("登录被限流，用户名失败次数过多: {}", username);
+            throw new BusinessException(ErrorCode.TOO_MANY_LOGIN_ATTEMPTS);
+        }
+    }
+
+    /**
+     * 在登录线程池中校验密码
+     *
+     * @param passwordEncoder 密码编码器
+     * @param rawPassword 用户输入的密码
+     * @param passwordHash 数据库中的密码哈希
+     * @return 密码是否匹配
+     * @throws BusinessException 线程池繁忙或等待超时时抛出 LOGIN_BUSY
+     */
+    public boolean matches(PasswordEncoder passwordEncoder, String rawPassword, String passwordHash) {
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> hashTimer.record(() -> passwordEncoder.matches(rawPassword, passwordHash)));
+        } catch (RejectedExecutionException e) {
+            reject(REASON_BUSY);
+            log.warn("登录校验队列已满，快速拒绝");
+            throw new BusinessException(ErrorCode.LOGIN_BUSY);
+        }
+
+        try {
+            return Boolean.TRUE.equals(future.get(timeoutMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            reject(REASON_TIMEOUT);
+            log.warn("登录校验等待超时: {} ms", timeoutMs);
+            throw new BusinessException(ErrorCode.LOGIN_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.LOGIN_BUSY);
+        } catch (ExecutionException e) {
+            log.error("登录密码校验异常: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            throw new BusinessException(ErrorCode.LOGIN_FAILED);
+        }
+    }
+
+    /**
+     * 记录一次登录失败（用户不存在或密码错误）
+     *
+     * @param username 登录用户名
+     */
+    public void recordFailure(String username) {
+        usernameLimiter.record(keyOf(username));
+    }
+
+    /**
+     * 登录成功后清除该用户名的失败计数
+     *
+     * @param username 登录用户名
+     */
+    public void recordSuccess(String username) {
+        usernameLimiter.reset(keyOf(username));
+    }
+
+    /**
+     * 定时清理计数已过期的key
+     */
+    @Scheduled(fixedDelayString = "${login.rate-limit.purge-interval-ms:60000}")
+    public void purgeIdle() {
+        int purged = ipLimiter.purgeIdle() + usernameLimiter.purgeIdle();
+        if (purged > 0) {
+            log.debug("清理过期登录限流记录: {} 条", purged);
+        }
+    }
+
+    private void reject(String reason) {
+        Counter.builder("auth.login.rejected")
+                .description("登录被拒绝次数（限流/繁忙）")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 用户名归一化（数据库按不区分大小写比较用户名）
+     */
+    private static String keyOf(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+}
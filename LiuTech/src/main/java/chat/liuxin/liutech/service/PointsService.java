@@ -0,0 +1,346 @@
+package chat.liuxin.liutech.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chat.liuxin.liutech.cache.UserIdentityCache;
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.PointsLedgerMapper;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.PointsLedger;
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 积分服务
+ * 所有积分变动都经由本服务：先追加一条积分流水，再用一条条件 UPDATE 原子增减余额，
+ * 不再读出用户、在内存中加减后整行写回，并发的签到与购买不会互相覆盖。
+ *
+ * 说明：
+ * 1) 幂等键唯一：同一业务操作（如某天的签到、购买某个资源）重试时返回已有流水，不会重复变动积分；
+ *    并发的同键请求在唯一索引上排队，后到者返回先到者的流水；
+ * 2) 扣减积分时余额不足由 UPDATE 的条件判断，不会出现负余额；
+ * 3) 大量的小额奖励可通过 award 延迟结算：事务提交后进入队列，定时按批次锁定相关用户，
+ *    一条语句批量追加流水、一条语句批量增加余额；
+ * 4) 积分变动在事务提交后同步到积分排行榜。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class PointsService {
+
+    public static final String REASON_CHECKIN = "CHECKIN";
+    public static final String REASON_RESOURCE_PURCHASE = "RESOURCE_PURCHASE";
+    public static final String REASON_ADMIN_ADJUST = "ADMIN_ADJUST";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private PointsLedgerMapper pointsLedgerMapper;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 单次结算的最大流水数
+     */
+    @Value("${points.settlement.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 待结算队列容量，超出时改为逐条立即结算
+     */
+    @Value("${points.settlement.max-pending:100000}")
+    private int maxPending;
+
+    /**
+     * 待结算的奖励
+     */
+    private final ConcurrentLinkedQueue<PointsLedger> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 变动积分（加入当前事务）
+     *
+     * @param userId 用户ID
+     * @param delta 变动量（获得为正，消费为负）
+     * @param reason 变动原因
+     * @param refId 关联业务ID（可为空）
+     * @param idempotencyKey 幂等键（可为空）
+     * @return 变动结果；幂等键已存在时返回已有流水，applied 为 false
+     * @throws BusinessException 用户不存在或积分不足时抛出，当前事务回滚
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public PointsChange change(Long userId, BigDecimal delta, String reason, String refId, String idempotencyKey) {
+        if (userId == null || delta == null || delta.signum() == 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "积分变动参数无效");
+        }
+        if (idempotencyKey != null) {
+            PointsLedger existing = pointsLedgerMapper.selectByIdempotencyKey(idempotencyKey);
+            if (existing != null) {
+                return new PointsChange(existing, false);
+            }
+        }
+
+        PointsLedger entry = new PointsLedger()
+                .setUserId(userId)
+                .setDelta(delta)
+                .setReason(reason)
+                .setRefId(refId)
+                .setIdempotencyKey(idempotencyKey);
+        try {
+            pointsLedgerMapper.insertEntry(entry);
+        } catch (DuplicateKeyException e) {
+            // 同键的并发请求已先提交，只回退这一条语句，当前事务不受影响；
+            // 先到者的流水在本事务快照之后提交，必须用加锁的当前读才能读到
+            log.info("积分变动重复提交，返回已有流水 - 用户ID: {}, 幂等键: {}", userId, idempotencyKey);
+            PointsLedger existing = pointsLedgerMapper.selectByIdempotencyKeyLocking(idempotencyKey);
+            if (existing == null) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "积分变动冲突，请稍后重试");
+            }
+            return new PointsChange(existing, false);
+        }
+
+        if (userMapper.addPoints(userId, delta) == 0) {
+            BigDecimal current = userMapper.selectPoints(userId);
+            if (current == null || current.add(delta).signum() >= 0) {
+                throw new BusinessException(ErrorCode.USER_NOT_FOUND);
+            }
+            throw new BusinessException(ErrorCode.INSUFFICIENT_POINTS,
+                    "积分不足，需要 " + delta.negate() + " 积分，当前仅有 " + current + " 积分");
+        }
+
+        // 本事务已持有该用户行锁，读到的就是本次变动后的余额
+        BigDecimal balance = userMapper.selectPoints(userId);
+        pointsLedgerMapper.updateBalanceAfter(entry.getId(), balance);
+        entry.setBalanceAfter(balance);
+
+        userIdentityCache.invalidateAfterCommit(userId);
+        leaderboardService.recordPointsChange(userId, REASON_ADMIN_ADJUST.equals(reason) ? null : delta, balance);
+        log.debug("积分变动 - 用户ID: {}, 变动: {}, 余额: {}, 原因: {}", userId, delta, balance, reason);
+        return new PointsChange(entry, true);
+    }
+
+    /**
+     * 把积分调整为指定余额（管理端使用，按差额记一条流水）
+     *
+     * @param userId 用户ID
+     * @param target 目标余额
+     * @return 变动结果，余额未变化时返回null
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public PointsChange adjustTo(Long userId, BigDecimal target) {
+        if (target == null || target.signum() < 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "积分不能为负数");
+        }
+        List<Users> locked = userMapper.selectPointsForUpdate(List.of(userId));
+        if (locked.isEmpty()) {
+            throw new BusinessException(ErrorCode.USER_NOT_FOUND);
+        }
+        BigDecimal delta = target.subtract(locked.get(0).getPoints());
+        if (delta.signum() == 0) {
+            return null;
+        }
+        return change(userId, delta, REASON_ADMIN_ADJUST, null, null);
+    }
+
+    /**
+     * 延迟结算的积分奖励（当前事务提交后入队，由定时任务批量结算）
+     * 适合量大、调用方不需要立即拿到余额的小额奖励
+     *
+     * @param userId 用户ID
+     * @param delta 奖励积分（必须为正）
+     * @param reason 变动原因
+     * @param refId 关联业务ID（可为空）
+     * @param idempotencyKey 幂等键（可为空）
+     */
+    public void award(Long userId, BigDecimal delta, String reason, String refId, String idempotencyKey) {
+        if (userId == null || delta == null || delta.signum() <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "奖励积分必须为正数");
+        }
+        PointsLedger entry = new PointsLedger()
+                .setUserId(userId)
+                .setDelta(delta)
+                .setReason(reason)
+                .setRefId(refId)
+                .setIdempotencyKey(idempotencyKey);
+        TransactionUtils.afterCommit(() -> {
+            if (pendingCount.incrementAndGet() > maxPending) {
+                pendingCount.decrementAndGet();
+                log.warn("积分待结算队列已满，立即结算 - 用户ID: {}, 积分: {}", userId, delta);
+                settleOne(entry);
+                return;
+            }
+            pending.add(entry);
+        });
+    }
+
+    /**
+     * 定时结算延迟的积分奖励
+     */
+    @Scheduled(fixedDelayString = "${points.settlement.interval-ms:5000}")
+    public void settle() {
+        while (!pending.isEmpty()) {
+            List<PointsLedger> batch = new ArrayList<>(Math.min(batchSize, pendingCount.get()));
+            PointsLedger entry;
+            while (batch.size() < batchSize && (entry = pending.poll()) != null) {
+                batch.add(entry);
+            }
+            pendingCount.addAndGet(-batch.size());
+            try {
+                requiresNew.executeWithoutResult(status -> settleBatch(batch));
+            } catch (Exception e) {
+                // 多为并发写入了相同幂等键，退回逐条结算
+                log.warn("批量结算积分失败，改为逐条结算 - 数量: {}, 错误: {}", batch.size(), e.getMessage());
+                batch.forEach(this::settleOne);
+            }
+        }
+    }
+
+    /**
+     * 应用关闭前结算剩余奖励
+     */
+    @PreDestroy
+    public void shutdown() {
+        settle();
+    }
+
+    /**
+     * 在一个事务内结算一批奖励：锁定相关用户、批量追加流水、批量增加余额
+     */
+    private void settleBatch(List<PointsLedger> batch) {
+        // 同批次内按幂等键去重，再去掉已结算过的
+        Map<String, PointsLedger> keyed = new LinkedHashMap<>();
+        List<PointsLedger> entries = new ArrayList<>(batch.size());
+        for (PointsLedger entry : batch) {
+            if (entry.getIdempotencyKey() == null) {
+                entries.add(entry);
+            } else {
+                keyed.putIfAbsent(entry.getIdempotencyKey(), entry);
+            }
+        }
+        if (!keyed.isEmpty()) {
+            pointsLedgerMapper.selectExistingKeys(keyed.keySet()).forEach(keyed::remove);
+            entries.addAll(keyed.values());
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        Set<Long> userIds = entries.stream().map(PointsLedger::getUserId).collect(Collectors.toCollection(HashSet::new));
+        Map<Long, BigDecimal> balances = userMapper.selectPointsForUpdate(userIds).stream()
+                .collect(Collectors.toMap(Users::getId, Users::getPoints));
+
+        List<PointsLedger> settled = new ArrayList<>(entries.size());
+        Map<Long, BigDecimal> deltas = new LinkedHashMap<>();
+        for (PointsLedger entry : entries) {
+            BigDecimal balance = balances.get(entry.getUserId());
+            if (balance == null) {
+                log.warn("用户不存在或已删除，跳过积分奖励 - 用户ID: {}, 积分: {}", entry.getUserId(), entry.getDelta());
+                continue;
+            }
+            balance = balance.add(entry.getDelta());
+            balances.put(entry.getUserId(), balance);
+            settled.add(entry.setBalanceAfter(balance));
+            deltas.merge(entry.getUserId(), entry.getDelta(), BigDecimal::add);
+        }
+        if (settled.isEmpty()) {
+            return;
+        }
+
+        pointsLedgerMapper.batchInsert(settled);
+        userMapper.batchAddPoints(deltas);
+        deltas.forEach((userId, delta) -> {
+            userIdentityCache.invalidateAfterCommit(userId);
+            leaderboardService.recordPointsChange(userId, delta, balances.get(userId));
+        });
+        log.debug("批量结算积分完成 - 流水: {}, 用户: {}", settled.size(), deltas.size());
+    }
+
+    /**
+     * 单独结算一条奖励（独立事务）
+     */
+    private void settleOne(PointsLedger entry) {
+        try {
+            requiresNew.executeWithoutResult(status -> change(entry.getUserId(), entry.getDelta(),
+                    entry.getReason(), entry.getRefId(), entry.getIdempotencyKey()));
+        } catch (Exception e) {
+            log.error("结算积分奖励失败 - 用户ID: {}, 积分: {}, 原因: {}, 错误: {}",
+                    entry.getUserId(), entry.getDelta(), entry.getReason(), e.getMessage());
+        }
+    }
+
+    /**
+     * 积分变动结果
+     */
+    public static final class PointsChange {
+        private final PointsLedger entry;
+        private final boolean applied;
+
+        private PointsChange(PointsLedger entry, boolean applied) {
+            this.entry = entry;
+            this.applied = applied;
+        }
+
+        /**
+         * 对应的积分流水
+         */
+        public PointsLedger getEntry() {
+            return entry;
+        }
+
+        /**
+         * 本次是否实际变动了积分（幂等键已存在时为false）
+         */
+        public boolean isApplied() {
+            return applied;
+        }
+
+        /**
+         * 该流水记录的变动后余额
+         */
+        public BigDecimal getBalance() {
+            return entry.getBalanceAfter();
+        }
+    }
+}
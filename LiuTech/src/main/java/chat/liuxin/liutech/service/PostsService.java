@@ -71,6 +71,24 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
     @Autowired
     private CommentsMapper commentsMapper;
 
+    @Autowired
+    private CommentsService commentsService;
+
+    @Autowired
+    private ContentModerationService contentModerationService;
+
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private VisitorAnalyticsService visitorAnalyticsService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private ImageMetadataService imageMetadataService;
+
     /**
      * 分页查询文章列表（公开接口）
      * 支持按分类、标签、关键词、状态、作者等条件进行筛选
@@ -106,6 +124,8 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         // 执行分页查询，直接返回PostListResl
         IPage<PostListResp> result = postsMapper.selectPostListResl(page, req.getCategoryId(), req.getTagId(), keyword,
                 req.getStatus(), req.getAuthorId(), userId);
+        imageMetadataService.applyListMetadata(result.getRecords());
+        imageVariantService.applyListVariants(result.getRecords());
 
         // 使用MyBatis-Plus自动统计的总数
         return new PageResp<>(result.getRecords(), result.getTotal(), result.getCurrent(), result.getSize());
@@ -143,6 +163,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         if (postDetail == null) {
             return null;
         }
+        imageMetadataService.applyDetailMetadata(postDetail);
 
         // 附件列表（公开，不限制上传者）
         List<java.util.Map<String, Object>> list = postAttachmentsMapper.selectPostAttachmentsPublic(id);
@@ -156,27 +177,19 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                 v = map.get("pointsNeeded"); if (v != null) a.setPointsNeeded(((Number) v).intValue());
                 v = map.get("createdTime"); if (v instanceof java.util.Date) a.setCreatedTime((java.util.Date) v);
 
-                // 根据积分需求和用户购买状态控制文件URL可见性
+                // 是否收费以 download_type 为准，与下载接口的权限判断一致（积分取整后可能为0，不能据此判断）
                 Long resourceId = a.getResourceId();
-                Integer pointsNeeded = a.getPointsNeeded();
-                boolean purchased = false;
-                if (pointsNeeded == null || pointsNeeded == 0) {
-                    purchased = true; // 免费资源视为已购买
-                } else if (userId != null) {
+                v = map.get("downloadType");
+                boolean paid = v != null && ((Number) v).intValue() != 0;
+                boolean purchased = !paid; // 免费资源视为已购买
+                if (paid && userId != null) {
                     purchased = resourceDownloadService.hasUserPurchased(userId, resourceId);
                 }
                 a.setPurchased(purchased);
 
-                if (pointsNeeded != null && pointsNeeded > 0) {
-                    // 积分资源：仅在已购买时返回URL，未登录或未购买一律隐藏URL
-                    if (purchased) {
-                        v = map.get("fileUrl"); if (v != null) a.setFileUrl(String.valueOf(v));
-                    } else {
-                        a.setFileUrl(null);
-                    }
-                } else {
-                    // 免费资源：始终返回URL
-                    v = map.get("fileUrl"); if (v != null) a.setFileUrl(String.valueOf(v));
+                // 资源目录不对外静态开放，不返回存储路径：有下载权限时返回签名下载链接，未登录或未购买一律不返回
+                if (purchased && resourceId != null) {
+                    a.setFileUrl(resourceDownloadService.createAttachmentLink(userId, resourceId));
                 }
 
                 return a;
@@ -189,6 +202,10 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         updateWrapper.eq(Posts::getId, id)
                 .setSql("view_count = IFNULL(view_count, 0) + 1");
         this.update(updateWrapper);
+        if (postDetail.getAuthor() != null) {
+            userStatsService.markDirty(postDetail.getAuthor().getId());
+        }
+        visitorAnalyticsService.recordPostVisit(id);
 
         // 更新返回对象中的访问数
         if (postDetail.getViewCount() == null) {
@@ -215,6 +232,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         if (postDetail == null) {
             return null;
         }
+        imageMetadataService.applyDetailMetadata(postDetail);
         List<java.util.Map<String, Object>> list = postAttachmentsMapper.selectPostAttachmentsPublic(id);
         if (list != null && !list.isEmpty()) {
             List<PostDetailResp.AttachmentInfo> attachments = list.stream().map(map -> {
@@ -287,6 +305,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         updateWrapper.eq(Posts::getId, postId)
                 .set(Posts::getLikeCount, likeCount);
         this.update(updateWrapper);
+        userStatsService.markDirty(post.getAuthorId());
 
         return newStatus;
     }
@@ -347,7 +366,10 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
      * @return 热门文章列表，按热度降序排列，包含用户状态信息
      */
     public List<PostListResp> getHotPosts(Integer limit, Long userId) {
-        return postsMapper.selectHotPostListResl(limit, userId);
+        List<PostListResp> posts = postsMapper.selectHotPostListResl(limit, userId);
+        imageMetadataService.applyListMetadata(posts);
+        imageVariantService.applyListVariants(posts);
+        return posts;
     }
 
     /**
@@ -371,7 +393,10 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
      * @return 最新文章列表，按发布时间降序排列，包含用户状态信息
      */
     public List<PostListResp> getLatestPosts(Integer limit, Long userId) {
-        return postsMapper.selectLatestPostListResl(limit, userId);
+        List<PostListResp> posts = postsMapper.selectLatestPostListResl(limit, userId);
+        imageMetadataService.applyListMetadata(posts);
+        imageVariantService.applyListVariants(posts);
+        return posts;
     }
 
     /**
@@ -391,8 +416,14 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         // 创建文章对象
         Posts post = new Posts();
         BeanUtils.copyProperties(req, post);
+        ContentModerationService.ModerationResult moderation = moderatePost(post);
         post.setAuthorId(authorId);
         post.setStatus(StringUtils.hasText(req.getStatus()) ? req.getStatus() : "draft");
+        // 审核模式下命中违禁词的文章先保存为草稿，审核通过后再恢复为请求的状态
+        String targetStatus = moderation.isNeedsReview() ? post.getStatus() : null;
+        if (moderation.isNeedsReview()) {
+            post.setStatus("draft");
+        }
         post.setCreatedAt(new Date());
         post.setUpdatedAt(new Date());
         post.setCreatedBy(authorId);
@@ -410,6 +441,8 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         if (!saved) {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "文章创建失败");
         }
+        contentModerationService.submitForReview(moderation, ContentModerationService.TARGET_POST,
+                post.getId(), authorId, post.getTitle(), targetStatus);
 
         // 处理标签关联
         if (req.getTagIds() != null && !req.getTagIds().isEmpty()) {
@@ -423,6 +456,8 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                     post.getId(), req.getDraftKey(), bindCount);
         }
 
+        userStatsService.refreshAfterCommit(authorId);
+
         // 构建响应对象
         PostCreateResp response = new PostCreateResp();
         response.setId(post.getId());
@@ -461,6 +496,16 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         // 更新文章信息
         Posts post = new Posts();
         BeanUtils.copyProperties(req, post);
+        ContentModerationService.ModerationResult moderation = moderatePost(post);
+        // 审核模式下命中违禁词的文章改为草稿，审核通过后再恢复为请求的状态
+        String targetStatus = null;
+        if (moderation.isNeedsReview()) {
+            targetStatus = StringUtils.hasText(post.getStatus()) ? post.getStatus() : existPost.getStatus();
+            post.setStatus("draft");
+        } else if ("published".equals(post.getStatus())
+                && contentModerationService.hasPendingReview(ContentModerationService.TARGET_POST, req.getId())) {
+            throw new BusinessException(ErrorCode.CONTENT_UNDER_REVIEW);
+        }
         post.setUpdatedAt(new Date());
         post.setUpdatedBy(authorId);
 
@@ -468,6 +513,9 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
         if (!updated) {
             throw new BusinessException(ErrorCode.OPERATION_ERROR, "文章更新失败");
         }
+        contentModerationService.submitForReview(moderation, ContentModerationService.TARGET_POST,
+                req.getId(), authorId, StringUtils.hasText(post.getTitle()) ? post.getTitle() : existPost.getTitle(),
+                targetStatus);
 
         // 更新标签关联
         updatePostTags(req.getId(), req.getTagIds());
@@ -479,9 +527,28 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                     req.getId(), req.getDraftKey(), bindCount);
         }
 
+        // 状态可能随编辑一起变化
+        userStatsService.refreshAfterCommit(authorId);
         return true;
     }
 
+    /**
+     * 对文章标题、摘要、正文执行违禁词审核
+     * reject 模式下命中直接抛出异常；mask 模式下把打码后的文本写回文章对象
+     *
+     * @param post 待保存的文章对象
+     * @return 合并后的审核结果，用于审核模式下入队
+     */
+    private ContentModerationService.ModerationResult moderatePost(Posts post) {
+        ContentModerationService.ModerationResult title = contentModerationService.moderate(post.getTitle());
+        ContentModerationService.ModerationResult summary = contentModerationService.moderate(post.getSummary());
+        ContentModerationService.ModerationResult content = contentModerationService.moderate(post.getContent());
+        post.setTitle(title.getText());
+        post.setSummary(summary.getText());
+        post.setContent(content.getText());
+        return title.merge(summary).merge(content);
+    }
+
     /**
      * 删除文章（软删除）
      * 软删除文章，只有作者本人可以删除，不会物理删除数据
@@ -524,6 +591,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
 
         // 软删除文章
         int result = postsMapper.deleteById(id, new Date(), authorId);
+        userStatsService.refreshAfterCommit(authorId);
         return result > 0;
     }
 
@@ -584,6 +652,12 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
             throw new BusinessException(ErrorCode.ARTICLE_PERMISSION_DENIED);
         }
 
+        // 待审核的文章不能绕过审核直接发布
+        if ("published".equals(status)
+                && contentModerationService.hasPendingReview(ContentModerationService.TARGET_POST, id)) {
+            throw new BusinessException(ErrorCode.CONTENT_UNDER_REVIEW);
+        }
+
         // 使用 LambdaUpdateWrapper 只更新指定字段
         LambdaUpdateWrapper<Posts> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.eq(Posts::getId, id)
@@ -591,7 +665,9 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                 .set(Posts::getUpdatedAt, new Date())
                 .set(Posts::getUpdatedBy, authorId);
 
-        return this.update(updateWrapper);
+        boolean updated = this.update(updateWrapper);
+        userStatsService.refreshAfterCommit(authorId);
+        return updated;
     }
 
     /**
@@ -803,6 +879,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                     .set(Posts::getUpdatedBy, operatorId);
 
             boolean result = this.update(updateWrapper);
+            userStatsService.refreshAfterCommit(existPost.getAuthorId());
             log.info("管理端文章状态更新{} - 文章ID: {}", result ? "成功" : "失败", id);
             return result;
 
@@ -852,6 +929,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
 
             // 管理员可以删除任何文章，无需权限检查
             int result = postsMapper.deleteById(id, new Date(), operatorId);
+            userStatsService.refreshAfterCommit(existPost.getAuthorId());
             boolean success = result > 0;
             log.info("管理端文章删除{} - 文章ID: {}", success ? "成功" : "失败", id);
             return success;
@@ -890,6 +968,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                     .set(Posts::getUpdatedAt, new Date());
 
             boolean result = this.update(updateWrapper);
+            userStatsService.rebuildAllAfterCommit();
             log.info("管理端批量更新文章状态{} - 影响文章数: {}", result ? "成功" : "失败", ids.size());
             return result;
 
@@ -940,6 +1019,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                     .set(Posts::getDeletedAt, new Date());
 
             int result = postsMapper.update(null, postsUpdateWrapper);
+            userStatsService.rebuildAllAfterCommit();
             log.info("管理端批量删除文章{} - 影响文章数: {}", result > 0 ? "成功" : "失败", ids.size());
             return result > 0;
         } catch (Exception e) {
@@ -967,6 +1047,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
 
             // 使用原生SQL恢复文章，绕过MyBatis-Plus的逻辑删除限制
             int result = postsMapper.restorePostById(id);
+            userStatsService.rebuildAllAfterCommit();
 
             log.info("恢复文章ID: {}, 结果: {}", id, result > 0 ? "成功" : "失败");
             return result > 0;
@@ -998,6 +1079,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
             commentsMapper.deleteChildrenByPostId(id);
             // 删除顶级评论
             commentsMapper.deleteRootsByPostId(id);
+            commentsService.evictPostComments(id);
             // 删除文章标签关联
             postTagsMapper.deleteByPostId(id);
             // 删除文章附件关联
@@ -1039,6 +1121,7 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
                 commentsMapper.deleteChildrenByPostId(postId);
                 // 删除顶级评论
                 commentsMapper.deleteRootsByPostId(postId);
+                commentsService.evictPostComments(postId);
                 // 删除文章标签关联
                 postTagsMapper.deleteByPostId(postId);
                 // 删除文章附件关联
@@ -1092,6 +1175,8 @@ public class PostsService extends ServiceImpl<PostsMapper, Posts> {
 
         // 执行分页查询，查询用户收藏的文章
         IPage<PostListResp> result = postsMapper.selectFavoritePostList(page, userId, keyword);
+        imageMetadataService.applyListMetadata(result.getRecords());
+        imageVariantService.applyListVariants(result.getRecords());
 
         // 使用MyBatis-Plus自动统计的总数
         return new PageResp<>(result.getRecords(), result.getTotal(), result.getCurrent(), result.getSize());
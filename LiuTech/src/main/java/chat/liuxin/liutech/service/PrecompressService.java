@@ -0,0 +1,202 @@
+package chat.liuxin.liutech.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.utils.FileUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 上传文件预压缩服务
+ * 可压缩类型（文本、SVG、BMP、旧版 Office 文档等）上传后在后台线程生成最高压缩级别的 .gz 兄弟文件，
+ * 静态资源映射按 Accept-Encoding 直接返回压缩文件，不再每次请求时压缩或传输未压缩的内容。
+ *
+ * 说明：
+ * 1) JDK 没有 Brotli 编码器，这里只生成 .gz；部署时用 brotli 命令离线生成的 .br 文件同样会按内容协商返回；
+ * 2) 压缩后节省不到设定比例的文件不保留压缩版本；已经是压缩格式的类型（jpg、png、zip、docx 等）不在默认类型中；
+ * 3) 只处理存放在本地磁盘的图片与文档目录（静态资源映射提供的目录）中的文件；资源目录经下载接口鉴权后返回原文件，
+ *    对象存储中的文件由客户端直连下载，都不会用到压缩文件；
+ * 4) 队列满时丢弃任务，不阻塞上传请求。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class PrecompressService {
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private StorageService storageService;
+
+    /**
+     * 是否生成预压缩文件
+     */
+    @Value("${file.static.precompress.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 生成预压缩文件的扩展名
+     */
+    @Value("${file.static.precompress.types:txt,csv,md,json,xml,svg,bmp,doc,xls,ppt,pdf}")
+    private String[] types;
+
+    /**
+     * 小于该字节数的文件不压缩
+     */
+    @Value("${file.static.precompress.min-size:1024}")
+    private long minSize;
+
+    /**
+     * 大于该字节数的文件不压缩
+     */
+    @Value("${file.static.precompress.max-size:52428800}")
+    private long maxSize;
+
+    /**
+     * 压缩后至少节省的比例，达不到时不保留压缩文件
+     */
+    @Value("${file.static.precompress.min-saving:0.1}")
+    private double minSaving;
+
+    /**
+     * 待处理队列容量
+     */
+    @Value("${file.static.precompress.queue-capacity:256}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private Set<String> typeSet;
+
+    /**
+     * 已在队列中或正在处理的文件，避免重复提交
+     */
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger sequence = new AtomicInteger();
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "precompress-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        typeSet = Set.copyOf(Arrays.asList(types));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交文件生成预压缩版本（不阻塞调用方）
+     *
+     * @param relativePath 相对路径
+     * @return 已提交返回true；未启用、不由静态映射提供、类型不需要压缩、已在处理或队列已满返回false
+     */
+    public boolean submit(String relativePath) {
+        if (!enabled || !isStaticallyServed(relativePath) || !typeSet.contains(fileUtil.getFileExtension(relativePath))
+                || !storageService.isLocal(relativePath) || !inFlight.add(relativePath)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compress(relativePath);
+                } catch (Exception e) {
+                    log.warn("生成预压缩文件失败 - 路径: {}, 原因: {}", relativePath, e.getMessage());
+                } finally {
+                    inFlight.remove(relativePath);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(relativePath);
+            log.warn("预压缩队列已满，跳过 - 路径: {}", relativePath);
+            return false;
+        }
+    }
+
+    /**
+     * 是否位于静态资源映射提供的图片或文档目录（与 WebConfig 的映射一致）
+     */
+    private boolean isStaticallyServed(String relativePath) {
+        return relativePath.startsWith(fileUploadConfig.getImagePath() + "/")
+                || relativePath.startsWith(fileUploadConfig.getDocumentPath() + "/");
+    }
+
+    /**
+     * 生成 .gz 兄弟文件（已存在时跳过）：先写到临时目录，确认有足够收益后原子移动到原文件旁边
+     */
+    private void compress(String relativePath) throws IOException {
+        Path source = fileUtil.resolve(relativePath);
+        Path target = source.resolveSibling(source.getFileName() + GZIP_SUFFIX);
+        if (!Files.isRegularFile(source) || Files.exists(target)) {
+            return;
+        }
+        long size = Files.size(source);
+        if (size < minSize || size > maxSize) {
+            return;
+        }
+        Path temp = fileUtil.createStagingFile();
+        try {
+            try (InputStream in = Files.newInputStream(source);
+                 OutputStream out = new BestGzipOutputStream(Files.newOutputStream(temp))) {
+                in.transferTo(out);
+            }
+            long compressed = Files.size(temp);
+            if (compressed > size * (1 - minSaving)) {
+                log.debug("压缩收益不足，不保留压缩文件 - 路径: {}, 原始: {} bytes, 压缩后: {} bytes",
+                        relativePath, size, compressed);
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("预压缩文件已生成 - 路径: {}, 原始: {} bytes, 压缩后: {} bytes", relativePath, size, compressed);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 使用最高压缩级别的 GZIP 输出流（只压缩一次，之后每次请求直接返回）
+     */
+    private static final class BestGzipOutputStream extends GZIPOutputStream {
+        private BestGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 64 * 1024);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
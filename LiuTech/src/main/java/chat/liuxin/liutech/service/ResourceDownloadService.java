@@ -1,29 +1,28 @@
 package chat.liuxin.liutech.service;
 
-import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Date;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
-
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.config.FileUploadConfig;
 import chat.liuxin.liutech.mapper.ResourceDownloadsMapper;
 import chat.liuxin.liutech.mapper.ResourcesMapper;
-import chat.liuxin.liutech.mapper.UserMapper;
 import chat.liuxin.liutech.model.ResourceDownloads;
 import chat.liuxin.liutech.model.Resources;
-import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.storage.StorageObject;
+import chat.liuxin.liutech.utils.FileUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -39,14 +38,35 @@ public class ResourceDownloadService {
     @Autowired
     private ResourcesMapper resourcesMapper;
     
-    @Autowired
-    private UserMapper userMapper;
-    
     @Autowired
     private ResourceDownloadsMapper resourceDownloadsMapper;
+
+    @Autowired
+    private PointsService pointsService;
+
+    @Autowired
+    private FileDownloadService fileDownloadService;
     
-    @Value("${file.upload-dir}")
-    private String uploadDir;
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    /**
+     * 签名下载链接有效期，秒
+     */
+    @Value("${file.download.link-ttl-seconds:300}")
+    private long linkTtlSeconds;
+
+    /**
+     * 文章详情中附件下载链接的有效期，秒（页面停留期间链接需保持可用）
+     */
+    @Value("${file.download.attachment-link-ttl-seconds:3600}")
+    private long attachmentLinkTtlSeconds;
     
     /**
      * 购买资源（扣减积分）
@@ -72,26 +92,15 @@ public class ResourceDownloadService {
             throw new RuntimeException("您已购买过该资源");
         }
         
-        // 检查用户积分是否足够
-        Users user = userMapper.selectById(userId);
-        if (user == null) {
-            throw new RuntimeException("用户不存在");
-        }
-        
-        BigDecimal userPoints = user.getPoints() != null ? user.getPoints() : BigDecimal.ZERO;
-        BigDecimal requiredPoints = resource.getPointsNeeded();
-        
-        if (userPoints.compareTo(requiredPoints) < 0) {
-            throw new RuntimeException("积分不足，需要 " + requiredPoints + " 积分，当前仅有 " + userPoints + " 积分");
-        }
-        
-        // 扣减用户积分
-        UpdateWrapper<Users> userUpdateWrapper = new UpdateWrapper<>();
-        userUpdateWrapper.eq("id", userId)
-                        .setSql("points = points - " + requiredPoints);
-        int updateResult = userMapper.update(null, userUpdateWrapper);
-        if (updateResult == 0) {
-            throw new RuntimeException("积分扣减失败");
+        // 扣减积分：追加流水并条件更新余额，余额不足时抛出异常；
+        // 幂等键保证同一用户对同一资源只扣一次，并发的重复购买只有一个生效
+        BigDecimal requiredPoints = resource.getPointsNeeded() != null ? resource.getPointsNeeded() : BigDecimal.ZERO;
+        if (requiredPoints.signum() > 0) {
+            PointsService.PointsChange change = pointsService.change(userId, requiredPoints.negate(),
+                    PointsService.REASON_RESOURCE_PURCHASE, String.valueOf(resourceId), "purchase:" + userId + ":" + resourceId);
+            if (!change.isApplied()) {
+                throw new RuntimeException("您已购买过该资源");
+            }
         }
         
         // 创建购买记录
@@ -110,13 +119,16 @@ public class ResourceDownloadService {
     }
     
     /**
-     * 下载资源文件
+     * 下载资源文件（支持断点续传与分段下载）
      * 
      * @param userId 用户ID
      * @param resourceId 资源ID
-     * @return 文件响应
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @throws IOException 读取文件失败时抛出
      */
-    public ResponseEntity<Resource> downloadResource(Long userId, Long resourceId) {
+    public void downloadResource(Long userId, Long resourceId, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
         // 检查资源是否存在
         Resources resource = resourcesMapper.selectById(resourceId);
         if (resource == null) {
@@ -128,32 +140,103 @@ public class ResourceDownloadService {
             throw new RuntimeException("请先购买该资源");
         }
         
-        // 构建文件路径
-        String fileUrl = resource.getFileUrl();
-        if (fileUrl.startsWith("/uploads/")) {
-            fileUrl = fileUrl.substring("/uploads/".length());
+        // 构建文件路径（file_url 为完整访问URL，取出相对上传根目录的路径）
+        String fileUrl = fileUtil.toRelativePath(resource.getFileUrl());
+        if (!storageService.isLocal(fileUrl)) {
+            downloadRemote(userId, resource, fileUrl, request, response);
+            return;
         }
-        
-        Path filePath = Paths.get(uploadDir, fileUrl);
-        File file = filePath.toFile();
-        
-        if (!file.exists()) {
+        Path filePath = fileUtil.resolve(fileUrl);
+        if (!Files.isRegularFile(filePath)) {
             throw new RuntimeException("文件不存在");
         }
         
-        // 创建文件资源
-        Resource fileResource = new FileSystemResource(file);
-        
-        // 设置响应头
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getName() + "\"");
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        
-        log.info("用户 {} 下载资源 {} - {}", userId, resourceId, resource.getName());
-        
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(fileResource);
+        // 续传与分段请求只在首次（不带Range）时记录日志
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            log.info("用户 {} 下载资源 {} - {}", userId, resourceId, resource.getName());
+        }
+        fileDownloadService.send(request, response, filePath, fileUrl, resource.getName());
+    }
+
+    /**
+     * 下载存放在对象存储中的资源：默认重定向到预签名URL，关闭预签名时由应用代理输出
+     */
+    private void downloadRemote(Long userId, Resources resource, String relativePath,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StorageObject object = storageService.stat(relativePath);
+        if (object == null) {
+            throw new RuntimeException("文件不存在");
+        }
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            log.info("用户 {} 下载资源 {} - {}", userId, resource.getId(), resource.getName());
+        }
+        if (fileUploadConfig.getStorage().getS3().isPresignDownloads()) {
+            fileDownloadService.redirect(response, storageService.accessUrl(relativePath, resource.getName()));
+        } else {
+            fileDownloadService.sendRemote(request, response, object, resource.getName());
+        }
+    }
+
+    /**
+     * 生成短时有效的签名下载链接（浏览器直接打开，无需携带token）
+     * 
+     * @param userId 用户ID
+     * @param resourceId 资源ID
+     * @return 下载链接（相对后端根路径）
+     */
+    public String createDownloadLink(Long userId, Long resourceId) {
+        Resources resource = resourcesMapper.selectById(resourceId);
+        if (resource == null) {
+            throw new RuntimeException("资源不存在");
+        }
+        if (resource.getDownloadType() == 1 && !hasUserPurchased(userId, resourceId)) {
+            throw new RuntimeException("请先购买该资源");
+        }
+        return signLink(resourceId, userId, linkTtlSeconds);
+    }
+
+    /**
+     * 为文章详情中的附件生成签名下载链接
+     * 资源目录不对外静态开放，附件只能通过签名链接下载；调用方需先确认该用户有下载权限
+     * 
+     * @param userId 用户ID（免费资源可为null）
+     * @param resourceId 资源ID
+     * @return 下载链接（相对后端根路径）
+     */
+    public String createAttachmentLink(Long userId, Long resourceId) {
+        return signLink(resourceId, userId, attachmentLinkTtlSeconds);
+    }
+
+    private String signLink(Long resourceId, Long userId, long ttlSeconds) {
+        long expires = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String signature = fileDownloadService.sign(linkPayload(resourceId, userId, expires));
+        return "/api/resource/file/" + resourceId + "?" + (userId != null ? "uid=" + userId + "&" : "")
+                + "expires=" + expires + "&sig=" + signature;
+    }
+
+    /**
+     * 通过签名链接下载资源：校验签名与有效期后按链接中的用户再次检查权限
+     * 
+     * @param resourceId 资源ID
+     * @param userId 链接中的用户ID（免费资源的匿名链接为null）
+     * @param expires 过期时间（秒级时间戳）
+     * @param signature 签名
+     * @param request HTTP请求
+     * @param response HTTP响应
+     * @throws IOException 读取文件失败时抛出
+     * @throws BusinessException 签名无效或链接已过期时抛出
+     */
+    public void downloadBySignedLink(Long resourceId, Long userId, long expires, String signature,
+                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (expires < System.currentTimeMillis() / 1000
+                || !fileDownloadService.verify(linkPayload(resourceId, userId, expires), signature)) {
+            throw new BusinessException(ErrorCode.FORBIDDEN, "下载链接无效或已过期");
+        }
+        downloadResource(userId, resourceId, request, response);
+    }
+
+    private static String linkPayload(Long resourceId, Long userId, long expires) {
+        return resourceId + ":" + userId + ":" + expires;
     }
     
     /**
@@ -0,0 +1,586 @@
+package chat.liuxin.liutech.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.ImageVariantMapper;
+import chat.liuxin.liutech.mapper.PostAttachmentsMapper;
+import chat.liuxin.liutech.mapper.ResourcesMapper;
+import chat.liuxin.liutech.mapper.StoredFileMapper;
+import chat.liuxin.liutech.model.ImageVariant;
+import chat.liuxin.liutech.model.PostAttachments;
+import chat.liuxin.liutech.model.Resources;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.resp.StorageGcResp;
+import chat.liuxin.liutech.storage.StorageObject;
+import chat.liuxin.liutech.utils.FileUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 上传存储回收服务（标记-清除）
+ * 草稿附件在绑定文章前就会创建资源与附件记录，放弃的草稿、删除的附件和彻底删除的文章会留下记录与文件，
+ * 本服务定时找出这些无人引用的数据并分批删除，报告回收的字节数。
+ *
+ * 说明：
+ * 1) 标记：未删除资源的文件，以及文章正文/封面/缩略图、评论、公告、用户头像与简介中出现的上传文件URL和资源下载链接
+ *    （含软删除的记录，软删除的文章还可能恢复）；图片变体跟随原图，原图被引用时变体保留；
+ * 2) 清除依次为：超过保留期仍未绑定文章的草稿附件 -> 不挂在任何文章上、没有付费记录且保留期内没被下载的资源（软删除并释放文件引用）
+ *    -> 引用数为0且超过宽限期的已登记文件及其变体 -> 磁盘上超过宽限期且没有任何记录的文件；
+ *    资源释放的文件刚刷新了最近引用时间，在下一轮宽限期过后回收；原文件的 .gz/.br 预压缩文件随原文件删除；
+ * 3) 删除已登记文件时在一个事务中按条件删除记录并删除文件，期间持有记录的行锁；上传在放置文件之前先登记记录，
+ *    同一内容的上传要么先刷新了最近引用时间使回收跳过，要么等回收提交后重新写入文件，避免与秒传/重复上传竞争；
+ * 4) 按批处理，批次之间暂停，并按每秒文件数与字节数限速，避免回收挤占磁盘IO；
+ * 5) 分片上传临时目录由分片上传服务自行清理，这里不处理。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class StorageGcService {
+
+    /**
+     * 资源下载链接（/api/resource/download/{id} 等）
+     */
+    private static final String RESOURCE_LINK = "/api/resource/";
+
+    private static final Pattern RESOURCE_LINK_PATTERN = Pattern.compile(Pattern.quote(RESOURCE_LINK) + "[a-z-]+/(\\d+)");
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    private StoredFileMapper storedFileMapper;
+
+    @Autowired
+    private ImageVariantMapper imageVariantMapper;
+
+    @Autowired
+    private PostAttachmentsMapper postAttachmentsMapper;
+
+    @Autowired
+    private ResourcesMapper resourcesMapper;
+
+    @Autowired
+    private StoredFileService storedFileService;
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 是否启用定时回收
+     */
+    @Value("${storage.gc.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 草稿附件与无人引用资源的保留期，毫秒
+     */
+    @Value("${storage.gc.draft-ttl-ms:604800000}")
+    private long draftTtlMs;
+
+    /**
+     * 文件最近一次被引用（或修改）后的宽限期，毫秒
+     */
+    @Value("${storage.gc.file-grace-ms:604800000}")
+    private long fileGraceMs;
+
+    /**
+     * 每批处理的记录数
+     */
+    @Value("${storage.gc.batch-size:100}")
+    private int batchSize;
+
+    /**
+     * 批次之间的暂停时间，毫秒
+     */
+    @Value("${storage.gc.batch-pause-ms:200}")
+    private long batchPauseMs;
+
+    /**
+     * 每秒最多删除的文件数，0表示不限
+     */
+    @Value("${storage.gc.max-files-per-second:200}")
+    private long maxFilesPerSecond;
+
+    /**
+     * 每秒最多删除的字节数，0表示不限
+     */
+    @Value("${storage.gc.max-bytes-per-second:104857600}")
+    private long maxBytesPerSecond;
+
+    private TransactionTemplate transactionTemplate;
+    private Pattern uploadUrlPattern;
+    private Counter reclaimedBytesCounter;
+    private Counter deletedFilesCounter;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StorageGcService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        uploadUrlPattern = Pattern.compile(Pattern.quote(fileUploadConfig.getUrlPrefix() + "/") + "([^\\s\"'<>()\\[\\]?#\\\\]+)");
+        reclaimedBytesCounter = Counter.builder("storage.gc.reclaimed.bytes")
+                .description("存储回收删除的文件字节数")
+                .register(meterRegistry);
+        deletedFilesCounter = Counter.builder("storage.gc.deleted.files")
+                .description("存储回收删除的文件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 定时回收
+     */
+    @Scheduled(cron = "${storage.gc.cron:0 30 4 * * *}")
+    public void scheduledCollect() {
+        if (!enabled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("存储回收任务正在执行，跳过本次定时回收");
+            return;
+        }
+        try {
+            doCollect(false);
+        } catch (Exception e) {
+            log.error("定时存储回收失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 手动执行一次回收
+     *
+     * @param dryRun 为true时只统计，不删除记录与文件
+     * @return 回收结果
+     */
+    public StorageGcResp collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "存储回收任务正在执行，请稍后再试");
+        }
+        try {
+            return doCollect(dryRun);
+        } catch (IOException e) {
+            log.error("存储回收失败", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "存储回收失败: " + e.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private StorageGcResp doCollect(boolean dryRun) throws IOException {
+        long start = System.currentTimeMillis();
+        Date draftBefore = new Date(start - draftTtlMs);
+        Date fileBefore = new Date(start - fileGraceMs);
+        StorageGcResp report = new StorageGcResp()
+                .setDryRun(dryRun)
+                .setExpiredDrafts(0L)
+                .setOrphanResources(0L)
+                .setDeletedFiles(0L)
+                .setDeletedVariants(0L)
+                .setUntrackedFiles(0L)
+                .setReclaimedBytes(0L)
+                .setFailures(0L);
+        Throttle throttle = new Throttle(dryRun);
+        try {
+            Marks marks = mark();
+            report.setMarkedFiles((long) marks.paths.size());
+            sweepDrafts(draftBefore, report, dryRun);
+            sweepResources(draftBefore, marks, report, dryRun);
+            sweepStoredFiles(fileBefore, marks, report, dryRun, throttle);
+            sweepUntracked(fileBefore, marks, report, dryRun, throttle);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("存储回收被中断，已处理的部分保持有效");
+        }
+        report.setElapsedMs(System.currentTimeMillis() - start);
+        log.info("存储回收完成 - {}", report);
+        return report;
+    }
+
+    /**
+     * 标记阶段：收集仍被引用的文件相对路径与资源ID
+     */
+    private Marks mark() {
+        Marks marks = new Marks();
+        storedFileMapper.scanResourceFileUrls(context -> {
+            String path = fileUtil.toUploadedPath(context.getResultObject());
+            if (path != null) {
+                marks.paths.add(path);
+            }
+        });
+        String uploadPattern = "%" + fileUploadConfig.getUrlPrefix() + "/%";
+        storedFileMapper.scanReferenceTexts(uploadPattern, "%" + RESOURCE_LINK + "%",
+                context -> collectReferences(context.getResultObject(), marks));
+        return marks;
+    }
+
+    private void collectReferences(String text, Marks marks) {
+        if (text == null) {
+            return;
+        }
+        Matcher matcher = uploadUrlPattern.matcher(text);
+        while (matcher.find()) {
+            String path = matcher.group(1);
+            marks.paths.add(path);
+            if (path.indexOf('%') >= 0) {
+                try {
+                    marks.paths.add(URLDecoder.decode(path, StandardCharsets.UTF_8));
+                } catch (IllegalArgumentException ignored) {
+                    // 不是合法的URL编码，按原样标记即可
+                }
+            }
+        }
+        Matcher resourceMatcher = RESOURCE_LINK_PATTERN.matcher(text);
+        while (resourceMatcher.find()) {
+            try {
+                marks.resourceIds.add(Long.parseLong(resourceMatcher.group(1)));
+            } catch (NumberFormatException ignored) {
+                // 超出 long 范围的数字不是资源ID
+            }
+        }
+    }
+
+    /**
+     * 删除超过保留期仍未绑定文章的草稿附件（资源在下一步作为无人引用资源处理）
+     */
+    private void sweepDrafts(Date before, StorageGcResp report, boolean dryRun) throws InterruptedException {
+        long afterId = 0L;
+        List<PostAttachments> batch;
+        do {
+            batch = postAttachmentsMapper.selectExpiredDrafts(before, afterId, batchSize);
+            for (PostAttachments attachment : batch) {
+                afterId = attachment.getId();
+                if (dryRun || postAttachmentsMapper.deleteUnboundDraft(attachment.getId()) > 0) {
+                    report.setExpiredDrafts(report.getExpiredDrafts() + 1);
+                }
+            }
+            pause(batch.size());
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * 软删除无人引用的资源并释放文件引用
+     */
+    private void sweepResources(Date before, Marks marks, StorageGcResp report, boolean dryRun)
+            throws InterruptedException {
+        long afterId = 0L;
+        List<Resources> batch;
+        do {
+            batch = resourcesMapper.selectOrphans(before, afterId, batchSize);
+            for (Resources resource : batch) {
+                afterId = resource.getId();
+                if (marks.resourceIds.contains(resource.getId())) {
+                    continue;
+                }
+                if (dryRun || releaseOrphan(resource)) {
+                    report.setOrphanResources(report.getOrphanResources() + 1);
+                }
+            }
+            pause(batch.size());
+        } while (batch.size() == batchSize);
+    }
+
+    private boolean releaseOrphan(Resources resource) {
+        Boolean released = transactionTemplate.execute(status -> {
+            if (resourcesMapper.softDeleteOrphan(resource.getId()) == 0) {
+                return false;
+            }
+            String path = fileUtil.toUploadedPath(resource.getFileUrl());
+            if (path != null) {
+                storedFileService.releaseReference(path);
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(released)) {
+            log.info("回收无人引用的资源 - 资源ID: {}, 名称: {}", resource.getId(), resource.getName());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 删除引用数为0、超过宽限期且未被标记的已登记文件及其变体
+     */
+    private void sweepStoredFiles(Date before, Marks marks, StorageGcResp report, boolean dryRun, Throttle throttle)
+            throws InterruptedException {
+        long afterId = 0L;
+        List<StoredFile> batch;
+        do {
+            batch = storedFileMapper.selectUnreferenced(before, afterId, batchSize);
+            for (StoredFile file : batch) {
+                afterId = file.getId();
+                sweepStoredFile(file, before, marks, report, dryRun, throttle);
+            }
+            pause(batch.size());
+        } while (batch.size() == batchSize);
+    }
+
+    private void sweepStoredFile(StoredFile file, Date before, Marks marks, StorageGcResp report, boolean dryRun,
+                                 Throttle throttle) throws InterruptedException {
+        String path = file.getRelativePath();
+        List<ImageVariant> variants = imageVariantMapper.selectBySource(path);
+        if (marks.paths.contains(path) || variants.stream().anyMatch(v -> marks.paths.contains(v.getRelativePath()))) {
+            return;
+        }
+        if (dryRun) {
+            report.setDeletedFiles(report.getDeletedFiles() + 1);
+            report.setDeletedVariants(report.getDeletedVariants() + variants.size());
+            report.setReclaimedBytes(report.getReclaimedBytes() + file.getSize()
+                    + variants.stream().mapToLong(ImageVariant::getSize).sum());
+            return;
+        }
+        // 删除记录与删除文件在同一事务中完成，期间持有该记录的行锁：同一内容的上传在放置文件之前先登记记录
+        // （见 StoredFileService.storeStaged），会在行锁上等待，回收提交后发现文件不存在而重新写入；
+        // 先完成登记的上传已刷新最近引用时间，这里的删除条件不再满足
+        long[] bytes = {0L};
+        Boolean deleted = transactionTemplate.execute(status -> {
+            if (storedFileMapper.deleteUnreferenced(file.getId(), before) == 0) {
+                return false;
+            }
+            long size = deleteQuietly(path, report);
+            if (size < 0) {
+                // 文件删除失败时保留记录，下一轮重试
+                status.setRollbackOnly();
+                return false;
+            }
+            if (size > 0) {
+                bytes[0] += size;
+                report.setDeletedFiles(report.getDeletedFiles() + 1);
+            }
+            for (String suffix : FileUtil.PRECOMPRESSED_SUFFIXES) {
+                bytes[0] += Math.max(0L, deleteQuietly(path + suffix, report));
+            }
+            for (ImageVariant variant : variants) {
+                long variantSize = deleteQuietly(variant.getRelativePath(), report);
+                if (variantSize >= 0) {
+                    bytes[0] += variantSize;
+                    report.setDeletedVariants(report.getDeletedVariants() + 1);
+                }
+            }
+            imageVariantMapper.deleteBySource(path);
+            return true;
+        });
+        if (Boolean.TRUE.equals(deleted)) {
+            recordReclaimed(report, 1 + variants.size(), bytes[0]);
+            throttle.acquire(1 + variants.size(), bytes[0]);
+        }
+    }
+
+    /**
+     * 删除磁盘上超过宽限期、未被标记且没有任何记录的文件（登记功能上线前的历史文件等）
+     */
+    private void sweepUntracked(Date before, Marks marks, StorageGcResp report, boolean dryRun, Throttle throttle)
+            throws IOException, InterruptedException {
+        sweepUntrackedLocal(before, marks, report, dryRun, throttle);
+        for (String subPath : List.of(fileUploadConfig.getImagePath(), fileUploadConfig.getDocumentPath(),
+                fileUploadConfig.getResourcePath())) {
+            if (!storageService.isLocalDir(subPath)) {
+                sweepUntrackedRemote(subPath, before, marks, report, dryRun, throttle);
+            }
+        }
+    }
+
+    private void sweepUntrackedLocal(Date before, Marks marks, StorageGcResp report, boolean dryRun, Throttle throttle)
+            throws IOException, InterruptedException {
+        Path base = fileUtil.getBasePath();
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        long cutoff = before.getTime();
+        List<String> candidates = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(base)) {
+            Iterator<Path> it = paths.filter(Files::isRegularFile).iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                Path relative = base.relativize(file);
+                if (relative.startsWith(FileUtil.STAGING_DIR)) {
+                    continue;
+                }
+                String path = relative.toString().replace(File.separatorChar, '/');
+                // 已切换到对象存储的目录下残留的本地文件不再对外提供，也不在这里删除；
+                // 预压缩文件跟随原文件，原文件还在时保留
+                if (!storageService.isLocal(path) || fileUtil.precompressedSource(path) != null
+                        || marks.paths.contains(path)
+                        || Files.getLastModifiedTime(file).toMillis() >= cutoff) {
+                    continue;
+                }
+                candidates.add(path);
+                if (candidates.size() >= batchSize) {
+                    sweepUntrackedBatch(candidates, report, dryRun, throttle);
+                    candidates.clear();
+                }
+            }
+        }
+        if (!candidates.isEmpty()) {
+            sweepUntrackedBatch(candidates, report, dryRun, throttle);
+        }
+    }
+
+    /**
+     * 对象存储中的子目录：列举在IO线程中进行，只收集超过宽限期且未被标记的键，再在当前线程分批核对与删除
+     */
+    private void sweepUntrackedRemote(String subPath, Date before, Marks marks, StorageGcResp report, boolean dryRun,
+                                      Throttle throttle) throws IOException, InterruptedException {
+        long cutoff = before.getTime();
+        List<String> candidates = new ArrayList<>();
+        storageService.list(subPath, object -> {
+            if (!marks.paths.contains(object.getKey()) && object.getLastModified() < cutoff) {
+                candidates.add(object.getKey());
+            }
+        });
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            sweepUntrackedBatch(candidates.subList(from, Math.min(candidates.size(), from + batchSize)),
+                    report, dryRun, throttle);
+        }
+    }
+
+    private void sweepUntrackedBatch(List<String> candidates, StorageGcResp report, boolean dryRun, Throttle throttle)
+            throws InterruptedException {
+        Set<String> untracked = new HashSet<>(candidates);
+        for (StoredFile stored : storedFileMapper.selectByPaths(candidates)) {
+            untracked.remove(stored.getRelativePath());
+        }
+        untracked.removeAll(imageVariantMapper.selectExistingPaths(candidates));
+        long files = 0L;
+        long bytes = 0L;
+        for (String path : untracked) {
+            if (dryRun) {
+                try {
+                    StorageObject object = storageService.stat(path);
+                    if (object != null) {
+                        bytes += object.getSize();
+                        files++;
+                    }
+                } catch (IOException ignored) {
+                    // 统计期间文件已被删除或存储暂时不可用
+                }
+                continue;
+            }
+            long size = deleteQuietly(path, report);
+            if (size >= 0) {
+                files++;
+                bytes += size;
+            }
+        }
+        report.setUntrackedFiles(report.getUntrackedFiles() + files);
+        if (dryRun) {
+            report.setReclaimedBytes(report.getReclaimedBytes() + bytes);
+        } else {
+            recordReclaimed(report, files, bytes);
+        }
+        throttle.acquire(files, bytes);
+        pause(candidates.size());
+    }
+
+    /**
+     * 删除文件，失败时计数并记录日志
+     *
+     * @return 删除的字节数；文件不存在返回0，删除失败返回-1
+     */
+    private long deleteQuietly(String relativePath, StorageGcResp report) {
+        try {
+            StorageObject object = storageService.stat(relativePath);
+            if (object == null) {
+                return 0L;
+            }
+            storageService.delete(relativePath);
+            return object.getSize();
+        } catch (IOException e) {
+            report.setFailures(report.getFailures() + 1);
+            log.warn("回收文件失败 - 路径: {}, 原因: {}", relativePath, e.getMessage());
+            return -1L;
+        }
+    }
+
+    private void recordReclaimed(StorageGcResp report, long files, long bytes) {
+        report.setReclaimedBytes(report.getReclaimedBytes() + bytes);
+        deletedFilesCounter.increment(files);
+        reclaimedBytesCounter.increment(bytes);
+    }
+
+    /**
+     * 处理完一批记录后暂停，空批次不暂停
+     */
+    private void pause(int processed) throws InterruptedException {
+        if (processed > 0 && batchPauseMs > 0) {
+            Thread.sleep(batchPauseMs);
+        }
+    }
+
+    /**
+     * 标记结果
+     */
+    private static final class Marks {
+        private final Set<String> paths = new HashSet<>();
+        private final Set<Long> resourceIds = new HashSet<>();
+    }
+
+    /**
+     * 删除限速：累计删除的文件数与字节数超出按速率应耗费的时间时睡眠补齐
+     */
+    private final class Throttle {
+        private final boolean disabled;
+        private final long startNanos = System.nanoTime();
+        private long files;
+        private long bytes;
+
+        private Throttle(boolean disabled) {
+            this.disabled = disabled;
+        }
+
+        private void acquire(long fileCount, long byteCount) throws InterruptedException {
+            if (disabled) {
+                return;
+            }
+            files += fileCount;
+            bytes += byteCount;
+            double seconds = Math.max(maxFilesPerSecond > 0 ? (double) files / maxFilesPerSecond : 0,
+                    maxBytesPerSecond > 0 ? (double) bytes / maxBytesPerSecond : 0);
+            long waitMillis = (long) (seconds * 1000) - (System.nanoTime() - startNanos) / 1_000_000;
+            if (waitMillis > 0) {
+                Thread.sleep(waitMillis);
+            }
+        }
+    }
+}
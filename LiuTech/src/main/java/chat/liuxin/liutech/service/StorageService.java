@@ -0,0 +1,324 @@
+package chat.liuxin.liutech.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.storage.LocalStorageBackend;
+import chat.liuxin.liutech.storage.S3StorageBackend;
+import chat.liuxin.liutech.storage.StorageBackend;
+import chat.liuxin.liutech.storage.StorageObject;
+import chat.liuxin.liutech.utils.FileUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 存储服务
+ * 按上传子目录（images、documents、resources）选择存储后端（本地磁盘或 S3 兼容对象存储），
+ * 对上层屏蔽后端差异；对象键即相对上传根目录的路径，与 /uploads/ 下的访问URL一一对应，
+ * 切换后端不改变已保存的URL。
+ *
+ * 说明：
+ * 1) 后端接口是异步的，本服务为现有同步调用方提供等待结果的便捷方法；
+ *    上传仍需等待写入完成，因为数据库记录必须指向已持久化的内容；
+ * 2) 图片处理等需要随机读取的场景通过 openLocal 取得本地文件，远程对象先下载到临时目录；
+ * 3) 远程对象的下载优先返回预签名URL由客户端直连对象存储，不占用应用线程转发字节。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class StorageService {
+
+    @Autowired
+    private FileUploadConfig fileUploadConfig;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    private ThreadPoolExecutor ioExecutor;
+    private LocalStorageBackend localBackend;
+
+    /**
+     * 上传子目录 -> 存储后端
+     */
+    private final Map<String, StorageBackend> backends = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        FileUploadConfig.Storage storage = fileUploadConfig.getStorage();
+        AtomicInteger sequence = new AtomicInteger();
+        int threads = Math.max(1, storage.getIoThreads());
+        ioExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "storage-io-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ioExecutor.allowCoreThreadTimeOut(true);
+
+        localBackend = new LocalStorageBackend(fileUtil.getBasePath(), Set.of(FileUtil.STAGING_DIR), ioExecutor);
+        StorageBackend s3Backend = null;
+        Map<String, String> selected = Map.of(
+                fileUploadConfig.getImagePath(), storage.getImages(),
+                fileUploadConfig.getDocumentPath(), storage.getDocuments(),
+                fileUploadConfig.getResourcePath(), storage.getResources());
+        for (Map.Entry<String, String> entry : selected.entrySet()) {
+            String name = entry.getValue() == null ? LocalStorageBackend.NAME : entry.getValue().trim().toLowerCase();
+            if (LocalStorageBackend.NAME.equals(name)) {
+                backends.put(entry.getKey(), localBackend);
+            } else if (S3StorageBackend.NAME.equals(name)) {
+                if (entry.getKey().equals(fileUploadConfig.getResourcePath())
+                        && StringUtils.hasText(storage.getS3().getPublicBaseUrl())) {
+                    // 公开访问地址意味着存储桶可匿名读取，资源目录（含积分资源）会绕过下载接口的鉴权
+                    throw new IllegalStateException("资源目录存放在对象存储时不能配置 public-base-url，资源只能经下载接口鉴权后访问");
+                }
+                if (s3Backend == null) {
+                    s3Backend = new S3StorageBackend(storage.getS3(), ioExecutor);
+                }
+                backends.put(entry.getKey(), s3Backend);
+            } else {
+                throw new IllegalStateException("未知的存储后端: " + entry.getValue() + "（目录: " + entry.getKey() + "）");
+            }
+            log.info("上传存储后端 - 目录: {}, 后端: {}", entry.getKey(), name);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * 相对路径所属的存储后端（按第一级目录选择，未配置的目录使用本地磁盘）
+     *
+     * @param relativePath 相对路径
+     * @return 存储后端
+     */
+    public StorageBackend backendFor(String relativePath) {
+        int slash = relativePath.indexOf('/');
+        String dir = slash > 0 ? relativePath.substring(0, slash) : relativePath;
+        return backends.getOrDefault(dir, localBackend);
+    }
+
+    /**
+     * 相对路径是否存放在本地磁盘
+     *
+     * @param relativePath 相对路径
+     * @return 是否本地
+     */
+    public boolean isLocal(String relativePath) {
+        return backendFor(relativePath) == localBackend;
+    }
+
+    /**
+     * 上传子目录是否存放在本地磁盘
+     *
+     * @param subPath 子目录（如 images）
+     * @return 是否本地
+     */
+    public boolean isLocalDir(String subPath) {
+        return backends.getOrDefault(subPath, localBackend) == localBackend;
+    }
+
+    /**
+     * 把已写完并算出摘要的临时文件放到内容寻址路径
+     * 目标已存在时视为命中（内容相同），临时文件留给调用方删除
+     *
+     * @param temp 临时文件
+     * @param subPath 子路径
+     * @param sha256 文件内容SHA-256
+     * @param extension 扩展名
+     * @param size 文件大小
+     * @return 文件存储信息
+     * @throws IOException IO异常
+     */
+    public StoredFile commit(Path temp, String subPath, String sha256, String extension, long size) throws IOException {
+        String relativePath = fileUtil.contentPath(subPath, sha256, extension);
+        boolean written = await(backendFor(relativePath).putIfAbsent(relativePath, temp));
+        return new StoredFile()
+                .setSha256(sha256)
+                .setRelativePath(relativePath)
+                .setSize(size)
+                .setDeduplicated(!written);
+    }
+
+    /**
+     * 写入文件（已存在时覆盖，用于图片变体等派生文件）
+     *
+     * @param temp 临时文件（本地后端会移走，调用方删除仍然存在的临时文件即可）
+     * @param relativePath 相对路径
+     * @return 文件大小
+     * @throws IOException IO异常
+     */
+    public long put(Path temp, String relativePath) throws IOException {
+        long size = Files.size(temp);
+        await(backendFor(relativePath).put(relativePath, temp));
+        return size;
+    }
+
+    /**
+     * 文件是否存在
+     *
+     * @param relativePath 相对路径
+     * @return 是否存在
+     * @throws IOException IO异常
+     */
+    public boolean exists(String relativePath) throws IOException {
+        return await(backendFor(relativePath).exists(relativePath));
+    }
+
+    /**
+     * 文件元数据
+     *
+     * @param relativePath 相对路径
+     * @return 元数据，不存在时为null
+     * @throws IOException IO异常
+     */
+    public StorageObject stat(String relativePath) throws IOException {
+        return await(backendFor(relativePath).head(relativePath));
+    }
+
+    /**
+     * 删除文件
+     *
+     * @param relativePath 相对路径
+     * @return 删除返回true，不存在返回false
+     * @throws IOException IO异常
+     */
+    public boolean delete(String relativePath) throws IOException {
+        return await(backendFor(relativePath).delete(relativePath));
+    }
+
+    /**
+     * 读取文件的一段
+     *
+     * @param relativePath 相对路径
+     * @param start 起始字节（含）
+     * @param end 结束字节（含）
+     * @return 内容流（调用方负责关闭）
+     * @throws IOException IO异常，文件不存在时为 NoSuchFileException
+     */
+    public InputStream openRange(String relativePath, long start, long end) throws IOException {
+        return await(backendFor(relativePath).getRange(relativePath, start, end));
+    }
+
+    /**
+     * 列出子目录下的全部文件
+     *
+     * @param subPath 子目录（如 images）
+     * @param consumer 文件处理器（在IO线程中调用）
+     * @throws IOException IO异常
+     */
+    public void list(String subPath, Consumer<StorageObject> consumer) throws IOException {
+        await(backendFor(subPath).list(subPath + "/", consumer));
+    }
+
+    /**
+     * 客户端可直接访问文件的URL（远程后端的公开地址或预签名URL）
+     *
+     * @param relativePath 相对路径
+     * @param downloadName 下载文件名（为null时内联访问）
+     * @return URL；本地文件返回null
+     */
+    public String accessUrl(String relativePath, String downloadName) {
+        return backendFor(relativePath).accessUrl(relativePath, downloadName,
+                Duration.ofSeconds(fileUploadConfig.getStorage().getS3().getPresignTtlSeconds()));
+    }
+
+    /**
+     * 取得文件的本地副本（本地文件直接返回原路径，远程文件下载到临时目录，关闭时删除）
+     *
+     * @param relativePath 相对路径
+     * @return 本地文件
+     * @throws IOException IO异常，文件不存在时为 NoSuchFileException
+     */
+    public LocalFile openLocal(String relativePath) throws IOException {
+        StorageBackend backend = backendFor(relativePath);
+        Path path = backend.localPath(relativePath);
+        if (path != null) {
+            return new LocalFile(path, false);
+        }
+        Path temp = fileUtil.createStagingFile();
+        try (InputStream in = await(backend.get(relativePath))) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            return new LocalFile(temp, true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 等待异步操作完成，把异常还原为 IOException
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待存储操作时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                    && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 文件的本地副本
+     */
+    public static final class LocalFile implements AutoCloseable {
+        private final Path path;
+        private final boolean temporary;
+
+        private LocalFile(Path path, boolean temporary) {
+            this.path = path;
+            this.temporary = temporary;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
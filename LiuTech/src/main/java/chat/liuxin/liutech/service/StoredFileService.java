@@ -0,0 +1,333 @@
+package chat.liuxin.liutech.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.StoredFileMapper;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.resp.StorageDedupResp;
+import chat.liuxin.liutech.utils.FileUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 上传文件存储服务
+ * 上传文件按内容 SHA-256 寻址存放（见 FileUtil），本服务负责登记文件、维护引用数、
+ * 按哈希秒传，以及把历史上传目录中的重复文件合并为硬链接。
+ *
+ * 说明：
+ * 1) 引用数只统计 resources 记录（post_attachments 通过 resource_id 指向资源）；
+ *    编辑器内嵌图片写在文章正文里，不计入引用数；
+ * 2) 删除资源只减少引用数，不删除物理文件：同一内容可能还被其他资源或文章正文使用，
+ *    引用数为0的文件交给回收任务按最近引用时间清理；
+ * 3) 历史文件不改路径（文章正文中的旧URL继续可用），重复内容替换为指向同一 inode 的硬链接；
+ *    硬链接去重只处理本地磁盘上的文件，对象存储中的文件按键寻址，不存在重复副本。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class StoredFileService {
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    /**
+     * 重算引用数时单条 UPDATE 的最大路径数
+     */
+    private static final int REF_COUNT_BATCH_SIZE = 500;
+
+    @Autowired
+    private StoredFileMapper storedFileMapper;
+
+    @Autowired
+    private FileUtil fileUtil;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private PrecompressService precompressService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 去重迁移是否正在执行
+     */
+    private final AtomicBoolean deduplicating = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 保存上传文件并登记（内容已存在时复用已有文件）
+     *
+     * @param file 上传的文件
+     * @param subPath 子路径（如：images、documents、resources）
+     * @return 文件存储信息
+     * @throws IOException IO异常
+     */
+    public StoredFile store(MultipartFile file, String subPath) throws IOException {
+        Path temp = fileUtil.createStagingFile();
+        try {
+            String sha256 = fileUtil.copyToStaging(file, temp);
+            StoredFile stored = storeStaged(temp, subPath, sha256,
+                    fileUtil.getFileExtension(file.getOriginalFilename()), Files.size(temp));
+            if (Boolean.TRUE.equals(stored.getDeduplicated())) {
+                log.info("上传命中已有文件 - 路径: {}, 大小: {} bytes", stored.getRelativePath(), stored.getSize());
+            }
+            return stored;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把已写完的临时文件放到内容寻址路径并登记（分片上传合并后调用）
+     *
+     * @param temp 临时文件（命中已有文件时保留，由调用方删除）
+     * @param subPath 子路径
+     * @param sha256 文件内容SHA-256
+     * @param extension 扩展名
+     * @param size 文件大小
+     * @return 文件存储信息
+     * @throws IOException IO异常
+     */
+    public StoredFile storeStaged(Path temp, String subPath, String sha256, String extension, long size) throws IOException {
+        // 先登记（刷新最近引用时间）再放置文件：回收任务在同一条记录的行锁内删除记录与文件，
+        // 登记要么先完成使回收跳过，要么等回收提交后再放置，不会出现命中一个随后被回收的文件
+        storedFileMapper.upsertSeen(new StoredFile()
+                .setSha256(sha256)
+                .setRelativePath(fileUtil.contentPath(subPath, sha256, extension))
+                .setSize(size));
+        StoredFile stored = storageService.commit(temp, subPath, sha256, extension, size);
+        // 可压缩类型在后台生成 .gz，已存在时跳过
+        precompressService.submit(stored.getRelativePath());
+        return stored;
+    }
+
+    /**
+     * 登记上传目录中已有但尚未登记的文件（历史文件）
+     *
+     * @param relativePath 相对路径
+     * @return 文件存在并已登记返回true
+     * @throws IOException IO异常
+     */
+    public boolean registerExisting(String relativePath) throws IOException {
+        if (!storageService.exists(relativePath)) {
+            return false;
+        }
+        try (StorageService.LocalFile file = storageService.openLocal(relativePath)) {
+            storedFileMapper.upsertSeen(new StoredFile()
+                    .setSha256(fileUtil.sha256Hex(file.getPath()))
+                    .setRelativePath(relativePath)
+                    .setSize(Files.size(file.getPath())));
+        }
+        return true;
+    }
+
+    /**
+     * 按内容哈希查找已有文件（秒传）
+     *
+     * @param sha256 文件内容SHA-256
+     * @param subPath 子路径
+     * @param extension 扩展名
+     * @return 已有文件，不存在时返回null
+     */
+    public StoredFile lookup(String sha256, String subPath, String extension) {
+        String hash = sha256 == null ? "" : sha256.toLowerCase();
+        if (!SHA256_PATTERN.matcher(hash).matches()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "SHA-256 格式不正确");
+        }
+        StoredFile stored = storedFileMapper.selectByPath(fileUtil.contentPath(subPath, hash, extension));
+        if (stored == null) {
+            return null;
+        }
+        // 先刷新最近引用时间再确认文件存在，与 storeStaged 同序，确认之后的文件不会再被回收
+        storedFileMapper.upsertSeen(stored);
+        try {
+            if (!storageService.exists(stored.getRelativePath())) {
+                return null;
+            }
+        } catch (IOException e) {
+            log.warn("查询已有文件失败，按未命中处理 - 路径: {}, 原因: {}", stored.getRelativePath(), e.getMessage());
+            return null;
+        }
+        return stored.setDeduplicated(true);
+    }
+
+    /**
+     * 增加引用（加入当前事务）
+     *
+     * @param relativePath 相对路径
+     */
+    public void addReference(String relativePath) {
+        if (storedFileMapper.incrementRef(relativePath) == 0) {
+            log.warn("增加引用时未找到文件记录 - 路径: {}", relativePath);
+        }
+    }
+
+    /**
+     * 释放引用（加入当前事务），物理文件由回收任务清理
+     *
+     * @param relativePath 相对路径
+     */
+    public void releaseReference(String relativePath) {
+        storedFileMapper.decrementRef(relativePath);
+    }
+
+    /**
+     * 扫描上传目录，把内容重复的文件替换为硬链接，登记全部文件并按资源记录重算引用数
+     *
+     * @param dryRun 为true时只统计，不修改磁盘与数据库
+     * @return 迁移结果
+     */
+    public StorageDedupResp deduplicate(boolean dryRun) {
+        if (!deduplicating.compareAndSet(false, true)) {
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "去重任务正在执行，请稍后再试");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            StorageDedupResp report = new StorageDedupResp()
+                    .setDryRun(dryRun)
+                    .setScannedFiles(0L)
+                    .setScannedBytes(0L)
+                    .setDuplicateFiles(0L)
+                    .setReclaimedBytes(0L)
+                    .setLinkFailures(0L)
+                    .setReferencedFiles(0L);
+            scanAndLink(report, dryRun);
+            if (!dryRun) {
+                report.setReferencedFiles((long) recountReferences());
+            }
+            report.setElapsedMs(System.currentTimeMillis() - start);
+            log.info("上传目录去重完成 - {}", report);
+            return report;
+        } catch (IOException e) {
+            log.error("上传目录去重失败", e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "上传目录去重失败: " + e.getMessage());
+        } finally {
+            deduplicating.set(false);
+        }
+    }
+
+    /**
+     * 逐个文件计算哈希：每个哈希第一次出现的文件作为保留文件，之后的同内容文件替换为它的硬链接
+     */
+    private void scanAndLink(StorageDedupResp report, boolean dryRun) throws IOException {
+        Path base = fileUtil.getBasePath();
+        if (!Files.isDirectory(base)) {
+            return;
+        }
+        Map<String, Path> canonical = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(base)) {
+            Iterator<Path> it = paths.filter(Files::isRegularFile).iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                Path relative = base.relativize(file);
+                if (relative.startsWith(FileUtil.STAGING_DIR)
+                        || fileUtil.precompressedSource(relative.toString().replace(File.separatorChar, '/')) != null) {
+                    continue;
+                }
+                long size = Files.size(file);
+                String sha256 = fileUtil.sha256Hex(file);
+                report.setScannedFiles(report.getScannedFiles() + 1);
+                report.setScannedBytes(report.getScannedBytes() + size);
+
+                Path first = canonical.putIfAbsent(sha256, file);
+                if (first != null && !Files.isSameFile(first, file)) {
+                    report.setDuplicateFiles(report.getDuplicateFiles() + 1);
+                    if (dryRun || replaceWithLink(first, file)) {
+                        report.setReclaimedBytes(report.getReclaimedBytes() + size);
+                    } else {
+                        report.setLinkFailures(report.getLinkFailures() + 1);
+                    }
+                }
+                if (!dryRun) {
+                    storedFileMapper.upsertSeen(new StoredFile()
+                            .setSha256(sha256)
+                            .setRelativePath(relative.toString().replace(File.separatorChar, '/'))
+                            .setSize(size));
+                }
+            }
+        }
+    }
+
+    /**
+     * 用指向保留文件的硬链接原子替换重复文件（先建临时链接再改名，替换过程中旧URL始终可读）
+     *
+     * @return 替换成功返回true；文件系统不支持硬链接或跨文件系统时返回false，原文件保持不变
+     */
+    private boolean replaceWithLink(Path target, Path duplicate) {
+        Path link = duplicate.resolveSibling(duplicate.getFileName() + "." + UUID.randomUUID().toString().replace("-", "") + ".link");
+        try {
+            Files.createLink(link, target);
+            Files.move(link, duplicate, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("创建硬链接失败，保留原文件 - 文件: {}, 目标: {}, 原因: {}", duplicate, target, e.getMessage());
+            try {
+                Files.deleteIfExists(link);
+            } catch (IOException ignored) {
+                // 临时链接删除失败不影响原文件
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 按未删除的资源记录重算引用数
+     *
+     * @return 被引用的文件数
+     */
+    private int recountReferences() {
+        Map<String, Integer> counts = new HashMap<>();
+        storedFileMapper.scanResourceFileUrls(context ->
+                counts.merge(fileUtil.toRelativePath(context.getResultObject()), 1, Integer::sum));
+        List<Map<String, Integer>> batches = new ArrayList<>();
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= REF_COUNT_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            storedFileMapper.resetRefCounts();
+            for (Map<String, Integer> b : batches) {
+                storedFileMapper.batchSetRefCounts(b);
+            }
+        });
+        return counts.size();
+    }
+}
@@ -0,0 +1,140 @@
+package chat.liuxin.liutech.service;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+import chat.liuxin.liutech.mapper.RevokedTokenMapper;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.RevokedToken;
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * token吊销服务
+ * 负责 token 版本号与吊销名单的持久化，并把结果同步到内存中的 TokenRevocationRegistry，
+ * 认证过滤器只查内存登记表，每次请求都不访问数据库。
+ *
+ * 数据来源：
+ * 1) users.token_version：改密码、管理员禁用/删除、“退出全部设备”时加1；
+ * 2) revoked_tokens：单个token退出登录时写入，token过期后清理。
+ *
+ * 启动完成后加载一次，之后定时增量同步（多实例部署时获取其他实例的吊销结果）；
+ * 本实例的吊销在事务提交后立即写入内存，不等待同步。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class TokenRevocationService {
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private RevokedTokenMapper revokedTokenMapper;
+
+    /**
+     * 应用启动完成后加载吊销数据
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        sync();
+        log.info("token吊销数据加载完成 - 版本号记录: {}, 吊销名单: {}",
+                tokenRevocationRegistry.versionCount(), tokenRevocationRegistry.revokedCount());
+    }
+
+    /**
+     * 定时从数据库同步吊销数据并清理过期记录
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-interval-ms:60000}")
+    public void sync() {
+        try {
+            for (Users user : userMapper.selectRevokedTokenVersions()) {
+                tokenRevocationRegistry.updateVersion(user.getId(), user.getTokenVersion());
+            }
+
+            Date now = new Date();
+            List<RevokedToken> revoked = revokedTokenMapper.selectList(new LambdaQueryWrapper<RevokedToken>()
+                    .gt(RevokedToken::getExpiresAt, now));
+            for (RevokedToken token : revoked) {
+                tokenRevocationRegistry.revoke(token.getTokenId(), token.getExpiresAt().getTime());
+            }
+
+            tokenRevocationRegistry.purgeExpired(now.getTime());
+            revokedTokenMapper.delete(new LambdaQueryWrapper<RevokedToken>()
+                    .le(RevokedToken::getExpiresAt, now));
+        } catch (Exception e) {
+            log.error("同步token吊销数据失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 登记用户当前的token版本号（登录签发token时调用，懒加载用户版本号）
+     *
+     * @param user 用户信息
+     * @return 用户当前的token版本号
+     */
+    public int currentVersion(Users user) {
+        int version = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        tokenRevocationRegistry.updateVersion(user.getId(), version);
+        return version;
+    }
+
+    /**
+     * 使用户已签发的全部token失效（版本号加1）
+     * 应在修改用户的事务中调用，提交后立即生效
+     *
+     * @param userId 用户ID
+     */
+    public void revokeAllTokens(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userMapper.incrementTokenVersion(userId);
+        Integer version = userMapper.selectTokenVersion(userId);
+        if (version == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> tokenRevocationRegistry.updateVersion(userId, version));
+        log.info("用户全部token已吊销 - 用户ID: {}, 新版本号: {}", userId, version);
+    }
+
+    /**
+     * 吊销单个token（退出登录）
+     *
+     * @param token 已验签的token
+     */
+    public void revokeToken(JwtUtil.ParsedToken token) {
+        if (token == null || token.getTokenId() == null || token.getExpiration() == null) {
+            // 旧版本签发的token没有jti，只能通过版本号整体失效
+            if (token != null) {
+                revokeAllTokens(token.getUserId());
+            }
+            return;
+        }
+        RevokedToken revoked = new RevokedToken()
+                .setTokenId(token.getTokenId())
+                .setUserId(token.getUserId())
+                .setExpiresAt(token.getExpiration())
+                .setCreatedAt(new Date());
+        revokedTokenMapper.insert(revoked);
+        long expiresAt = token.getExpiration().getTime();
+        TransactionUtils.afterCommit(() -> tokenRevocationRegistry.revoke(token.getTokenId(), expiresAt));
+        log.info("token已吊销 - 用户ID: {}, tokenId: {}", token.getUserId(), token.getTokenId());
+    }
+}
@@ -9,7 +9,7 @@ import chat.liuxin.liutech.req.RegisterReq;
 import chat.liuxin.liutech.req.ChangePasswordReq;
 import chat.liuxin.liutech.resp.UserResp;
 import chat.liuxin.liutech.resp.LoginResp;
-import chat.liuxin.liutech.utils.JwtUtil;
+import chat.liuxin.auth.utils.JwtUtil;
 import chat.liuxin.liutech.utils.UserUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
@@ -44,6 +44,18 @@ public class UserAuthService {
     @Autowired
     private UserUtils userUtils;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private LoginGuardService loginGuardService;
+
+    @Autowired
+    private LastLoginService lastLoginService;
+
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
+
     /**
      * 密码加密器，使用BCrypt算法进行密码加密
      */
@@ -69,6 +81,7 @@ public class UserAuthService {
 
         // 3. 保存用户到数据库
         saveUserWithExceptionHandling(user);
+        userAvailabilityService.addAfterCommit(user.getUsername(), user.getEmail());
 
         // 4. 转换为响应对象
         return convertToUserResl(user);
@@ -77,6 +90,7 @@ public class UserAuthService {
     /**
      * 验证用户名和邮箱是否已存在
      * 在用户注册前检查用户名和邮箱的唯一性
+     * 先查内存布隆过滤器，确定不存在时不执行SQL；并发注册同名用户由唯一索引兜底
      *
      * @param username 用户名
      * @param email 邮箱地址
@@ -86,16 +100,14 @@ public class UserAuthService {
      */
     private void validateUserNotExists(String username, String email) {
         // 检查用户名是否已存在
-        List<Users> existingUsers = userMapper.findByUserName(username);
-        if (existingUsers != null && !existingUsers.isEmpty()) {
+        if (userAvailabilityService.isUsernameTaken(username)) {
             log.warn("注册失败，用户名已存在: {}", username);
             throw new BusinessException(ErrorCode.USERNAME_EXISTS);
         }
 
         // 检查邮箱是否已被注册（如果提供了邮箱）
         if (StringUtils.hasText(email)) {
-            List<Users> existingEmailUsers = userMapper.findByEmail(email);
-            if (existingEmailUsers != null && !existingEmailUsers.isEmpty()) {
+            if (userAvailabilityService.isEmailTaken(email)) {
                 log.warn("注册失败，邮箱已被注册: {}", email);
                 throw new BusinessException(ErrorCode.EMAIL_EXISTS);
             }
@@ -182,27 +194,42 @@ public class UserAuthService {
      * 用户登录
      * 验证用户凭据并返回JWT token
      *
+     * 说明：不开启事务，避免在登录线程池排队、BCrypt校验期间占用数据库连接；
+     * 更新登录时间是单条语句，本身具备原子性。
+     *
      * @param loginReq 登录请求参数
+     * @param clientIp 客户端IP（用于限流，可为空）
      * @return 包含JWT token的登录响应
-     * @throws BusinessException 当用户名或密码错误、账户被禁用时抛出
+     * @throws BusinessException 当用户名或密码错误、账户被禁用、尝试过于频繁时抛出
      */
-    @Transactional(rollbackFor = Exception.class)
-    public LoginResp login(LoginReq loginReq) {
-        log.info("用户登录尝试，用户名: {}", loginReq.getUsername());
+    public LoginResp login(LoginReq loginReq, String clientIp) {
+        log.info("用户登录尝试，用户名: {}, IP: {}", loginReq.getUsername(), clientIp);
 
-        // 依赖说明：查询与密码校验依赖 UserMapper/BCrypt；生成token依赖 JwtUtil
+        // 依赖说明：查询依赖 UserMapper；密码校验在 LoginGuardService 的有界线程池中执行；生成token依赖 JwtUtil
         // 授权说明：后续请求由 JwtAuthenticationFilter 解析 token 并注入 Authentication
 
-        // 1. 查询并验证用户（存在且状态为启用）
-        Users user = validateUserForLogin(loginReq);
+        // 0. 限流检查（IP尝试次数、用户名失败次数），在查库和哈希之前拒绝
+        loginGuardService.checkAllowed(loginReq.getUsername(), clientIp);
 
-        // 2. 验证密码（BCrypt匹配）
-        validatePassword(loginReq.getPassword(), user);
+        Users user;
+        try {
+            // 1. 查询并验证用户（存在且状态为启用）
+            user = validateUserForLogin(loginReq);
+
+            // 2. 验证密码（BCrypt匹配）
+            validatePassword(loginReq.getPassword(), user);
+        } catch (BusinessException e) {
+            if (e.getCode() == ErrorCode.LOGIN_FAILED.getCode()) {
+                loginGuardService.recordFailure(loginReq.getUsername());
+            }
+            throw e;
+        }
+        loginGuardService.recordSuccess(loginReq.getUsername());
 
-        // 3. 更新最后登录时间（尽力而为，失败不影响登录）
+        // 3. 记录最后登录时间（写入内存，定时批量刷入数据库）
         updateLastLoginTime(user);
 
-        // 4. 生成并返回JWT token（claims: userId/username/passwordHash）
+        // 4. 生成并返回JWT token（claims: userId/username/tokenVersion）
         return generateLoginResponse(user);
     }
 
@@ -243,7 +270,7 @@ public class UserAuthService {
      * @date 2025-01-30
      */
     private void validatePassword(String inputPassword, Users user) {
-        if (!passwordEncoder.matches(inputPassword, user.getPasswordHash())) {
+        if (!loginGuardService.matches(passwordEncoder, inputPassword, user.getPasswordHash())) {
             log.warn("登录失败，密码错误: {}", user.getUsername());
             throw new BusinessException(ErrorCode.LOGIN_FAILED);
         }
@@ -252,22 +279,17 @@ public class UserAuthService {
     /**
      * 更新最后登录时间
      * 记录用户最后一次登录的时间，用于统计和安全审计
+     * 只写入内存，由 LastLoginService 定时批量刷入数据库，不在登录请求中执行 UPDATE
      *
      * @param user 用户对象
      * @author 刘鑫
      * @date 2025-01-30
      */
     private void updateLastLoginTime(Users user) {
-        try {
-            Date now = new Date();
-            user.setLastLoginAt(now);
-            user.setUpdatedAt(now);
-            userMapper.updateById(user);
-            log.info("用户登录成功: {}", user.getUsername());
-        } catch (Exception e) {
-            log.error("更新登录时间失败: {}", e.getMessage(), e);
-            // 登录成功但更新时间失败，不影响登录流程
-        }
+        Date now = new Date();
+        user.setLastLoginAt(now);
+        lastLoginService.record(user.getId(), now);
+        log.info("用户登录成功: {}", user.getUsername());
     }
 
     /**
@@ -280,9 +302,9 @@ public class UserAuthService {
      * @date 2025-01-30
      */
     private LoginResp generateLoginResponse(Users user) {
-        // 生成访问令牌：当前策略将 passwordHash 放入claims用于失效校验
-        // 建议后续替换为 tokenVersion 或 lastPasswordChangeAt，避免敏感信息进token
-        String token = jwtUtil.generateToken(user.getId(), user.getUsername(), user.getPasswordHash());
+        // 生成访问令牌：claims 中携带用户当前的 tokenVersion，改密码/禁用后旧token由过滤器在内存中判定失效
+        int tokenVersion = tokenRevocationService.currentVersion(user);
+        String token = jwtUtil.generateToken(user.getId(), user.getUsername(), tokenVersion);
         log.info("为用户 {} 生成JWT token成功", user.getUsername());
 
         LoginResp loginResp = new LoginResp();
@@ -357,6 +379,9 @@ public class UserAuthService {
         // 4. 更新密码
         updateUserPassword(currentUser, newPassword);
 
+        // 5. 使该用户已签发的全部token失效（需重新登录）
+        tokenRevocationService.revokeAllTokens(userId);
+
         log.info("用户 {} 密码修改成功", username);
     }
 
@@ -411,10 +436,36 @@ public class UserAuthService {
             String encodedNewPassword = passwordEncoder.encode(newPassword);
             currentUser.setPasswordHash(encodedNewPassword);
             currentUser.setUpdatedAt(new Date());
-            userMapper.updateById(currentUser);
+            // 只写入变更的列，避免用读到的旧积分等字段覆盖并发修改
+            Users update = new Users();
+            update.setId(currentUser.getId());
+            update.setPasswordHash(encodedNewPassword);
+            update.setUpdatedAt(currentUser.getUpdatedAt());
+            userMapper.updateById(update);
+            userUtils.evictUser(currentUser.getId());
         } catch (Exception e) {
             log.error("密码更新失败，用户ID: {}, 错误: {}", currentUser.getId(), e.getMessage(), e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "密码更新失败");
         }
     }
+
+    /**
+     * 退出登录
+     * 吊销当前请求使用的token；allDevices 为 true 时使该用户的全部token失效
+     *
+     * @param token 当前请求已验签的token
+     * @param allDevices 是否退出全部设备
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public void logout(JwtUtil.ParsedToken token, boolean allDevices) {
+        if (token == null) {
+            throw new BusinessException(ErrorCode.UNAUTHORIZED, "用户未认证");
+        }
+        if (allDevices) {
+            tokenRevocationService.revokeAllTokens(token.getUserId());
+        } else {
+            tokenRevocationService.revokeToken(token);
+        }
+        log.info("用户退出登录，用户ID: {}, 全部设备: {}", token.getUserId(), allDevices);
+    }
 }
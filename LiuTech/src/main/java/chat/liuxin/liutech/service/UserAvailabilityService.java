@@ -0,0 +1,305 @@
+package chat.liuxin.liutech.service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.utils.BloomFilter;
+import chat.liuxin.liutech.utils.SlidingWindowRateLimiter;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 用户名/邮箱可用性服务
+ * 内存中维护一个包含全部已占用用户名与邮箱的布隆过滤器：判断为“一定不存在”时直接返回可用，不执行SQL；
+ * 只有“可能存在”时才回退到走唯一索引的 EXISTS 查询，注册表单边输入边检查时绝大多数请求不访问数据库。
+ *
+ * 说明：
+ * 1) 启动完成后全量重建，之后注册、修改邮箱、管理端创建/编辑用户时在事务提交后追加；
+ * 2) 布隆过滤器不支持删除，用户删除或改邮箱后旧值只会变成误判（多一次SQL），定时重建时回收；
+ *    已占用数量接近容量时也会提前重建，保证误判率不劣化；
+ * 3) 键做与数据库排序规则（utf8mb4_unicode_ci）一致方向的归一化：去首尾空白、兼容分解（全角、连字等折叠为基本字符）、
+ *    去除重音符号、转小写，保证数据库认为相同的值在过滤器中一定命中（宁可多误判，不可漏判）；
+ * 4) 重建完成前（或重建失败时）直接查询数据库；重建期间的追加同时写入新旧两份，追加与替换在同一把锁内，
+ *    不会出现读到旧过滤器、写入后旧过滤器恰好被替换掉的情况；
+ * 5) 接口匿名可调用，按客户端IP做滑动窗口限流，防止被用来批量探测某个邮箱是否已注册。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class UserAvailabilityService {
+
+    private static final String USERNAME_PREFIX = "u:";
+    private static final String EMAIL_PREFIX = "e:";
+
+    @Autowired
+    private UserMapper userMapper;
+
+    /**
+     * 过滤器最小容量（用户名与邮箱合计的元素数）
+     */
+    @Value("${user.availability.min-capacity:100000}")
+    private long minCapacity;
+
+    /**
+     * 误判率
+     */
+    @Value("${user.availability.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    /**
+     * 单个IP在窗口内允许的查询次数
+     */
+    @Value("${user.availability.rate-limit.max-requests:30}")
+    private int rateLimitMaxRequests;
+
+    @Value("${user.availability.rate-limit.window-ms:60000}")
+    private long rateLimitWindowMs;
+
+    /**
+     * 限流器最多跟踪的IP数量
+     */
+    @Value("${user.availability.rate-limit.max-keys:100000}")
+    private int rateLimitMaxKeys;
+
+    private SlidingWindowRateLimiter ipLimiter;
+
+    /**
+     * 当前生效的过滤器，重建时整体替换；为null表示尚未就绪
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * 正在重建的过滤器，重建期间的写入同时写入两份，避免替换后丢失
+     */
+    private volatile BloomFilter building;
+
+    /**
+     * 保护 filter/building 的替换与追加写入，只在替换和单次写入时短暂持有（rebuild 的 synchronized 覆盖整个扫描过程）
+     */
+    private final Object swapLock = new Object();
+
+    /**
+     * 当前过滤器中的元素数量（估算，用于判断是否需要扩容重建）
+     */
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * 元素数量超出设计容量后置位，由定时任务重建
+     */
+    private final AtomicBoolean overCapacity = new AtomicBoolean();
+
+    @PostConstruct
+    public void init() {
+        ipLimiter = new SlidingWindowRateLimiter(rateLimitMaxRequests, rateLimitWindowMs, rateLimitMaxKeys);
+    }
+
+    /**
+     * 按客户端IP限流（可用性查询之前调用）
+     *
+     * @param clientIp 客户端IP，可为空
+     * @throws BusinessException 超出限制时抛出 TOO_MANY_REQUESTS
+     */
+    public void checkRateLimit(String clientIp) {
+        if (StringUtils.hasText(clientIp) && !ipLimiter.tryAcquire(clientIp)) {
+            log.warn("用户名/邮箱可用性查询被限流，IP: {}", clientIp);
+            throw new BusinessException(ErrorCode.TOO_MANY_REQUESTS);
+        }
+    }
+
+    /**
+     * 定时清理计数已过期的IP
+     */
+    @Scheduled(fixedDelayString = "${user.availability.rate-limit.purge-interval-ms:60000}")
+    public void purgeIdleRateLimits() {
+        ipLimiter.purgeIdle();
+    }
+
+    /**
+     * 应用启动完成后构建过滤器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    /**
+     * 定时重建，回收已删除用户名/邮箱占用的位
+     */
+    @Scheduled(initialDelayString = "${user.availability.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${user.availability.rebuild-interval-ms:21600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * 元素数量超出设计容量时提前重建（误判率会随元素增多而上升）
+     */
+    @Scheduled(fixedDelayString = "${user.availability.capacity-check-interval-ms:60000}")
+    public void rebuildIfOverCapacity() {
+        if (overCapacity.getAndSet(false)) {
+            log.info("用户名/邮箱布隆过滤器超出容量，重建");
+            rebuild();
+        }
+    }
+
+    /**
+     * 全量重建过滤器
+     */
+    public synchronized void rebuild() {
+        try {
+            long start = System.currentTimeMillis();
+            long capacity = Math.max(minCapacity, insertions.get() * 2);
+            BloomFilter next = BloomFilter.create(capacity, falsePositiveRate);
+            synchronized (swapLock) {
+                building = next;
+            }
+            AtomicLong count = new AtomicLong();
+            userMapper.scanUsernamesAndEmails(context -> {
+                Users user = context.getResultObject();
+                if (StringUtils.hasText(user.getUsername())) {
+                    next.put(USERNAME_PREFIX + normalize(user.getUsername()));
+                    count.incrementAndGet();
+                }
+                if (StringUtils.hasText(user.getEmail())) {
+                    next.put(EMAIL_PREFIX + normalize(user.getEmail()));
+                    count.incrementAndGet();
+                }
+            });
+            if (count.get() * 2 > capacity) {
+                // 数据量超过预估，按实际数量再建一次，保证误判率
+                insertions.set(count.get());
+                synchronized (swapLock) {
+                    building = null;
+                }
+                rebuild();
+                return;
+            }
+            synchronized (swapLock) {
+                // 扫描期间追加的键已同时写入 next，替换与清空 building 一起完成
+                filter = next;
+                building = null;
+                insertions.set(count.get());
+            }
+            log.info("用户名/邮箱布隆过滤器重建完成 - 元素数: {}, 容量: {}, 位数: {}, 哈希数: {}, 耗时: {} ms",
+                    count.get(), capacity, next.getBitSize(), next.getHashCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("用户名/邮箱布隆过滤器重建失败，可用性检查将直接查询数据库: {}", e.getMessage(), e);
+        } finally {
+            synchronized (swapLock) {
+                building = null;
+            }
+        }
+    }
+
+    /**
+     * 用户名是否已被占用
+     *
+     * @param username 用户名
+     * @return 已占用返回true
+     */
+    public boolean isUsernameTaken(String username) {
+        if (!StringUtils.hasText(username)) {
+            return false;
+        }
+        if (definitelyAbsent(USERNAME_PREFIX + normalize(username))) {
+            return false;
+        }
+        return userMapper.existsByUsername(username);
+    }
+
+    /**
+     * 邮箱是否已被占用
+     *
+     * @param email 邮箱
+     * @return 已占用返回true
+     */
+    public boolean isEmailTaken(String email) {
+        if (!StringUtils.hasText(email)) {
+            return false;
+        }
+        if (definitelyAbsent(EMAIL_PREFIX + normalize(email))) {
+            return false;
+        }
+        return userMapper.existsByEmail(email);
+    }
+
+    /**
+     * 邮箱是否一定未被占用（只查过滤器，用于调用方决定是否需要进一步查询）
+     *
+     * @param email 邮箱
+     * @return 一定未被占用返回true；可能已被占用或过滤器未就绪返回false
+     */
+    public boolean isEmailDefinitelyFree(String email) {
+        return StringUtils.hasText(email) && definitelyAbsent(EMAIL_PREFIX + normalize(email));
+    }
+
+    /**
+     * 在当前事务提交后把用户名与邮箱加入过滤器
+     *
+     * @param username 用户名，可为空
+     * @param email 邮箱，可为空
+     */
+    public void addAfterCommit(String username, String email) {
+        TransactionUtils.afterCommit(() -> {
+            if (StringUtils.hasText(username)) {
+                put(USERNAME_PREFIX + normalize(username));
+            }
+            if (StringUtils.hasText(email)) {
+                put(EMAIL_PREFIX + normalize(email));
+            }
+        });
+    }
+
+    private boolean definitelyAbsent(String key) {
+        BloomFilter current = filter;
+        return current != null && !current.mightContain(key);
+    }
+
+    private void put(String key) {
+        synchronized (swapLock) {
+            BloomFilter current = filter;
+            if (current != null) {
+                current.put(key);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.put(key);
+            }
+            if (current != null && insertions.incrementAndGet() > current.getExpectedInsertions()) {
+                overCapacity.set(true);
+            }
+        }
+    }
+
+    /**
+     * 归一化：去首尾空白、兼容分解（NFKD，全角/兼容字符折叠为基本字符）、去除重音符号、转小写
+     */
+    static String normalize(String value) {
+        String decomposed = Normalizer.normalize(value.trim(), Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,5 +1,6 @@
 package chat.liuxin.liutech.service;
 
+import chat.liuxin.liutech.cache.AdminUserCountCache;
 import chat.liuxin.liutech.common.BusinessException;
 import chat.liuxin.liutech.common.ErrorCode;
 import chat.liuxin.liutech.mapper.UserMapper;
@@ -10,6 +11,7 @@ import chat.liuxin.liutech.utils.BeanConvertUtil;
 import chat.liuxin.liutech.utils.UserUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -38,6 +40,33 @@ public class UserManagementService {
     @Autowired
     private UserUtils userUtils;
 
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
+
+    @Autowired
+    private AdminUserCountCache adminUserCountCache;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private PointsService pointsService;
+
+    /**
+     * 管理端用户总数最多计数到的行数，超出时总数显示为该值
+     */
+    @Value("${user.admin-list.max-count:10000}")
+    private int maxCount;
+
+    /**
+     * 按页码翻页时允许的最大偏移量，更深的页需使用游标翻页
+     */
+    @Value("${user.admin-list.max-offset:10000}")
+    private int maxOffset;
+
     /**
      * 密码加密器，用于管理员创建/更新用户时的密码加密
      */
@@ -83,15 +112,17 @@ public class UserManagementService {
     /**
      * 根据条件查询用户
      * 支持按ID或用户名查询，优先使用ID查询
-     * 如果两个参数都为空，则返回所有用户列表
+     * 如果两个参数都为空，则按ID顺序返回一批用户（游标翻页，不再一次返回整张用户表）
      *
      * @param id 用户ID（可选），如果提供则按ID精确查询
      * @param username 用户名（可选），如果提供则按用户名精确查询
+     * @param afterId 游标（可选），返回ID大于该值的用户，首批不传
+     * @param size 每批数量（可选，1-100，默认20）
      * @return 查询结果，可能是单个用户对象或用户列表
      * @throws BusinessException 当查询失败时抛出异常
      */
-    public Object getUsersByCondition(Long id, String username) {
-        log.info("根据条件查询用户 - ID: {}, 用户名: {}", id, username);
+    public Object getUsersByCondition(Long id, String username, Long afterId, Integer size) {
+        log.info("根据条件查询用户 - ID: {}, 用户名: {}, 游标: {}", id, username, afterId);
 
         try {
             if (id != null) {
@@ -99,8 +130,12 @@ public class UserManagementService {
             } else if (StringUtils.hasText(username)) {
                 return getUsersByUsername(username);
             } else {
-                return getAllUsers();
+                List<Users> users = findUsersAfter(afterId, size != null ? size : 20);
+                users.forEach(user -> user.setPasswordHash(null));
+                return users;
             }
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
             log.error("查询用户失败 - ID: {}, 用户名: {}, 错误: {}", id, username, e.getMessage(), e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "查询用户失败");
@@ -131,45 +166,49 @@ public class UserManagementService {
         return users;
     }
 
-    /**
-     * 查询所有用户
-     */
-    private List<Users> getAllUsers() {
-        return userMapper.selectList(null);
-    }
-
     /**
      * 管理端分页查询用户列表
      * 管理员专用功能，支持多条件搜索（用户名、邮箱、状态）和分页查询
+     * 按ID倒序（即注册时间倒序）；传入cursor时按游标继续读取，不受页码深度影响，不传时按页码翻页
      *
-     * @param page 页码（从1开始），必须大于0
+     * @param page 页码（从1开始），必须大于0；使用游标时仅用于回显
      * @param size 每页大小，范围1-100
-     * @param username 用户名（可选，模糊搜索）
-     * @param email 邮箱（可选，模糊搜索）
+     * @param cursor 游标（可选，上一页返回的 nextCursor）
+     * @param username 用户名（可选，前缀匹配）
+     * @param email 邮箱（可选，前缀匹配）
      * @param status 用户状态（可选，0-禁用，1-启用）
      * @param includeDeleted 是否包含已删除用户
-     * @return 分页用户列表，包含总数、当前页数据等信息
+     * @return 分页用户列表，包含总数、当前页数据、下一页游标等信息
      * @throws BusinessException 当分页参数无效时抛出
      * @author 刘鑫
      * @date 2025-01-30
      */
-    public PageResp<UserResp> getUserListForAdmin(Integer page, Integer size, String username,
+    public PageResp<UserResp> getUserListForAdmin(Integer page, Integer size, Long cursor, String username,
                                                   String email, Integer status, Boolean includeDeleted) {
-        log.info("管理端查询用户列表 - 页码: {}, 每页: {}, 用户名: {}, 邮箱: {}, 状态: {}, 包含已删除: {}",
-                page, size, username, email, status, includeDeleted);
+        log.info("管理端查询用户列表 - 页码: {}, 每页: {}, 游标: {}, 用户名: {}, 邮箱: {}, 状态: {}, 包含已删除: {}",
+                page, size, cursor, username, email, status, includeDeleted);
 
-        try {
-            // 1. 参数验证
-            validatePaginationParams(page, size);
+        // 1. 参数验证
+        validatePaginationParams(page, size, cursor);
 
-            // 2. 查询用户列表
-            List<UserResp> users = queryUsersForAdmin(page, size, username, email, status, includeDeleted);
+        try {
+            String usernamePrefix = escapeLike(username);
+            String emailPrefix = escapeLike(email);
+
+            // 2. 查询用户列表（多取一条用于判断是否有下一页）
+            List<UserResp> users = queryUsersForAdmin(page, size, cursor, usernamePrefix, emailPrefix, status, includeDeleted);
+            boolean hasNext = users.size() > size;
+            if (hasNext) {
+                users = users.subList(0, size);
+            }
 
-            // 3. 查询总数
-            int total = userMapper.countUsersForAdmin(username, email, status, includeDeleted);
+            // 3. 查询总数（有上限并按筛选条件短时缓存）
+            String countKey = usernamePrefix + '|' + emailPrefix + '|' + status + '|' + includeDeleted;
+            int total = adminUserCountCache.get(countKey,
+                    () -> userMapper.countUsersForAdmin(usernamePrefix, emailPrefix, status, includeDeleted, maxCount));
 
             // 4. 构建分页结果
-            return buildPageResult(users, total, page, size);
+            return buildPageResult(users, total, page, size, hasNext);
 
         } catch (Exception e) {
             log.error("管理端用户列表查询失败: {}", e.getMessage(), e);
@@ -180,22 +219,25 @@ public class UserManagementService {
     /**
      * 验证分页参数
      */
-    private void validatePaginationParams(Integer page, Integer size) {
+    private void validatePaginationParams(Integer page, Integer size, Long cursor) {
         if (page == null || page < 1) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "页码必须大于0");
         }
         if (size == null || size < 1 || size > 100) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "每页大小必须在1-100之间");
         }
+        if (cursor == null && (long) (page - 1) * size > maxOffset) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "页码过大，请使用游标翻页");
+        }
     }
 
     /**
      * 查询管理端用户列表
      */
-    private List<UserResp> queryUsersForAdmin(Integer page, Integer size, String username,
+    private List<UserResp> queryUsersForAdmin(Integer page, Integer size, Long cursor, String username,
                                               String email, Integer status, Boolean includeDeleted) {
-        int offset = (page - 1) * size;
-        List<UserResp> users = userMapper.selectUsersForAdmin(offset, size, username, email, status, includeDeleted);
+        int offset = cursor != null ? 0 : (page - 1) * size;
+        List<UserResp> users = userMapper.selectUsersForAdmin(cursor, offset, size + 1, username, email, status, includeDeleted);
 
         // 不返回密码等敏感信息
         users.forEach(user -> user.setPasswordHash(null));
@@ -206,20 +248,35 @@ public class UserManagementService {
     /**
      * 构建分页结果
      */
-    private PageResp<UserResp> buildPageResult(List<UserResp> users, int total, Integer page, Integer size) {
+    private PageResp<UserResp> buildPageResult(List<UserResp> users, int total, Integer page, Integer size,
+                                               boolean hasNext) {
         PageResp<UserResp> pageResult = new PageResp<>();
         pageResult.setRecords(users);
         pageResult.setTotal((long) total);
         pageResult.setCurrent((long) page);
         pageResult.setSize((long) size);
         pageResult.setPages((long) Math.ceil((double) total / size));
-        pageResult.setHasNext((long) page < pageResult.getPages());
+        pageResult.setHasNext(hasNext);
         pageResult.setHasPrevious((long) page > 1);
+        pageResult.setNextCursor(hasNext ? users.get(users.size() - 1).getId() : null);
 
         log.info("管理端用户列表查询成功 - 总数: {}, 当前页数据: {}", total, users.size());
         return pageResult;
     }
 
+    /**
+     * 转义 LIKE 通配符，使用户输入按字面前缀匹配
+     */
+    private static String escapeLike(String value) {
+        if (!StringUtils.hasText(value)) {
+            return null;
+        }
+        return value.trim()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
     /**
      * 保存用户（管理端）
      * 管理员创建新用户账户，自动加密密码并设置默认状态和积分
@@ -238,9 +295,16 @@ public class UserManagementService {
             // 1. 预处理用户数据
             preprocessUserForSave(user);
 
-            // 2. 保存到数据库
+            // 2. 保存到数据库（初始积分以0入库，再通过积分服务记一条流水）
+            BigDecimal initialPoints = user.getPoints();
+            user.setPoints(BigDecimal.ZERO);
             int result = userMapper.insert(user);
             boolean success = result > 0;
+            userAvailabilityService.addAfterCommit(user.getUsername(), user.getEmail());
+            adminUserCountCache.invalidateAll();
+            if (success && initialPoints.signum() > 0) {
+                pointsService.change(user.getId(), initialPoints, PointsService.REASON_ADMIN_ADJUST, null, null);
+            }
 
             log.info("用户创建{} - 用户名: {}, ID: {}", success ? "成功" : "失败", user.getUsername(), user.getId());
             return success;
@@ -292,9 +356,21 @@ public class UserManagementService {
             // 1. 预处理用户数据
             preprocessUserForUpdate(user);
 
-            // 2. 更新到数据库
+            // 2. 更新到数据库（积分不随整行写入，改为按差额记流水）
+            BigDecimal targetPoints = user.getPoints();
+            user.setPoints(null);
             int result = userMapper.updateById(user);
             boolean success = result > 0;
+            userUtils.evictUser(user.getId());
+            userAvailabilityService.addAfterCommit(user.getUsername(), user.getEmail());
+            adminUserCountCache.invalidateAll();
+            if (success && targetPoints != null) {
+                pointsService.adjustTo(user.getId(), targetPoints);
+            }
+            // 禁用账户时使其已签发的token立即失效
+            if (success && Integer.valueOf(0).equals(user.getStatus())) {
+                tokenRevocationService.revokeAllTokens(user.getId());
+            }
 
             log.info("用户更新{} - 用户ID: {}", success ? "成功" : "失败", user.getId());
             return success;
@@ -346,6 +422,12 @@ public class UserManagementService {
 
             int result = userMapper.update(null, updateWrapper);
             boolean success = result > 0;
+            userUtils.evictUser(id);
+            adminUserCountCache.invalidateAll();
+            if (success) {
+                tokenRevocationService.revokeAllTokens(id);
+                leaderboardService.removeUser(id);
+            }
 
             log.info("用户删除{} - 用户ID: {}", success ? "成功" : "失败", id);
             return success;
@@ -384,6 +466,12 @@ public class UserManagementService {
 
             int result = userMapper.update(null, updateWrapper);
             boolean success = result > 0;
+            ids.forEach(userUtils::evictUser);
+            adminUserCountCache.invalidateAll();
+            if (success) {
+                ids.forEach(tokenRevocationService::revokeAllTokens);
+                ids.forEach(leaderboardService::removeUser);
+            }
 
             log.info("批量删除用户{} - 删除数量: {}", success ? "成功" : "失败", result);
             return success;
@@ -395,14 +483,19 @@ public class UserManagementService {
     }
 
     /**
-     * 查询所有用户
-     * 基础查询方法，返回所有用户列表
+     * 按ID顺序分批查询未删除用户
+     * 基础查询方法，调用方以上一批最后一个用户的ID作为下一批的游标
      *
+     * @param afterId 游标，返回ID大于该值的用户，首批传null
+     * @param size 每批数量，范围1-100
      * @return 用户列表
      */
-    public List<Users> findAllUsers() {
-        log.debug("查询所有用户");
-        return userMapper.selectList(null);
+    public List<Users> findUsersAfter(Long afterId, int size) {
+        if (size < 1 || size > 100) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "每页大小必须在1-100之间");
+        }
+        log.debug("分批查询用户 - 游标: {}, 数量: {}", afterId, size);
+        return userMapper.selectUsersAfter(afterId != null ? afterId : 0L, size);
     }
 
     /**
@@ -458,7 +551,14 @@ public class UserManagementService {
      */
     public void addUser(Users user) {
         log.debug("添加用户: {}", user.getUsername());
+        BigDecimal initialPoints = user.getPoints();
+        user.setPoints(BigDecimal.ZERO);
         userMapper.insert(user);
+        userAvailabilityService.addAfterCommit(user.getUsername(), user.getEmail());
+        adminUserCountCache.invalidateAll();
+        if (initialPoints != null && initialPoints.signum() > 0) {
+            pointsService.change(user.getId(), initialPoints, PointsService.REASON_ADMIN_ADJUST, null, null);
+        }
     }
 
     /**
@@ -469,7 +569,18 @@ public class UserManagementService {
      */
     public void updateUser(Users user) {
         log.debug("更新用户: {}", user.getId());
+        BigDecimal targetPoints = user.getPoints();
+        user.setPoints(null);
         userMapper.updateById(user);
+        userUtils.evictUser(user.getId());
+        userAvailabilityService.addAfterCommit(user.getUsername(), user.getEmail());
+        adminUserCountCache.invalidateAll();
+        if (targetPoints != null) {
+            pointsService.adjustTo(user.getId(), targetPoints);
+        }
+        if (Integer.valueOf(0).equals(user.getStatus())) {
+            tokenRevocationService.revokeAllTokens(user.getId());
+        }
     }
 
     /**
@@ -483,6 +594,10 @@ public class UserManagementService {
     public void deleteUserById(Long id) {
         log.warn("使用了已废弃的物理删除方法，建议使用 removeUserById 进行软删除");
         log.debug("删除用户: {}", id);
+        tokenRevocationService.revokeAllTokens(id);
         userMapper.deleteById(id);
+        userUtils.evictUser(id);
+        adminUserCountCache.invalidateAll();
+        leaderboardService.removeUser(id);
     }
 }
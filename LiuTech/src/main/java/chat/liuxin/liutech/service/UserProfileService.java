@@ -3,6 +3,7 @@ package chat.liuxin.liutech.service;
 import chat.liuxin.liutech.common.BusinessException;
 import chat.liuxin.liutech.common.ErrorCode;
 import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.UserStats;
 import chat.liuxin.liutech.model.Users;
 import chat.liuxin.liutech.req.UpdateProfileReq;
 import chat.liuxin.liutech.resp.UserResp;
@@ -12,8 +13,6 @@ import chat.liuxin.liutech.utils.UserUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -44,6 +43,15 @@ public class UserProfileService {
     @Autowired
     private PostsService postsService;
 
+    @Autowired
+    private UserStatsService userStatsService;
+
+    @Autowired
+    private LastLoginService lastLoginService;
+
+    @Autowired
+    private UserAvailabilityService userAvailabilityService;
+
     /**
      * 更新当前用户个人资料
      * 从Spring Security上下文中获取认证用户信息并更新资料
@@ -53,7 +61,6 @@ public class UserProfileService {
      * @throws BusinessException 当用户未认证、邮箱冲突或更新失败时抛出
      */
     @Transactional(rollbackFor = Exception.class)
-    @CacheEvict(value = "userStats", key = "#root.target.getCurrentUserId()")
     public UserResp updateProfile(UpdateProfileReq updateProfileReq) {
         log.info("开始更新用户个人资料");
 
@@ -64,9 +71,10 @@ public class UserProfileService {
             throw new BusinessException(ErrorCode.UNAUTHORIZED, "用户未认证");
         }
 
-        // 2. 验证邮箱是否冲突
+        // 2. 验证邮箱是否冲突（布隆过滤器确定未被占用时跳过查询）
         if (StringUtils.hasText(updateProfileReq.getEmail()) &&
-            !updateProfileReq.getEmail().equals(currentUser.getEmail())) {
+            !updateProfileReq.getEmail().equals(currentUser.getEmail()) &&
+            !userAvailabilityService.isEmailDefinitelyFree(updateProfileReq.getEmail())) {
 
             List<Users> existingEmailUsers = userMapper.findByEmail(updateProfileReq.getEmail());
             if (existingEmailUsers != null && !existingEmailUsers.isEmpty()) {
@@ -95,9 +103,18 @@ public class UserProfileService {
         }
         currentUser.setUpdatedAt(new Date());
 
-        // 4. 保存到数据库
+        // 4. 保存到数据库（只写入资料相关的列，避免用读到的旧积分等字段覆盖并发修改）
         try {
-            userMapper.updateById(currentUser);
+            Users update = new Users();
+            update.setId(currentUser.getId());
+            update.setEmail(currentUser.getEmail());
+            update.setAvatarUrl(currentUser.getAvatarUrl());
+            update.setNickname(currentUser.getNickname());
+            update.setBio(currentUser.getBio());
+            update.setUpdatedAt(currentUser.getUpdatedAt());
+            userMapper.updateById(update);
+            userUtils.evictUser(currentUser.getId());
+            userAvailabilityService.addAfterCommit(null, currentUser.getEmail());
             log.info("用户 {} 个人资料更新成功", currentUser.getUsername());
         } catch (Exception e) {
             log.error("个人资料更新失败，用户: {}, 错误: {}", currentUser.getUsername(), e.getMessage(), e);
@@ -115,11 +132,11 @@ public class UserProfileService {
     /**
      * 获取当前用户统计信息
      * 从Spring Security上下文中获取认证用户信息并返回统计数据
+     * 基本信息来自当前用户（请求内已缓存），统计数据来自 user_stats 汇总行（UserStatsService 维护与缓存）
      *
      * @return 用户统计信息
      * @throws BusinessException 当用户未认证或不存在时抛出异常
      */
-    @Cacheable(value = "userStats", key = "#root.target.getCurrentUserId()", unless = "#result == null")
     public UserStatsResp getCurrentUserStats() {
         log.info("开始获取当前用户统计信息");
 
@@ -133,33 +150,21 @@ public class UserProfileService {
         // 2. 构建统计信息
         UserStatsResp stats = new UserStatsResp();
         BeanUtils.copyProperties(currentUser, stats);
+        stats.setLastLoginAt(lastLoginService.latest(currentUser.getId(), currentUser.getLastLoginAt()));
 
-        // 3. 获取详细统计数据
+        // 3. 获取汇总统计数据
         try {
-            // 获取评论数量
-            Integer commentCount = commentsService.countCommentsByUserId(currentUser.getId());
-            stats.setCommentCount(commentCount != null ? commentCount.longValue() : 0L);
-
-            // 获取文章数量（已发布）
-            Integer postCount = postsService.countPostsByUserId(currentUser.getId(), "published");
-            stats.setPostCount(postCount != null ? postCount.longValue() : 0L);
-
-            // 获取草稿数量
-            Integer draftCount = postsService.countPostsByUserId(currentUser.getId(), "draft");
-            stats.setDraftCount(draftCount != null ? draftCount.longValue() : 0L);
-
-            // 访问量暂时设为0（后续可扩展）
-            stats.setViewCount(0L);
-
-            // 获取最近活动时间
-            Date lastCommentAt = commentsService.getLastCommentTimeByUserId(currentUser.getId());
-            stats.setLastCommentAt(lastCommentAt);
-
-            Date lastPostAt = postsService.getLastPostTimeByUserId(currentUser.getId());
-            stats.setLastPostAt(lastPostAt);
+            UserStats userStats = userStatsService.getStats(currentUser.getId());
+            stats.setCommentCount(userStats.getCommentCount());
+            stats.setPostCount(userStats.getPostCount());
+            stats.setDraftCount(userStats.getDraftCount());
+            stats.setViewCount(userStats.getViewCount());
+            stats.setLikeCount(userStats.getLikeCount());
+            stats.setLastCommentAt(userStats.getLastCommentAt());
+            stats.setLastPostAt(userStats.getLastPostAt());
 
             log.info("用户 {} 统计信息获取成功 - 评论: {}, 文章: {}, 草稿: {}",
-                    currentUser.getUsername(), commentCount, postCount, draftCount);
+                    currentUser.getUsername(), userStats.getCommentCount(), userStats.getPostCount(), userStats.getDraftCount());
 
         } catch (Exception e) {
             log.error("获取用户统计信息失败，用户: {}, 错误: {}", currentUser.getUsername(), e.getMessage(), e);
@@ -168,6 +173,7 @@ public class UserProfileService {
             stats.setPostCount(0L);
             stats.setDraftCount(0L);
             stats.setViewCount(0L);
+            stats.setLikeCount(0L);
         }
 
         return stats;
@@ -203,20 +209,15 @@ public class UserProfileService {
                 // 获取统计信息
                 ProfileResp.Stats stats = new ProfileResp.Stats();
                 try {
-                    // 获取评论数量
-                    Integer commentCount = commentsService.countCommentsByUserId(currentUser.getId());
-                    stats.setComments(commentCount != null ? commentCount.longValue() : 0L);
-
-                    // 获取文章数量（已发布）
-                    Integer postCount = postsService.countPostsByUserId(currentUser.getId(), "published");
-                    stats.setPosts(postCount != null ? postCount.longValue() : 0L);
-
-                    // 获取用户文章总浏览量
-                    Long totalViews = postsService.countViewsByUserId(currentUser.getId());
-                    stats.setViews(totalViews != null ? totalViews : 0L);
+                    // 评论数、已发布文章数、总浏览量、总获赞数均来自同一汇总行
+                    UserStats userStats = userStatsService.getStats(currentUser.getId());
+                    stats.setComments(userStats.getCommentCount());
+                    stats.setPosts(userStats.getPostCount());
+                    stats.setViews(userStats.getViewCount());
+                    stats.setLikes(userStats.getLikeCount());
 
                     log.info("用户 {} 个人资料获取成功 - 评论: {}, 文章: {}",
-                            currentUser.getUsername(), commentCount, postCount);
+                            currentUser.getUsername(), userStats.getCommentCount(), userStats.getPostCount());
 
                 } catch (Exception e) {
                     log.error("获取用户统计信息失败，用户: {}, 错误: {}", currentUser.getUsername(), e.getMessage(), e);
@@ -224,6 +225,7 @@ public class UserProfileService {
                     stats.setComments(0L);
                     stats.setPosts(0L);
                     stats.setViews(0L);
+                    stats.setLikes(0L);
                 }
 
                 profile.setStats(stats);
@@ -282,16 +284,4 @@ public class UserProfileService {
         profile.setStats(stats);
         return profile;
     }
-
-    /**
-     * 获取当前用户ID
-     * 从Spring Security上下文中获取认证用户的ID，用于缓存键生成
-     *
-     * @return 当前用户ID，如果未认证则返回null
-     * @author 刘鑫
-     * @date 2025-01-30
-     */
-    public Long getCurrentUserId() {
-        return userUtils.getCurrentUserId();
-    }
 }
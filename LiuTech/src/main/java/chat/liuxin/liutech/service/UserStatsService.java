@@ -0,0 +1,286 @@
+package chat.liuxin.liutech.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import chat.liuxin.liutech.mapper.UserStatsMapper;
+import chat.liuxin.liutech.model.UserStats;
+import chat.liuxin.liutech.utils.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 用户统计服务
+ * 每个用户在 user_stats 表中有一行汇总数据（文章数、草稿数、评论数、总浏览量、总获赞数、最近活动时间），
+ * 读取时一次主键查询即可，经有界内存缓存后大部分请求不访问数据库。
+ *
+ * 维护方式：
+ * 1) 用户自己的文章/评论写入（创建、删除、发布、下架）在事务提交后立即按用户重新汇总该行并失效缓存，保证读到自己的写入；
+ * 2) 浏览量、点赞这类高频且由他人触发的变化只标记作者为“脏”，由定时任务按间隔批量重新汇总；
+ * 3) 管理端批量操作、彻底删除等无法逐个定位用户的场景，提交后安排一次全量重新汇总；
+ * 4) 定时全量校准，修复任何遗漏路径造成的偏差。
+ *
+ * 汇总使用单条 INSERT ... SELECT 覆盖整行，而不是逐字段加减，重复执行结果一致，不会累积误差；
+ * 提交后的汇总在独立的新事务中执行（afterCommit 阶段原事务的连接仍处于绑定状态）。
+ * 全量汇总不用一条 INSERT ... SELECT 扫全表：那样在可重复读隔离级别下整条语句期间对 posts/comments
+ * 扫描到的每一行持有共享锁，会阻塞全站的浏览量/点赞更新与新评论；改为按用户ID分段，
+ * 用普通 SELECT（快照读，不加锁）读出汇总值，再批量写入 user_stats，每段一个短事务。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class UserStatsService {
+
+    @Autowired
+    private UserStatsMapper userStatsMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 最大缓存用户数
+     */
+    @Value("${user.stats.cache-max-size:10000}")
+    private int cacheMaxSize;
+
+    /**
+     * 缓存条目存活时间（多实例部署时兜底其他实例的写入），默认5分钟
+     */
+    @Value("${user.stats.cache-ttl-ms:300000}")
+    private long cacheTtlMillis;
+
+    /**
+     * 全量重新汇总每段的用户数
+     */
+    @Value("${user.stats.rebuild-batch-size:500}")
+    private int rebuildBatchSize;
+
+    /**
+     * 用户ID -> 统计快照
+     */
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 等待重新汇总的用户
+     */
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 是否有待执行的全量重新汇总
+     */
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+    /**
+     * 失效计数，用于识别加载期间发生的重新汇总，避免把旧数据放回缓存
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 获取用户统计
+     * 缓存未命中时读取统计行；统计行不存在（新用户或刚升级）时先汇总再读取
+     *
+     * @param userId 用户ID
+     * @return 统计数据的拷贝，不会返回null
+     */
+    public UserStats getStats(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(userId);
+        if (entry != null && now < entry.expireAt) {
+            return copyOf(entry.stats);
+        }
+
+        long invalidationsBeforeLoad = invalidations.get();
+        UserStats stats = userStatsMapper.selectById(userId);
+        if (stats == null) {
+            userStatsMapper.refreshByUserId(userId);
+            stats = userStatsMapper.selectById(userId);
+        }
+        if (stats == null) {
+            stats = empty(userId);
+        }
+        if (invalidations.get() == invalidationsBeforeLoad) {
+            put(userId, stats, now);
+        }
+        return copyOf(stats);
+    }
+
+    /**
+     * 在当前事务提交后重新汇总用户统计（用户自己的文章/评论写入时调用）
+     * 汇总失败时转为标记脏数据，由定时任务重试
+     *
+     * @param userId 用户ID
+     */
+    public void refreshAfterCommit(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                refresh(userId);
+            } catch (Exception e) {
+                log.warn("重新汇总用户统计失败，稍后重试 - 用户ID: {}, 错误: {}", userId, e.getMessage());
+                dirtyUsers.add(userId);
+            }
+        });
+    }
+
+    /**
+     * 标记用户统计需要重新汇总（浏览量、点赞等高频变化时调用），由定时任务批量处理
+     *
+     * @param userId 用户ID
+     */
+    public void markDirty(Long userId) {
+        if (userId != null) {
+            TransactionUtils.afterCommit(() -> dirtyUsers.add(userId));
+        }
+    }
+
+    /**
+     * 在当前事务提交后安排一次全量重新汇总（批量删除、恢复、彻底删除等场景）
+     * 同一事务内多次调用只会触发一次
+     */
+    public void rebuildAllAfterCommit() {
+        TransactionUtils.afterCommit(() -> {
+            rebuildPending.set(true);
+            invalidateAll();
+        });
+    }
+
+    /**
+     * 定时处理待重新汇总的用户
+     */
+    @Scheduled(fixedDelayString = "${user.stats.flush-interval-ms:5000}")
+    public void flushDirty() {
+        if (rebuildPending.getAndSet(false)) {
+            dirtyUsers.clear();
+            rebuildAll();
+            return;
+        }
+        if (dirtyUsers.isEmpty()) {
+            return;
+        }
+        List<Long> userIds = new ArrayList<>(dirtyUsers);
+        dirtyUsers.removeAll(userIds);
+        int refreshed = 0;
+        for (Long userId : userIds) {
+            try {
+                refresh(userId);
+                refreshed++;
+            } catch (Exception e) {
+                log.warn("重新汇总用户统计失败，稍后重试 - 用户ID: {}, 错误: {}", userId, e.getMessage());
+                dirtyUsers.add(userId);
+            }
+        }
+        log.debug("批量重新汇总用户统计 - 用户数: {}", refreshed);
+    }
+
+    /**
+     * 定时全量校准
+     */
+    @Scheduled(initialDelayString = "${user.stats.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${user.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        rebuildAll();
+    }
+
+    /**
+     * 全量重新汇总并清空缓存
+     */
+    public void rebuildAll() {
+        try {
+            long start = System.currentTimeMillis();
+            int rows = 0;
+            long afterId = 0;
+            List<Long> userIds;
+            while (!(userIds = userStatsMapper.selectUserIdsAfter(afterId, rebuildBatchSize)).isEmpty()) {
+                long fromId = userIds.get(0);
+                long toId = userIds.get(userIds.size() - 1);
+                List<UserStats> stats = userStatsMapper.selectAggregates(fromId, toId);
+                if (!stats.isEmpty()) {
+                    rows += requiresNew.execute(status -> userStatsMapper.batchUpsert(stats));
+                }
+                afterId = toId;
+            }
+            invalidateAll();
+            log.info("全量重新汇总用户统计完成 - 影响行数: {}, 耗时: {} ms", rows, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("全量重新汇总用户统计失败: {}", e.getMessage(), e);
+            rebuildPending.set(true);
+        }
+    }
+
+    private void refresh(Long userId) {
+        requiresNew.executeWithoutResult(status -> userStatsMapper.refreshByUserId(userId));
+        invalidations.incrementAndGet();
+        cache.remove(userId);
+    }
+
+    private void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.clear();
+    }
+
+    private void put(Long userId, UserStats stats, long now) {
+        if (cache.size() >= cacheMaxSize) {
+            cache.values().removeIf(entry -> now >= entry.expireAt);
+            if (cache.size() >= cacheMaxSize) {
+                log.debug("用户统计缓存超出容量，清空缓存 - 容量: {}", cacheMaxSize);
+                cache.clear();
+            }
+        }
+        cache.put(userId, new Entry(copyOf(stats), now + cacheTtlMillis));
+    }
+
+    private static UserStats empty(Long userId) {
+        return new UserStats()
+                .setUserId(userId)
+                .setPostCount(0L)
+                .setDraftCount(0L)
+                .setCommentCount(0L)
+                .setViewCount(0L)
+                .setLikeCount(0L);
+    }
+
+    private static UserStats copyOf(UserStats source) {
+        UserStats copy = new UserStats();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+
+    /**
+     * 带过期时间的缓存条目
+     */
+    private static final class Entry {
+        private final UserStats stats;
+        private final long expireAt;
+
+        private Entry(UserStats stats, long expireAt) {
+            this.stats = stats;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package chat.liuxin.liutech.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.common.ErrorCode;
+import chat.liuxin.liutech.mapper.VisitorSketchMapper;
+import chat.liuxin.liutech.model.VisitorSketch;
+import chat.liuxin.liutech.resp.ActiveUsersResp;
+import chat.liuxin.liutech.resp.UniqueVisitorsResp;
+import chat.liuxin.liutech.utils.HyperLogLog;
+import chat.liuxin.liutech.utils.IpUtil;
+import chat.liuxin.liutech.utils.UserUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 独立访客统计服务
+ * 用 HyperLogLog 按天统计全站独立访客、全站活跃登录用户（DAU）和单篇文章的独立访客，
+ * 每个计数器占用固定内存（与访问量无关），周/月等时间窗口由按天的计数器合并得出。
+ *
+ * 说明：
+ * 1) 访客标识：已登录用户使用用户ID，匿名访客使用客户端IP；标识只参与哈希，不落库；
+ * 2) 请求线程只更新内存中的增量计数器，定时任务把增量与数据库中当天的快照合并后写回并释放内存，
+ *    合并是逐寄存器取最大值，重复合并无副作用，多实例各自合并同一行也不会重复计数；
+ * 3) 查询时合并数据库快照与尚未写回的增量，结果包含最近的访问；
+ * 4) 内存中同时跟踪的文章数有上限，超出的文章访问在下次写回前不计入（只记录丢弃次数）。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Slf4j
+@Service
+public class VisitorAnalyticsService {
+
+    /**
+     * 统计范围：全站访客（含匿名）
+     */
+    public static final String SCOPE_VISITOR = "visitor";
+
+    /**
+     * 统计范围：全站登录用户
+     */
+    public static final String SCOPE_USER = "user";
+
+    /**
+     * 统计范围：单篇文章
+     */
+    public static final String SCOPE_POST = "post";
+
+    /**
+     * 单次查询允许的最大天数
+     */
+    private static final int MAX_RANGE_DAYS = 366;
+
+    @Autowired
+    private VisitorSketchMapper visitorSketchMapper;
+
+    @Autowired
+    private UserUtils userUtils;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * 全站计数器精度（2^14个寄存器，16KB，误差约0.8%）
+     */
+    @Value("${analytics.visitor.site-precision:14}")
+    private int sitePrecision;
+
+    /**
+     * 文章计数器精度（2^11个寄存器，2KB，误差约2.3%）
+     */
+    @Value("${analytics.visitor.post-precision:11}")
+    private int postPrecision;
+
+    /**
+     * 两次写回之间最多同时跟踪的文章数
+     */
+    @Value("${analytics.visitor.max-tracked-posts:5000}")
+    private int maxTrackedPosts;
+
+    /**
+     * 快照保留天数
+     */
+    @Value("${analytics.visitor.retention-days:400}")
+    private int retentionDays;
+
+    /**
+     * 尚未写回的增量计数器，键为 scope:targetId:date
+     */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 当前跟踪的文章计数器数量
+     */
+    private final AtomicLong trackedPosts = new AtomicLong();
+
+    /**
+     * 因超出跟踪上限而丢弃的文章访问次数
+     */
+    private final AtomicLong droppedPostVisits = new AtomicLong();
+
+    private TransactionTemplate requiresNew;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 记录一次站点访问（由请求追踪过滤器调用）
+     *
+     * @param request HTTP请求
+     */
+    public void recordVisit(HttpServletRequest request) {
+        Long userId = userUtils.getCurrentUserId();
+        LocalDate today = LocalDate.now();
+        String visitor = visitorKey(userId, request);
+        offer(SCOPE_VISITOR, 0L, today, visitor, sitePrecision);
+        if (userId != null) {
+            offer(SCOPE_USER, 0L, today, visitor, sitePrecision);
+        }
+    }
+
+    /**
+     * 记录一次文章访问（从当前请求上下文解析访客）
+     *
+     * @param postId 文章ID
+     */
+    public void recordPostVisit(Long postId) {
+        if (postId == null) {
+            return;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        if (!pending.containsKey(keyOf(SCOPE_POST, postId, today)) && trackedPosts.get() >= maxTrackedPosts) {
+            droppedPostVisits.incrementAndGet();
+            return;
+        }
+        String visitor = visitorKey(userUtils.getCurrentUserId(), servletAttributes.getRequest());
+        offer(SCOPE_POST, postId, today, visitor, postPrecision);
+    }
+
+    /**
+     * 查询日期范围内的独立访客数
+     *
+     * @param scope 统计范围
+     * @param targetId 统计对象ID（全站为0）
+     * @param startDate 开始日期（包含）
+     * @param endDate 结束日期（包含）
+     * @return 独立访客统计
+     */
+    public UniqueVisitorsResp countUnique(String scope, Long targetId, LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        HyperLogLog merged = new HyperLogLog(precisionOf(scope));
+        for (VisitorSketch sketch : visitorSketchMapper.selectRange(scope, targetId, startDate, endDate)) {
+            mergeInto(merged, sketch.getRegisters());
+        }
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            Pending delta = pending.get(keyOf(scope, targetId, date));
+            if (delta != null) {
+                merged.merge(delta.sketch);
+            }
+        }
+        return new UniqueVisitorsResp()
+                .setScope(scope)
+                .setTargetId(targetId)
+                .setStartDate(startDate)
+                .setEndDate(endDate)
+                .setUniqueVisitors(merged.cardinality());
+    }
+
+    /**
+     * 查询截至今天的日/周/月活跃用户数与独立访客数（周、月为最近7天、30天滚动窗口）
+     *
+     * @return 活跃用户统计
+     */
+    public ActiveUsersResp getActiveUsers() {
+        LocalDate today = LocalDate.now();
+        LocalDate weekStart = today.minusDays(6);
+        LocalDate monthStart = today.minusDays(29);
+        return new ActiveUsersResp()
+                .setDate(today)
+                .setDau(countUnique(SCOPE_USER, 0L, today, today).getUniqueVisitors())
+                .setWau(countUnique(SCOPE_USER, 0L, weekStart, today).getUniqueVisitors())
+                .setMau(countUnique(SCOPE_USER, 0L, monthStart, today).getUniqueVisitors())
+                .setDailyVisitors(countUnique(SCOPE_VISITOR, 0L, today, today).getUniqueVisitors())
+                .setWeeklyVisitors(countUnique(SCOPE_VISITOR, 0L, weekStart, today).getUniqueVisitors())
+                .setMonthlyVisitors(countUnique(SCOPE_VISITOR, 0L, monthStart, today).getUniqueVisitors());
+    }
+
+    /**
+     * 查询日期范围内每天的独立访客数
+     *
+     * @param scope 统计范围
+     * @param targetId 统计对象ID（全站为0）
+     * @param startDate 开始日期（包含）
+     * @param endDate 结束日期（包含）
+     * @return 每天的独立访客统计，按日期升序，没有访问的日期计为0
+     */
+    public List<UniqueVisitorsResp> countDaily(String scope, Long targetId, LocalDate startDate, LocalDate endDate) {
+        validateRange(startDate, endDate);
+        Map<LocalDate, byte[]> stored = new HashMap<>();
+        for (VisitorSketch sketch : visitorSketchMapper.selectRange(scope, targetId, startDate, endDate)) {
+            stored.put(sketch.getStatDate(), sketch.getRegisters());
+        }
+        List<UniqueVisitorsResp> result = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            HyperLogLog day = new HyperLogLog(precisionOf(scope));
+            mergeInto(day, stored.get(date));
+            Pending delta = pending.get(keyOf(scope, targetId, date));
+            if (delta != null) {
+                day.merge(delta.sketch);
+            }
+            result.add(new UniqueVisitorsResp()
+                    .setScope(scope)
+                    .setTargetId(targetId)
+                    .setStartDate(date)
+                    .setEndDate(date)
+                    .setUniqueVisitors(day.cardinality()));
+        }
+        return result;
+    }
+
+    /**
+     * 定时把增量计数器合并写回数据库
+     */
+    @Scheduled(fixedDelayString = "${analytics.visitor.flush-interval-ms:60000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int written = 0;
+        for (String key : new ArrayList<>(pending.keySet())) {
+            // remove 与写入时的 compute 互斥，移除后不会再有写入落到这个计数器上
+            Pending delta = pending.remove(key);
+            if (delta == null) {
+                continue;
+            }
+            if (SCOPE_POST.equals(delta.scope)) {
+                trackedPosts.decrementAndGet();
+            }
+            try {
+                requiresNew.executeWithoutResult(status -> write(delta));
+                written++;
+            } catch (Exception e) {
+                log.warn("写回独立访客计数失败，稍后重试 - 范围: {}, 对象: {}, 日期: {}, 错误: {}",
+                        delta.scope, delta.targetId, delta.date, e.getMessage());
+                restore(key, delta);
+            }
+        }
+        long dropped = droppedPostVisits.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("文章独立访客跟踪数超出上限，本周期丢弃访问次数: {}", dropped);
+        }
+        log.debug("写回独立访客计数 - 计数器数: {}", written);
+    }
+
+    /**
+     * 每天清理超出保留期的快照
+     */
+    @Scheduled(cron = "${analytics.visitor.purge-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        LocalDate before = LocalDate.now().minusDays(retentionDays);
+        int deleted = visitorSketchMapper.deleteBefore(before);
+        if (deleted > 0) {
+            log.info("清理过期独立访客快照 - 截止日期: {}, 删除行数: {}", before, deleted);
+        }
+    }
+
+    /**
+     * 应用关闭前写回剩余增量
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void offer(String scope, Long targetId, LocalDate date, String visitor, int precision) {
+        pending.compute(keyOf(scope, targetId, date), (k, existing) -> {
+            Pending delta = existing;
+            if (delta == null) {
+                delta = new Pending(scope, targetId, date, new HyperLogLog(precision));
+                if (SCOPE_POST.equals(scope)) {
+                    trackedPosts.incrementAndGet();
+                }
+            }
+            delta.sketch.offer(visitor);
+            return delta;
+        });
+    }
+
+    /**
+     * 合并增量与数据库快照并写回（在独立事务中执行，锁定该行避免多实例互相覆盖）
+     */
+    private void write(Pending delta) {
+        HyperLogLog merged = new HyperLogLog(delta.sketch.getPrecision());
+        merged.merge(delta.sketch);
+        VisitorSketch existing = visitorSketchMapper.selectForUpdate(delta.scope, delta.targetId, delta.date);
+        if (existing != null) {
+            mergeInto(merged, existing.getRegisters());
+        }
+        visitorSketchMapper.upsert(new VisitorSketch()
+                .setScope(delta.scope)
+                .setTargetId(delta.targetId)
+                .setStatDate(delta.date)
+                .setRegisters(merged.toBytes()));
+    }
+
+    /**
+     * 写回失败时把增量放回，与期间新产生的增量合并
+     */
+    private void restore(String key, Pending delta) {
+        pending.compute(key, (k, existing) -> {
+            if (existing == null) {
+                if (SCOPE_POST.equals(delta.scope)) {
+                    trackedPosts.incrementAndGet();
+                }
+                return delta;
+            }
+            existing.sketch.merge(delta.sketch);
+            return existing;
+        });
+    }
+
+    /**
+     * 合并持久化的寄存器数组；精度与当前配置不同（修改过配置）的历史快照跳过
+     */
+    private void mergeInto(HyperLogLog target, byte[] registers) {
+        if (registers == null) {
+            return;
+        }
+        HyperLogLog stored = HyperLogLog.fromBytes(registers);
+        if (stored.getPrecision() == target.getPrecision()) {
+            target.merge(stored);
+        }
+    }
+
+    private void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "日期范围无效");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_RANGE_DAYS) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "日期范围不能超过" + MAX_RANGE_DAYS + "天");
+        }
+    }
+
+    private int precisionOf(String scope) {
+        if (SCOPE_POST.equals(scope)) {
+            return postPrecision;
+        }
+        if (SCOPE_VISITOR.equals(scope) || SCOPE_USER.equals(scope)) {
+            return sitePrecision;
+        }
+        throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的统计范围: " + scope);
+    }
+
+    private static String visitorKey(Long userId, HttpServletRequest request) {
+        return userId != null ? "u:" + userId : "ip:" + IpUtil.getClientIpAddress(request);
+    }
+
+    private static String keyOf(String scope, Long targetId, LocalDate date) {
+        return scope + ':' + targetId + ':' + date;
+    }
+
+    /**
+     * 尚未写回的增量计数器
+     */
+    private static final class Pending {
+        private final String scope;
+        private final Long targetId;
+        private final LocalDate date;
+        private final HyperLogLog sketch;
+
+        private Pending(String scope, Long targetId, LocalDate date, HyperLogLog sketch) {
+            this.scope = scope;
+            this.targetId = targetId;
+            this.date = date;
+            this.sketch = sketch;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package chat.liuxin.liutech.storage;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件系统存储后端
+ * 对象键即相对上传根目录的路径；写入先在同一文件系统的临时目录写完，再原子移动到目标路径，
+ * 读者不会看到写了一半的文件。阻塞的文件IO在专用线程池中执行。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String NAME = "local";
+
+    private final Path basePath;
+    private final Set<String> excludedDirs;
+    private final Executor executor;
+
+    /**
+     * @param basePath 上传根目录（绝对路径）
+     * @param excludedDirs 列举时跳过的顶层目录（如临时目录）
+     * @param executor IO线程池
+     */
+    public LocalStorageBackend(Path basePath, Set<String> excludedDirs, Executor executor) {
+        this.basePath = basePath;
+        this.excludedDirs = excludedDirs;
+        this.executor = executor;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String key, Path source) {
+        return run(() -> {
+            Path target = resolve(key);
+            Files.createDirectories(target.getParent());
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> putIfAbsent(String key, Path source) {
+        return run(() -> {
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                return false;
+            }
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (FileAlreadyExistsException e) {
+                // 并发写入了相同内容，对方已先落盘
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<InputStream> get(String key) {
+        return run(() -> Files.newInputStream(resolve(key)));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getRange(String key, long start, long end) {
+        return run(() -> {
+            FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ);
+            try {
+                channel.position(start);
+                return new RangeInputStream(Channels.newInputStream(channel), end - start + 1);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<StorageObject> head(String key) {
+        return run(() -> {
+            try {
+                return toObject(key, Files.readAttributes(resolve(key), BasicFileAttributes.class));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> delete(String key) {
+        return run(() -> Files.deleteIfExists(resolve(key)));
+    }
+
+    @Override
+    public CompletableFuture<Void> list(String prefix, Consumer<StorageObject> consumer) {
+        return run(() -> {
+            Path dir = resolve(prefix);
+            if (!Files.isDirectory(dir)) {
+                return null;
+            }
+            try (Stream<Path> paths = Files.walk(dir)) {
+                Iterator<Path> it = paths.iterator();
+                while (it.hasNext()) {
+                    Path file = it.next();
+                    Path relative = basePath.relativize(file);
+                    if (excludedDirs.contains(relative.getName(0).toString())) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        consumer.accept(toObject(relative.toString().replace(File.separatorChar, '/'), attributes));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return resolve(key);
+    }
+
+    /**
+     * 把对象键解析为绝对路径
+     *
+     * @throws IllegalArgumentException 路径越出上传根目录时抛出
+     */
+    private Path resolve(String key) {
+        Path path = basePath.resolve(key).normalize();
+        if (!path.startsWith(basePath)) {
+            throw new IllegalArgumentException("非法的文件路径: " + key);
+        }
+        return path;
+    }
+
+    private static StorageObject toObject(String key, BasicFileAttributes attributes) {
+        return new StorageObject()
+                .setKey(key)
+                .setSize(attributes.size())
+                .setLastModified(attributes.lastModifiedTime().toMillis());
+    }
+
+    private <T> CompletableFuture<T> run(IoTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    private interface IoTask<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * 只读取指定字节数的输入流
+     */
+    private static final class RangeInputStream extends FilterInputStream {
+        private long remaining;
+
+        private RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package chat.liuxin.liutech.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+
+/**
+ * S3 兼容对象存储后端（AWS S3、MinIO 等）
+ * 直接用 JDK HttpClient 发送 REST 请求并做 AWS Signature V4 签名，不引入 SDK 依赖；
+ * 请求异步发送，上传从本地临时文件流式读取，下载以流的形式返回，都不在内存中缓冲整个文件。
+ *
+ * 说明：
+ * 1) 上传使用 UNSIGNED-PAYLOAD（不对内容预先计算摘要），内容完整性由内容寻址的 SHA-256 文件名保证；
+ * 2) putIfAbsent 先 HEAD 再带 If-None-Match: * 条件写入，两个节点并发写同一对象时只有一个生效；
+ * 3) accessUrl 配置了公开访问地址时返回公开地址，否则生成带有效期的预签名URL，浏览器直接从对象存储下载。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    public static final String NAME = "s3";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final long MAX_PRESIGN_SECONDS = 604800;
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter AMZ_DAY = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final FileUploadConfig.S3 config;
+    private final String scheme;
+    private final String host;
+    private final String bucketPath;
+    private final String keyPrefix;
+    private final HttpClient client;
+    private final Clock clock;
+
+    /**
+     * @param config 对象存储配置
+     * @param executor IO线程池（HTTP 客户端的回调在其中执行）
+     */
+    public S3StorageBackend(FileUploadConfig.S3 config, Executor executor) {
+        this(config, executor, Clock.systemUTC());
+    }
+
+    /**
+     * @param config 对象存储配置
+     * @param executor IO线程池（HTTP 客户端的回调在其中执行）
+     * @param clock 签名时间来源
+     */
+    public S3StorageBackend(FileUploadConfig.S3 config, Executor executor, Clock clock) {
+        if (!StringUtils.hasText(config.getEndpoint()) || !StringUtils.hasText(config.getBucket())
+                || !StringUtils.hasText(config.getAccessKey()) || !StringUtils.hasText(config.getSecretKey())) {
+            throw new IllegalStateException("对象存储配置不完整，需要 endpoint、bucket、access-key、secret-key");
+        }
+        this.config = config;
+        this.clock = clock;
+        URI endpoint = URI.create(config.getEndpoint());
+        String authority = endpoint.getHost() + (endpoint.getPort() > 0 ? ":" + endpoint.getPort() : "");
+        this.scheme = endpoint.getScheme();
+        this.host = config.isPathStyle() ? authority : config.getBucket() + "." + authority;
+        this.bucketPath = config.isPathStyle() ? "/" + encode(config.getBucket(), false) : "";
+        String prefix = config.getKeyPrefix() == null ? "" : config.getKeyPrefix().replaceAll("^/+|/+$", "");
+        this.keyPrefix = prefix.isEmpty() ? "" : prefix + "/";
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String key, Path source) {
+        return upload(key, source, false).thenApply(written -> null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> putIfAbsent(String key, Path source) {
+        return head(key).thenCompose(existing -> existing != null
+                ? CompletableFuture.completedFuture(false)
+                : upload(key, source, true));
+    }
+
+    private CompletableFuture<Boolean> upload(String key, Path source, boolean ifAbsent) {
+        HttpRequest.BodyPublisher body;
+        try {
+            body = HttpRequest.BodyPublishers.ofFile(source);
+        } catch (FileNotFoundException e) {
+            return CompletableFuture.failedFuture(new NoSuchFileException(source.toString()));
+        }
+        HttpRequest.Builder builder = signed("PUT", key, new TreeMap<>(), UNSIGNED_PAYLOAD, config.getTransferTimeoutMs())
+                .header("Content-Type", "application/octet-stream")
+                .PUT(body);
+        if (ifAbsent) {
+            builder.header("If-None-Match", "*");
+        }
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (ifAbsent && response.statusCode() == 412) {
+                        // 其他节点已先写入相同内容
+                        return false;
+                    }
+                    check(response.statusCode(), response.body(), "PUT", key);
+                    return true;
+                });
+    }
+
+    @Override
+    public CompletableFuture<InputStream> get(String key) {
+        return download(key, null);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getRange(String key, long start, long end) {
+        return download(key, "bytes=" + start + "-" + end);
+    }
+
+    private CompletableFuture<InputStream> download(String key, String range) {
+        HttpRequest.Builder builder = signed("GET", key, new TreeMap<>(), EMPTY_SHA256, config.getTransferTimeoutMs()).GET();
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        return client.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    int status = response.statusCode();
+                    if (status == 200 || status == 206) {
+                        return response.body();
+                    }
+                    String error;
+                    try (InputStream in = response.body()) {
+                        error = new String(in.readNBytes(1024), StandardCharsets.UTF_8);
+                    } catch (IOException e) {
+                        error = "";
+                    }
+                    if (status == 404) {
+                        throw new UncheckedIOException(new NoSuchFileException(key));
+                    }
+                    check(status, error, "GET", key);
+                    return new ByteArrayInputStream(new byte[0]);
+                });
+    }
+
+    @Override
+    public CompletableFuture<StorageObject> head(String key) {
+        HttpRequest request = signed("HEAD", key, new TreeMap<>(), EMPTY_SHA256, config.getRequestTimeoutMs())
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    if (response.statusCode() == 404) {
+                        return null;
+                    }
+                    check(response.statusCode(), "", "HEAD", key);
+                    StorageObject object = new StorageObject()
+                            .setKey(key)
+                            .setSize(response.headers().firstValueAsLong("Content-Length").orElse(0L));
+                    response.headers().firstValue("Last-Modified").ifPresent(value ->
+                            object.setLastModified(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                                    .toInstant().toEpochMilli()));
+                    response.headers().firstValue("ETag").ifPresent(value -> object.setEtag(unquote(value)));
+                    return object;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> delete(String key) {
+        return head(key).thenCompose(existing -> {
+            if (existing == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            HttpRequest request = signed("DELETE", key, new TreeMap<>(), EMPTY_SHA256, config.getRequestTimeoutMs())
+                    .DELETE()
+                    .build();
+            return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        check(response.statusCode(), response.body(), "DELETE", key);
+                        return true;
+                    });
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> list(String prefix, Consumer<StorageObject> consumer) {
+        return listPage(prefix, null, consumer);
+    }
+
+    /**
+     * 读取一页（ListObjectsV2，每页最多1000个），处理完再请求下一页
+     */
+    private CompletableFuture<Void> listPage(String prefix, String continuationToken, Consumer<StorageObject> consumer) {
+        Map<String, String> query = new TreeMap<>();
+        query.put("list-type", "2");
+        query.put("prefix", keyPrefix + prefix);
+        if (continuationToken != null) {
+            query.put("continuation-token", continuationToken);
+        }
+        HttpRequest request = signed("GET", null, query, EMPTY_SHA256, config.getRequestTimeoutMs()).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenCompose(response -> {
+                    check(response.statusCode(), new String(response.body(), StandardCharsets.UTF_8), "LIST", prefix);
+                    Document document = parseXml(response.body());
+                    NodeList contents = document.getElementsByTagName("Contents");
+                    for (int i = 0; i < contents.getLength(); i++) {
+                        Element item = (Element) contents.item(i);
+                        String key = text(item, "Key");
+                        if (key == null || !key.startsWith(keyPrefix)) {
+                            continue;
+                        }
+                        StorageObject object = new StorageObject()
+                                .setKey(key.substring(keyPrefix.length()))
+                                .setSize(Long.parseLong(text(item, "Size")))
+                                .setEtag(unquote(text(item, "ETag")));
+                        String lastModified = text(item, "LastModified");
+                        if (lastModified != null) {
+                            object.setLastModified(Instant.parse(lastModified).toEpochMilli());
+                        }
+                        consumer.accept(object);
+                    }
+                    String next = text(document.getDocumentElement(), "NextContinuationToken");
+                    if ("true".equals(text(document.getDocumentElement(), "IsTruncated")) && next != null) {
+                        return listPage(prefix, next, consumer);
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    @Override
+    public String accessUrl(String key, String downloadName, Duration ttl) {
+        if (downloadName == null && StringUtils.hasText(config.getPublicBaseUrl())) {
+            return config.getPublicBaseUrl().replaceAll("/+$", "") + "/" + encode(keyPrefix + key, true);
+        }
+        Instant now = clock.instant();
+        String amzDate = AMZ_DATE.format(now);
+        String scope = AMZ_DAY.format(now) + "/" + config.getRegion() + "/s3/aws4_request";
+        Map<String, String> query = new TreeMap<>();
+        query.put("X-Amz-Algorithm", ALGORITHM);
+        query.put("X-Amz-Credential", config.getAccessKey() + "/" + scope);
+        query.put("X-Amz-Date", amzDate);
+        query.put("X-Amz-Expires", String.valueOf(Math.min(MAX_PRESIGN_SECONDS, Math.max(1, ttl.getSeconds()))));
+        query.put("X-Amz-SignedHeaders", "host");
+        if (downloadName != null) {
+            query.put("response-content-disposition",
+                    ContentDisposition.attachment().filename(downloadName, StandardCharsets.UTF_8).build().toString());
+        }
+        String path = objectPath(key);
+        String canonicalQuery = canonicalQuery(query);
+        String canonicalRequest = "GET\n" + path + "\n" + canonicalQuery + "\nhost:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        String signature = signature(now, scope, canonicalRequest);
+        return scheme + "://" + host + path + "?" + canonicalQuery + "&X-Amz-Signature=" + signature;
+    }
+
+    /**
+     * 构造带 Signature V4 签名头的请求
+     *
+     * @param key 对象键，为null时请求存储桶本身（列举）
+     */
+    private HttpRequest.Builder signed(String method, String key, Map<String, String> query, String payloadHash,
+                                       long timeoutMs) {
+        Instant now = clock.instant();
+        String amzDate = AMZ_DATE.format(now);
+        String scope = AMZ_DAY.format(now) + "/" + config.getRegion() + "/s3/aws4_request";
+        String path = key == null ? (bucketPath.isEmpty() ? "/" : bucketPath + "/") : objectPath(key);
+        String canonicalQuery = canonicalQuery(query);
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + payloadHash + "\n"
+                + "x-amz-date:" + amzDate + "\n\n"
+                + signedHeaders + "\n" + payloadHash;
+        String authorization = ALGORITHM + " Credential=" + config.getAccessKey() + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature(now, scope, canonicalRequest);
+        URI uri = URI.create(scheme + "://" + host + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", authorization);
+    }
+
+    private String signature(Instant now, String scope, String canonicalRequest) {
+        try {
+            String stringToSign = ALGORITHM + "\n" + AMZ_DATE.format(now) + "\n" + scope + "\n"
+                    + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+            byte[] signingKey = hmac(("AWS4" + config.getSecretKey()).getBytes(StandardCharsets.UTF_8), AMZ_DAY.format(now));
+            signingKey = hmac(signingKey, config.getRegion());
+            signingKey = hmac(signingKey, "s3");
+            signingKey = hmac(signingKey, "aws4_request");
+            return HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("对象存储请求签名失败", e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String objectPath(String key) {
+        return bucketPath + "/" + encode(keyPrefix + key, true);
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        Map<String, String> encoded = new TreeMap<>();
+        query.forEach((name, value) -> encoded.put(encode(name, false), encode(value, false)));
+        StringBuilder builder = new StringBuilder();
+        encoded.forEach((name, value) -> {
+            if (builder.length() > 0) {
+                builder.append('&');
+            }
+            builder.append(name).append('=').append(value);
+        });
+        return builder.toString();
+    }
+
+    /**
+     * 按 RFC 3986 编码（只保留非保留字符），路径中的 / 可选择保留
+     */
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                builder.append(c);
+            } else {
+                builder.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void check(int status, String body, String operation, String key) {
+        if (status < 200 || status >= 300) {
+            String detail = body == null ? "" : body.length() > 300 ? body.substring(0, 300) : body;
+            throw new UncheckedIOException(new IOException(
+                    "对象存储请求失败 - " + operation + " " + key + ", 状态码: " + status + ", 响应: " + detail));
+        }
+    }
+
+    private static Document parseXml(byte[] body) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder().parse(new ByteArrayInputStream(body));
+        } catch (Exception e) {
+            throw new UncheckedIOException(new IOException("解析对象存储列表响应失败: " + e.getMessage(), e));
+        }
+    }
+
+    /**
+     * 取元素下第一个同名子元素的文本
+     */
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() == 0 ? null : nodes.item(0).getTextContent();
+    }
+
+    private static String unquote(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        String value = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1) : value;
+    }
+}
@@ -0,0 +1,122 @@
+package chat.liuxin.liutech.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * 存储后端接口（SPI）
+ * 上传文件按对象键（相对上传根目录的路径，如 images/ab/cd/abcd....png）存取，
+ * 所有操作都是异步的，返回的 CompletableFuture 在专用IO线程池或 HTTP 客户端中完成，不占用调用线程；
+ * 读取返回流，调用方边读边写，不把整个文件放进内存。
+ *
+ * 对象不存在时：head 返回null，get/getRange 以 NoSuchFileException 失败，delete 返回false。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public interface StorageBackend {
+
+    /**
+     * 后端名称（配置中使用，如 local、s3）
+     *
+     * @return 名称
+     */
+    String name();
+
+    /**
+     * 写入对象（已存在时覆盖）
+     * 本地后端会把源文件原子移动到目标位置，调用方在完成后删除仍然存在的源文件即可
+     *
+     * @param key 对象键
+     * @param source 源文件（本地临时文件）
+     * @return 完成信号
+     */
+    CompletableFuture<Void> put(String key, Path source);
+
+    /**
+     * 对象不存在时才写入（内容寻址存储，同一键的内容必然相同）
+     *
+     * @param key 对象键
+     * @param source 源文件（本地临时文件）
+     * @return 写入返回true，已存在返回false
+     */
+    CompletableFuture<Boolean> putIfAbsent(String key, Path source);
+
+    /**
+     * 读取整个对象
+     *
+     * @param key 对象键
+     * @return 内容流（调用方负责关闭）
+     */
+    CompletableFuture<InputStream> get(String key);
+
+    /**
+     * 读取对象的一段
+     *
+     * @param key 对象键
+     * @param start 起始字节（含）
+     * @param end 结束字节（含）
+     * @return 内容流（调用方负责关闭）
+     */
+    CompletableFuture<InputStream> getRange(String key, long start, long end);
+
+    /**
+     * 查询对象元数据
+     *
+     * @param key 对象键
+     * @return 元数据，不存在时为null
+     */
+    CompletableFuture<StorageObject> head(String key);
+
+    /**
+     * 对象是否存在
+     *
+     * @param key 对象键
+     * @return 是否存在
+     */
+    default CompletableFuture<Boolean> exists(String key) {
+        return head(key).thenApply(object -> object != null);
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param key 对象键
+     * @return 删除返回true，不存在返回false
+     */
+    CompletableFuture<Boolean> delete(String key);
+
+    /**
+     * 列出前缀下的全部对象（分页读取，逐个交给 consumer，不在内存中累积）
+     *
+     * @param prefix 键前缀（如 images/）
+     * @param consumer 对象处理器（在IO线程中调用）
+     * @return 列举完成信号
+     */
+    CompletableFuture<Void> list(String prefix, Consumer<StorageObject> consumer);
+
+    /**
+     * 对象在本机文件系统上的路径（可直接 sendfile、交给 Nginx 或 ImageIO 读取）
+     *
+     * @param key 对象键
+     * @return 本地路径；远程后端返回null
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+
+    /**
+     * 客户端可直接访问对象的URL（公开地址或预签名URL）
+     *
+     * @param key 对象键
+     * @param downloadName 下载文件名（为null时按内联方式返回）
+     * @param ttl 有效期（公开地址忽略）
+     * @return URL；不支持时返回null
+     */
+    default String accessUrl(String key, String downloadName, Duration ttl) {
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package chat.liuxin.liutech.storage;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 存储对象元数据
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@Data
+@Accessors(chain = true)
+public class StorageObject {
+
+    /**
+     * 对象键（相对上传根目录的路径）
+     */
+    private String key;
+
+    /**
+     * 大小（字节）
+     */
+    private long size;
+
+    /**
+     * 最后修改时间（毫秒时间戳）
+     */
+    private long lastModified;
+
+    /**
+     * 后端给出的实体标签（不含引号），本地后端为null
+     */
+    private String etag;
+}
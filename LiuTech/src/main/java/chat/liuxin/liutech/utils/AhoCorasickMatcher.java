@@ -0,0 +1,389 @@
+package chat.liuxin.liutech.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Aho-Corasick 多模式匹配器
+ * 把整个违禁词词典编译成一个自动机，对任意长度的文本只需线性扫描一遍即可找出全部命中，
+ * 扫描耗时与词典大小无关（正则逐词匹配的耗时随词典线性增长）。
+ *
+ * 归一化规则（建词与扫描使用同一套规则）：
+ * 1) 全角字符转半角，英文字母转小写；
+ * 2) 标点、符号、零宽字符视为可忽略字符，不参与匹配，因此“傻 * 逼”“f.u.c.k”等简单混淆写法也能命中；
+ * 3) 空白在中文之间同样忽略；但前后都是英文字母/数字时视为单词分隔（连续空白折叠为一个空格参与匹配），
+ *    避免 "grass hole" 这类跨单词拼接误命中，词典中带空格的英文词组（如 "blow job"）仍可正常命中。
+ *
+ * 实例构建完成后不可变，可被多个线程同时使用；词典热更新时整体替换实例即可。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class AhoCorasickMatcher {
+
+    private static final AhoCorasickMatcher EMPTY = new AhoCorasickMatcher(Collections.emptyList());
+
+    /**
+     * 根节点
+     */
+    private final Node root;
+
+    /**
+     * 词典中的有效词条数量
+     */
+    private final int wordCount;
+
+    private AhoCorasickMatcher(Collection<String> words) {
+        this.root = new Node();
+        int count = 0;
+        for (String word : words) {
+            if (insert(word)) {
+                count++;
+            }
+        }
+        this.wordCount = count;
+        root.freeze();
+        buildFailureLinks();
+    }
+
+    /**
+     * 根据词典构建匹配器
+     *
+     * @param words 违禁词列表（原始写法即可，内部会做归一化）
+     * @return 匹配器实例
+     */
+    public static AhoCorasickMatcher build(Collection<String> words) {
+        if (words == null || words.isEmpty()) {
+            return EMPTY;
+        }
+        return new AhoCorasickMatcher(words);
+    }
+
+    /**
+     * 空匹配器（不会命中任何内容）
+     */
+    public static AhoCorasickMatcher empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 获取词条数量
+     */
+    public int size() {
+        return wordCount;
+    }
+
+    /**
+     * 文本中是否包含任意违禁词
+     *
+     * @param text 待检测文本
+     * @return 命中返回true
+     */
+    public boolean containsAny(String text) {
+        if (text == null || wordCount == 0) {
+            return false;
+        }
+        Node state = root;
+        boolean space = false;
+        boolean latin = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (isSpace(c)) {
+                space = true;
+                continue;
+            }
+            if (isIgnorable(c)) {
+                continue;
+            }
+            boolean word = isLatin(c);
+            if (space && latin && word) {
+                state = step(state, ' ');
+            }
+            space = false;
+            latin = word;
+            state = step(state, c);
+            if (state.outputLength > 0 || state.outputLink != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 找出文本中的全部命中（单次线性扫描）
+     *
+     * @param text 待检测文本
+     * @return 命中列表，位置为原始文本中的下标（包含可忽略字符），按结束位置升序
+     */
+    public List<Match> findAll(String text) {
+        if (text == null || wordCount == 0) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        // 记录参与匹配的字符在原文中的位置，用于把命中映射回原文
+        int[] positions = new int[text.length()];
+        int fed = 0;
+        Node state = root;
+        // 上一个参与匹配的字符之后第一个空白的位置，-1 表示没有空白
+        int spaceAt = -1;
+        boolean latin = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (isSpace(c)) {
+                if (spaceAt < 0) {
+                    spaceAt = i;
+                }
+                continue;
+            }
+            if (isIgnorable(c)) {
+                continue;
+            }
+            boolean word = isLatin(c);
+            if (spaceAt >= 0 && latin && word) {
+                // 英文单词之间的空白作为一个空格参与匹配（词条不会以空格结尾，这一步不会产生命中）
+                positions[fed++] = spaceAt;
+                state = step(state, ' ');
+            }
+            spaceAt = -1;
+            latin = word;
+            positions[fed++] = i;
+            state = step(state, c);
+            for (Node out = state.outputLength > 0 ? state : state.outputLink; out != null; out = out.outputLink) {
+                int start = positions[fed - out.outputLength];
+                matches.add(new Match(start, i + 1, out.word));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 把命中的片段替换为 *（可忽略字符保持原样，便于阅读）
+     *
+     * @param text 原文
+     * @param matches findAll 的结果
+     * @return 打码后的文本
+     */
+    public static String mask(String text, List<Match> matches) {
+        if (matches == null || matches.isEmpty()) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        for (Match match : matches) {
+            for (int i = match.getStart(); i < match.getEnd(); i++) {
+                if (!isIgnorable(normalize(chars[i]))) {
+                    chars[i] = '*';
+                }
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 字符归一化：全角转半角、大写转小写
+     */
+    static char normalize(char c) {
+        if (c == '\u3000') {
+            return ' ';
+        }
+        if (c >= '\uFF01' && c <= '\uFF5E') {
+            c = (char) (c - 0xFEE0);
+        }
+        if (c < 128) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * 是否为空白字符（归一化之后调用，全角空格已转为半角）
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f'
+                || (c >= 128 && Character.isSpaceChar(c));
+    }
+
+    /**
+     * 是否为英文字母或数字（归一化之后调用）
+     */
+    static boolean isLatin(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * 是否为可忽略字符（空白、标点、符号、控制及零宽字符）
+     * 空白是否作为单词分隔由扫描时的上下文决定，见 isSpace
+     */
+    static boolean isIgnorable(char c) {
+        if (c < 128) {
+            return !((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'));
+        }
+        switch (Character.getType(c)) {
+            case Character.SPACE_SEPARATOR:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+            case Character.CONTROL:
+            case Character.FORMAT:
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+            case Character.MATH_SYMBOL:
+            case Character.CURRENCY_SYMBOL:
+            case Character.MODIFIER_SYMBOL:
+            case Character.OTHER_SYMBOL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 插入一个词条
+     *
+     * @return 词条归一化后非空则返回true
+     */
+    private boolean insert(String word) {
+        if (word == null) {
+            return false;
+        }
+        Node node = root;
+        int length = 0;
+        boolean space = false;
+        boolean latin = false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = normalize(word.charAt(i));
+            if (isSpace(c)) {
+                space = true;
+                continue;
+            }
+            if (isIgnorable(c)) {
+                continue;
+            }
+            // 与扫描规则一致：英文单词之间的空白作为一个空格
+            boolean letter = isLatin(c);
+            if (space && latin && letter) {
+                node = node.building.computeIfAbsent(' ', k -> new Node());
+                length++;
+            }
+            space = false;
+            latin = letter;
+            node = node.building.computeIfAbsent(c, k -> new Node());
+            length++;
+        }
+        if (length == 0 || node.outputLength > 0) {
+            return false;
+        }
+        node.outputLength = length;
+        node.word = word.trim();
+        return true;
+    }
+
+    /**
+     * 按广度优先构建失败指针与输出链接
+     */
+    private void buildFailureLinks() {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node child : root.next) {
+            child.fail = root;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (int i = 0; i < node.keys.length; i++) {
+                char c = node.keys[i];
+                Node child = node.next[i];
+                Node fail = node.fail;
+                while (fail != root && fail.child(c) == null) {
+                    fail = fail.fail;
+                }
+                Node target = fail.child(c);
+                child.fail = (target != null && target != child) ? target : root;
+                child.outputLink = child.fail.outputLength > 0 ? child.fail : child.fail.outputLink;
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 状态转移
+     */
+    private Node step(Node state, char c) {
+        while (true) {
+            Node next = state.child(c);
+            if (next != null) {
+                return next;
+            }
+            if (state == root) {
+                return root;
+            }
+            state = state.fail;
+        }
+    }
+
+    /**
+     * 自动机节点
+     * 构建阶段使用TreeMap，构建完成后压缩为有序数组并用二分查找，减少中文大字符集下的内存占用
+     */
+    private static final class Node {
+        private Map<Character, Node> building = new TreeMap<>();
+        private char[] keys;
+        private Node[] next;
+        private Node fail;
+        private Node outputLink;
+        private int outputLength;
+        private String word;
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? next[index] : null;
+        }
+
+        private void freeze() {
+            keys = new char[building.size()];
+            next = new Node[building.size()];
+            int i = 0;
+            for (Map.Entry<Character, Node> entry : building.entrySet()) {
+                keys[i] = entry.getKey();
+                next[i] = entry.getValue();
+                entry.getValue().freeze();
+                i++;
+            }
+            building = null;
+        }
+    }
+
+    /**
+     * 命中结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Match {
+        /**
+         * 原文起始下标（包含）
+         */
+        private final int start;
+
+        /**
+         * 原文结束下标（不包含）
+         */
+        private final int end;
+
+        /**
+         * 命中的词条
+         */
+        private final String word;
+    }
+}
@@ -0,0 +1,144 @@
+package chat.liuxin.liutech.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 字符串布隆过滤器
+ * 判断结果为“不存在”时一定不存在；为“可能存在”时有一定误判率（由创建时的预期容量与误判率决定）。
+ * 不支持删除，元素被删除后只会增加误判，定期重建即可回收。
+ *
+ * 实现说明：
+ * 1) 位数组使用 AtomicLongArray，写入为CAS置位，可被多个线程同时读写，无需加锁；
+ * 2) 对元素做一次64位哈希后用双重哈希（h1 + i * h2）派生出 k 个位置，避免计算 k 次独立哈希。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class BloomFilter {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final long expectedInsertions;
+
+    private BloomFilter(long bitSize, int hashCount, long expectedInsertions) {
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (bitSize + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashCount = hashCount;
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * 按预期容量与误判率创建过滤器
+     *
+     * @param expectedInsertions 预期元素数量
+     * @param falsePositiveRate 期望误判率（0~1之间，如0.01）
+     * @return 过滤器实例
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k, n);
+    }
+
+    /**
+     * 写入元素
+     *
+     * @param value 元素
+     */
+    public void put(String value) {
+        long hash = hash64(value);
+        long h1 = hash;
+        long h2 = mix64(hash);
+        for (int i = 0; i < hashCount; i++) {
+            setBit(index(h1 + i * h2));
+        }
+    }
+
+    /**
+     * 元素是否可能存在
+     *
+     * @param value 元素
+     * @return false 表示一定不存在；true 表示可能存在
+     */
+    public boolean mightContain(String value) {
+        long hash = hash64(value);
+        long h1 = hash;
+        long h2 = mix64(hash);
+        for (int i = 0; i < hashCount; i++) {
+            if (!getBit(index(h1 + i * h2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 创建时的预期元素数量
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * 位数组大小（位）
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * 哈希函数个数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    private long index(long combined) {
+        return (combined & Long.MAX_VALUE) % bitSize;
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    private boolean getBit(long index) {
+        return (bits.get((int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    /**
+     * 64位 FNV-1a 哈希（按UTF-8字节计算）
+     */
+    private static long hash64(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * 64位混淆（SplitMix64 的终结函数），使各位充分扩散
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
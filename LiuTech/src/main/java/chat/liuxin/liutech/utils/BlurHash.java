@@ -0,0 +1,145 @@
+package chat.liuxin.liutech.utils;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash 编码器
+ * 把图片压缩为二三十个字符的占位串，前端解码后得到模糊的预览图，图片加载完成前用于占位。
+ *
+ * 实现说明：
+ * 1) 与 BlurHash 公开算法一致：在线性色彩空间上对图片做低频 DCT（x 方向 componentX 个、y 方向 componentY 个分量），
+ *    直流分量按 sRGB 编码为 4 个字符，交流分量量化后各占 2 个字符，使用 base83 字符表；
+ * 2) 计算量为 像素数 × 分量数，调用方应先把图片缩小到几十像素宽；
+ * 3) 透明像素按白色背景合成。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class BlurHash {
+
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * 编码图片
+     *
+     * @param image 图片（建议不超过64像素宽）
+     * @param componentX x 方向分量数（1-9）
+     * @param componentY y 方向分量数（1-9）
+     * @return BlurHash 字符串
+     */
+    public static String encode(BufferedImage image, int componentX, int componentY) {
+        if (componentX < 1 || componentX > 9 || componentY < 1 || componentY > 9) {
+            throw new IllegalArgumentException("BlurHash 分量数必须在1-9之间");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // 先转为线性色彩空间，避免每个分量重复计算
+        double[] red = new double[pixels.length];
+        double[] green = new double[pixels.length];
+        double[] blue = new double[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            int argb = pixels[i];
+            int alpha = argb >>> 24;
+            red[i] = srgbToLinear(overWhite((argb >> 16) & 0xFF, alpha));
+            green[i] = srgbToLinear(overWhite((argb >> 8) & 0xFF, alpha));
+            blue[i] = srgbToLinear(overWhite(argb & 0xFF, alpha));
+        }
+
+        double[][] factors = new double[componentX * componentY][];
+        double[] cosX = new double[width];
+        double[] cosY = new double[height];
+        for (int j = 0; j < componentY; j++) {
+            for (int y = 0; y < height; y++) {
+                cosY[y] = Math.cos(Math.PI * j * y / height);
+            }
+            for (int i = 0; i < componentX; i++) {
+                for (int x = 0; x < width; x++) {
+                    cosX[x] = Math.cos(Math.PI * i * x / width);
+                }
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int y = 0; y < height; y++) {
+                    int row = y * width;
+                    for (int x = 0; x < width; x++) {
+                        double basis = cosX[x] * cosY[y];
+                        r += basis * red[row + x];
+                        g += basis * green[row + x];
+                        b += basis * blue[row + x];
+                    }
+                }
+                double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+                factors[j * componentX + i] = new double[] {r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83((componentX - 1) + (componentY - 1) * 9, 1, hash);
+
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (double value : factors[k]) {
+                    actualMax = Math.max(actualMax, Math.abs(value));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maximumValue = (quantisedMax + 1) / 166.0;
+            encode83(quantisedMax, 1, hash);
+        } else {
+            maximumValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        double[] dc = factors[0];
+        encode83((linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4, hash);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            encode83(quantiseAc(ac[0], maximumValue) * 19 * 19
+                    + quantiseAc(ac[1], maximumValue) * 19
+                    + quantiseAc(ac[2], maximumValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    private static int overWhite(int channel, int alpha) {
+        return (channel * alpha + 255 * (255 - alpha)) / 255;
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        double normalized = value / maximumValue;
+        double signPow = Math.copySign(Math.sqrt(Math.abs(normalized)), normalized);
+        return (int) Math.max(0, Math.min(18, Math.floor(signPow * 9 + 9.5)));
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308) {
+            return (int) (v * 12.92 * 255 + 0.5);
+        }
+        return (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(int value, int length, StringBuilder out) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            out.append(BASE83.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package chat.liuxin.liutech.utils;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 年度日期位图工具类
+ * 一年中的每一天对应一位（第 dayOfYear-1 位，字节内低位在前），整年固定 46 字节（366 位），
+ * 用于签到日历等“某天是否发生过”的记录：写入是按位或，按月读取是截取对应的位段。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class DayBitmap {
+
+    /**
+     * 位图字节数（366位向上取整）
+     */
+    public static final int SIZE = 46;
+
+    private DayBitmap() {
+    }
+
+    /**
+     * 只包含指定日期一位的位图（用于与已有位图按位或）
+     *
+     * @param date 日期
+     * @return 位图
+     */
+    public static byte[] maskOf(LocalDate date) {
+        byte[] bits = new byte[SIZE];
+        set(bits, date);
+        return bits;
+    }
+
+    /**
+     * 置位
+     *
+     * @param bits 位图
+     * @param date 日期（须与位图属于同一年）
+     */
+    public static void set(byte[] bits, LocalDate date) {
+        int index = date.getDayOfYear() - 1;
+        bits[index >>> 3] |= (byte) (1 << (index & 7));
+    }
+
+    /**
+     * 是否置位
+     *
+     * @param bits 位图，为null时视为全0
+     * @param date 日期（须与位图属于同一年）
+     * @return 已置位返回true
+     */
+    public static boolean isSet(byte[] bits, LocalDate date) {
+        int index = date.getDayOfYear() - 1;
+        return bits != null && (index >>> 3) < bits.length && (bits[index >>> 3] & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * 取出某月已置位的日期（几号）
+     *
+     * @param bits 位图，为null时返回空列表
+     * @param month 年月（须与位图属于同一年）
+     * @return 已置位的日期列表，升序
+     */
+    public static List<Integer> daysOfMonth(byte[] bits, YearMonth month) {
+        List<Integer> days = new ArrayList<>();
+        if (bits == null) {
+            return days;
+        }
+        for (int day = 1; day <= month.lengthOfMonth(); day++) {
+            if (isSet(bits, month.atDay(day))) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+}
@@ -6,17 +6,27 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * 文件工具类
  * 提供文件上传、保存、验证等功能
+ *
+ * 存储布局：上传文件按内容寻址，路径为 子目录/哈希前2位/哈希3-4位/完整哈希.扩展名，
+ * 内容相同的文件落到同一路径，重复上传不再占用磁盘；写入先落到根目录下的临时目录，
+ * 边写边算 SHA-256，写完再交给存储后端（见 StorageService）放到目标路径，其他请求不会读到写了一半的文件
  * 
  * @author 刘鑫
  * @date 2025-08-07
@@ -28,47 +38,159 @@ public class FileUtil {
     private FileUploadConfig fileUploadConfig;
     
     /**
-     * 保存上传的文件
-     * 
+     * 上传过程中临时文件所在目录（位于上传根目录下，保证与目标路径同一文件系统，可原子移动）
+     */
+    public static final String STAGING_DIR = ".staging";
+
+    /**
+     * 预压缩兄弟文件的后缀（与原文件同目录，文件名为 原文件名.gz / 原文件名.br）
+     */
+    public static final List<String> PRECOMPRESSED_SUFFIXES = List.of(".gz", ".br");
+
+    /**
+     * 把上传的文件写入临时文件，边写边计算SHA-256
+     *
      * @param file 上传的文件
-     * @param subPath 子路径（如：images、documents、resources）
-     * @return 文件相对路径
+     * @param temp 临时文件（由 createStagingFile 创建）
+     * @return 小写十六进制摘要
      * @throws IOException IO异常
      */
-    public String saveFile(MultipartFile file, String subPath) throws IOException {
-        // 生成文件名
-        String fileName = generateFileName(file.getOriginalFilename());
-        
-        // 构建完整路径
-        String datePath = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
-        String relativePath = subPath + "/" + datePath + "/" + fileName;
-        
-        // 创建完整的文件路径（确保为绝对路径，避免Tomcat相对路径解析到临时目录）
-        Path base = Paths.get(fileUploadConfig.getBasePath());
-        Path fullPath = (base.isAbsolute() ? base : base.toAbsolutePath()).resolve(relativePath);
-        
-        // 确保目录存在
-        Files.createDirectories(fullPath.getParent());
-        
-        // 保存文件
-        file.transferTo(fullPath.toFile());
-        
-        return relativePath;
+    public String copyToStaging(MultipartFile file, Path temp) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+             OutputStream out = Files.newOutputStream(temp, StandardOpenOption.WRITE)) {
+            in.transferTo(out);
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
-    
+
     /**
-     * 生成唯一文件名
-     * 
-     * @param originalFilename 原始文件名
-     * @return 新文件名
+     * 在临时目录创建一个空文件（权限随进程umask，移动后Nginx可直接读取）
+     *
+     * @return 临时文件路径
+     * @throws IOException IO异常
+     */
+    public Path createStagingFile() throws IOException {
+        return Files.createFile(getStagingDir().resolve(UUID.randomUUID().toString().replace("-", "") + ".tmp"));
+    }
+
+    /**
+     * 临时目录（不存在时创建）
+     *
+     * @return 临时目录路径
+     * @throws IOException IO异常
+     */
+    public Path getStagingDir() throws IOException {
+        Path stagingDir = getBasePath().resolve(STAGING_DIR);
+        Files.createDirectories(stagingDir);
+        return stagingDir;
+    }
+
+    /**
+     * 内容寻址的相对路径
+     *
+     * @param subPath 子路径
+     * @param sha256 文件内容SHA-256
+     * @param extension 扩展名（可为空）
+     * @return 相对路径，如 images/ab/cd/abcd....png
      */
-    private String generateFileName(String originalFilename) {
-        String extension = getFileExtension(originalFilename);
-        String uuid = UUID.randomUUID().toString().replace("-", "");
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return timestamp + "_" + uuid + "." + extension;
+    public String contentPath(String subPath, String sha256, String extension) {
+        String fileName = extension == null || extension.isEmpty() ? sha256 : sha256 + "." + extension;
+        return subPath + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + fileName;
+    }
+
+    /**
+     * 计算文件的SHA-256
+     *
+     * @param file 文件路径
+     * @return 小写十六进制摘要
+     * @throws IOException IO异常
+     */
+    public String sha256Hex(Path file) throws IOException {
+        MessageDigest digest = newSha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 上传根目录（绝对路径，避免Tomcat相对路径解析到临时目录）
+     *
+     * @return 上传根目录
+     */
+    public Path getBasePath() {
+        return Paths.get(fileUploadConfig.getBasePath()).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 把相对路径解析为上传根目录下的绝对路径
+     *
+     * @param relativePath 相对路径
+     * @return 绝对路径
+     * @throws IllegalArgumentException 路径越出上传根目录时抛出
+     */
+    public Path resolve(String relativePath) {
+        Path base = getBasePath();
+        Path path = base.resolve(relativePath).normalize();
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("非法的文件路径: " + relativePath);
+        }
+        return path;
+    }
+
+    /**
+     * 本站上传文件的URL转为相对路径，外链或空值返回null
+     *
+     * @param fileUrl 文件访问URL
+     * @return 相对路径
+     */
+    public String toUploadedPath(String fileUrl) {
+        if (fileUrl == null || !fileUrl.contains(fileUploadConfig.getUrlPrefix() + "/")) {
+            return null;
+        }
+        return toRelativePath(fileUrl);
+    }
+
+    /**
+     * 从文件访问URL（完整URL或 /uploads/ 开头的路径）中取出相对上传根目录的路径
+     *
+     * @param fileUrl 文件访问URL
+     * @return 相对路径
+     */
+    public String toRelativePath(String fileUrl) {
+        String marker = fileUploadConfig.getUrlPrefix() + "/";
+        int index = fileUrl.indexOf(marker);
+        if (index >= 0) {
+            return fileUrl.substring(index + marker.length());
+        }
+        return fileUrl.startsWith("/") ? fileUrl.substring(1) : fileUrl;
     }
     
+    /**
+     * 预压缩兄弟文件对应的原文件路径
+     *
+     * @param relativePath 相对路径
+     * @return 原文件相对路径；不是预压缩文件名或原文件不存在时返回null
+     */
+    public String precompressedSource(String relativePath) {
+        for (String suffix : PRECOMPRESSED_SUFFIXES) {
+            if (relativePath.endsWith(suffix)) {
+                String source = relativePath.substring(0, relativePath.length() - suffix.length());
+                return Files.isRegularFile(resolve(source)) ? source : null;
+            }
+        }
+        return null;
+    }
+
     /**
      * 获取文件扩展名
      * 
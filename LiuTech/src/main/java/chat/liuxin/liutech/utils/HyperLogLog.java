@@ -0,0 +1,155 @@
+package chat.liuxin.liutech.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog 基数估计
+ * 用固定大小的寄存器数组估算“不重复元素个数”，内存只与精度有关，与元素数量无关：
+ * 精度 p 时有 2^p 个寄存器（每个1字节），标准误差约为 1.04 / sqrt(2^p)，如 p=14 时 16KB、误差约0.8%。
+ *
+ * 说明：
+ * 1) 两个相同精度的计数器可以合并（逐寄存器取最大值），合并结果等价于对两个集合的并集计数，
+ *    重复合并同一份数据不会重复计数，因此按天保存后可以任意合并出周、月等时间窗口；
+ * 2) 寄存器数组可直接导出为字节数组持久化，再从字节数组恢复；
+ * 3) 写入与合并在实例上同步，单个计数器的竞争只发生在同一秒内的并发请求之间。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class HyperLogLog {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * 创建计数器
+     *
+     * @param precision 精度（4~18），寄存器数量为 2^precision
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("HyperLogLog精度必须在4-18之间: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 从持久化的寄存器数组恢复计数器
+     *
+     * @param registers 寄存器数组（长度必须是2的幂）
+     * @return 计数器
+     */
+    public static HyperLogLog fromBytes(byte[] registers) {
+        if (registers == null || registers.length < 16 || Integer.bitCount(registers.length) != 1) {
+            throw new IllegalArgumentException("无效的HyperLogLog寄存器数组");
+        }
+        HyperLogLog hll = new HyperLogLog(Integer.numberOfTrailingZeros(registers.length));
+        System.arraycopy(registers, 0, hll.registers, 0, registers.length);
+        return hll;
+    }
+
+    /**
+     * 记录一个元素
+     *
+     * @param value 元素
+     */
+    public void offer(String value) {
+        long hash = hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // 剩余位中第一个1出现的位置（从1开始），末尾补1避免全0时越界
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        synchronized (this) {
+            if (registers[index] < rank) {
+                registers[index] = rank;
+            }
+        }
+    }
+
+    /**
+     * 合并另一个计数器（结果为两者的并集）
+     *
+     * @param other 相同精度的计数器
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("HyperLogLog精度不一致: " + precision + " / " + other.precision);
+        }
+        byte[] snapshot = other.toBytes();
+        synchronized (this) {
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] < snapshot[i]) {
+                    registers[i] = snapshot[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 估算不重复元素个数
+     *
+     * @return 基数估计值
+     */
+    public synchronized long cardinality() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // 小基数时使用线性计数修正
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * 导出寄存器数组的拷贝（用于持久化）
+     */
+    public synchronized byte[] toBytes() {
+        return registers.clone();
+    }
+
+    /**
+     * 精度
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * 64位哈希：FNV-1a（按UTF-8字节）后再做 SplitMix64 混淆，使高位分布均匀（寄存器下标取自高位）
+     */
+    private static long hash64(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
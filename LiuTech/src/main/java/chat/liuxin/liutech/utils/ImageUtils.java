@@ -0,0 +1,263 @@
+package chat.liuxin.liutech.utils;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * 图片处理工具类（基于 JDK ImageIO，不依赖本地库）
+ *
+ * 实现说明：
+ * 1) probe 只解析文件头取得尺寸与格式，不解码像素；
+ * 2) 大图按子采样解码，只读取生成变体所需的像素，降低解码时间与内存占用；
+ * 3) 缩小时每次最多缩小一半、逐级进行，单步双线性插值在大比例缩小时会丢失细节。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class ImageUtils {
+
+    private ImageUtils() {
+    }
+
+    /**
+     * 读取图片尺寸与格式
+     *
+     * @param file 图片文件
+     * @return 图片信息，不是可识别的图片时返回null
+     * @throws IOException IO异常
+     */
+    public static ImageInfo probe(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = firstReader(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(in, true, true);
+                return new ImageInfo(reader.getWidth(0), reader.getHeight(0), reader.getFormatName().toLowerCase());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 解码图片（第一帧）
+     *
+     * @param file 图片文件
+     * @param subsampling 子采样步长（1表示完整解码，2表示每隔一个像素取一个）
+     * @return 图片，不是可识别的图片时返回null
+     * @throws IOException IO异常
+     */
+    public static BufferedImage read(Path file, int subsampling) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = firstReader(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 按宽度等比缩小
+     *
+     * @param source 原图
+     * @param width 目标宽度
+     * @param alpha 是否保留透明通道
+     * @return 缩小后的图片
+     */
+    public static BufferedImage resizeToWidth(BufferedImage source, int width, boolean alpha) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        return scale(source, width, height, alpha);
+    }
+
+    /**
+     * 等比缩小后居中裁剪为指定尺寸（原图不足时不放大，裁剪尺寸随之缩小）
+     *
+     * @param source 原图
+     * @param width 目标宽度
+     * @param height 目标高度
+     * @param alpha 是否保留透明通道
+     * @return 裁剪后的图片
+     */
+    public static BufferedImage cropCover(BufferedImage source, int width, int height, boolean alpha) {
+        double ratio = Math.min(1.0, Math.max((double) width / source.getWidth(), (double) height / source.getHeight()));
+        int scaledWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int scaledHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage scaled = scale(source, scaledWidth, scaledHeight, alpha);
+        int cropWidth = Math.min(width, scaledWidth);
+        int cropHeight = Math.min(height, scaledHeight);
+        return scaled.getSubimage((scaledWidth - cropWidth) / 2, (scaledHeight - cropHeight) / 2, cropWidth, cropHeight);
+    }
+
+    /**
+     * 主色调：按每通道4位量化统计像素，取出现最多的颜色桶内像素的平均色（透明像素不计）
+     *
+     * @param image 图片（建议先缩小）
+     * @return 颜色，如 #3a6ea5；全透明时返回null
+     */
+    public static String dominantColor(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        int[] counts = new int[4096];
+        long[] sums = new long[4096 * 3];
+        for (int argb : pixels) {
+            if ((argb >>> 24) < 128) {
+                continue;
+            }
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            int bucket = ((r >> 4) << 8) | ((g >> 4) << 4) | (b >> 4);
+            counts[bucket]++;
+            sums[bucket * 3] += r;
+            sums[bucket * 3 + 1] += g;
+            sums[bucket * 3 + 2] += b;
+        }
+        int best = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && (best < 0 || counts[i] > counts[best])) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        int n = counts[best];
+        return String.format("#%02x%02x%02x", sums[best * 3] / n, sums[best * 3 + 1] / n, sums[best * 3 + 2] / n);
+    }
+
+    /**
+     * 运行时是否有该格式的编码器（如 webp 需要额外的 ImageIO 插件）
+     *
+     * @param format 格式名
+     * @return 是否可写
+     */
+    public static boolean canWrite(String format) {
+        return ImageIO.getImageWritersByFormatName(format).hasNext();
+    }
+
+    /**
+     * 编码并写入文件
+     *
+     * @param image 图片
+     * @param format 格式名（jpeg、png、webp）
+     * @param quality 压缩质量（0-1），小于0时使用编码器默认值
+     * @param target 目标文件
+     * @throws IOException IO异常
+     */
+    public static void write(BufferedImage image, String format, float quality, Path target) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("没有可用的图片编码器: " + format);
+        }
+        ImageWriter writer = writers.next();
+        Files.deleteIfExists(target);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (quality >= 0 && param.canWriteCompressed()) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                String[] types = param.getCompressionTypes();
+                if (types != null && types.length > 0 && param.getCompressionType() == null) {
+                    param.setCompressionType(types[0]);
+                }
+                param.setCompressionQuality(quality);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static ImageReader firstReader(ImageInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        return readers.hasNext() ? readers.next() : null;
+    }
+
+    /**
+     * 逐级缩小到目标尺寸（每步最多缩小一半）
+     */
+    private static BufferedImage scale(BufferedImage source, int targetWidth, int targetHeight, boolean alpha) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    // 不保留透明通道时透明区域按白色背景合成（JPEG没有透明通道）
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, width, height);
+                }
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * 图片尺寸与格式
+     */
+    public static final class ImageInfo {
+        private final int width;
+        private final int height;
+        private final String format;
+
+        private ImageInfo(int width, int height, String format) {
+            this.width = width;
+            this.height = height;
+            this.format = format;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public String getFormat() {
+            return format;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package chat.liuxin.liutech.utils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * IP工具类
+ * 从请求中解析客户端真实IP，供请求计时切面、登录限流等共用
+ *
+ * 解析规则（结果会作为限流key，必须防止客户端伪造）：
+ * 1) 只有直连地址是受信任的代理（回环、内网地址，如同机或同一 Docker 网络中的 nginx）时才读取代理头，
+ *    公网直连的请求直接使用 remoteAddr，自带的 X-Real-IP / X-Forwarded-For 一律忽略；
+ * 2) 优先使用 X-Real-IP：nginx 以 $remote_addr 覆盖写入，客户端无法伪造；
+ * 3) 其次从右向左取 X-Forwarded-For 中第一个非受信任代理的地址：
+ *    nginx 的 $proxy_add_x_forwarded_for 会把客户端自带的值保留在左侧，最左边的值可以任意伪造。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class IpUtil {
+
+    /**
+     * 获取客户端真实IP地址
+     * 考虑代理服务器的情况
+     *
+     * @param request HTTP请求
+     * @return 客户端IP
+     */
+    public static String getClientIpAddress(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isBlank() && !"unknown".equalsIgnoreCase(xRealIp.trim())) {
+            return xRealIp.trim();
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+            // 从右向左跳过受信任的代理，第一个不受信任的地址就是最近一跳代理看到的客户端
+            String[] hops = xForwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !"unknown".equalsIgnoreCase(hop) && !isTrustedProxy(hop)) {
+                    return hop;
+                }
+            }
+        }
+
+        return remoteAddr;
+    }
+
+    /**
+     * 是否为受信任的代理地址（回环、内网、链路本地地址）
+     * 只解析IP字面量，不做DNS查询
+     */
+    static boolean isTrustedProxy(String address) {
+        if (address == null || address.isEmpty() || !isIpLiteral(address)) {
+            return false;
+        }
+        try {
+            InetAddress inet = InetAddress.getByName(address);
+            if (inet.isLoopbackAddress() || inet.isSiteLocalAddress() || inet.isLinkLocalAddress()) {
+                return true;
+            }
+            // IPv6 唯一本地地址 fc00::/7
+            byte[] bytes = inet.getAddress();
+            return bytes.length == 16 && (bytes[0] & 0xFE) == 0xFC;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 是否为IP字面量（IPv4 点分十进制或含冒号的IPv6），避免 InetAddress 把主机名当作域名解析
+     */
+    private static boolean isIpLiteral(String address) {
+        if (address.indexOf(':') >= 0) {
+            return true;
+        }
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
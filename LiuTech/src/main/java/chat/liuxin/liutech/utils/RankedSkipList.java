@@ -0,0 +1,301 @@
+package chat.liuxin.liutech.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带排名的跳表（有序集合）
+ * 成员为用户ID，按分数从高到低排序（分数相同按ID升序），更新分数、查询排名、按排名取区间均为 O(log n)。
+ *
+ * 实现说明：
+ * 1) 结构与 Redis 有序集合相同：每层的前向指针记录跨度（跳过的节点数），查找时累加跨度即得到排名；
+ * 2) 另用 HashMap 保存“成员 -> 分数”，更新时先按旧分数定位并删除节点再插入；
+ * 3) 所有方法在实例上同步，读写都是内存操作，临界区很短。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public final class RankedSkipList {
+
+    private static final int MAX_LEVEL = 32;
+    private static final double LEVEL_PROBABILITY = 0.25;
+
+    private final Node head = new Node(0L, 0, MAX_LEVEL);
+    private final Map<Long, Double> scores = new HashMap<>();
+    private int level = 1;
+    private int length;
+
+    /**
+     * 设置成员分数（不存在时添加）
+     *
+     * @param member 成员
+     * @param score 分数
+     */
+    public synchronized void put(long member, double score) {
+        Double current = scores.get(member);
+        if (current != null) {
+            if (Double.compare(current, score) == 0) {
+                return;
+            }
+            delete(current, member);
+        }
+        insert(score, member);
+        scores.put(member, score);
+    }
+
+    /**
+     * 成员不存在时才设置分数
+     *
+     * @param member 成员
+     * @param score 分数
+     * @return 已添加返回true，成员已存在返回false
+     */
+    public synchronized boolean putIfAbsent(long member, double score) {
+        if (scores.containsKey(member)) {
+            return false;
+        }
+        insert(score, member);
+        scores.put(member, score);
+        return true;
+    }
+
+    /**
+     * 增加成员分数（不存在时以0为初值）
+     *
+     * @param member 成员
+     * @param delta 增量
+     * @return 增加后的分数
+     */
+    public synchronized double increment(long member, double delta) {
+        Double current = scores.get(member);
+        double score = (current != null ? current : 0) + delta;
+        put(member, score);
+        return score;
+    }
+
+    /**
+     * 移除成员
+     *
+     * @param member 成员
+     * @return 成员存在并已移除返回true
+     */
+    public synchronized boolean remove(long member) {
+        Double current = scores.remove(member);
+        if (current == null) {
+            return false;
+        }
+        delete(current, member);
+        return true;
+    }
+
+    /**
+     * 成员分数
+     *
+     * @param member 成员
+     * @return 分数，不存在时返回null
+     */
+    public synchronized Double score(long member) {
+        return scores.get(member);
+    }
+
+    /**
+     * 成员排名
+     *
+     * @param member 成员
+     * @return 排名（从1开始），不存在时返回0
+     */
+    public synchronized int rank(long member) {
+        Double score = scores.get(member);
+        if (score == null) {
+            return 0;
+        }
+        int rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && !ranksAfter(x.next[i], score, member)) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+            if (x != head && x.member == member) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 按排名取区间
+     *
+     * @param offset 起始偏移（0表示第1名）
+     * @param limit 数量
+     * @return 条目列表，按排名升序
+     */
+    public synchronized List<Entry> range(int offset, int limit) {
+        List<Entry> result = new ArrayList<>(Math.max(0, Math.min(limit, length - offset)));
+        if (offset < 0 || limit <= 0 || offset >= length) {
+            return result;
+        }
+        int rank = offset + 1;
+        Node x = nodeAt(rank);
+        while (x != null && result.size() < limit) {
+            result.add(new Entry(x.member, x.score, rank++));
+            x = x.next[0];
+        }
+        return result;
+    }
+
+    /**
+     * 成员数量
+     */
+    public synchronized int size() {
+        return length;
+    }
+
+    /**
+     * (score, member) 是否排在节点之前：分数高者在前，分数相同ID小者在前
+     */
+    private static boolean ranksBefore(Node node, double score, long member) {
+        int cmp = Double.compare(node.score, score);
+        return cmp > 0 || (cmp == 0 && node.member < member);
+    }
+
+    /**
+     * 节点是否排在 (score, member) 之后
+     */
+    private static boolean ranksAfter(Node node, double score, long member) {
+        int cmp = Double.compare(node.score, score);
+        return cmp < 0 || (cmp == 0 && node.member > member);
+    }
+
+    private void insert(double score, long member) {
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && ranksBefore(x.next[i], score, member)) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        int newLevel = randomLevel();
+        if (newLevel > level) {
+            for (int i = level; i < newLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                update[i].span[i] = length;
+            }
+            level = newLevel;
+        }
+        x = new Node(member, score, newLevel);
+        for (int i = 0; i < newLevel; i++) {
+            x.next[i] = update[i].next[i];
+            update[i].next[i] = x;
+            x.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = (rank[0] - rank[i]) + 1;
+        }
+        for (int i = newLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        length++;
+    }
+
+    private void delete(double score, long member) {
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && ranksBefore(x.next[i], score, member)) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        x = x.next[0];
+        if (x == null || x.member != member || Double.compare(x.score, score) != 0) {
+            return;
+        }
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == x) {
+                update[i].span[i] += x.span[i] - 1;
+                update[i].next[i] = x.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        length--;
+    }
+
+    /**
+     * 第 rank 名的节点（从1开始）
+     */
+    private Node nodeAt(int rank) {
+        int traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private static int randomLevel() {
+        int newLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (newLevel < MAX_LEVEL && random.nextDouble() < LEVEL_PROBABILITY) {
+            newLevel++;
+        }
+        return newLevel;
+    }
+
+    /**
+     * 排行榜条目
+     */
+    public static final class Entry {
+        private final long member;
+        private final double score;
+        private final int rank;
+
+        private Entry(long member, double score, int rank) {
+            this.member = member;
+            this.score = score;
+            this.rank = rank;
+        }
+
+        public long getMember() {
+            return member;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+    }
+
+    private static final class Node {
+        private final long member;
+        private final double score;
+        private final Node[] next;
+        private final int[] span;
+
+        private Node(long member, double score, int level) {
+            this.member = member;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
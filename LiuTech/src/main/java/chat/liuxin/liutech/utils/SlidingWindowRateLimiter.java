@@ -0,0 +1,201 @@
+package chat.liuxin.liutech.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按key计数的滑动窗口限流器
+ * 采用“滑动窗口计数”近似算法：每个key只保存当前窗口与上一个窗口的计数，
+ * 估算值 = 上一窗口计数 × 上一窗口仍落在滑动区间内的比例 + 当前窗口计数。
+ * 与逐条记录时间戳的滑动日志相比，每个key的内存是常量，判断是O(1)。
+ *
+ * key数量超过上限时先清理计数已过期的key，仍然超出时淘汰最久未访问的一批key（EVICT_RATIO），
+ * 防止被大量随机key撑爆内存，同时不会像整体清空那样把正在被限流的key一并放掉。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class SlidingWindowRateLimiter {
+
+    /**
+     * 容量已满且没有空闲key时，一次淘汰的key比例
+     */
+    private static final double EVICT_RATIO = 0.1;
+
+    /**
+     * 窗口内允许的最大次数
+     */
+    private final int limit;
+
+    /**
+     * 窗口长度（毫秒）
+     */
+    private final long windowMillis;
+
+    /**
+     * 最多跟踪的key数量
+     */
+    private final int maxKeys;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public SlidingWindowRateLimiter(int limit, long windowMillis, int maxKeys) {
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 尝试计数一次
+     *
+     * @param key 限流key（用户名、IP等）
+     * @return 未超出限制并已计数返回true；超出限制返回false（不计数）
+     */
+    public boolean tryAcquire(String key) {
+        return window(key).tryAcquire(System.currentTimeMillis());
+    }
+
+    /**
+     * 是否已达到限制（只判断，不计数）
+     *
+     * @param key 限流key
+     * @return 已达到限制返回true
+     */
+    public boolean isLimited(String key) {
+        Window window = windows.get(key);
+        return window != null && window.estimate(System.currentTimeMillis()) >= limit;
+    }
+
+    /**
+     * 记录一次（不判断限制，用于统计失败次数等场景）
+     *
+     * @param key 限流key
+     */
+    public void record(String key) {
+        window(key).record(System.currentTimeMillis());
+    }
+
+    /**
+     * 清除key的计数
+     *
+     * @param key 限流key
+     */
+    public void reset(String key) {
+        windows.remove(key);
+    }
+
+    /**
+     * 清理计数已全部过期的key
+     *
+     * @return 清理的key数量
+     */
+    public int purgeIdle() {
+        long now = System.currentTimeMillis();
+        int before = windows.size();
+        windows.values().removeIf(w -> w.isIdle(now));
+        return before - windows.size();
+    }
+
+    /**
+     * 当前跟踪的key数量
+     */
+    public int size() {
+        return windows.size();
+    }
+
+    private Window window(String key) {
+        Window window = windows.get(key);
+        if (window != null) {
+            return window;
+        }
+        if (windows.size() >= maxKeys) {
+            purgeIdle();
+            if (windows.size() >= maxKeys) {
+                evictOldest();
+            }
+        }
+        return windows.computeIfAbsent(key, k -> new Window());
+    }
+
+    /**
+     * 淘汰最久未访问的一批key（按最后访问时间取分位点，访问时间不晚于分位点的key全部淘汰）
+     */
+    private synchronized void evictOldest() {
+        if (windows.size() < maxKeys) {
+            return;
+        }
+        long[] accessTimes = windows.values().stream().mapToLong(w -> w.lastAccess).toArray();
+        if (accessTimes.length == 0) {
+            return;
+        }
+        Arrays.sort(accessTimes);
+        int index = Math.min(accessTimes.length - 1, Math.max(0, (int) (accessTimes.length * EVICT_RATIO) - 1));
+        long threshold = accessTimes[index];
+        windows.values().removeIf(w -> w.lastAccess <= threshold);
+    }
+
+    /**
+     * 单个key的窗口状态
+     */
+    private final class Window {
+        private long windowStart;
+        private int previousCount;
+        private int currentCount;
+
+        /**
+         * 最后一次计数或判断的时间，用于容量满时淘汰最久未访问的key
+         */
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private synchronized boolean tryAcquire(long now) {
+            lastAccess = now;
+            roll(now);
+            if (estimateLocked(now) >= limit) {
+                return false;
+            }
+            currentCount++;
+            return true;
+        }
+
+        private synchronized void record(long now) {
+            lastAccess = now;
+            roll(now);
+            currentCount++;
+        }
+
+        private synchronized double estimate(long now) {
+            lastAccess = now;
+            roll(now);
+            return estimateLocked(now);
+        }
+
+        private synchronized boolean isIdle(long now) {
+            roll(now);
+            return previousCount == 0 && currentCount == 0;
+        }
+
+        private double estimateLocked(long now) {
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+            return previousCount * Math.max(0, previousWeight) + currentCount;
+        }
+
+        /**
+         * 时间进入新的窗口时滚动计数
+         */
+        private void roll(long now) {
+            long elapsed = now - windowStart;
+            if (elapsed < windowMillis) {
+                return;
+            }
+            if (elapsed < 2 * windowMillis) {
+                previousCount = currentCount;
+                windowStart += windowMillis;
+            } else {
+                previousCount = 0;
+                windowStart = now - (elapsed % windowMillis);
+            }
+            currentCount = 0;
+        }
+    }
+}
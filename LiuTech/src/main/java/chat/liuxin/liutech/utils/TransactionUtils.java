@@ -0,0 +1,32 @@
+package chat.liuxin.liutech.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ * 用于在事务提交后再更新内存缓存，避免回滚的数据进入缓存
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+public class TransactionUtils {
+
+    /**
+     * 在当前事务提交后执行动作；当前没有事务时立即执行
+     *
+     * @param action 要执行的动作
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package chat.liuxin.liutech.utils;
 
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import chat.liuxin.liutech.cache.CommentTreeCache;
+import chat.liuxin.liutech.cache.LatestCommentsFeed;
+import chat.liuxin.liutech.cache.UserIdentityCache;
 import chat.liuxin.liutech.mapper.UserMapper;
 import chat.liuxin.liutech.model.Users;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 /**
  * 用户工具类
  * 提供用户相关的公共方法，包括获取当前登录用户信息等
+ * 当前用户先在请求内记忆，再走用户身份缓存，同一请求内多次获取不会重复查询数据库
  * 
  * @author 刘鑫
  * @date 2025-08-30
@@ -21,15 +28,29 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Component
 public class UserUtils {
+
+    /**
+     * 请求内记忆当前用户的属性名
+     */
+    private static final String CURRENT_USER_ATTRIBUTE = UserUtils.class.getName() + ".CURRENT_USER";
     
     @Autowired
     private UserMapper userMapper;
+
+    @Autowired
+    private UserIdentityCache userIdentityCache;
+
+    @Autowired
+    private CommentTreeCache commentTreeCache;
+
+    @Autowired
+    private LatestCommentsFeed latestCommentsFeed;
     
     /**
      * 从Spring Security上下文获取当前用户ID
      * 优先策略：
      * 1) 若 Authentication 是 UsernamePasswordAuthenticationToken，且 details 中放了 userId（由Jwt过滤器设置），直接取用；
-     * 2) 若 principal 是用户名，则调用 UserMapper.findByUserName 查询数据库获取用户ID；
+     * 2) 若 principal 是用户名，则通过用户身份缓存解析用户ID（未命中时查询数据库）；
      * 3) 否则返回 null（调用处可决定是否给默认值）。
      * 
      * @return 当前用户ID，如果未登录或获取失败则返回null
@@ -52,14 +73,10 @@ public class UserUtils {
                 }
             }
 
-            // 2) 回退：从principal的用户名查询数据库
+            // 2) 回退：从principal的用户名解析（走身份缓存）
             Object principal = authentication.getPrincipal();
             if (principal instanceof String username && StringUtils.hasText(username)) {
-                // findByUserName 可能返回多条，取第一条
-                Users user = userMapper.findByUserName(username).stream().findFirst().orElse(null);
-                if (user != null && user.getId() != null) {
-                    return user.getId();
-                }
+                return userIdentityCache.getIdByUsername(username, () -> loadByUsername(username));
             }
         
         } catch (Exception e) {
@@ -105,13 +122,49 @@ public class UserUtils {
             if (!StringUtils.hasText(username)) {
                 return null;
             }
-            
-            return userMapper.findByUserName(username).stream().findFirst().orElse(null);
+
+            // 1) 同一请求内已解析过，直接复用（返回拷贝，调用方修改不影响后续获取）
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (attributes != null
+                    && attributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Users memoized
+                    && username.equals(memoized.getUsername())) {
+                return copyOf(memoized);
+            }
+
+            // 2) 走身份缓存，未命中时查询数据库
+            Users user = userIdentityCache.getByUsername(username, () -> loadByUsername(username));
+            if (user != null && attributes != null) {
+                attributes.setAttribute(CURRENT_USER_ATTRIBUTE, copyOf(user), RequestAttributes.SCOPE_REQUEST);
+            }
+            return user;
         } catch (Exception e) {
             log.error("获取当前用户信息时发生错误: {}", e.getMessage());
         }
         return null;
     }
+
+    /**
+     * 用户信息变更后使缓存失效（包括请求内记忆、身份缓存，以及带有评论者用户名与头像的评论缓存）
+     * 应在修改用户表的写操作之后调用，事务提交后会再失效一次；评论缓存在事务提交后刷新
+     *
+     * @param userId 用户ID
+     */
+    public void evictUser(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        userIdentityCache.invalidateAfterCommit(userId);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null
+                && attributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Users memoized
+                && userId.equals(memoized.getId())) {
+            attributes.removeAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+        TransactionUtils.afterCommit(() -> {
+            commentTreeCache.evictUser(userId);
+            latestCommentsFeed.evictUser(userId);
+        });
+    }
     
     /**
      * 检查当前用户是否已登录
@@ -135,4 +188,17 @@ public class UserUtils {
         Long currentUserId = getCurrentUserId();
         return userId.equals(currentUserId);
     }
+
+    /**
+     * 按用户名查询数据库（findByUserName 可能返回多条，取第一条）
+     */
+    private Users loadByUsername(String username) {
+        return userMapper.findByUserName(username).stream().findFirst().orElse(null);
+    }
+
+    private static Users copyOf(Users source) {
+        Users copy = new Users();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package chat.liuxin.liutech.interceptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import chat.liuxin.auth.config.JwtProperties;
+import chat.liuxin.auth.filter.JwtAuthenticationFilter;
+import chat.liuxin.auth.revocation.TokenRevocationRegistry;
+import chat.liuxin.auth.utils.JwtUtil;
+import chat.liuxin.liutech.service.VisitorAnalyticsService;
+import chat.liuxin.liutech.utils.UserUtils;
+
+/**
+ * VisitTrackingInterceptor 测试
+ * 按线上顺序组装 JwtAuthenticationFilter 与拦截器，验证记录访客时已能取到登录用户
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class VisitTrackingInterceptorTest {
+
+    private JwtUtil jwtUtil;
+    private VisitorAnalyticsService visitorAnalyticsService;
+    private MockMvc mockMvc;
+
+    /**
+     * 每次 recordVisit 被调用时解析到的当前用户ID
+     */
+    private final List<Long> recordedUserIds = new ArrayList<>();
+
+    @RestController
+    static class PingController {
+        @GetMapping("/ping")
+        String ping() {
+            return "pong";
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("liutech-test-secret-key-for-hmac-sha256-minimum-256-bits");
+        jwtUtil = new JwtUtil(properties);
+        JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(jwtUtil, new TokenRevocationRegistry(), List.of());
+
+        UserUtils userUtils = new UserUtils();
+        visitorAnalyticsService = mock(VisitorAnalyticsService.class);
+        doAnswer(invocation -> {
+            recordedUserIds.add(userUtils.getCurrentUserId());
+            return null;
+        }).when(visitorAnalyticsService).recordVisit(any());
+
+        VisitTrackingInterceptor interceptor = new VisitTrackingInterceptor();
+        ReflectionTestUtils.setField(interceptor, "visitorAnalyticsService", visitorAnalyticsService);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new PingController())
+                .addFilters(jwtFilter)
+                .addInterceptors(interceptor)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void recordsAuthenticatedUser() throws Exception {
+        String token = jwtUtil.generateToken(42L, "alice", 0);
+
+        mockMvc.perform(get("/ping").header("Authorization", "Bearer " + token)).andExpect(status().isOk());
+
+        assertEquals(List.of(42L), recordedUserIds);
+    }
+
+    @Test
+    void recordsAnonymousVisitorWithoutUser() throws Exception {
+        mockMvc.perform(get("/ping")).andExpect(status().isOk());
+
+        assertEquals(1, recordedUserIds.size());
+        assertNull(recordedUserIds.get(0));
+    }
+
+    @Test
+    void skipsPreflightRequests() throws Exception {
+        mockMvc.perform(options("/ping"));
+
+        verify(visitorAnalyticsService, never()).recordVisit(any());
+    }
+}
@@ -0,0 +1,280 @@
+package chat.liuxin.liutech.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import chat.liuxin.liutech.common.BusinessException;
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.UploadSessionMapper;
+import chat.liuxin.liutech.model.StoredFile;
+import chat.liuxin.liutech.model.UploadSession;
+import chat.liuxin.liutech.model.UploadSessionChunk;
+import chat.liuxin.liutech.utils.FileUtil;
+
+/**
+ * ChunkedUploadService 测试：分片写入与合并互斥、同一分片不重复写入、合并时逐片复核与合并后复核文件内容
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class ChunkedUploadServiceTest {
+
+    private static final String UPLOAD_ID = "upload-1";
+    private static final Long USER_ID = 7L;
+    private static final int CHUNK_SIZE = 4;
+
+    @TempDir
+    Path stagingDir;
+
+    private UploadSessionMapper uploadSessionMapper;
+    private StoredFileService storedFileService;
+    private StorageService storageService;
+    private FileUtil fileUtil;
+    private ChunkedUploadService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        uploadSessionMapper = mock(UploadSessionMapper.class);
+        storedFileService = mock(StoredFileService.class);
+        storageService = mock(StorageService.class);
+        fileUtil = mock(FileUtil.class);
+        when(fileUtil.getStagingDir()).thenReturn(stagingDir);
+        when(fileUtil.getFileExtension(anyString())).thenReturn("zip");
+        FileUploadConfig fileUploadConfig = new FileUploadConfig();
+        fileUploadConfig.setResourcePath("resources");
+
+        service = new ChunkedUploadService();
+        ReflectionTestUtils.setField(service, "uploadSessionMapper", uploadSessionMapper);
+        ReflectionTestUtils.setField(service, "storedFileService", storedFileService);
+        ReflectionTestUtils.setField(service, "storageService", storageService);
+        ReflectionTestUtils.setField(service, "fileUtil", fileUtil);
+        ReflectionTestUtils.setField(service, "fileUploadConfig", fileUploadConfig);
+
+        Files.write(stagingDir.resolve(UPLOAD_ID + ".part"), new byte[CHUNK_SIZE * 2]);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static UploadSession session(int status) {
+        return new UploadSession()
+                .setId(UPLOAD_ID)
+                .setUserId(USER_ID)
+                .setFileName("a.zip")
+                .setFileSize((long) CHUNK_SIZE * 2)
+                .setChunkSize(CHUNK_SIZE)
+                .setChunkCount(2)
+                .setStatus(status);
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+
+    private static UploadSessionChunk chunk(int index, byte[] data) throws Exception {
+        return new UploadSessionChunk()
+                .setUploadId(UPLOAD_ID)
+                .setChunkIndex(index)
+                .setSize((long) data.length)
+                .setSha256(sha256(data));
+    }
+
+    /**
+     * 在第 pauseAt 个字节处阻塞，直到 release 放行
+     */
+    private static InputStream pausingBody(byte[] data, int pauseAt, CountDownLatch reading, CountDownLatch release) {
+        return new InputStream() {
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                if (position == pauseAt) {
+                    reading.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                return position < data.length ? data[position++] : -1;
+            }
+        };
+    }
+
+    @Test
+    void rejectsChunkOnceCompletionClaimed() throws Exception {
+        // 进入方法时仍在上传，拿到锁后会话已被合并请求标记为合并中
+        when(uploadSessionMapper.selectById(UPLOAD_ID))
+                .thenReturn(session(UploadSession.STATUS_UPLOADING))
+                .thenReturn(session(UploadSession.STATUS_COMPLETING));
+        byte[] chunk = {1, 2, 3, 4};
+
+        assertThrows(BusinessException.class, () -> service.uploadChunk(USER_ID, UPLOAD_ID, 0, sha256(chunk),
+                chunk.length, new ByteArrayInputStream(chunk)));
+
+        verify(uploadSessionMapper, never()).insertChunk(anyString(), anyInt(), anyLong(), anyString());
+        assertArrayEquals(new byte[CHUNK_SIZE * 2], Files.readAllBytes(stagingDir.resolve(UPLOAD_ID + ".part")));
+    }
+
+    @Test
+    void completionWaitsForInFlightChunk() throws Exception {
+        when(uploadSessionMapper.selectById(UPLOAD_ID)).thenReturn(session(UploadSession.STATUS_UPLOADING));
+        when(uploadSessionMapper.updateStatus(UPLOAD_ID, UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING))
+                .thenReturn(1);
+        byte[] chunk = {1, 2, 3, 4};
+        // 只登记了一个分片，合并在标记合并中之后因分片不全而退回
+        when(uploadSessionMapper.selectChunks(UPLOAD_ID)).thenReturn(List.of(chunk(0, chunk)));
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream slowBody = pausingBody(chunk, 2, reading, release);
+        String checksum = sha256(chunk);
+
+        Future<?> upload = executor.submit(() -> {
+            service.uploadChunk(USER_ID, UPLOAD_ID, 0, checksum, chunk.length, slowBody);
+            return null;
+        });
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        Future<?> complete = executor.submit(() -> service.completeUpload(USER_ID, UPLOAD_ID));
+
+        // 分片写入未结束前不能标记合并中
+        verify(uploadSessionMapper, after(200).never()).updateStatus(anyString(), anyInt(), anyInt());
+        release.countDown();
+        upload.get(5, TimeUnit.SECONDS);
+        Exception e = assertThrows(Exception.class, () -> complete.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof BusinessException);
+
+        InOrder order = inOrder(uploadSessionMapper);
+        order.verify(uploadSessionMapper).insertChunk(UPLOAD_ID, 0, chunk.length, checksum);
+        order.verify(uploadSessionMapper).updateStatus(UPLOAD_ID, UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING);
+        order.verify(uploadSessionMapper).updateStatus(UPLOAD_ID, UploadSession.STATUS_COMPLETING, UploadSession.STATUS_UPLOADING);
+    }
+
+    @Test
+    void discardsUploadWhenStoredFileDoesNotMatch() throws Exception {
+        when(uploadSessionMapper.selectById(UPLOAD_ID)).thenReturn(session(UploadSession.STATUS_UPLOADING));
+        when(uploadSessionMapper.updateStatus(UPLOAD_ID, UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING))
+                .thenReturn(1);
+        byte[] empty = new byte[CHUNK_SIZE];
+        when(uploadSessionMapper.selectChunks(UPLOAD_ID)).thenReturn(List.of(chunk(0, empty), chunk(1, empty)));
+
+        Path part = stagingDir.resolve(UPLOAD_ID + ".part");
+        Path storedPath = stagingDir.resolve("stored.zip");
+        String relativePath = "resources/ab/cd/stored.zip";
+        String fileSha256 = sha256(new byte[CHUNK_SIZE * 2]);
+        when(fileUtil.sha256Hex(storedPath)).thenReturn("b".repeat(64));
+        when(storedFileService.storeStaged(eq(part), eq("resources"), eq(fileSha256), eq("zip"), anyLong()))
+                .thenReturn(new StoredFile().setRelativePath(relativePath).setSha256(fileSha256).setDeduplicated(false));
+        StorageService.LocalFile localFile = mock(StorageService.LocalFile.class);
+        when(localFile.getPath()).thenReturn(storedPath);
+        when(storageService.isLocal(relativePath)).thenReturn(true);
+        when(storageService.openLocal(relativePath)).thenReturn(localFile);
+
+        BusinessException e = assertThrows(BusinessException.class, () -> service.completeUpload(USER_ID, UPLOAD_ID));
+
+        assertEquals("文件校验失败，请重新上传", e.getMessage());
+        verify(storageService).delete(relativePath);
+        verify(uploadSessionMapper).deleteById(UPLOAD_ID);
+        // 会话已丢弃，不再退回上传中
+        verify(uploadSessionMapper, never()).updateStatus(UPLOAD_ID, UploadSession.STATUS_COMPLETING, UploadSession.STATUS_UPLOADING);
+        verify(storedFileService, never()).addReference(any());
+    }
+
+    @Test
+    void rejectsConcurrentWriteOfSameChunk() throws Exception {
+        when(uploadSessionMapper.selectById(UPLOAD_ID)).thenReturn(session(UploadSession.STATUS_UPLOADING));
+        byte[] first = {1, 2, 3, 4};
+        byte[] second = {5, 6, 7, 8};
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> upload = executor.submit(() -> {
+            service.uploadChunk(USER_ID, UPLOAD_ID, 0, sha256(first), first.length, pausingBody(first, 2, reading, release));
+            return null;
+        });
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        // 首个请求仍在写入时，同一分片的重试被拒绝，不会与之交错写同一段
+        assertThrows(BusinessException.class, () -> service.uploadChunk(USER_ID, UPLOAD_ID, 0, sha256(second),
+                second.length, new ByteArrayInputStream(second)));
+        release.countDown();
+        upload.get(5, TimeUnit.SECONDS);
+
+        verify(uploadSessionMapper).insertChunk(UPLOAD_ID, 0, first.length, sha256(first));
+        byte[] written = Files.readAllBytes(stagingDir.resolve(UPLOAD_ID + ".part"));
+        assertArrayEquals(first, Arrays.copyOf(written, CHUNK_SIZE));
+    }
+
+    @Test
+    void doesNotOverwriteRecordedChunk() throws Exception {
+        when(uploadSessionMapper.selectById(UPLOAD_ID)).thenReturn(session(UploadSession.STATUS_UPLOADING));
+        byte[] recorded = new byte[CHUNK_SIZE];
+        when(uploadSessionMapper.selectChunk(UPLOAD_ID, 0)).thenReturn(chunk(0, recorded));
+        byte[] other = {9, 9, 9, 9};
+
+        // 相同校验值的重试直接成功，不同校验值被拒绝，都不写盘
+        service.uploadChunk(USER_ID, UPLOAD_ID, 0, sha256(recorded), recorded.length, new ByteArrayInputStream(other));
+        assertThrows(BusinessException.class, () -> service.uploadChunk(USER_ID, UPLOAD_ID, 0, sha256(other),
+                other.length, new ByteArrayInputStream(other)));
+
+        verify(uploadSessionMapper, never()).insertChunk(anyString(), anyInt(), anyLong(), anyString());
+        assertArrayEquals(new byte[CHUNK_SIZE * 2], Files.readAllBytes(stagingDir.resolve(UPLOAD_ID + ".part")));
+    }
+
+    @Test
+    void completionRejectsCorruptChunkWithoutFileHash() throws Exception {
+        // 会话没有声明整体哈希，仍要逐片复核
+        when(uploadSessionMapper.selectById(UPLOAD_ID)).thenReturn(session(UploadSession.STATUS_UPLOADING));
+        when(uploadSessionMapper.updateStatus(UPLOAD_ID, UploadSession.STATUS_UPLOADING, UploadSession.STATUS_COMPLETING))
+                .thenReturn(1);
+        byte[] empty = new byte[CHUNK_SIZE];
+        when(uploadSessionMapper.selectChunks(UPLOAD_ID))
+                .thenReturn(List.of(chunk(0, empty), chunk(1, new byte[] {1, 2, 3, 4})));
+
+        BusinessException e = assertThrows(BusinessException.class, () -> service.completeUpload(USER_ID, UPLOAD_ID));
+
+        assertEquals("分片 1 校验失败，请重新上传该分片", e.getMessage());
+        verify(uploadSessionMapper).deleteChunk(UPLOAD_ID, 1);
+        verify(uploadSessionMapper, never()).deleteChunk(UPLOAD_ID, 0);
+        verify(storedFileService, never()).storeStaged(any(), any(), any(), any(), anyLong());
+        verify(uploadSessionMapper).updateStatus(UPLOAD_ID, UploadSession.STATUS_COMPLETING, UploadSession.STATUS_UPLOADING);
+    }
+}
@@ -0,0 +1,137 @@
+package chat.liuxin.liutech.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+import chat.liuxin.liutech.mapper.ImageVariantMapper;
+import chat.liuxin.liutech.model.ImageVariant;
+import chat.liuxin.liutech.resp.ImageMetaResp;
+import chat.liuxin.liutech.resp.PostListResp;
+import chat.liuxin.liutech.utils.FileUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ImageVariantService 列表变体选择测试：封面按展示宽度选变体、没有足够宽的变体时保留原图、srcset 组成
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class ImageVariantServiceTest {
+
+    private static final String SOURCE = "images/ab/cd/a.jpg";
+    private static final String PREFIX = "/uploads/";
+
+    private ImageVariantMapper imageVariantMapper;
+    private ImageVariantService service;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantMapper = mock(ImageVariantMapper.class);
+        FileUtil fileUtil = mock(FileUtil.class);
+        when(fileUtil.toUploadedPath(anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).substring(PREFIX.length()));
+        when(fileUtil.generateFileUrl(anyString())).thenAnswer(invocation -> PREFIX + invocation.getArgument(0));
+
+        service = new ImageVariantService(mock(MeterRegistry.class));
+        ReflectionTestUtils.setField(service, "imageVariantMapper", imageVariantMapper);
+        ReflectionTestUtils.setField(service, "fileUtil", fileUtil);
+        ReflectionTestUtils.setField(service, "fileUploadConfig", new FileUploadConfig());
+        ReflectionTestUtils.setField(service, "listWidth", 640);
+        ReflectionTestUtils.setField(service, "cacheTtlMillis", 60000L);
+        ReflectionTestUtils.setField(service, "cacheMaxSize", 100);
+    }
+
+    private static ImageVariant variant(String name, String format, int width) {
+        String extension = "jpeg".equals(format) ? "jpg" : format;
+        return new ImageVariant()
+                .setSourcePath(SOURCE)
+                .setVariant(name)
+                .setFormat(format)
+                .setRelativePath("images/ab/cd/a_" + name + "." + extension)
+                .setWidth(width)
+                .setHeight(width / 2);
+    }
+
+    /**
+     * 原图宽度对应的变体集合（与生成逻辑一致：缩略图，加上比原图窄的各宽度，各有 JPEG 与 WebP）
+     */
+    private static List<ImageVariant> variantsFor(int originalWidth) {
+        List<ImageVariant> variants = new ArrayList<>();
+        variants.add(variant(ImageVariant.VARIANT_THUMBNAIL, "jpeg", 400));
+        variants.add(variant(ImageVariant.VARIANT_THUMBNAIL, "webp", 400));
+        for (int width : new int[] {320, 640, 1280}) {
+            if (width < originalWidth) {
+                variants.add(variant("w" + width, "jpeg", width));
+                variants.add(variant("w" + width, "webp", width));
+            }
+        }
+        return variants;
+    }
+
+    private PostListResp applyTo(int originalWidth, Integer metaWidth) {
+        when(imageVariantMapper.selectBySources(any())).thenReturn(variantsFor(originalWidth));
+        PostListResp post = new PostListResp();
+        post.setCoverImage(PREFIX + SOURCE);
+        if (metaWidth != null) {
+            post.setCoverMeta(new ImageMetaResp().setWidth(metaWidth).setHeight(metaWidth / 2));
+        }
+        service.applyListVariants(List.of(post));
+        return post;
+    }
+
+    @Test
+    void keepsOriginalWhenNoVariantIsWideEnough() {
+        // 500px 的原图只生成了 w320，列表卡片 640px，换成 320px 的图会被浏览器放大
+        PostListResp post = applyTo(500, 500);
+
+        assertEquals(PREFIX + SOURCE, post.getCoverImage());
+        assertEquals(PREFIX + "images/ab/cd/a_w320.webp 320w, " + PREFIX + SOURCE + " 500w", post.getCoverSrcset());
+        assertEquals(PREFIX + "images/ab/cd/a_thumb.webp", post.getThumbnail());
+    }
+
+    @Test
+    void picksSmallestVariantCoveringListWidth() {
+        PostListResp post = applyTo(2000, 2000);
+
+        assertEquals(PREFIX + "images/ab/cd/a_w640.webp", post.getCoverImage());
+        assertEquals(PREFIX + "images/ab/cd/a_w320.webp 320w, "
+                + PREFIX + "images/ab/cd/a_w640.webp 640w, "
+                + PREFIX + "images/ab/cd/a_w1280.webp 1280w, "
+                + PREFIX + SOURCE + " 2000w", post.getCoverSrcset());
+    }
+
+    @Test
+    void omitsSrcsetWhenOriginalWidthUnknown() {
+        PostListResp post = applyTo(2000, null);
+
+        assertEquals(PREFIX + "images/ab/cd/a_w640.webp", post.getCoverImage());
+        assertNull(post.getCoverSrcset());
+    }
+
+    @Test
+    void pickForWidthPrefersWebpAndIgnoresThumbnail() {
+        List<ImageVariant> variants = List.of(
+                variant(ImageVariant.VARIANT_THUMBNAIL, "webp", 800),
+                variant("w1280", "jpeg", 1280),
+                variant("w640", "jpeg", 640),
+                variant("w640", "webp", 640));
+
+        assertEquals("webp", ImageVariantService.pickForWidth(variants, 640).getFormat());
+        assertEquals(640, ImageVariantService.pickForWidth(variants, 500).getWidth());
+        assertEquals(1280, ImageVariantService.pickForWidth(variants, 641).getWidth());
+        assertNull(ImageVariantService.pickForWidth(variants, 1281));
+        assertNull(ImageVariantService.pickForWidth(List.of(variant(ImageVariant.VARIANT_THUMBNAIL, "jpeg", 400)), 320));
+    }
+}
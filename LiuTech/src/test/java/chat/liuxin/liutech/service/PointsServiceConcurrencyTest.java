@@ -0,0 +1,241 @@
+package chat.liuxin.liutech.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+
+import chat.liuxin.liutech.common.Result;
+import chat.liuxin.liutech.mapper.PointsLedgerMapper;
+import chat.liuxin.liutech.mapper.ResourceDownloadsMapper;
+import chat.liuxin.liutech.mapper.ResourcesMapper;
+import chat.liuxin.liutech.mapper.UserCheckinCalendarMapper;
+import chat.liuxin.liutech.mapper.UserCheckinMapper;
+import chat.liuxin.liutech.mapper.UserCheckinStatsMapper;
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.PointsLedger;
+import chat.liuxin.liutech.model.ResourceDownloads;
+import chat.liuxin.liutech.model.Resources;
+import chat.liuxin.liutech.model.UserCheckin;
+import chat.liuxin.liutech.model.UserCheckinCalendar;
+import chat.liuxin.liutech.model.UserCheckinStats;
+import chat.liuxin.liutech.model.Users;
+import chat.liuxin.liutech.resp.CheckinResp;
+
+/**
+ * 积分并发压力测试：同一幂等键的并发变动、并发签到与购买
+ * 依赖 InnoDB 的唯一索引与锁语义，需要导入了 sql.sql 的 MySQL：
+ * 设置环境变量 LIUTECH_TEST_DB_URL（如 jdbc:mysql://127.0.0.1:3307/liutech_test）后执行，未设置时跳过
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@SpringBootTest(properties = "spring.datasource.url=${LIUTECH_TEST_DB_URL:}")
+@EnabledIfEnvironmentVariable(named = "LIUTECH_TEST_DB_URL", matches = ".+")
+class PointsServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final BigDecimal INITIAL_POINTS = new BigDecimal("1000.00");
+    private static final BigDecimal RESOURCE_PRICE = new BigDecimal("10.00");
+
+    @Autowired
+    private PointsService pointsService;
+
+    @Autowired
+    private CheckinService checkinService;
+
+    @Autowired
+    private ResourceDownloadService resourceDownloadService;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ResourcesMapper resourcesMapper;
+
+    @Autowired
+    private ResourceDownloadsMapper resourceDownloadsMapper;
+
+    @Autowired
+    private PointsLedgerMapper pointsLedgerMapper;
+
+    @Autowired
+    private UserCheckinMapper userCheckinMapper;
+
+    @Autowired
+    private UserCheckinStatsMapper userCheckinStatsMapper;
+
+    @Autowired
+    private UserCheckinCalendarMapper userCheckinCalendarMapper;
+
+    private Long userId;
+    private final List<Long> resourceIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Users user = new Users();
+        user.setUsername("stress_" + suffix);
+        user.setEmail("stress_" + suffix + "@test.local");
+        user.setPasswordHash("x");
+        user.setPoints(INITIAL_POINTS);
+        user.setStatus(1);
+        userMapper.insert(user);
+        userId = user.getId();
+
+        for (int i = 0; i < THREADS / 2; i++) {
+            Resources resource = new Resources();
+            resource.setName("stress-resource-" + suffix + "-" + i);
+            resource.setFileUrl("/uploads/resources/stress-" + suffix + "-" + i + ".zip");
+            resource.setUploaderId(userId);
+            resource.setDownloadType(1);
+            resource.setPointsNeeded(RESOURCE_PRICE);
+            resourcesMapper.insert(resource);
+            resourceIds.add(resource.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        pointsLedgerMapper.delete(new LambdaQueryWrapper<PointsLedger>().eq(PointsLedger::getUserId, userId));
+        resourceDownloadsMapper.delete(new LambdaQueryWrapper<ResourceDownloads>().eq(ResourceDownloads::getUserId, userId));
+        userCheckinMapper.delete(new LambdaQueryWrapper<UserCheckin>().eq(UserCheckin::getUserId, userId));
+        userCheckinStatsMapper.delete(new LambdaQueryWrapper<UserCheckinStats>().eq(UserCheckinStats::getUserId, userId));
+        userCheckinCalendarMapper.delete(new LambdaQueryWrapper<UserCheckinCalendar>().eq(UserCheckinCalendar::getUserId, userId));
+        resourceIds.forEach(resourcesMapper::deleteById);
+        userMapper.deleteById(userId);
+    }
+
+    @Test
+    void duplicateIdempotencyKeyAppliesOnce() throws Exception {
+        String key = "stress:" + UUID.randomUUID();
+        BigDecimal delta = new BigDecimal("5.00");
+
+        List<Callable<PointsService.PointsChange>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> pointsService.change(userId, delta, PointsService.REASON_CHECKIN, null, key));
+        }
+        List<Object> outcomes = runConcurrently(tasks);
+
+        int applied = 0;
+        Long entryId = null;
+        for (Object outcome : outcomes) {
+            PointsService.PointsChange change = assertInstanceOf(PointsService.PointsChange.class, outcome);
+            // 后到者必须拿到先到者的流水，而不是空结果
+            assertNotNull(change.getEntry());
+            assertEquals(INITIAL_POINTS.add(delta), change.getBalance());
+            if (entryId == null) {
+                entryId = change.getEntry().getId();
+            }
+            assertEquals(entryId, change.getEntry().getId());
+            if (change.isApplied()) {
+                applied++;
+            }
+        }
+        assertEquals(1, applied);
+        assertEquals(INITIAL_POINTS.add(delta), userMapper.selectPoints(userId));
+    }
+
+    @Test
+    void concurrentCheckinAndPurchaseKeepBalanceConsistent() throws Exception {
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            tasks.add(() -> checkinService.checkin(userId));
+        }
+        for (Long resourceId : resourceIds) {
+            tasks.add(() -> {
+                resourceDownloadService.purchaseResource(userId, resourceId);
+                return resourceId;
+            });
+        }
+        // 同一资源的重复购买
+        for (int i = 0; i < THREADS / 4; i++) {
+            tasks.add(() -> {
+                resourceDownloadService.purchaseResource(userId, resourceIds.get(0));
+                return resourceIds.get(0);
+            });
+        }
+        List<Object> outcomes = runConcurrently(tasks);
+
+        int checkins = 0;
+        int purchases = 0;
+        BigDecimal earned = BigDecimal.ZERO;
+        for (Object outcome : outcomes) {
+            if (outcome instanceof Result<?> result && result.isSuccess()) {
+                checkins++;
+                CheckinResp resp = (CheckinResp) result.getData();
+                assertNotNull(resp.getTotalPoints());
+                earned = earned.add(resp.getPointsEarned());
+            } else if (outcome instanceof Long) {
+                purchases++;
+            }
+        }
+        assertEquals(1, checkins);
+        assertEquals(resourceIds.size(), purchases);
+
+        BigDecimal expected = INITIAL_POINTS.add(earned).subtract(RESOURCE_PRICE.multiply(BigDecimal.valueOf(purchases)));
+        assertEquals(expected, userMapper.selectPoints(userId));
+
+        // 流水之和与余额变化一致
+        BigDecimal ledgerSum = pointsLedgerMapper.selectList(
+                        new LambdaQueryWrapper<PointsLedger>().eq(PointsLedger::getUserId, userId)).stream()
+                .map(PointsLedger::getDelta)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(expected, INITIAL_POINTS.add(ledgerSum));
+        assertEquals((long) purchases, resourceDownloadsMapper.selectCount(
+                new LambdaQueryWrapper<ResourceDownloads>().eq(ResourceDownloads::getUserId, userId)));
+    }
+
+    /**
+     * 让所有任务在同一时刻开始执行，返回每个任务的结果或抛出的异常
+     */
+    private static <T> List<Object> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<Object> outcomes = new ArrayList<>(tasks.size());
+            for (Future<T> future : futures) {
+                try {
+                    outcomes.add(future.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause());
+                } catch (TimeoutException e) {
+                    throw new AssertionError("并发任务超时，可能发生死锁", e);
+                }
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package chat.liuxin.liutech.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import chat.liuxin.liutech.mapper.UserMapper;
+import chat.liuxin.liutech.model.Users;
+
+/**
+ * UserAvailabilityService 测试：键归一化与数据库排序规则同向折叠、重建期间追加的键在替换后仍命中
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class UserAvailabilityServiceTest {
+
+    private UserMapper userMapper;
+    private UserAvailabilityService service;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        service = new UserAvailabilityService();
+        ReflectionTestUtils.setField(service, "userMapper", userMapper);
+        ReflectionTestUtils.setField(service, "minCapacity", 1000L);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+    }
+
+    private static Users user(String username, String email) {
+        Users user = new Users();
+        user.setUsername(username);
+        user.setEmail(email);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void scanReturns(Runnable duringScan, Users... users) {
+        doAnswer(invocation -> {
+            ResultHandler<Users> handler = invocation.getArgument(0);
+            for (Users user : users) {
+                ResultContext<Users> context = mock(ResultContext.class);
+                when(context.getResultObject()).thenReturn(user);
+                handler.handleResult(context);
+            }
+            duringScan.run();
+            return null;
+        }).when(userMapper).scanUsernamesAndEmails(any());
+    }
+
+    @Test
+    void normalizeFoldsCompatibilityCharactersAndAccents() {
+        assertEquals("foo", UserAvailabilityService.normalize(" ＦＯＯ "));
+        assertEquals("cafe", UserAvailabilityService.normalize("Café"));
+        assertEquals("file", UserAvailabilityService.normalize("ﬁle"));
+        assertEquals("a@b.com", UserAvailabilityService.normalize("Ａ＠ｂ．ｃｏｍ"));
+    }
+
+    @Test
+    void fullWidthLookupFallsBackToDatabase() {
+        scanReturns(() -> { }, user("foo", "foo@test.local"));
+        service.rebuild();
+        when(userMapper.existsByUsername(anyString())).thenReturn(true);
+
+        // 全角写法在数据库排序规则下与已有用户名相同，不能被判为一定不存在
+        assertTrue(service.isUsernameTaken("ｆｏｏ"));
+        verify(userMapper).existsByUsername("ｆｏｏ");
+        assertFalse(service.isEmailDefinitelyFree("ＦＯＯ@test.local"));
+    }
+
+    @Test
+    void keysAddedDuringRebuildSurviveSwap() {
+        scanReturns(() -> service.addAfterCommit("bob", "bob@test.local"), user("alice", null));
+        service.rebuild();
+        when(userMapper.existsByUsername("bob")).thenReturn(true);
+
+        assertTrue(service.isUsernameTaken("bob"));
+        assertFalse(service.isEmailDefinitelyFree("bob@test.local"));
+        // 不存在的值由过滤器直接判定，不查数据库
+        assertFalse(service.isUsernameTaken("nobody-" + System.nanoTime()));
+        verify(userMapper, never()).existsByUsername(startsWith("nobody-"));
+    }
+}
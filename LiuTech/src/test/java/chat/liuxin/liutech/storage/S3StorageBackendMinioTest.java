@@ -0,0 +1,133 @@
+package chat.liuxin.liutech.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+
+import chat.liuxin.liutech.config.FileUploadConfig;
+
+/**
+ * S3StorageBackend 对接真实 MinIO 的测试，校验签名、条件写入与预签名URL能被服务端接受
+ * 设置环境变量 S3_TEST_ENDPOINT（如 http://127.0.0.1:9000）后执行，未设置时跳过；
+ * 存储桶需预先创建，可用 S3_TEST_BUCKET、S3_TEST_ACCESS_KEY、S3_TEST_SECRET_KEY 覆盖默认值
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@EnabledIfEnvironmentVariable(named = "S3_TEST_ENDPOINT", matches = ".+")
+class S3StorageBackendMinioTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+    private FileUploadConfig.S3 config;
+    private S3StorageBackend backend;
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        config = new FileUploadConfig.S3();
+        config.setEndpoint(System.getenv("S3_TEST_ENDPOINT"));
+        config.setBucket(env("S3_TEST_BUCKET", "liutech-test"));
+        config.setAccessKey(env("S3_TEST_ACCESS_KEY", "minioadmin"));
+        config.setSecretKey(env("S3_TEST_SECRET_KEY", "minioadmin"));
+        // 每次运行使用独立前缀，互不干扰
+        config.setKeyPrefix("it-" + UUID.randomUUID());
+        backend = new S3StorageBackend(config, executor);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        backend.list("", object -> keys.add(object.getKey())).get();
+        for (String key : keys) {
+            backend.delete(key).get();
+        }
+        executor.shutdownNow();
+    }
+
+    private Path file(String content) throws IOException {
+        Path path = Files.createTempFile(tempDir, "upload", ".tmp");
+        Files.writeString(path, content);
+        return path;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void roundTrip() throws Exception {
+        String key = "documents/2026/年度 报告+v1.txt";
+        assertTrue(backend.putIfAbsent(key, file("0123456789")).get());
+        assertFalse(backend.putIfAbsent(key, file("other")).get());
+
+        assertEquals("0123456789", read(backend.get(key).get()));
+        assertEquals("2345", read(backend.getRange(key, 2, 5).get()));
+        StorageObject head = backend.head(key).get();
+        assertNotNull(head);
+        assertEquals(10, head.getSize());
+        assertNotNull(head.getEtag());
+
+        List<String> keys = Collections.synchronizedList(new ArrayList<>());
+        backend.list("documents/", object -> keys.add(object.getKey())).get();
+        assertEquals(List.of(key), keys);
+
+        assertTrue(backend.delete(key).get());
+        assertNull(backend.head(key).get());
+    }
+
+    @Test
+    void overwritesWithPut() throws Exception {
+        backend.put("images/ab/cd/a.png", file("first")).get();
+        backend.put("images/ab/cd/a.png", file("second")).get();
+
+        assertEquals("second", read(backend.get("images/ab/cd/a.png").get()));
+    }
+
+    @Test
+    void presignedUrlIsAcceptedByServer() throws Exception {
+        backend.put("resources/ab/cd/资料 1.zip", file("zip bytes")).get();
+
+        String url = backend.accessUrl("resources/ab/cd/资料 1.zip", "资料 1.zip", Duration.ofSeconds(60));
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(url)).GET().build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode(), response.body());
+        assertEquals("zip bytes", response.body());
+        assertTrue(response.headers().firstValue("Content-Disposition").orElse("").startsWith("attachment"));
+    }
+}
@@ -0,0 +1,121 @@
+package chat.liuxin.liutech.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 违禁词匹配基准测试：Aho-Corasick 自动机 vs 正则
+ * 词典为固定随机种子生成的英文与中文词条（默认1万条），文本为一条评论长度的混合文本，末尾含一个命中。
+ *
+ * 对比项：
+ * 1) ahoCorasick：单次线性扫描；
+ * 2) regexAlternation：全部词条编译成一个 (?:w1|w2|...) 正则；
+ * 3) regexPerWord：每个词条单独编译正则逐个查找（改造前常见的写法）。
+ *
+ * 运行方式：在IDE中直接运行 main，或 mvn test-compile 后以测试类路径执行本类。
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AhoCorasickMatcherBenchmark {
+
+    private static final String LATIN = "abcdefghijklmnopqrstuvwxyz";
+    private static final String CJK = "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果料象员革位入常文总次品式活设及管特件长求老头基资边流路级少图山统接知较将组见计别她手角期根论运农指几九区强放决西被干做必战先回则任取据处理府研质";
+
+    @Param({"10000"})
+    private int dictionarySize;
+
+    private AhoCorasickMatcher matcher;
+    private Pattern alternation;
+    private List<Pattern> perWord;
+    private String text;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>(dictionarySize);
+        for (int i = 0; i < dictionarySize; i++) {
+            words.add(i % 2 == 0 ? randomWord(random, LATIN, 5, 10) : randomWord(random, CJK, 2, 4));
+        }
+        matcher = AhoCorasickMatcher.build(words);
+        alternation = Pattern.compile(words.stream().map(Pattern::quote).collect(Collectors.joining("|", "(?:", ")")),
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        perWord = words.stream()
+                .map(word -> Pattern.compile(Pattern.quote(word), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                .collect(Collectors.toList());
+
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 2000) {
+            builder.append(randomWord(random, LATIN, 3, 8)).append(' ')
+                    .append(randomWord(random, CJK, 4, 12)).append("，");
+        }
+        builder.append(words.get(dictionarySize - 1));
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int ahoCorasick() {
+        return matcher.findAll(text).size();
+    }
+
+    @Benchmark
+    public int regexAlternation() {
+        int count = 0;
+        Matcher m = alternation.matcher(text);
+        while (m.find()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int regexPerWord() {
+        int count = 0;
+        for (Pattern pattern : perWord) {
+            Matcher m = pattern.matcher(text);
+            while (m.find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String randomWord(Random random, String alphabet, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AhoCorasickMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
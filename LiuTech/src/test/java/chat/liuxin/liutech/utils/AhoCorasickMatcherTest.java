@@ -0,0 +1,57 @@
+package chat.liuxin.liutech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * AhoCorasickMatcher 单元测试
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class AhoCorasickMatcherTest {
+
+    private final AhoCorasickMatcher matcher = AhoCorasickMatcher.build(List.of("asshole", "傻逼", "blow job", "fuck"));
+
+    @Test
+    void matchesNormalizedWords() {
+        assertTrue(matcher.containsAny("YOU ASSHOLE!"));
+        assertTrue(matcher.containsAny("ｆｕｃｋ"));
+        assertTrue(matcher.containsAny("f.u.c.k"));
+        assertTrue(matcher.containsAny("傻 * 逼"));
+        assertTrue(matcher.containsAny("傻\n逼"));
+    }
+
+    @Test
+    void doesNotMatchAcrossLatinWordBoundaries() {
+        assertFalse(matcher.containsAny("grass hole"));
+        assertFalse(matcher.containsAny("as shole"));
+        assertFalse(matcher.containsAny("as\nshole"));
+        assertTrue(matcher.findAll("grass hole").isEmpty());
+    }
+
+    @Test
+    void matchesDictionaryPhrasesWithCollapsedWhitespace() {
+        assertTrue(matcher.containsAny("blow   job"));
+        assertTrue(matcher.containsAny("blow\tjob"));
+        assertFalse(matcher.containsAny("blowjob"));
+    }
+
+    @Test
+    void findAllMapsMatchesBackToOriginalText() {
+        String text = "you asshole. 傻 逼";
+        List<AhoCorasickMatcher.Match> matches = matcher.findAll(text);
+
+        assertEquals(2, matches.size());
+        assertEquals("asshole", matches.get(0).getWord());
+        assertEquals(4, matches.get(0).getStart());
+        assertEquals(11, matches.get(0).getEnd());
+        assertEquals("傻逼", matches.get(1).getWord());
+        assertEquals("you *******. * *", AhoCorasickMatcher.mask(text, matches));
+    }
+}
@@ -0,0 +1,51 @@
+package chat.liuxin.liutech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * IpUtil 单元测试：代理头只在受信任代理转发时生效，且不能被客户端伪造
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class IpUtilTest {
+
+    private static MockHttpServletRequest request(String remoteAddr, String xRealIp, String xForwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (xRealIp != null) {
+            request.addHeader("X-Real-IP", xRealIp);
+        }
+        if (xForwardedFor != null) {
+            request.addHeader("X-Forwarded-For", xForwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void ignoresProxyHeadersFromPublicClients() {
+        assertEquals("203.0.113.7", IpUtil.getClientIpAddress(request("203.0.113.7", "1.1.1.1", "2.2.2.2")));
+    }
+
+    @Test
+    void prefersRealIpSetByNginx() {
+        assertEquals("203.0.113.7",
+                IpUtil.getClientIpAddress(request("172.18.0.3", "203.0.113.7", "1.2.3.4, 203.0.113.7")));
+    }
+
+    @Test
+    void usesRightMostUntrustedForwardedHop() {
+        // 客户端伪造的 1.2.3.4 位于最左侧，nginx 追加的真实地址在右侧
+        assertEquals("203.0.113.7",
+                IpUtil.getClientIpAddress(request("127.0.0.1", null, "1.2.3.4, 203.0.113.7, 10.0.0.2")));
+    }
+
+    @Test
+    void fallsBackToRemoteAddr() {
+        assertEquals("10.0.0.2", IpUtil.getClientIpAddress(request("10.0.0.2", null, null)));
+        assertEquals("10.0.0.2", IpUtil.getClientIpAddress(request("10.0.0.2", "unknown", "unknown")));
+    }
+}
@@ -0,0 +1,169 @@
+package chat.liuxin.liutech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * RankedSkipList 随机化测试：随机执行添加、更新、增量与删除，每步与按排序列表实现的参照结果比对
+ * 分数、排名与区间，并校验各层前向指针的跨度
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class RankedSkipListTest {
+
+    private static final int OPERATIONS = 5000;
+    private static final int MEMBERS = 200;
+
+    /**
+     * 参照排序：分数高者在前，分数相同ID小者在前
+     */
+    private static final Comparator<long[]> ORDER = Comparator
+            .<long[]>comparingDouble(entry -> -Double.longBitsToDouble(entry[1]))
+            .thenComparingLong(entry -> entry[0]);
+
+    @Test
+    void matchesSortedListOracle() {
+        long seed = System.nanoTime();
+        Random random = new Random(seed);
+        RankedSkipList list = new RankedSkipList();
+        Map<Long, Double> oracle = new HashMap<>();
+
+        for (int step = 0; step < OPERATIONS; step++) {
+            long member = random.nextInt(MEMBERS);
+            // 分数取值范围小，保证有大量同分成员
+            double score = random.nextInt(20);
+            String context = "seed=" + seed + ", step=" + step;
+            switch (random.nextInt(4)) {
+                case 0:
+                    list.put(member, score);
+                    oracle.put(member, score);
+                    break;
+                case 1:
+                    assertEquals(!oracle.containsKey(member), list.putIfAbsent(member, score), context);
+                    oracle.putIfAbsent(member, score);
+                    break;
+                case 2:
+                    double delta = random.nextInt(5) - 2;
+                    assertEquals(oracle.getOrDefault(member, 0.0) + delta, list.increment(member, delta), context);
+                    oracle.merge(member, delta, Double::sum);
+                    break;
+                default:
+                    assertEquals(oracle.remove(member) != null, list.remove(member), context);
+                    break;
+            }
+            verify(list, oracle, random, context);
+        }
+    }
+
+    @Test
+    void emptyAndOutOfRangeQueries() {
+        RankedSkipList list = new RankedSkipList();
+        assertEquals(0, list.rank(1L));
+        assertNull(list.score(1L));
+        assertTrue(list.range(0, 10).isEmpty());
+
+        list.put(1L, 10);
+        list.put(2L, 10);
+        list.put(3L, 20);
+
+        assertEquals(1, list.rank(3L));
+        assertEquals(2, list.rank(1L));
+        assertEquals(3, list.rank(2L));
+        assertTrue(list.range(3, 10).isEmpty());
+        assertTrue(list.range(-1, 10).isEmpty());
+        assertTrue(list.range(0, 0).isEmpty());
+        assertEquals(1, list.range(2, 10).size());
+        assertEquals(3, list.range(2, 10).get(0).getRank());
+    }
+
+    private static void verify(RankedSkipList list, Map<Long, Double> oracle, Random random, String context) {
+        List<long[]> expected = new ArrayList<>();
+        for (Map.Entry<Long, Double> entry : oracle.entrySet()) {
+            expected.add(new long[] {entry.getKey(), Double.doubleToLongBits(entry.getValue())});
+        }
+        expected.sort(ORDER);
+
+        assertEquals(expected.size(), list.size(), context);
+        for (int i = 0; i < expected.size(); i++) {
+            long member = expected.get(i)[0];
+            assertEquals(oracle.get(member), list.score(member), context);
+            assertEquals(i + 1, list.rank(member), context + ", member=" + member);
+        }
+        assertEquals(0, list.rank(MEMBERS), context);
+
+        int offset = random.nextInt(expected.size() + 2);
+        int limit = random.nextInt(expected.size() + 2);
+        List<RankedSkipList.Entry> range = list.range(offset, limit);
+        int expectedSize = Math.max(0, Math.min(limit, expected.size() - offset));
+        assertEquals(expectedSize, range.size(), context + ", offset=" + offset + ", limit=" + limit);
+        for (int i = 0; i < range.size(); i++) {
+            long[] entry = expected.get(offset + i);
+            assertEquals(entry[0], range.get(i).getMember(), context);
+            assertEquals(Double.longBitsToDouble(entry[1]), range.get(i).getScore(), context);
+            assertEquals(offset + i + 1, range.get(i).getRank(), context);
+        }
+
+        verifySpans(list, expected, context);
+    }
+
+    /**
+     * 校验跳表结构：第0层按参照顺序串起全部成员；各层每个前向指针的跨度等于它跳过的第0层节点数，
+     * 指向末尾（null）的指针跨度等于其后剩余的节点数
+     */
+    private static void verifySpans(RankedSkipList list, List<long[]> expected, String context) {
+        Object head = ReflectionTestUtils.getField(list, "head");
+        int level = (Integer) ReflectionTestUtils.getField(list, "level");
+        int length = (Integer) ReflectionTestUtils.getField(list, "length");
+        assertEquals(expected.size(), length, context);
+
+        // 节点 -> 排名（头节点为0）
+        Map<Object, Integer> ranks = new IdentityHashMap<>();
+        ranks.put(head, 0);
+        Object x = next(head, 0);
+        for (int i = 0; i < expected.size(); i++) {
+            assertNotNull(x, context + ", level 0 ends at " + i);
+            assertEquals(expected.get(i)[0], (long) (Long) ReflectionTestUtils.getField(x, "member"), context);
+            ranks.put(x, i + 1);
+            x = next(x, 0);
+        }
+        assertNull(x, context + ", level 0 longer than length");
+
+        for (int i = 0; i < level; i++) {
+            Object node = head;
+            while (node != null) {
+                Object forward = next(node, i);
+                int span = ((int[]) ReflectionTestUtils.getField(node, "span"))[i];
+                int rank = ranks.get(node);
+                if (forward != null) {
+                    Integer forwardRank = ranks.get(forward);
+                    assertNotNull(forwardRank, context + ", level " + i + " points outside level 0");
+                    assertEquals(forwardRank - rank, span, context + ", level=" + i + ", rank=" + rank);
+                } else {
+                    assertEquals(length - rank, span, context + ", tail level=" + i + ", rank=" + rank);
+                }
+                node = forward;
+            }
+        }
+        if (level > 1) {
+            assertNotNull(next(head, level - 1), context + ", empty top level " + (level - 1));
+        }
+    }
+
+    private static Object next(Object node, int level) {
+        return ((Object[]) ReflectionTestUtils.getField(node, "next"))[level];
+    }
+}
@@ -0,0 +1,45 @@
+package chat.liuxin.liutech.utils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * SlidingWindowRateLimiter 单元测试
+ *
+ * @author 刘鑫
+ * @date 2026-10-19
+ */
+class SlidingWindowRateLimiterTest {
+
+    @Test
+    void limitsWithinWindow() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(3, 60_000L, 100);
+
+        assertTrue(limiter.tryAcquire("ip"));
+        assertTrue(limiter.tryAcquire("ip"));
+        assertTrue(limiter.tryAcquire("ip"));
+        assertFalse(limiter.tryAcquire("ip"));
+        assertTrue(limiter.isLimited("ip"));
+        assertTrue(limiter.tryAcquire("other"));
+    }
+
+    @Test
+    void keepsRecentlyUsedKeysWhenFull() throws InterruptedException {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, 60_000L, 100);
+        limiter.tryAcquire("attacker");
+        limiter.tryAcquire("attacker");
+        for (int i = 0; i < 99; i++) {
+            limiter.tryAcquire("random-" + i);
+        }
+        Thread.sleep(5);
+        // 被限流的key最近仍在访问，容量满时不应被淘汰
+        assertFalse(limiter.tryAcquire("attacker"));
+
+        limiter.tryAcquire("new-key");
+
+        assertTrue(limiter.size() <= 100);
+        assertTrue(limiter.isLimited("attacker"));
+    }
+}
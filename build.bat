@@ -12,7 +12,7 @@ echo ==========================================
 REM 1. Build Backend
 echo [1/5] Building Backend Service...
 echo Cleaning and compiling backend project...
-call mvn -f LiuTech/pom.xml clean package -DskipTests
+call mvn -f pom.xml -pl LiuTech -am clean package -DskipTests
 if %errorlevel% neq 0 (
     echo [ERROR] Backend compilation failed!
     pause
@@ -30,7 +30,7 @@ if %errorlevel% neq 0 (
 REM 2. Build AI Service
 echo [2/5] Building AI Service...
 echo Cleaning and compiling AI project...
-call mvn -f LiuTech-AI/pom.xml clean package -DskipTests
+call mvn -f pom.xml -pl LiuTech-AI -am clean package -DskipTests
 if %errorlevel% neq 0 (
     echo [ERROR] AI service compilation failed!
     pause
@@ -14,7 +14,7 @@ echo "=========================================="
 # 1. 构建后端
 echo "🔨 构建后端服务..."
 echo "清理并编译后端项目..."
-mvn -q -f LiuTech/pom.xml clean package -DskipTests
+mvn -q -f pom.xml -pl LiuTech -am clean package -DskipTests
 
 echo "构建后端Docker镜像..."
 docker build -t liutech-backend:latest -f LiuTech/Dockerfile LiuTech
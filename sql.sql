@@ -15,6 +15,7 @@ CREATE TABLE IF NOT EXISTS users (
   avatar_url VARCHAR(512) DEFAULT NULL COMMENT '头像URL',
   points DECIMAL(12,2) NOT NULL DEFAULT 0 COMMENT '用户积分',
   status TINYINT UNSIGNED NOT NULL DEFAULT 1 COMMENT '用户状态(0禁用,1正常)',
+  token_version INT UNSIGNED NOT NULL DEFAULT 0 COMMENT 'token版本号（改密码/禁用/全部登出时递增）',
   last_login_at TIMESTAMP NULL DEFAULT NULL COMMENT '最近登录时间',
   nickname VARCHAR(100) DEFAULT NULL COMMENT '用户昵称',
   bio TEXT DEFAULT NULL COMMENT '个人简介',
@@ -212,6 +213,113 @@ CREATE TABLE IF NOT EXISTS user_checkins (
   FOREIGN KEY (user_id) REFERENCES users(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户签到记录表';
 
+-- 用户签到汇总表（每个用户一行，签到时增量维护；老用户首次访问时由应用从 user_checkins 补建）
+CREATE TABLE IF NOT EXISTS user_checkin_stats (
+  user_id BIGINT NOT NULL PRIMARY KEY COMMENT '用户ID',
+  last_checkin_date DATE DEFAULT NULL COMMENT '最后签到日期',
+  current_streak INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '截至最后签到日期的连续签到天数',
+  total_checkins INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '总签到次数',
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户签到汇总表';
+
+-- 用户年度签到日历表（每个用户每年一行，days 第 dayOfYear-1 位表示当天已签到）
+CREATE TABLE IF NOT EXISTS user_checkin_calendars (
+  user_id BIGINT NOT NULL COMMENT '用户ID',
+  year SMALLINT UNSIGNED NOT NULL COMMENT '年份',
+  days BINARY(46) NOT NULL COMMENT '签到位图（366位）',
+  PRIMARY KEY (user_id, year)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户年度签到日历表';
+
+-- 新增：积分流水表（只追加，每次积分变动一行，幂等键防止重试重复变动）
+CREATE TABLE IF NOT EXISTS points_ledger (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '流水ID',
+  user_id BIGINT NOT NULL COMMENT '用户ID',
+  delta DECIMAL(12,2) NOT NULL COMMENT '变动量（获得为正，消费为负）',
+  balance_after DECIMAL(12,2) DEFAULT NULL COMMENT '变动后的积分余额',
+  reason VARCHAR(32) NOT NULL COMMENT '变动原因',
+  ref_id VARCHAR(64) DEFAULT NULL COMMENT '关联业务ID',
+  idempotency_key VARCHAR(128) DEFAULT NULL COMMENT '幂等键',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  UNIQUE KEY uk_idempotency_key (idempotency_key),
+  INDEX idx_user_id_id (user_id, id),
+  FOREIGN KEY (user_id) REFERENCES users(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='积分流水表';
+
+-- 新增：排行榜快照表（按日/按月排行榜的成员分数，启动时恢复内存排行榜）
+CREATE TABLE IF NOT EXISTS leaderboard_snapshots (
+  board VARCHAR(64) NOT NULL COMMENT '排行榜标识（如 points:2026-10-19、checkins:2026-10）',
+  user_id BIGINT NOT NULL COMMENT '用户ID',
+  score DECIMAL(14,2) NOT NULL COMMENT '分数',
+  updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (board, user_id),
+  INDEX idx_updated_at (updated_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='排行榜快照表';
+
+-- 新增：上传文件存储表（按内容SHA-256寻址，同一内容只存一份，引用数由 resources 记录维护）
+CREATE TABLE IF NOT EXISTS stored_files (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+  sha256 CHAR(64) NOT NULL COMMENT '文件内容SHA-256（小写十六进制）',
+  relative_path VARCHAR(255) NOT NULL COMMENT '相对上传根目录的路径',
+  size BIGINT NOT NULL COMMENT '文件大小（字节）',
+  ref_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '引用数（指向该文件的资源记录数）',
+  width INT UNSIGNED DEFAULT NULL COMMENT '图片宽度（像素）',
+  height INT UNSIGNED DEFAULT NULL COMMENT '图片高度（像素）',
+  dominant_color CHAR(7) DEFAULT NULL COMMENT '图片主色调（如 #3a6ea5）',
+  placeholder VARCHAR(64) DEFAULT NULL COMMENT '图片占位串（BlurHash）',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  last_referenced_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次上传命中或被引用的时间',
+  UNIQUE KEY uk_relative_path (relative_path),
+  INDEX idx_sha256 (sha256),
+  INDEX idx_ref_count_referenced (ref_count, last_referenced_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='上传文件存储表';
+
+-- 新增：图片变体表（上传图片后异步生成的缩略图与多种宽度的缩放图）
+CREATE TABLE IF NOT EXISTS image_variants (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '主键ID',
+  source_path VARCHAR(255) NOT NULL COMMENT '原图相对路径',
+  variant VARCHAR(16) NOT NULL COMMENT '变体名（thumb、w320、w640等）',
+  format VARCHAR(8) NOT NULL COMMENT '编码格式（jpeg、png、webp）',
+  relative_path VARCHAR(255) NOT NULL COMMENT '变体文件相对路径',
+  width INT UNSIGNED NOT NULL COMMENT '宽度（像素）',
+  height INT UNSIGNED NOT NULL COMMENT '高度（像素）',
+  size BIGINT NOT NULL COMMENT '文件大小（字节）',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  UNIQUE KEY uk_source_variant_format (source_path, variant, format),
+  INDEX idx_relative_path (relative_path)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='图片变体表';
+
+-- 新增：分片上传会话表（大文件分片上传、断点续传）
+CREATE TABLE IF NOT EXISTS upload_sessions (
+  id CHAR(32) NOT NULL PRIMARY KEY COMMENT '上传ID',
+  user_id BIGINT NOT NULL COMMENT '上传用户ID',
+  file_name VARCHAR(255) NOT NULL COMMENT '原始文件名',
+  file_size BIGINT NOT NULL COMMENT '文件大小（字节）',
+  chunk_size INT UNSIGNED NOT NULL COMMENT '分片大小（字节）',
+  chunk_count INT UNSIGNED NOT NULL COMMENT '分片数',
+  sha256 CHAR(64) DEFAULT NULL COMMENT '客户端声明的文件SHA-256',
+  description VARCHAR(1000) DEFAULT NULL COMMENT '文件描述',
+  draft_key VARCHAR(64) DEFAULT NULL COMMENT '草稿关联键',
+  type VARCHAR(50) DEFAULT NULL COMMENT '附件类型',
+  download_type TINYINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '下载类型（0免费，1积分）',
+  points_needed INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '下载所需积分',
+  status TINYINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '状态（0上传中，1合并中，2已完成）',
+  resource_id BIGINT DEFAULT NULL COMMENT '合并完成后创建的资源ID',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  expires_at TIMESTAMP NOT NULL COMMENT '过期时间（收到分片时顺延）',
+  INDEX idx_user_status (user_id, status),
+  INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传会话表';
+
+-- 新增：分片上传已收到的分片
+CREATE TABLE IF NOT EXISTS upload_session_chunks (
+  upload_id CHAR(32) NOT NULL COMMENT '上传ID',
+  chunk_index INT UNSIGNED NOT NULL COMMENT '分片序号（从0开始）',
+  size INT UNSIGNED NOT NULL COMMENT '分片大小（字节）',
+  sha256 CHAR(64) NOT NULL COMMENT '分片SHA-256',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '收到时间',
+  PRIMARY KEY (upload_id, chunk_index)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分片上传分片表';
+
 -- 新增：文章附件表（草稿与正式文章通用关联）
 CREATE TABLE IF NOT EXISTS post_attachments (
   id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '附件关联ID',
@@ -232,6 +340,59 @@ CREATE TABLE IF NOT EXISTS post_attachments (
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文章附件表（草稿态与文章态通用）';
 
 
+-- 内容审核队列表（审核模式下命中违禁词的评论/文章）
+-- 已有库升级：ALTER TABLE content_reviews ADD COLUMN target_status VARCHAR(20) DEFAULT NULL COMMENT '审核通过后恢复的文章状态' AFTER status;
+CREATE TABLE IF NOT EXISTS content_reviews (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '审核记录ID',
+  target_type VARCHAR(20) NOT NULL COMMENT '内容类型（comment/post）',
+  target_id BIGINT NOT NULL COMMENT '内容ID',
+  user_id BIGINT DEFAULT NULL COMMENT '内容作者ID',
+  excerpt VARCHAR(500) DEFAULT NULL COMMENT '内容摘录',
+  hit_words VARCHAR(500) DEFAULT NULL COMMENT '命中的违禁词（逗号分隔）',
+  status TINYINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '审核状态(0待审核,1通过,2驳回)',
+  target_status VARCHAR(20) DEFAULT NULL COMMENT '审核通过后恢复的文章状态',
+  reviewed_by BIGINT DEFAULT NULL COMMENT '审核人ID',
+  reviewed_at TIMESTAMP NULL DEFAULT NULL COMMENT '审核时间',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  INDEX idx_status_created (status, created_at),
+  INDEX idx_target (target_type, target_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='内容审核队列表';
+
+-- 已吊销token表（退出登录的token，过期后由定时任务清理）
+-- 已有库升级：ALTER TABLE users ADD COLUMN token_version INT UNSIGNED NOT NULL DEFAULT 0 COMMENT 'token版本号（改密码/禁用/全部登出时递增）' AFTER status;
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+  token_id CHAR(36) NOT NULL PRIMARY KEY COMMENT 'token ID（jti）',
+  user_id BIGINT NOT NULL COMMENT '用户ID',
+  expires_at TIMESTAMP NOT NULL COMMENT 'token过期时间',
+  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '吊销时间',
+  INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='已吊销token表';
+
+-- 用户统计汇总表（每个用户一行，由应用在文章/评论写入后重新汇总，缺失时读取时补齐）
+CREATE TABLE IF NOT EXISTS user_stats (
+  user_id BIGINT NOT NULL PRIMARY KEY COMMENT '用户ID',
+  post_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '已发布文章数',
+  draft_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '草稿数',
+  comment_count INT UNSIGNED NOT NULL DEFAULT 0 COMMENT '评论数',
+  view_count BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '已发布文章总浏览量',
+  like_count BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '已发布文章总获赞数',
+  last_post_at TIMESTAMP NULL DEFAULT NULL COMMENT '最后发文时间',
+  last_comment_at TIMESTAMP NULL DEFAULT NULL COMMENT '最后评论时间',
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '统计时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户统计汇总表';
+
+-- 独立访客计数快照表（HyperLogLog 寄存器数组，每个统计对象每天一行，由应用定时合并写入）
+CREATE TABLE IF NOT EXISTS visitor_sketches (
+  scope VARCHAR(16) NOT NULL COMMENT '统计范围(visitor全站访客,user全站登录用户,post单篇文章)',
+  target_id BIGINT NOT NULL DEFAULT 0 COMMENT '统计对象ID（全站为0）',
+  stat_date DATE NOT NULL COMMENT '统计日期',
+  registers MEDIUMBLOB NOT NULL COMMENT 'HyperLogLog寄存器数组',
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (scope, target_id, stat_date),
+  INDEX idx_stat_date (stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='独立访客计数快照表';
+
 -- 1) 必选：消息明细表（按用户时间线组织）
 -- 设计说明：
 -- - 不区分会话，按 user_id + created_at 排序即可拿到对话历史